@@ -1,3 +1,5 @@
+import com.example.netanalyzer.OuiIndex
+
 plugins {
     alias(libs.plugins.android.application)
 }
@@ -30,6 +32,120 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+
+    // oui.bin is memory-mapped from the APK, which only works for stored entries
+    androidResources {
+        noCompress += "bin"
+    }
+}
+
+// IEEE registry exports. A copy checked in under src/main/oui is used as-is; any that is
+// missing is downloaded into the build directory once and reused after that.
+val ouiRegistries = mapOf(
+    "oui.csv" to "https://standards-oui.ieee.org/oui/oui.csv",
+    "mam.csv" to "https://standards-oui.ieee.org/oui28/mam.csv",
+    "oui36.csv" to "https://standards-oui.ieee.org/oui36/oui36.csv",
+)
+
+// Fetches the registries in `sources` (file name to URL) that are not already in
+// outputDir. A registry that can't be fetched fails the build: without it oui.bin would
+// hold only the few dozen prefixes in oui_database.txt. Offline builds need the CSVs
+// checked in under src/main/oui.
+abstract class DownloadOuiRegistry : DefaultTask() {
+    @get:Input
+    abstract val sources: MapProperty<String, String>
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    init {
+        outputs.upToDateWhen { task ->
+            val self = task as DownloadOuiRegistry
+            self.sources.get().keys.all { File(self.outputDir.get().asFile, it).exists() }
+        }
+    }
+
+    @TaskAction
+    fun download() {
+        val dir = outputDir.get().asFile
+        for ((name, url) in sources.get()) {
+            val target = File(dir, name)
+            if (target.exists()) continue
+            val partial = File(dir, "$name.part")
+            try {
+                val connection = java.net.URI(url).toURL().openConnection() as java.net.HttpURLConnection
+                // The IEEE site rejects requests without a browser-like User-Agent
+                connection.setRequestProperty("User-Agent", "Mozilla/5.0 (NetAnalyzer build)")
+                connection.connectTimeout = 15_000
+                connection.readTimeout = 60_000
+                connection.inputStream.use { input -> partial.outputStream().use { input.copyTo(it) } }
+                if (!partial.renameTo(target)) throw java.io.IOException("Could not write $target")
+            } catch (e: java.io.IOException) {
+                partial.delete()
+                throw GradleException("Could not download $url (${e.message}). "
+                        + "Put a copy of $name in src/main/oui to build offline.", e)
+            }
+        }
+    }
+}
+
+// Compiles the MAC vendor registry (IEEE oui.csv / mam.csv / oui36.csv from src/main/oui
+// or the download directory, plus oui_database.txt) into the binary index that OuiIndex
+// reads in place. Parsing and the binary layout are OuiIndex.Builder's own, compiled
+// into buildSrc from the app's sources.
+abstract class CompileOuiDatabase : DefaultTask() {
+    @get:InputDirectory
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val registryDir: DirectoryProperty
+
+    @get:InputDirectory
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val downloadDir: DirectoryProperty
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @TaskAction
+    fun compile() {
+        // IEEE registry first and oui_database.txt last: for a duplicate prefix the
+        // Builder keeps the last name added, so local entries override the registry
+        val builder = OuiIndex.Builder()
+        val dir = registryDir.get().asFile
+        for (name in listOf("oui.csv", "mam.csv", "oui36.csv")) {
+            val csv = File(dir, name).takeIf { it.exists() }
+                ?: File(downloadDir.get().asFile, name).takeIf { it.exists() }
+                ?: throw GradleException(
+                    "IEEE registry $name is missing from src/main/oui and ${downloadDir.get().asFile}")
+            csv.bufferedReader(Charsets.UTF_8).use { builder.addIeeeCsv(it) }
+        }
+        File(dir, "oui_database.txt").takeIf { it.exists() }?.forEachLine(Charsets.UTF_8) {
+            builder.addPropertiesLine(it)
+        }
+
+        val bytes = builder.toByteBuffer()
+        val index = OuiIndex.wrap(bytes)
+        File(outputDir.get().asFile, "oui.bin").outputStream().channel.use { out ->
+            while (bytes.hasRemaining()) out.write(bytes)
+        }
+        logger.info("oui.bin: ${index.size()} prefixes, ${index.vendorCount()} vendors")
+    }
+}
+
+val downloadOuiRegistry = tasks.register<DownloadOuiRegistry>("downloadOuiRegistry") {
+    sources.set(ouiRegistries.filterKeys { !file("src/main/oui/$it").exists() })
+    outputDir.set(layout.buildDirectory.dir("oui-registry"))
+}
+
+val compileOuiDatabase = tasks.register<CompileOuiDatabase>("compileOuiDatabase") {
+    registryDir.set(layout.projectDirectory.dir("src/main/oui"))
+    downloadDir.set(downloadOuiRegistry.flatMap { it.outputDir })
+    outputDir.set(layout.buildDirectory.dir("generated/oui"))
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.assets?.addGeneratedSourceDirectory(compileOuiDatabase, CompileOuiDatabase::outputDir)
+    }
 }
 
 dependencies {
@@ -0,0 +1,113 @@
+package com.example.netanalyzer;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Scan merges against an in-memory inventory, in particular devices first stored under
+ * their IP that later show their MAC.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DeviceInventoryTest {
+
+    private static final MacAddress MAC = MacAddress.parse("B8:27:EB:12:34:56");
+
+    private DeviceInventory inventory;
+
+    @Before
+    public void setUp() {
+        inventory = new DeviceInventory(InstrumentationRegistry.getInstrumentation().getTargetContext(), null);
+    }
+
+    @After
+    public void tearDown() {
+        inventory.close();
+    }
+
+    private DeviceInventory.Record scan(String ip, MacAddress mac, String hostname, long time) {
+        DeviceInventory.Record record = new DeviceInventory.Record(ip, mac, hostname, null, null);
+        inventory.merge(Collections.singletonList(record), time);
+        return record;
+    }
+
+    @Test
+    public void macKeyedDevicesAccumulateSightings() {
+        scan("192.168.1.20", MAC, null, 1000);
+        DeviceInventory.Record record = scan("192.168.1.20", MAC, null, 2000);
+
+        assertEquals(1000, record.getFirstSeen());
+        assertEquals(2, record.getTimesSeen());
+        assertEquals(2, inventory.loadSightings(MAC, "192.168.1.20", 10).size());
+    }
+
+    @Test
+    public void ipKeyedRowMovesToTheMacOnceKnown() {
+        scan("192.168.1.20", null, "pi.lan", 1000);
+        scan("192.168.1.20", null, null, 2000);
+        DeviceInventory.Record record = scan("192.168.1.20", MAC, null, 3000);
+
+        assertEquals(1000, record.getFirstSeen());
+        assertEquals(3, record.getTimesSeen());
+
+        List<MainActivity.Device> devices = inventory.loadRecent(10);
+        assertEquals(1, devices.size());
+        assertEquals(MAC, devices.get(0).macAddress);
+        assertEquals("pi.lan", devices.get(0).hostname);
+        assertEquals(3, inventory.loadSightings(MAC, "192.168.1.20", 10).size());
+        assertTrue(inventory.loadSightings(null, "192.168.1.20", 10).isEmpty());
+    }
+
+    @Test
+    public void ipKeyedRowIsFoldedIntoAnExistingMacRow() {
+        scan("192.168.1.20", MAC, null, 1000);
+        // Moved to a new address and seen there before its MAC could be read
+        scan("192.168.1.30", null, "pi.lan", 2000);
+        scan("192.168.1.30", null, null, 3000);
+        DeviceInventory.Record record = scan("192.168.1.30", MAC, null, 4000);
+
+        assertEquals(1000, record.getFirstSeen());
+        assertEquals(4, record.getTimesSeen());
+
+        List<MainActivity.Device> devices = inventory.loadRecent(10);
+        assertEquals(1, devices.size());
+        assertEquals("192.168.1.30", devices.get(0).ipAddress);
+        assertEquals("pi.lan", devices.get(0).hostname);
+        assertEquals(4, devices.get(0).timesSeen);
+        assertEquals(4, inventory.loadSightings(MAC, "192.168.1.30", 10).size());
+    }
+
+    @Test
+    public void portScanServicesFollowTheDevice() {
+        scan("192.168.1.20", null, null, 1000);
+        inventory.saveServices(null, "192.168.1.20", Arrays.asList(
+                new ServiceInfo(554, "rtsp", "Dahua Rtsp Server", "Camera", "RTSP/1.0 200 OK"),
+                new ServiceInfo(80, "http", null, null, null)), "Camera");
+        scan("192.168.1.20", MAC, null, 2000);
+
+        List<ServiceInfo> services = inventory.loadServices(MAC, "192.168.1.20");
+        assertEquals(2, services.size());
+        assertEquals(80, services.get(0).getPort());
+        assertEquals("Dahua Rtsp Server", services.get(1).getProduct());
+
+        MainActivity.Device device = inventory.loadRecent(10).get(0);
+        assertEquals("Camera", device.deviceType);
+        assertEquals(2, device.services.size());
+
+        // A new scan replaces the old one's services
+        inventory.saveServices(MAC, "192.168.1.20", Collections.singletonList(
+                new ServiceInfo(22, "ssh", "OpenSSH 9.6p1", null, null)), "Camera");
+        assertEquals(22, inventory.loadServices(MAC, "192.168.1.20").get(0).getPort());
+        assertEquals(1, inventory.loadServices(MAC, "192.168.1.20").size());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.netanalyzer;
+
+import android.os.Build;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Echo runs over the unprivileged ICMP datagram socket against loopback, which Android
+ * lets every app open.
+ */
+@RunWith(AndroidJUnit4.class)
+public class IcmpSocketTest {
+
+    private static class Recorder implements IcmpPinger.Listener {
+        final List<IcmpPinger.Reply> replies = new ArrayList<>();
+        final List<Integer> timeouts = new ArrayList<>();
+
+        @Override
+        public void onReply(IcmpPinger.Reply reply) {
+            replies.add(reply);
+        }
+
+        @Override
+        public void onTimeout(int seq) {
+            timeouts.add(seq);
+        }
+    }
+
+    @Test
+    public void loopbackAnswersEveryEcho() throws Exception {
+        Recorder recorder = new Recorder();
+        try (IcmpPinger pinger = IcmpPinger.open(InetAddress.getByName("127.0.0.1"))) {
+            assertEquals("ICMP socket", pinger.getMethod());
+            pinger.run(20, IcmpPinger.MIN_INTERVAL_MS, 1000, recorder);
+        }
+
+        assertTrue(recorder.timeouts.isEmpty());
+        assertEquals(20, recorder.replies.size());
+        for (IcmpPinger.Reply reply : recorder.replies) {
+            assertFalse(reply.isLate());
+            assertEquals(IcmpPinger.HEADER_SIZE + IcmpPinger.PAYLOAD_SIZE, reply.getBytes());
+            assertTrue(reply.getRttNanos() > 0);
+            // Linux answers loopback echoes with its default TTL of 64
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+                assertEquals(64, reply.getTtl());
+            } else {
+                assertEquals(IcmpPinger.TTL_UNKNOWN, reply.getTtl());
+            }
+        }
+    }
+
+    @Test
+    public void cancelEndsAnUnboundedRun() throws Exception {
+        Recorder recorder = new Recorder();
+        try (IcmpPinger pinger = IcmpPinger.open(InetAddress.getByName("127.0.0.1"))) {
+            Thread runner = Thread.currentThread();
+            new Thread(() -> {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                runner.interrupt();
+            }).start();
+            pinger.run(IcmpPinger.UNBOUNDED, 50, 1000, recorder);
+            fail("Expected the run to be interrupted");
+        } catch (InterruptedException expected) {
+            // Interrupted after a few echoes
+        }
+        assertFalse(recorder.replies.isEmpty());
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.netanalyzer;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Parses the kernel ARP table (/proc/net/arp format) straight from its bytes into
+// IPv4 int -> MAC long pairs. Buffers are reused between polls and a CRC of the raw
+// content short-circuits re-parsing when nothing changed, so it is cheap enough to poll
+// every few hundred milliseconds while a sweep is running. Not thread-safe.
+public class ArpTableReader {
+
+    public static final NeighborSource PROC_NET_ARP = () -> new FileInputStream("/proc/net/arp");
+
+    // ATF_COM: the entry is resolved (incomplete entries carry an all-zero address)
+    private static final int FLAG_COMPLETE = 0x2;
+
+    private final NeighborSource source;
+    private final CRC32 crc = new CRC32();
+    private byte[] buffer = new byte[4096];
+    private long lastChecksum = -1;
+
+    // Open-addressing address -> MAC table; a MAC of 0 marks an empty slot
+    private int[] keys = new int[64];
+    private long[] values = new long[64];
+    private int size = 0;
+
+    public ArpTableReader(NeighborSource source) {
+        this.source = source;
+    }
+
+    // Re-reads the table. Returns true if the content changed since the last poll (the
+    // lookup table then reflects the new content), false if it was identical.
+    public boolean poll() throws IOException {
+        int length = readAll();
+        crc.reset();
+        crc.update(buffer, 0, length);
+        long checksum = crc.getValue();
+        if (checksum == lastChecksum) return false;
+        lastChecksum = checksum;
+        parse(length);
+        return true;
+    }
+
+    // Returns the MAC (48 bits) for an IPv4 address, or -1 if the table has none
+    public long macFor(int address) {
+        int mask = keys.length - 1;
+        for (int i = mix(address) & mask; ; i = (i + 1) & mask) {
+            if (values[i] == 0) return -1;
+            if (keys[i] == address) return values[i];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int readAll() throws IOException {
+        // procfs files report a size of 0, so read until EOF
+        int length = 0;
+        try (InputStream in = source.open()) {
+            int n;
+            while ((n = in.read(buffer, length, buffer.length - length)) > 0) {
+                length += n;
+                if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        return length;
+    }
+
+    private void parse(int length) {
+        Arrays.fill(values, 0);
+        size = 0;
+
+        int pos = skipLine(0, length); // header
+        while (pos < length) {
+            int lineEnd = pos;
+            while (lineEnd < length && buffer[lineEnd] != '\n') lineEnd++;
+            parseLine(pos, lineEnd);
+            pos = lineEnd + 1;
+        }
+    }
+
+    // IP address  HW type  Flags  HW address  Mask  Device
+    private void parseLine(int pos, int end) {
+        int address = 0;
+        int octet = 0;
+        int dots = 0;
+        int digits = 0;
+        for (; pos < end && buffer[pos] != ' ' && buffer[pos] != '\t'; pos++) {
+            byte b = buffer[pos];
+            if (b == '.') {
+                if (digits == 0 || ++dots > 3) return;
+                address = (address << 8) | octet;
+                octet = 0;
+                digits = 0;
+            } else if (b >= '0' && b <= '9' && digits < 3) {
+                octet = octet * 10 + (b - '0');
+                if (octet > 255) return;
+                digits++;
+            } else {
+                return;
+            }
+        }
+        if (dots != 3 || digits == 0) return;
+        address = (address << 8) | octet;
+
+        pos = skipField(skipSpace(pos, end), end); // HW type
+        pos = skipSpace(pos, end);
+        int flags = 0;
+        if (pos + 1 < end && buffer[pos] == '0' && (buffer[pos + 1] | 0x20) == 'x') pos += 2;
+        for (; pos < end && buffer[pos] != ' ' && buffer[pos] != '\t'; pos++) {
+            int d = hexDigit(buffer[pos]);
+            if (d < 0) return;
+            flags = (flags << 4) | d;
+        }
+        if ((flags & FLAG_COMPLETE) == 0) return;
+
+        pos = skipSpace(pos, end);
+        long mac = 0;
+        int macDigits = 0;
+        for (; pos < end && buffer[pos] != ' ' && buffer[pos] != '\t'; pos++) {
+            byte b = buffer[pos];
+            if (b == ':') continue;
+            int d = hexDigit(b);
+            if (d < 0 || ++macDigits > 12) return;
+            mac = (mac << 4) | d;
+        }
+        if (macDigits != 12 || mac == 0) return;
+
+        put(address, mac);
+    }
+
+    private void put(int address, long mac) {
+        if ((size + 1) * 2 > keys.length) grow();
+        int mask = keys.length - 1;
+        for (int i = mix(address) & mask; ; i = (i + 1) & mask) {
+            if (values[i] == 0) {
+                keys[i] = address;
+                values[i] = mac;
+                size++;
+                return;
+            }
+            if (keys[i] == address) {
+                values[i] = mac;
+                return;
+            }
+        }
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) put(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    // Neighbor addresses share their high bits; spread the low ones
+    private static int mix(int address) {
+        int h = address * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int skipLine(int pos, int length) {
+        while (pos < length && buffer[pos] != '\n') pos++;
+        return pos + 1;
+    }
+
+    private int skipSpace(int pos, int end) {
+        while (pos < end && (buffer[pos] == ' ' || buffer[pos] == '\t')) pos++;
+        return pos;
+    }
+
+    private int skipField(int pos, int end) {
+        while (pos < end && buffer[pos] != ' ' && buffer[pos] != '\t') pos++;
+        return pos;
+    }
+
+    private static int hexDigit(byte b) {
+        if (b >= '0' && b <= '9') return b - '0';
+        int lower = b | 0x20;
+        if (lower >= 'a' && lower <= 'f') return lower - 'a' + 10;
+        return -1;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.netanalyzer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+// Incremental rescan. Each cycle first re-confirms the hosts known to be alive, then
+// probes the next slice of the rest of the subnet, and diffs what answered (plus the
+// neighbor table's MACs) against what it knew before. Only the hosts in the returned
+// ChangeSet need hostname/vendor enrichment. With the default slice a /24 costs about
+// known + 32 probes per cycle and is fully covered every 8 cycles. Cycles must not overlap.
+public class DeltaScanner {
+
+    // Probes the given addresses and reports each one that answers (from any thread)
+    public interface Prober {
+        void probe(int[] addresses, IntConsumer onAlive);
+    }
+
+    // A known host is only declared gone after missing this many cycles in a row, so a
+    // dropped probe or a phone dozing through one cycle doesn't flap the list
+    public static final int LEAVE_AFTER_MISSES = 2;
+    private static final int MIN_SLICE = 16;
+    private static final int SLICE_DIVISOR = 8;
+
+    private final Ipv4Subnet subnet;
+    private final Prober prober;
+    private final ArpTableReader neighbors;
+    private final int sliceSize;
+
+    // Known alive hosts by address
+    private final TreeMap<Integer, Host> known = new TreeMap<>();
+    // Subnet host index where the next slice starts
+    private int cursor = 0;
+
+    // neighbors may be null when MACs are unavailable; changes are then by IP only
+    public DeltaScanner(Ipv4Subnet subnet, Prober prober, ArpTableReader neighbors) {
+        this(subnet, prober, neighbors, Math.max(MIN_SLICE, subnet.getHostCount() / SLICE_DIVISOR));
+    }
+
+    public DeltaScanner(Ipv4Subnet subnet, Prober prober, ArpTableReader neighbors, int sliceSize) {
+        this.subnet = subnet;
+        this.prober = prober;
+        this.neighbors = neighbors;
+        this.sliceSize = Math.max(1, Math.min(sliceSize, subnet.getHostCount()));
+    }
+
+    // Seeds the known set, e.g. from a full sweep; mac is -1 when unknown
+    public void addKnownHost(int address, long mac) {
+        known.put(address, new Host(address, mac));
+    }
+
+    public int getKnownCount() {
+        return known.size();
+    }
+
+    public Ipv4Subnet getSubnet() {
+        return subnet;
+    }
+
+    public ChangeSet runCycle() {
+        long startNanos = System.nanoTime();
+        BitSet alive = new BitSet(subnet.getHostCount());
+        IntConsumer onAlive = address -> {
+            int index = subnet.indexOf(address);
+            if (index < 0) return;
+            synchronized (alive) {
+                alive.set(index);
+            }
+        };
+
+        int[] confirm = new int[known.size()];
+        int n = 0;
+        for (int address : known.keySet()) confirm[n++] = address;
+        if (confirm.length > 0) prober.probe(confirm, onAlive);
+
+        int[] slice = nextSlice();
+        if (slice.length > 0) prober.probe(slice, onAlive);
+
+        if (neighbors != null) {
+            try {
+                neighbors.poll();
+            } catch (IOException e) {
+                // Unreadable neighbor table: MACs stay as last read (or unknown)
+            }
+        }
+
+        ChangeSet changes = new ChangeSet(confirm.length + slice.length);
+        synchronized (alive) {
+            // Newly answering addresses: a joined host, or a known MAC at a new address
+            for (int address : slice) {
+                if (!alive.get(subnet.indexOf(address))) continue;
+                long mac = macFor(address);
+                Host moved = mac >= 0 ? findMissingHost(mac, alive) : null;
+                if (moved != null) {
+                    known.remove(moved.address);
+                    changes.changed.add(new Change(address, moved.address, mac, moved.mac));
+                } else {
+                    changes.joined.add(new Change(address, address, mac, -1));
+                }
+                known.put(address, new Host(address, mac));
+            }
+
+            for (int address : confirm) {
+                Host host = known.get(address);
+                if (host == null) continue; // moved to a new address above
+                if (alive.get(subnet.indexOf(address))) {
+                    host.misses = 0;
+                    long mac = macFor(address);
+                    if (mac >= 0 && mac != host.mac) {
+                        changes.changed.add(new Change(address, address, mac, host.mac));
+                        host.mac = mac;
+                    }
+                } else if (++host.misses >= LEAVE_AFTER_MISSES) {
+                    known.remove(address);
+                    changes.left.add(new Change(address, address, host.mac, host.mac));
+                }
+            }
+        }
+
+        changes.elapsedNanos = System.nanoTime() - startNanos;
+        return changes;
+    }
+
+    // The next sliceSize subnet addresses that aren't already known, wrapping around
+    private int[] nextSlice() {
+        int total = subnet.getHostCount();
+        int[] slice = new int[sliceSize];
+        int count = 0;
+        for (int i = 0; i < total && count < sliceSize; i++) {
+            int address = subnet.hostAt(cursor);
+            cursor = (cursor + 1) % total;
+            if (!known.containsKey(address)) slice[count++] = address;
+        }
+        return count == slice.length ? slice : Arrays.copyOf(slice, count);
+    }
+
+    private long macFor(int address) {
+        return neighbors != null ? neighbors.macFor(address) : -1;
+    }
+
+    // A known host with this MAC that didn't answer at its own address this cycle
+    private Host findMissingHost(long mac, BitSet alive) {
+        for (Map.Entry<Integer, Host> entry : known.entrySet()) {
+            Host host = entry.getValue();
+            if (host.mac == mac && !alive.get(subnet.indexOf(host.address))) return host;
+        }
+        return null;
+    }
+
+    private static class Host {
+        final int address;
+        long mac;
+        int misses = 0;
+
+        Host(int address, long mac) {
+            this.address = address;
+            this.mac = mac;
+        }
+    }
+
+    // One host's change. For joined hosts previousMac is -1; for a host that moved,
+    // previousAddress is where it was; for a host that left, mac is its last known MAC.
+    public static class Change {
+        private final int address;
+        private final int previousAddress;
+        private final long mac;
+        private final long previousMac;
+
+        Change(int address, int previousAddress, long mac, long previousMac) {
+            this.address = address;
+            this.previousAddress = previousAddress;
+            this.mac = mac;
+            this.previousMac = previousMac;
+        }
+
+        public int getAddress() { return address; }
+        public int getPreviousAddress() { return previousAddress; }
+        public long getMac() { return mac; }
+        public long getPreviousMac() { return previousMac; }
+
+        public boolean isMove() {
+            return address != previousAddress;
+        }
+    }
+
+    public static class ChangeSet {
+        final List<Change> joined = new ArrayList<>();
+        final List<Change> left = new ArrayList<>();
+        final List<Change> changed = new ArrayList<>();
+        private final int probed;
+        private long elapsedNanos;
+
+        ChangeSet(int probed) {
+            this.probed = probed;
+        }
+
+        public List<Change> getJoined() { return joined; }
+        public List<Change> getLeft() { return left; }
+        public List<Change> getChanged() { return changed; }
+        public int getProbed() { return probed; }
+        public long getElapsedMillis() { return TimeUnit.NANOSECONDS.toMillis(elapsedNanos); }
+
+        public boolean isEmpty() {
+            return joined.isEmpty() && left.isEmpty() && changed.isEmpty();
+        }
+
+        public String getSummary() {
+            return joined.size() + " joined, " + left.size() + " left, " + changed.size()
+                    + " changed (" + probed + " probed in " + getElapsedMillis() + " ms)";
+        }
+
+        @Override
+        public String toString() {
+            return "ChangeSet{joined=" + joined.size() + ", left=" + left.size()
+                    + ", changed=" + changed.size() + ", probed=" + probed
+                    + ", elapsedMs=" + getElapsedMillis() + "}";
+        }
+    }
+}
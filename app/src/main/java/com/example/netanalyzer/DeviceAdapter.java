@@ -2,6 +2,8 @@ package com.example.netanalyzer;
 
 import android.content.Context;
 import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,18 +13,84 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class DeviceAdapter extends RecyclerView.Adapter<DeviceAdapter.ViewHolder> {
 
+    // Partial-bind payload: only the enrichment fields (name, address, MAC, vendor, type, online) changed
+    static final Object PAYLOAD_ENRICHMENT = new Object();
+    private static final long FLUSH_DELAY_MS = 100;
+
     private List<MainActivity.Device> deviceList;
     private Context context;
 
+    // Row positions for in-place updates; devices are appended during a scan and only
+    // removed when a delta rescan finds one superseded
+    private final Map<MainActivity.Device, Integer> positions = new IdentityHashMap<>();
+    private final BitSet pendingChanges = new BitSet();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private boolean flushScheduled = false;
+
     public DeviceAdapter(Context context, List<MainActivity.Device> deviceList) {
         this.context = context;
         this.deviceList = deviceList;
     }
 
+    // All of the following must be called on the main thread
+
+    public void addDevice(MainActivity.Device device) {
+        positions.put(device, deviceList.size());
+        deviceList.add(device);
+        notifyItemInserted(deviceList.size() - 1);
+    }
+
+    public void removeDevice(MainActivity.Device device) {
+        Integer position = positions.remove(device);
+        if (position == null) return;
+        deviceList.remove((int) position);
+        for (int i = position; i < deviceList.size(); i++) positions.put(deviceList.get(i), i);
+        // Pending changes below the row move up with their rows
+        pendingChanges.clear(position);
+        for (int i = pendingChanges.nextSetBit(position); i >= 0; i = pendingChanges.nextSetBit(i + 1)) {
+            pendingChanges.clear(i);
+            pendingChanges.set(i - 1);
+        }
+        notifyItemRemoved(position);
+    }
+
+    // Rebinds the details of every row, e.g. after their online state changed
+    public void notifyAllChanged() {
+        notifyItemRangeChanged(0, deviceList.size(), PAYLOAD_ENRICHMENT);
+    }
+
+    // Coalesces enrichment updates and flushes them as item-range notifications
+    public void notifyDeviceChanged(MainActivity.Device device) {
+        Integer position = positions.get(device);
+        if (position == null) return;
+        pendingChanges.set(position);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flushChanges, FLUSH_DELAY_MS);
+        }
+    }
+
+    private final Runnable flushChanges = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled = false;
+            int start = pendingChanges.nextSetBit(0);
+            while (start >= 0) {
+                int end = pendingChanges.nextClearBit(start);
+                notifyItemRangeChanged(start, end - start, PAYLOAD_ENRICHMENT);
+                start = pendingChanges.nextSetBit(end);
+            }
+            pendingChanges.clear();
+        }
+    };
+
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -31,18 +99,21 @@ public class DeviceAdapter extends RecyclerView.Adapter<DeviceAdapter.ViewHolder
         return new ViewHolder(view);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        // Enrichment update: rebind the changed text and icon only
+        bindDetails(holder, deviceList.get(position));
+    }
+
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         MainActivity.Device device = deviceList.get(position);
 
-        holder.deviceName.setText(device.getDisplayName());
-        holder.deviceIp.setText(device.ipAddress);
-        holder.deviceMac.setText(device.macAddress);
-        holder.deviceVendor.setText(device.vendor);
-
-        // Set device icon based on type
-        int iconRes = getDeviceIcon(device.deviceType, device.vendor);
-        holder.deviceIcon.setImageResource(iconRes);
+        bindDetails(holder, device);
 
         // Set click listener
         holder.itemView.setOnClickListener(v -> {
@@ -57,9 +128,18 @@ public class DeviceAdapter extends RecyclerView.Adapter<DeviceAdapter.ViewHolder
                     if (gateway != null) {
                         intent.putExtra("gateway", gateway);
                     }
+                    String subnet = mainActivity.getSubnetCidr();
+                    if (subnet != null) {
+                        intent.putExtra("subnet", subnet);
+                    }
                 }
 
-                context.startActivity(intent);
+                if (context instanceof MainActivity) {
+                    // Port scan results come back to the list as the activity's result
+                    ((MainActivity) context).startActivityForResult(intent, MainActivity.DEVICE_DETAILS_REQUEST);
+                } else {
+                    context.startActivity(intent);
+                }
             } catch (Exception e) {
                 e.printStackTrace();
                 Toast.makeText(context, "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
@@ -72,6 +152,20 @@ public class DeviceAdapter extends RecyclerView.Adapter<DeviceAdapter.ViewHolder
         return deviceList.size();
     }
 
+    private void bindDetails(ViewHolder holder, MainActivity.Device device) {
+        holder.deviceName.setText(device.getDisplayName());
+        // A delta rescan can move a device to a new address
+        holder.deviceIp.setText(device.ipAddress);
+        holder.deviceMac.setText(device.getMacText());
+        holder.deviceVendor.setText(device.vendor);
+        // Inventory devices not seen by the current scan are dimmed
+        holder.itemView.setAlpha(device.isConnected ? 1f : 0.5f);
+
+        // Set device icon based on type
+        int iconRes = getDeviceIcon(device.deviceType, device.vendor);
+        holder.deviceIcon.setImageResource(iconRes);
+    }
+
     private int getDeviceIcon(String deviceType, String vendor) {
         if (deviceType != null) {
             if (deviceType.contains("Phone")) return android.R.drawable.ic_dialog_email;
@@ -0,0 +1,106 @@
+package com.example.netanalyzer;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Guesses a device type from vendor, hostname, IP and any fingerprinted services. The
+// rules are data (assets/device_rules.txt, or an override in the app's files directory)
+// compiled into DeviceRules, and can be swapped at runtime with install().
+public class DeviceClassifier {
+    private static final String TAG = "DeviceClassifier";
+    public static final String RULES_FILE = "device_rules.txt";
+    private static final String DEFAULT_TYPE = "Network Device";
+
+    // Common router addresses
+    private static final String[] GATEWAY_IPS = {
+            "192.168.0.1", "192.168.1.1", "192.168.2.1", "10.0.0.1", "192.168.100.1"
+    };
+
+    private static volatile DeviceRules rules = null;
+
+    public static String guessDeviceType(Context context, String vendor, String hostname, String ip) {
+        if (vendor == null && hostname == null && ip == null) {
+            return "Unknown";
+        }
+
+        if (ip != null) {
+            for (String gatewayIp : GATEWAY_IPS) {
+                if (ip.equals(gatewayIp)) return "Router/Gateway";
+            }
+        }
+
+        String type = getRules(context).classify(vendor, hostname);
+        return type != null ? type : DEFAULT_TYPE;
+    }
+
+    // Banner fingerprints name the product outright, so a service hint beats the generic
+    // fallback but never a vendor/hostname match
+    public static String guessDeviceType(Context context, String vendor, String hostname, String ip,
+                                         List<ServiceInfo> services) {
+        String guess = guessDeviceType(context, vendor, hostname, ip);
+        if (services == null || !guess.equals(DEFAULT_TYPE)) return guess;
+        for (ServiceInfo service : services) {
+            if (service.getDeviceHint() != null) return service.getDeviceHint();
+        }
+        return guess;
+    }
+
+    // Replaces the active rules; throws IllegalArgumentException (and keeps the current
+    // rules) if the text doesn't parse
+    public static void install(String rulesText) {
+        DeviceRules compiled = DeviceRules.compile(rulesText);
+        rules = compiled;
+        Log.d(TAG, "Installed " + compiled.getRuleCount() + " classification rules");
+    }
+
+    // Re-reads the override file (or the bundled asset) after it has been changed
+    public static synchronized void reload(Context context) {
+        rules = load(context);
+    }
+
+    private static DeviceRules getRules(Context context) {
+        DeviceRules current = rules;
+        if (current == null) {
+            synchronized (DeviceClassifier.class) {
+                current = rules;
+                if (current == null) {
+                    current = load(context);
+                    rules = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static DeviceRules load(Context context) {
+        File override = new File(context.getFilesDir(), RULES_FILE);
+        if (override.exists()) {
+            try (InputStream in = new FileInputStream(override)) {
+                return DeviceRules.compile(readAll(in));
+            } catch (IOException | IllegalArgumentException e) {
+                Log.e(TAG, "Ignoring " + override + ": " + e.getMessage());
+            }
+        }
+        try (InputStream in = context.getAssets().open(RULES_FILE)) {
+            return DeviceRules.compile(readAll(in));
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Failed to load classification rules: " + e.getMessage());
+            return DeviceRules.compile("");
+        }
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        int n;
+        while ((n = in.read(chunk)) > 0) out.write(chunk, 0, n);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
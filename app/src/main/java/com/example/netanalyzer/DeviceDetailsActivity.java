@@ -1,20 +1,29 @@
 package com.example.netanalyzer;
 
+import android.Manifest;
 import android.content.Intent;
+import android.content.pm.PackageManager;
 import android.util.Log;
 import android.os.AsyncTask;
+import android.os.Build;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
 import com.google.android.material.card.MaterialCardView;
-import java.net.InetAddress;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.TreeMap;
 import com.example.netanalyzer.PingResult;
 import com.example.netanalyzer.PingService;
 import com.example.netanalyzer.PingHistoryAdapter;
@@ -25,7 +34,21 @@ public class DeviceDetailsActivity extends AppCompatActivity implements PingServ
     private TextView pingResult, progressText;
     private ProgressBar pingProgress;
     private String gateway;
+    private String subnet;
     private boolean isPinging = false;
+    private PingService.Session pingSession;
+    private TextView portScanResult, portScanProgressText;
+    private ProgressBar portScanProgress;
+    private PortScanner portScanner;
+
+    // Most recent sightings listed under History
+    private static final int HISTORY_ROWS = 10;
+
+    // Background monitoring interval choices
+    private static final String[] MONITOR_LABELS = {"Off", "Every 30 seconds", "Every minute",
+            "Every 5 minutes", "Every 15 minutes"};
+    private static final long[] MONITOR_INTERVALS_MS = {0, 30_000, 60_000, 5 * 60_000, 15 * 60_000};
+    private static final int NOTIFICATION_PERMISSION_REQUEST = 200;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -36,6 +59,7 @@ public class DeviceDetailsActivity extends AppCompatActivity implements PingServ
         try {
             device = (MainActivity.Device) getIntent().getSerializableExtra("device");
             gateway = getIntent().getStringExtra("gateway");
+            subnet = getIntent().getStringExtra("subnet");
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -71,14 +95,14 @@ public class DeviceDetailsActivity extends AppCompatActivity implements PingServ
 
             if (deviceName != null) deviceName.setText(device.getDisplayName());
             if (deviceIp != null) deviceIp.setText(device.ipAddress != null ? device.ipAddress : "Unknown");
-            if (deviceMac != null) deviceMac.setText(device.macAddress != null ? device.macAddress : "Unknown");
+            if (deviceMac != null) deviceMac.setText(device.getMacText());
 
             // ENHANCED VENDOR DETECTION
             String vendor = device.vendor;
             if (vendor == null || vendor.equals("Unknown Vendor") || vendor.equals("Unknown")) {
                 // Try to detect vendor from MAC if available
-                if (device.macAddress != null && !device.macAddress.equals("Unknown")) {
-                    vendor = getVendorFromMac(device.macAddress);
+                if (device.macAddress != null) {
+                    vendor = OuiDatabaseHelper.getVendorFromMac(this, device.macAddress);
                     device.vendor = vendor; // Update the device object
                 } else {
                     vendor = "Unknown Vendor";
@@ -90,7 +114,8 @@ public class DeviceDetailsActivity extends AppCompatActivity implements PingServ
             // ENHANCED DEVICE TYPE DETECTION
             String deviceTypeStr = device.deviceType;
             if (deviceTypeStr == null || deviceTypeStr.equals("Unknown")) {
-                deviceTypeStr = guessDeviceType(vendor, device.hostname, device.ipAddress);
+                deviceTypeStr = DeviceClassifier.guessDeviceType(this, vendor, device.hostname,
+                        device.ipAddress, device.services);
                 device.deviceType = deviceTypeStr; // Update the device object
             }
 
@@ -110,6 +135,7 @@ public class DeviceDetailsActivity extends AppCompatActivity implements PingServ
 
             if (firstSeen != null) firstSeen.setText(device.getFormattedFirstSeen());
             if (lastSeen != null) lastSeen.setText(device.getFormattedLastSeen());
+            loadSightingHistory();
 
             if (signalStrength != null) {
                 signalStrength.setText(device.signalStrength != 0 ?
@@ -120,10 +146,11 @@ public class DeviceDetailsActivity extends AppCompatActivity implements PingServ
             TextView subnetInfo = findViewById(R.id.subnetInfo);
             TextView gatewayInfo = findViewById(R.id.gatewayInfo);
 
-            if (subnetInfo != null && device.ipAddress != null) {
-                String ip = device.ipAddress;
-                String subnet = ip.substring(0, ip.lastIndexOf('.') + 1) + "0/24";
+            if (subnetInfo != null && subnet != null) {
                 subnetInfo.setText(subnet);
+            } else if (subnetInfo != null && device.ipAddress != null) {
+                String ip = device.ipAddress;
+                subnetInfo.setText(ip.substring(0, ip.lastIndexOf('.') + 1) + "0/24");
             }
 
             // Check if this device is the gateway
@@ -148,12 +175,89 @@ public class DeviceDetailsActivity extends AppCompatActivity implements PingServ
                 pingResult.setText("Tap to test ping");
             }
 
+            // Port Scan Card
+            portScanResult = findViewById(R.id.portScanResult);
+            portScanProgressText = findViewById(R.id.portScanProgressText);
+            portScanProgress = findViewById(R.id.portScanProgress);
+            loadStoredServices();
+
         } catch (Exception e) {
             e.printStackTrace();
             Toast.makeText(this, "Error loading device details", Toast.LENGTH_SHORT).show();
         }
     }
 
+    // Reads the device's past sightings from the inventory off the main thread
+    private void loadSightingHistory() {
+        TextView seenHistory = findViewById(R.id.seenHistory);
+        if (seenHistory == null) return;
+        DeviceInventory inventory = DeviceInventory.get(this);
+        MacAddress mac = device.macAddress;
+        String ip = device.ipAddress;
+        int timesSeen = device.timesSeen;
+        new Thread(() -> {
+            String text;
+            try {
+                List<DeviceInventory.Sighting> sightings = inventory.loadSightings(mac, ip, HISTORY_ROWS);
+                text = formatSightings(sightings, timesSeen);
+            } catch (Exception e) {
+                Log.e("DeviceDetails", "Failed to load sighting history: " + e.getMessage());
+                text = "Not available";
+            }
+            String historyText = text;
+            runOnUiThread(() -> seenHistory.setText(historyText));
+        }, "SightingHistory").start();
+    }
+
+    // Shows the services the device's last port scan found, until a new scan starts
+    private void loadStoredServices() {
+        if (portScanResult == null) return;
+        if (device.services != null) {
+            showStoredServices(device.services);
+            return;
+        }
+        DeviceInventory inventory = DeviceInventory.get(this);
+        MacAddress mac = device.macAddress;
+        String ip = device.ipAddress;
+        new Thread(() -> {
+            List<ServiceInfo> stored;
+            try {
+                stored = inventory.loadServices(mac, ip);
+            } catch (Exception e) {
+                Log.e("DeviceDetails", "Failed to load services: " + e.getMessage());
+                return;
+            }
+            if (stored.isEmpty()) return;
+            runOnUiThread(() -> {
+                if (portScanner != null || device.services != null) return;
+                device.services = stored;
+                showStoredServices(stored);
+            });
+        }, "StoredServices").start();
+    }
+
+    private void showStoredServices(List<ServiceInfo> services) {
+        if (services.isEmpty()) return;
+        TreeMap<Integer, String> openPorts = new TreeMap<>();
+        for (ServiceInfo info : services) {
+            openPorts.put(info.getPort(), "🟢 " + info.getDisplayText());
+        }
+        portScanResult.setText("Last scan:\n" + formatOpenPorts(openPorts));
+    }
+
+    private static String formatSightings(List<DeviceInventory.Sighting> sightings, int timesSeen) {
+        if (sightings.isEmpty()) return "First seen in this scan";
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
+        StringBuilder sb = new StringBuilder();
+        sb.append("Seen in ").append(Math.max(timesSeen, sightings.size()))
+                .append(timesSeen == 1 ? " scan" : " scans");
+        for (DeviceInventory.Sighting sighting : sightings) {
+            sb.append("\n").append(sdf.format(new Date(sighting.getSeenAt())));
+            if (sighting.getIp() != null) sb.append("  ").append(sighting.getIp());
+        }
+        return sb.toString();
+    }
+
     private void setupClickListeners() {
         // Ping Test - Quick test (4 pings)
         MaterialCardView pingTestCard = findViewById(R.id.pingTestCard);
@@ -202,6 +306,105 @@ public class DeviceDetailsActivity extends AppCompatActivity implements PingServ
             Log.d("DeviceDetails", "Port scan card found");
             portScanCard.setOnClickListener(v -> startPortScan());
         }
+
+        // Background monitoring
+        MaterialCardView monitorCard = findViewById(R.id.monitorCard);
+        if (monitorCard != null) {
+            monitorCard.setOnClickListener(v -> chooseMonitorInterval());
+            loadMonitorStatus();
+        }
+    }
+
+    private void chooseMonitorInterval() {
+        if (device.ipAddress == null) return;
+        new AlertDialog.Builder(this)
+                .setTitle("Monitor " + device.getDisplayName())
+                .setItems(MONITOR_LABELS, (dialog, which) -> setMonitorInterval(MONITOR_INTERVALS_MS[which]))
+                .show();
+    }
+
+    // intervalMs 0 stops monitoring this device
+    private void setMonitorInterval(long intervalMs) {
+        DeviceInventory inventory = DeviceInventory.get(this);
+        MacAddress mac = device.macAddress;
+        String ip = device.ipAddress;
+        new Thread(() -> {
+            try {
+                if (intervalMs > 0) {
+                    inventory.setMonitor(mac, ip, intervalMs);
+                } else {
+                    inventory.removeMonitor(mac, ip);
+                }
+            } catch (Exception e) {
+                Log.e("DeviceDetails", "Failed to update monitoring: " + e.getMessage());
+                return;
+            }
+            runOnUiThread(() -> {
+                if (intervalMs > 0) {
+                    startMonitoring();
+                } else {
+                    NetworkMonitorService.refresh(this);
+                }
+                loadMonitorStatus();
+            });
+        }, "MonitorUpdate").start();
+    }
+
+    // The monitor reports through its notification, which Android 13+ only shows once the
+    // user allows notifications. The service is started whatever the answer.
+    private void startMonitoring() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.POST_NOTIFICATIONS},
+                    NOTIFICATION_PERMISSION_REQUEST);
+            return;
+        }
+        NetworkMonitorService.refresh(this);
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == NOTIFICATION_PERMISSION_REQUEST) NetworkMonitorService.refresh(this);
+    }
+
+    private void loadMonitorStatus() {
+        TextView monitorStatus = findViewById(R.id.monitorStatus);
+        if (monitorStatus == null) return;
+        DeviceInventory inventory = DeviceInventory.get(this);
+        MacAddress mac = device.macAddress;
+        String ip = device.ipAddress;
+        new Thread(() -> {
+            String text;
+            try {
+                text = formatMonitor(inventory.loadMonitor(mac, ip));
+            } catch (Exception e) {
+                text = "Not available";
+            }
+            String statusText = text;
+            runOnUiThread(() -> monitorStatus.setText(statusText));
+        }, "MonitorStatus").start();
+    }
+
+    private static String formatMonitor(DeviceInventory.Monitor monitor) {
+        if (monitor == null) return "Tap to monitor this device";
+        String interval = monitor.getIntervalMs() >= 60_000
+                ? (monitor.getIntervalMs() / 60_000) + " min" : (monitor.getIntervalMs() / 1000) + " s";
+        StringBuilder sb = new StringBuilder("Checked every ").append(interval);
+        if (monitor.getLastChecked() == 0) {
+            sb.append("\nWaiting for the first check");
+        } else {
+            SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
+            sb.append("\nLast check ").append(sdf.format(new Date(monitor.getLastChecked()))).append(": ");
+            if (monitor.getMisses() == 0) {
+                sb.append("online, ").append(String.format(Locale.US, "%.1f ms",
+                        monitor.getLastRttMicros() / 1000.0));
+            } else {
+                sb.append("offline (").append(monitor.getMisses()).append(" missed)");
+            }
+        }
+        return sb.toString();
     }
 
     private void startQuickPingTest() {
@@ -226,7 +429,7 @@ public class DeviceDetailsActivity extends AppCompatActivity implements PingServ
         }
 
         // Start enhanced ping test (4 pings)
-        PingService.quickPing(device.ipAddress, this);
+        pingSession = PingService.quickPing(device.ipAddress, this);
     }
 
     private void startPortScan() {
@@ -235,159 +438,256 @@ public class DeviceDetailsActivity extends AppCompatActivity implements PingServ
             return;
         }
 
-        Toast.makeText(this, "Port scan feature coming in Phase 3!", Toast.LENGTH_SHORT).show();
-        // We'll implement this in Phase 3
-    }
+        if (portScanner != null) {
+            Toast.makeText(this, "Port scan already in progress", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-    // PingService callback methods
-    @Override
-    public void onPingProgress(String message) {
-        runOnUiThread(() -> {
-            if (progressText != null) {
-                progressText.setText(message);
-            }
-        });
+        PortProfiles.Profile[] profiles = PortProfiles.Profile.values();
+        String[] labels = new String[profiles.length];
+        for (int i = 0; i < profiles.length; i++) {
+            labels[i] = profiles[i].getLabel();
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("Scan " + device.ipAddress)
+                .setItems(labels, (dialog, which) -> runPortScan(profiles[which]))
+                .show();
     }
 
-    @Override
-    public void onPingComplete(PingResult result) {
-        runOnUiThread(() -> {
-            isPinging = false;
+    private void runPortScan(PortProfiles.Profile profile) {
+        int address = Ipv4Subnet.parse(device.ipAddress);
+        if (address == 0) {
+            Toast.makeText(this, "Port scan needs an IPv4 address", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-            if (pingProgress != null) {
-                pingProgress.setVisibility(View.GONE);
-            }
-            if (progressText != null) {
-                progressText.setVisibility(View.GONE);
-            }
+        PortScanner scanner = new PortScanner(address);
+        portScanner = scanner;
+        // port -> display line, kept in port order; only touched on the UI thread
+        TreeMap<Integer, String> openPorts = new TreeMap<>();
+        List<ServiceInfo> services = new ArrayList<>();
 
-            if (pingResult != null) {
-                if (result.isSuccess()) {
-                    String formattedResult = String.format(
-                            "✅ Ping Successful!\n" +
-                                    "Avg: %dms | Min: %dms | Max: %dms\n" +
-                                    "Packet Loss: %s | Sent: %d | Received: %d",
-                            result.getAvgTime(),
-                            result.getMinTime(),
-                            result.getMaxTime(),
-                            result.getFormattedPacketLoss(),
-                            result.getSent(),
-                            result.getReceived()
-                    );
-
-                    pingResult.setText(formattedResult);
-                    pingResult.setTextColor(getResources().getColor(android.R.color.holo_green_dark, getTheme()));
-
-                    // Show success toast
-                    Toast.makeText(this,
-                            "Ping to " + device.ipAddress + ": " + result.getAvgTime() + "ms avg",
-                            Toast.LENGTH_SHORT).show();
+        ServiceFingerprinter fingerprinter;
+        try {
+            fingerprinter = new ServiceFingerprinter(info -> runOnUiThread(() -> {
+                services.add(info);
+                openPorts.put(info.getPort(), "🟢 " + info.getDisplayText());
+                if (portScanResult != null) portScanResult.setText(formatOpenPorts(openPorts));
+                updateDeviceType(services);
+            }));
+            fingerprinter.start();
+            scanner.setConnectionHandler(fingerprinter);
+        } catch (IOException e) {
+            // Banner grabbing is optional: fall back to port-number service names
+            Log.w("DeviceDetails", "Service fingerprinting unavailable: " + e.getMessage());
+            fingerprinter = null;
+        }
+        ServiceFingerprinter grabber = fingerprinter;
 
-                } else {
-                    pingResult.setText("❌ Ping Failed\n" +
-                            (result.getErrorMessage() != null ? result.getErrorMessage() : "No response from device"));
-                    pingResult.setTextColor(getResources().getColor(android.R.color.holo_red_dark, getTheme()));
+        if (portScanProgress != null) {
+            portScanProgress.setProgress(0);
+            portScanProgress.setVisibility(View.VISIBLE);
+        }
+        if (portScanProgressText != null) {
+            portScanProgressText.setText("Scanning " + profile.getLabel() + "...");
+            portScanProgressText.setVisibility(View.VISIBLE);
+        }
+        if (portScanResult != null) {
+            portScanResult.setText("Open ports will appear here");
+        }
+
+        // One selector thread drives the whole scan and another grabs banners from the
+        // ports it finds open; both stream results in as they arrive
+        new Thread(() -> {
+            PortScanner.Result result = null;
+            String error = null;
+            try {
+                result = scanner.scan(profile, new PortScanner.Listener() {
+                    @Override
+                    public void onPortOpen(int port, long rttNanos) {
+                        String service = PortProfiles.serviceName(port);
+                        runOnUiThread(() -> {
+                            if (openPorts.containsKey(port)) return;
+                            openPorts.put(port, "🟢 " + port + (service != null ? " (" + service + ")" : ""));
+                            if (portScanResult != null) portScanResult.setText(formatOpenPorts(openPorts));
+                        });
+                    }
+
+                    @Override
+                    public void onProgress(int scanned, int total) {
+                        runOnUiThread(() -> {
+                            if (portScanProgress != null) {
+                                portScanProgress.setMax(total);
+                                portScanProgress.setProgress(scanned);
+                            }
+                            if (portScanProgressText != null) {
+                                portScanProgressText.setText("Scanned " + scanned + "/" + total + " ports");
+                            }
+                        });
+                    }
+                });
+            } catch (Exception e) {
+                Log.e("DeviceDetails", "Port scan failed: " + e.getMessage());
+                error = e.getMessage();
+            }
+
+            if (grabber != null) {
+                runOnUiThread(() -> {
+                    if (portScanProgressText != null) portScanProgressText.setText("Identifying services...");
+                });
+                if (scanner.isCancelled()) grabber.cancel();
+                grabber.finish();
+                try {
+                    grabber.join();
+                } catch (InterruptedException e) {
+                    grabber.cancel();
+                    Thread.currentThread().interrupt();
                 }
             }
-        });
+
+            PortScanner.Result finalResult = result;
+            String finalError = error;
+            runOnUiThread(() -> onPortScanComplete(finalResult, finalError, openPorts, services));
+        }, "PortScanner").start();
     }
 
-    @Override
-    public void onPingError(String error) {
-        runOnUiThread(() -> {
-            isPinging = false;
+    private static String formatOpenPorts(TreeMap<Integer, String> openPorts) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : openPorts.values()) {
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(line);
+        }
+        return sb.toString();
+    }
 
-            if (pingProgress != null) {
-                pingProgress.setVisibility(View.GONE);
-            }
-            if (progressText != null) {
-                progressText.setVisibility(View.GONE);
-            }
-            if (pingResult != null) {
-                pingResult.setText("⚠️ Error: " + error);
-                pingResult.setTextColor(getResources().getColor(android.R.color.holo_orange_dark, getTheme()));
-            }
-        });
+    private void updateDeviceType(List<ServiceInfo> services) {
+        String type = DeviceClassifier.guessDeviceType(this, device.vendor, device.hostname,
+                device.ipAddress, services);
+        if (type.equals(device.deviceType)) return;
+        device.deviceType = type;
+        TextView deviceType = findViewById(R.id.deviceType);
+        if (deviceType != null) deviceType.setText(type);
     }
 
-    // Helper methods for vendor and device type detection
-    private String getVendorFromMac(String mac) {
-        if (mac == null || mac.equals("Unknown") || mac.length() < 8) {
-            return "Unknown Vendor";
-        }
-
-        String oui = mac.replace(":", "").replace("-", "").substring(0, 6).toUpperCase();
-
-        // Common vendor OUIs - you can expand this list
-        if (oui.startsWith("001C10") || oui.startsWith("A4D1D1") || oui.startsWith("F0F0F0")) {
-            return "Apple";
-        } else if (oui.startsWith("0019B9") || oui.startsWith("5C3C27")) {
-            return "Samsung";
-        } else if (oui.startsWith("001A11") || oui.startsWith("DC537C")) {
-            return "Google";
-        } else if (oui.startsWith("001D0F") || oui.startsWith("000D3A")) {
-            return "Microsoft";
-        } else if (oui.startsWith("C4E984") || oui.startsWith("001DE1")) {
-            return "TP-Link";
-        } else if (oui.startsWith("E45F01") || oui.startsWith("001E46")) {
-            return "NETGEAR";
-        } else if (oui.startsWith("0016CB") || oui.startsWith("00000C")) {
-            return "Cisco";
-        } else if (oui.startsWith("001F5B") || oui.startsWith("001D60")) {
-            return "ASUS";
-        } else if (oui.startsWith("0022B0") || oui.startsWith("001DE8")) {
-            return "Dell";
-        } else if (oui.startsWith("001A4B") || oui.startsWith("001217")) {
-            return "Linksys";
-        } else if (oui.startsWith("001124") || oui.startsWith("64167F")) {
-            return "Huawei";
-        }
-
-        return "Unknown Vendor";
+    private void onPortScanComplete(PortScanner.Result result, String error,
+                                    TreeMap<Integer, String> openPorts, List<ServiceInfo> services) {
+        portScanner = null;
+        if (result != null && !result.isCancelled()) saveServices(services);
+        if (portScanProgress != null) {
+            portScanProgress.setVisibility(View.GONE);
+        }
+        if (portScanProgressText != null) {
+            portScanProgressText.setVisibility(View.GONE);
+        }
+        if (portScanResult == null) return;
+
+        if (result == null) {
+            portScanResult.setText("⚠️ Port scan failed: " + error);
+            return;
+        }
+        String header = result.getOpenPorts().length == 0 ? "No open ports found" : formatOpenPorts(openPorts);
+        portScanResult.setText(header + "\n\n" + result.getSummary());
     }
 
-    private String guessDeviceType(String vendor, String hostname, String ip) {
-        if (vendor != null) {
-            if (vendor.contains("Apple")) {
-                if (hostname != null && (hostname.contains("iPhone") || hostname.contains("iPad"))) {
-                    return "Mobile Device";
-                }
-                return "Apple Device";
-            } else if (vendor.contains("Samsung")) {
-                return "Samsung Device";
-            } else if (vendor.contains("TP-Link") || vendor.contains("NETGEAR") ||
-                    vendor.contains("Cisco") || vendor.contains("ASUS") ||
-                    vendor.contains("Linksys")) {
-                return "Network Router";
-            } else if (vendor.contains("Dell") || vendor.contains("Microsoft")) {
-                return "Computer";
-            } else if (vendor.contains("Google")) {
-                return "Google Device";
+    // A finished scan's services and the type they point to go to the inventory, and back
+    // to the device list as this activity's result
+    private void saveServices(List<ServiceInfo> services) {
+        device.services = services;
+        Intent data = new Intent();
+        data.putExtra("device", device);
+        setResult(RESULT_OK, data);
+
+        DeviceInventory inventory = DeviceInventory.get(this);
+        MacAddress mac = device.macAddress;
+        String ip = device.ipAddress;
+        String type = device.deviceType;
+        new Thread(() -> {
+            try {
+                inventory.saveServices(mac, ip, services, type);
+            } catch (Exception e) {
+                Log.e("DeviceDetails", "Failed to save services: " + e.getMessage());
             }
+        }, "ServicesSave").start();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (portScanner != null) {
+            portScanner.cancel();
+        }
+        if (pingSession != null) {
+            pingSession.cancel();
         }
+    }
 
-        // Guess based on IP address (often routers use .1 or .254)
-        if (ip != null) {
-            if (ip.endsWith(".1") || ip.endsWith(".254")) {
-                return "Router/Gateway";
-            }
+    // PingService callback methods
+    @Override
+    public void onPingProgress(String message) {
+        if (progressText != null) {
+            progressText.setText(message);
+        }
+    }
+
+    @Override
+    public void onPingComplete(PingResult result) {
+        isPinging = false;
+
+        if (pingProgress != null) {
+            pingProgress.setVisibility(View.GONE);
+        }
+        if (progressText != null) {
+            progressText.setVisibility(View.GONE);
         }
 
-        // Guess based on hostname
-        if (hostname != null) {
-            hostname = hostname.toLowerCase();
-            if (hostname.contains("android") || hostname.contains("phone") || hostname.contains("mobile")) {
-                return "Mobile Device";
-            } else if (hostname.contains("pc") || hostname.contains("laptop") || hostname.contains("desktop")) {
-                return "Computer";
-            } else if (hostname.contains("tv") || hostname.contains("smart")) {
-                return "Smart TV";
-            } else if (hostname.contains("printer")) {
-                return "Printer";
+        if (pingResult != null) {
+            if (result.isSuccess()) {
+                String formattedResult = String.format(
+                        "✅ Ping Successful!\n" +
+                                "Avg: %s | Min: %s | Max: %s\n" +
+                                "Packet Loss: %s | Sent: %d | Received: %d\n" +
+                                "P90: %s | Jitter: %s",
+                        PingResult.formatMillis(result.getAvgTime()),
+                        PingResult.formatMillis(result.getMinTime()),
+                        PingResult.formatMillis(result.getMaxTime()),
+                        result.getFormattedPacketLoss(),
+                        result.getSent(),
+                        result.getReceived(),
+                        PingResult.formatMillis(result.getPercentileTime(90)),
+                        PingResult.formatMillis(result.getJitterTime())
+                );
+
+                pingResult.setText(formattedResult);
+                pingResult.setTextColor(getResources().getColor(android.R.color.holo_green_dark, getTheme()));
+
+                // Show success toast
+                Toast.makeText(this,
+                        "Ping to " + device.ipAddress + ": " + PingResult.formatMillis(result.getAvgTime()) + " avg",
+                        Toast.LENGTH_SHORT).show();
+
+            } else {
+                pingResult.setText("❌ Ping Failed\n" +
+                        (result.getErrorMessage() != null ? result.getErrorMessage() : "No response from device"));
+                pingResult.setTextColor(getResources().getColor(android.R.color.holo_red_dark, getTheme()));
             }
         }
+    }
 
-        return "Unknown Device";
+    @Override
+    public void onPingError(String error) {
+        isPinging = false;
+
+        if (pingProgress != null) {
+            pingProgress.setVisibility(View.GONE);
+        }
+        if (progressText != null) {
+            progressText.setVisibility(View.GONE);
+        }
+        if (pingResult != null) {
+            pingResult.setText("⚠️ Error: " + error);
+            pingResult.setTextColor(getResources().getColor(android.R.color.holo_orange_dark, getTheme()));
+        }
     }
 
     @Override
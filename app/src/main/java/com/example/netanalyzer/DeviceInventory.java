@@ -0,0 +1,483 @@
+package com.example.netanalyzer;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// On-disk inventory of every device the scanner has seen. One row per device, keyed by
+// MAC, or by IP while no MAC is known (ARP is unreadable on non-rooted Android 10+),
+// with real first/last sighting times, plus a capped per-device log of sightings for
+// the details screen. A whole scan is merged in one transaction with precompiled
+// statements. Devices picked for background monitoring (NetworkMonitorService) are kept
+// with their probe interval and latest result, and each device's last port scan with the
+// services it found. All methods do disk I/O; call them off the main thread.
+public class DeviceInventory extends SQLiteOpenHelper {
+    private static final String TAG = "DeviceInventory";
+    private static final String DB_NAME = "inventory.db";
+    private static final int DB_VERSION = 3;
+
+    // Sightings kept per device
+    private static final int HISTORY_LIMIT = 100;
+    private static final String IP_KEY_PREFIX = "ip:";
+
+    private static final String DEVICE_COLUMNS =
+            "key, mac, ip, hostname, vendor, device_type, first_seen, last_seen, times_seen";
+
+    private static volatile DeviceInventory instance;
+
+    public static DeviceInventory get(Context context) {
+        DeviceInventory current = instance;
+        if (current == null) {
+            synchronized (DeviceInventory.class) {
+                current = instance;
+                if (current == null) {
+                    current = new DeviceInventory(context.getApplicationContext());
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private DeviceInventory(Context context) {
+        this(context, DB_NAME);
+        // Lets the device list load while a scan is being written
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    // A null name keeps the database in memory (tests)
+    DeviceInventory(Context context, String name) {
+        super(context, name, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE devices ("
+                + "key TEXT PRIMARY KEY, "
+                + "mac INTEGER, "
+                + "ip TEXT, "
+                + "hostname TEXT, "
+                + "vendor TEXT, "
+                + "device_type TEXT, "
+                + "first_seen INTEGER NOT NULL, "
+                + "last_seen INTEGER NOT NULL, "
+                + "times_seen INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX devices_last_seen ON devices (last_seen)");
+        db.execSQL("CREATE TABLE sightings ("
+                + "device_key TEXT NOT NULL, "
+                + "seen_at INTEGER NOT NULL, "
+                + "ip TEXT, "
+                + "PRIMARY KEY (device_key, seen_at)) WITHOUT ROWID");
+        createMonitors(db);
+        createServices(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) createMonitors(db);
+        if (oldVersion < 3) {
+            createServices(db);
+            // Only served vendor lookups, which nothing makes
+            db.execSQL("DROP INDEX IF EXISTS devices_vendor");
+        }
+    }
+
+    // Version 2: background monitoring
+    private static void createMonitors(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE monitors ("
+                + "device_key TEXT PRIMARY KEY, "
+                + "ip TEXT NOT NULL, "
+                + "interval_ms INTEGER NOT NULL, "
+                + "last_checked INTEGER, "
+                + "last_rtt_us INTEGER, "
+                + "misses INTEGER NOT NULL DEFAULT 0)");
+    }
+
+    // Version 3: services found by the last port scan
+    private static void createServices(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE services ("
+                + "device_key TEXT NOT NULL, "
+                + "port INTEGER NOT NULL, "
+                + "service TEXT, "
+                + "product TEXT, "
+                + "device_hint TEXT, "
+                + "banner TEXT, "
+                + "PRIMARY KEY (device_key, port)) WITHOUT ROWID");
+    }
+
+    // One device as observed by a scan. Unknown fields are null and never overwrite
+    // what the inventory already knows. merge() fills in the stored history.
+    public static class Record {
+        final String ip;
+        final MacAddress mac;
+        final String hostname;
+        final String vendor;
+        final String deviceType;
+
+        long firstSeen;
+        int timesSeen;
+
+        public Record(String ip, MacAddress mac, String hostname, String vendor, String deviceType) {
+            this.ip = ip;
+            this.mac = mac;
+            this.hostname = hostname;
+            this.vendor = vendor;
+            this.deviceType = deviceType;
+        }
+
+        public long getFirstSeen() {
+            return firstSeen;
+        }
+
+        public int getTimesSeen() {
+            return timesSeen;
+        }
+    }
+
+    public static class Sighting {
+        final long seenAt;
+        final String ip;
+
+        Sighting(long seenAt, String ip) {
+            this.seenAt = seenAt;
+            this.ip = ip;
+        }
+
+        public long getSeenAt() {
+            return seenAt;
+        }
+
+        public String getIp() {
+            return ip;
+        }
+    }
+
+    // A monitored device and its latest probe result
+    public static class Monitor {
+        final String key;
+        final String ip;
+        final long intervalMs;
+        // Wall-clock millis of the last probe (0 = never), RTT of the last answer (-1 = none)
+        long lastChecked;
+        long lastRttMicros;
+        int misses;
+
+        Monitor(String key, String ip, long intervalMs) {
+            this.key = key;
+            this.ip = ip;
+            this.intervalMs = intervalMs;
+        }
+
+        public String getKey() { return key; }
+        public String getIp() { return ip; }
+        public long getIntervalMs() { return intervalMs; }
+        public long getLastChecked() { return lastChecked; }
+        public long getLastRttMicros() { return lastRttMicros; }
+        public int getMisses() { return misses; }
+
+        public void setResult(long checkedAt, long rttMicros, int misses) {
+            this.lastChecked = checkedAt;
+            this.lastRttMicros = rttMicros;
+            this.misses = misses;
+        }
+    }
+
+    public static String keyFor(MacAddress mac, String ip) {
+        return mac != null ? mac.toString() : IP_KEY_PREFIX + ip;
+    }
+
+    // Merges one scan's devices, all seen at scanTime (epoch millis), in a single
+    // transaction, and fills in each record's firstSeen and timesSeen
+    public void merge(List<Record> records, long scanTime) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement update = db.compileStatement("UPDATE devices SET "
+                + "mac = COALESCE(?, mac), ip = ?, hostname = COALESCE(?, hostname), "
+                + "vendor = COALESCE(?, vendor), device_type = COALESCE(?, device_type), "
+                + "last_seen = ?, times_seen = times_seen + 1 WHERE key = ?");
+        SQLiteStatement insert = db.compileStatement("INSERT INTO devices (" + DEVICE_COLUMNS
+                + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, 1)");
+        SQLiteStatement timesSeen = db.compileStatement("SELECT times_seen FROM devices WHERE key = ?");
+        SQLiteStatement sighting = db.compileStatement(
+                "INSERT OR REPLACE INTO sightings (device_key, seen_at, ip) VALUES (?, ?, ?)");
+        SQLiteStatement prune = db.compileStatement("DELETE FROM sightings WHERE device_key = ? AND seen_at <= "
+                + "(SELECT seen_at FROM sightings WHERE device_key = ? ORDER BY seen_at DESC LIMIT 1 OFFSET ?)");
+        SQLiteStatement firstSeen = db.compileStatement("SELECT first_seen FROM devices WHERE key = ?");
+        SQLiteStatement exists = db.compileStatement("SELECT COUNT(*) FROM devices WHERE key = ?");
+
+        db.beginTransactionNonExclusive();
+        try {
+            for (Record record : records) {
+                String key = keyFor(record.mac, record.ip);
+                if (record.mac != null && record.ip != null) {
+                    // Almost always nothing to adopt: one primary-key lookup
+                    String ipKey = keyFor(null, record.ip);
+                    exists.bindString(1, ipKey);
+                    if (exists.simpleQueryForLong() > 0) adoptIpKeyedRow(db, key, ipKey);
+                }
+
+                update.clearBindings();
+                bindMac(update, 1, record.mac);
+                bind(update, 2, record.ip);
+                bind(update, 3, record.hostname);
+                bind(update, 4, record.vendor);
+                bind(update, 5, record.deviceType);
+                update.bindLong(6, scanTime);
+                update.bindString(7, key);
+                if (update.executeUpdateDelete() == 0) {
+                    insert.clearBindings();
+                    insert.bindString(1, key);
+                    bindMac(insert, 2, record.mac);
+                    bind(insert, 3, record.ip);
+                    bind(insert, 4, record.hostname);
+                    bind(insert, 5, record.vendor);
+                    bind(insert, 6, record.deviceType);
+                    insert.bindLong(7, scanTime);
+                    insert.bindLong(8, scanTime);
+                    insert.executeInsert();
+                }
+
+                firstSeen.bindString(1, key);
+                record.firstSeen = firstSeen.simpleQueryForLong();
+                timesSeen.bindString(1, key);
+                record.timesSeen = (int) timesSeen.simpleQueryForLong();
+
+                sighting.bindString(1, key);
+                sighting.bindLong(2, scanTime);
+                bind(sighting, 3, record.ip);
+                sighting.executeInsert();
+
+                if (record.timesSeen > HISTORY_LIMIT) {
+                    prune.bindString(1, key);
+                    prune.bindString(2, key);
+                    prune.bindLong(3, HISTORY_LIMIT);
+                    prune.executeUpdateDelete();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            update.close();
+            insert.close();
+            timesSeen.close();
+            sighting.close();
+            prune.close();
+            firstSeen.close();
+            exists.close();
+        }
+        Log.d(TAG, "Merged " + records.size() + " devices");
+    }
+
+    // Most recently seen devices first (served by the last_seen index)
+    public List<MainActivity.Device> loadRecent(int limit) {
+        return query("SELECT " + DEVICE_COLUMNS + " FROM devices ORDER BY last_seen DESC LIMIT ?",
+                String.valueOf(limit));
+    }
+
+    // Newest sightings of one device first
+    public List<Sighting> loadSightings(MacAddress mac, String ip, int limit) {
+        List<Sighting> sightings = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT seen_at, ip FROM sightings WHERE device_key = ? ORDER BY seen_at DESC LIMIT ?",
+                new String[]{keyFor(mac, ip), String.valueOf(limit)})) {
+            while (cursor.moveToNext()) {
+                sightings.add(new Sighting(cursor.getLong(0), cursor.getString(1)));
+            }
+        }
+        return sightings;
+    }
+
+    // Replaces the device's services with those of a finished port scan, and stores the
+    // device type they led to
+    public void saveServices(MacAddress mac, String ip, List<ServiceInfo> services, String deviceType) {
+        String key = keyFor(mac, ip);
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO services "
+                + "(device_key, port, service, product, device_hint, banner) VALUES (?, ?, ?, ?, ?, ?)");
+        db.beginTransactionNonExclusive();
+        try {
+            db.execSQL("DELETE FROM services WHERE device_key = ?", new Object[]{key});
+            for (ServiceInfo info : services) {
+                insert.bindString(1, key);
+                insert.bindLong(2, info.getPort());
+                bind(insert, 3, info.getService());
+                bind(insert, 4, info.getProduct());
+                bind(insert, 5, info.getDeviceHint());
+                bind(insert, 6, info.getBanner());
+                insert.executeInsert();
+            }
+            if (deviceType != null) {
+                db.execSQL("UPDATE devices SET device_type = ? WHERE key = ?", new Object[]{deviceType, key});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    // Services from the device's last port scan, in port order (empty if never scanned)
+    public List<ServiceInfo> loadServices(MacAddress mac, String ip) {
+        List<ServiceInfo> services = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT port, service, product, device_hint, "
+                + "banner FROM services WHERE device_key = ? ORDER BY port", new String[]{keyFor(mac, ip)})) {
+            while (cursor.moveToNext()) {
+                services.add(new ServiceInfo(cursor.getInt(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getString(3), cursor.getString(4)));
+            }
+        }
+        return services;
+    }
+
+    public void setMonitor(MacAddress mac, String ip, long intervalMs) {
+        getWritableDatabase().execSQL("INSERT OR REPLACE INTO monitors (device_key, ip, interval_ms) "
+                + "VALUES (?, ?, ?)", new Object[]{keyFor(mac, ip), ip, intervalMs});
+    }
+
+    public void removeMonitor(MacAddress mac, String ip) {
+        getWritableDatabase().execSQL("DELETE FROM monitors WHERE device_key = ?",
+                new Object[]{keyFor(mac, ip)});
+    }
+
+    // The device's monitor, or null if it isn't monitored
+    public Monitor loadMonitor(MacAddress mac, String ip) {
+        List<Monitor> monitors = queryMonitors("SELECT device_key, ip, interval_ms, last_checked, "
+                + "last_rtt_us, misses FROM monitors WHERE device_key = ?", keyFor(mac, ip));
+        return monitors.isEmpty() ? null : monitors.get(0);
+    }
+
+    public List<Monitor> loadMonitors() {
+        return queryMonitors("SELECT device_key, ip, interval_ms, last_checked, last_rtt_us, misses "
+                + "FROM monitors");
+    }
+
+    // Stores one monitoring cycle's results in a single transaction; devices that
+    // answered also count as seen
+    public void recordMonitorResults(List<Monitor> monitors) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement result = db.compileStatement("UPDATE monitors SET last_checked = ?, "
+                + "last_rtt_us = ?, misses = ? WHERE device_key = ?");
+        SQLiteStatement seen = db.compileStatement("UPDATE devices SET last_seen = MAX(last_seen, ?) WHERE key = ?");
+        db.beginTransactionNonExclusive();
+        try {
+            for (Monitor monitor : monitors) {
+                result.bindLong(1, monitor.lastChecked);
+                result.bindLong(2, monitor.lastRttMicros);
+                result.bindLong(3, monitor.misses);
+                result.bindString(4, monitor.key);
+                result.executeUpdateDelete();
+                if (monitor.misses == 0) {
+                    seen.bindLong(1, monitor.lastChecked);
+                    seen.bindString(2, monitor.key);
+                    seen.executeUpdateDelete();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            result.close();
+            seen.close();
+        }
+    }
+
+    private List<Monitor> queryMonitors(String sql, String... args) {
+        List<Monitor> monitors = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(sql, args)) {
+            while (cursor.moveToNext()) {
+                Monitor monitor = new Monitor(cursor.getString(0), cursor.getString(1), cursor.getLong(2));
+                monitor.lastChecked = cursor.isNull(3) ? 0 : cursor.getLong(3);
+                monitor.lastRttMicros = cursor.isNull(4) ? -1 : cursor.getLong(4);
+                monitor.misses = cursor.getInt(5);
+                monitors.add(monitor);
+            }
+        }
+        return monitors;
+    }
+
+    // Devices with their stored services attached
+    private List<MainActivity.Device> query(String sql, String... args) {
+        List<MainActivity.Device> devices = new ArrayList<>();
+        Map<String, MainActivity.Device> byKey = new HashMap<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(sql, args)) {
+            while (cursor.moveToNext()) {
+                MainActivity.Device device = new MainActivity.Device();
+                byKey.put(cursor.getString(0), device);
+                device.macAddress = cursor.isNull(1) ? null : MacAddress.of(cursor.getLong(1));
+                device.ipAddress = cursor.getString(2);
+                device.hostname = cursor.getString(3);
+                if (!cursor.isNull(4)) device.vendor = cursor.getString(4);
+                if (!cursor.isNull(5)) device.deviceType = cursor.getString(5);
+                device.firstSeen = new Date(cursor.getLong(6));
+                device.lastSeen = new Date(cursor.getLong(7));
+                device.timesSeen = cursor.getInt(8);
+                device.isConnected = false;
+                devices.add(device);
+            }
+        }
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT device_key, port, service, product, "
+                + "device_hint, banner FROM services ORDER BY device_key, port", null)) {
+            while (cursor.moveToNext()) {
+                MainActivity.Device device = byKey.get(cursor.getString(0));
+                if (device == null) continue;
+                if (device.services == null) device.services = new ArrayList<>();
+                device.services.add(new ServiceInfo(cursor.getInt(1), cursor.getString(2),
+                        cursor.getString(3), cursor.getString(4), cursor.getString(5)));
+            }
+        }
+        return devices;
+    }
+
+    // A device first stored under its IP (no MAC at the time) keeps its history once
+    // its MAC shows up: the row, its sightings and its services move to the MAC key. If the MAC already
+    // has a row (the device was seen with its MAC on another IP), the two are folded
+    // together: earliest first sighting, summed sighting counts.
+    private static void adoptIpKeyedRow(SQLiteDatabase db, String macKey, String ipKey) {
+        SQLiteStatement fold = db.compileStatement("UPDATE devices SET "
+                + "first_seen = MIN(first_seen, (SELECT first_seen FROM devices WHERE key = ?)), "
+                + "times_seen = times_seen + (SELECT times_seen FROM devices WHERE key = ?), "
+                + "hostname = COALESCE(hostname, (SELECT hostname FROM devices WHERE key = ?)) "
+                + "WHERE key = ?");
+        try {
+            fold.bindString(1, ipKey);
+            fold.bindString(2, ipKey);
+            fold.bindString(3, ipKey);
+            fold.bindString(4, macKey);
+            if (fold.executeUpdateDelete() == 0) {
+                db.execSQL("UPDATE devices SET key = ? WHERE key = ?", new Object[]{macKey, ipKey});
+            } else {
+                db.execSQL("DELETE FROM devices WHERE key = ?", new Object[]{ipKey});
+            }
+        } finally {
+            fold.close();
+        }
+        db.execSQL("UPDATE OR IGNORE sightings SET device_key = ? WHERE device_key = ?",
+                new Object[]{macKey, ipKey});
+        db.execSQL("DELETE FROM sightings WHERE device_key = ?", new Object[]{ipKey});
+        db.execSQL("UPDATE OR IGNORE services SET device_key = ? WHERE device_key = ?",
+                new Object[]{macKey, ipKey});
+        db.execSQL("DELETE FROM services WHERE device_key = ?", new Object[]{ipKey});
+    }
+
+    private static void bind(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    private static void bindMac(SQLiteStatement statement, int index, MacAddress mac) {
+        if (mac != null) {
+            statement.bindLong(index, mac.toLong());
+        } else {
+            statement.bindNull(index);
+        }
+    }
+}
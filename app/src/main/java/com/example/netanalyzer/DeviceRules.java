@@ -0,0 +1,275 @@
+package com.example.netanalyzer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Compiled device-classification rules. Every token any rule mentions goes into one
+// Aho-Corasick automaton, so the vendor and the hostname are each scanned once,
+// case-insensitively and without lowercasing copies; rules are then evaluated in order
+// against the two sets of matched tokens and the first match wins. Results are memoized
+// per (vendor, hostname). Instances are immutable apart from the memo and safe to share.
+//
+// Rule text format, one entry per line ('#' starts a comment):
+//
+//   [clauses]        starts a group; its clauses are ANDed onto every rule below it
+//   []               ends the group
+//   Type = clauses   a rule; an empty right-hand side always matches
+//
+// Clauses are separated by '&' and all must match. A clause is a list of terms separated
+// by '|' and matches if any of them does. A term is v:text (vendor contains text),
+// h:text (hostname contains text) or any:text (either one does).
+public final class DeviceRules {
+
+    private static final int VENDOR = 1;
+    private static final int HOST = 2;
+    private static final int MEMO_LIMIT = 4096;
+
+    private final String[] types;
+    // clauses[rule][clause][term] = tokenId << 2 | field mask
+    private final int[][][] clauses;
+
+    // Automaton over a compacted alphabet: class 0 is every char no token contains
+    private final char[] charClass = new char[128];
+    private final int alphabet;
+    private final int[] delta;
+    private final int[][] outputs;
+    private final int tokenWords;
+
+    private final Map<Key, String> memo = new ConcurrentHashMap<>();
+
+    private DeviceRules(String[] types, int[][][] clauses, List<String> tokens) {
+        this.types = types;
+        this.clauses = clauses;
+        this.tokenWords = (tokens.size() + 63) / 64;
+
+        int classes = 1;
+        for (String token : tokens) {
+            for (int i = 0; i < token.length(); i++) {
+                char c = token.charAt(i);
+                if (charClass[c] == 0) charClass[c] = (char) classes++;
+            }
+        }
+        alphabet = classes;
+
+        // Trie, then breadth-first failure links folded into a full transition table
+        List<int[]> trie = new ArrayList<>();
+        List<int[]> out = new ArrayList<>();
+        trie.add(new int[alphabet]);
+        out.add(new int[0]);
+        for (int t = 0; t < tokens.size(); t++) {
+            String token = tokens.get(t);
+            int state = 0;
+            for (int i = 0; i < token.length(); i++) {
+                int cls = charClass[token.charAt(i)];
+                if (trie.get(state)[cls] == 0) {
+                    trie.get(state)[cls] = trie.size();
+                    trie.add(new int[alphabet]);
+                    out.add(new int[0]);
+                }
+                state = trie.get(state)[cls];
+            }
+            out.set(state, append(out.get(state), t));
+        }
+
+        int states = trie.size();
+        delta = new int[states * alphabet];
+        outputs = new int[states][];
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        outputs[0] = out.get(0);
+        for (int cls = 1; cls < alphabet; cls++) {
+            int next = trie.get(0)[cls];
+            delta[cls] = next;
+            if (next != 0) queue.add(next);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] = merge(out.get(state), outputs[fail[state]]);
+            for (int cls = 1; cls < alphabet; cls++) {
+                int next = trie.get(state)[cls];
+                if (next != 0) {
+                    fail[next] = delta[fail[state] * alphabet + cls];
+                    delta[state * alphabet + cls] = next;
+                    queue.add(next);
+                } else {
+                    delta[state * alphabet + cls] = delta[fail[state] * alphabet + cls];
+                }
+            }
+        }
+    }
+
+    public static DeviceRules compile(String text) {
+        List<String> types = new ArrayList<>();
+        List<int[][]> rules = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        Map<String, Integer> tokenIds = new HashMap<>();
+        int[][] group = new int[0][];
+
+        String[] lines = text.split("\n");
+        for (int n = 0; n < lines.length; n++) {
+            String line = lines[n];
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            line = line.trim();
+            if (line.isEmpty()) continue;
+
+            try {
+                if (line.startsWith("[")) {
+                    if (!line.endsWith("]")) throw new IllegalArgumentException("unclosed group");
+                    group = parseClauses(line.substring(1, line.length() - 1), tokens, tokenIds);
+                    continue;
+                }
+                int eq = line.indexOf('=');
+                if (eq <= 0) throw new IllegalArgumentException("expected 'Type = clauses'");
+                int[][] own = parseClauses(line.substring(eq + 1), tokens, tokenIds);
+                int[][] all = Arrays.copyOf(group, group.length + own.length);
+                System.arraycopy(own, 0, all, group.length, own.length);
+                types.add(line.substring(0, eq).trim());
+                rules.add(all);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Rule line " + (n + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return new DeviceRules(types.toArray(new String[0]), rules.toArray(new int[0][][]), tokens);
+    }
+
+    private static int[][] parseClauses(String text, List<String> tokens, Map<String, Integer> tokenIds) {
+        if (text.trim().isEmpty()) return new int[0][];
+        String[] parts = text.split("&");
+        int[][] clauses = new int[parts.length][];
+        for (int c = 0; c < parts.length; c++) {
+            String[] terms = parts[c].split("\\|");
+            clauses[c] = new int[terms.length];
+            for (int t = 0; t < terms.length; t++) {
+                String term = terms[t].trim();
+                int colon = term.indexOf(':');
+                if (colon <= 0 || colon == term.length() - 1) {
+                    throw new IllegalArgumentException("bad term '" + term + "'");
+                }
+                int field;
+                switch (term.substring(0, colon)) {
+                    case "v": field = VENDOR; break;
+                    case "h": field = HOST; break;
+                    case "any": field = VENDOR | HOST; break;
+                    default: throw new IllegalArgumentException("unknown field in '" + term + "'");
+                }
+                String token = term.substring(colon + 1).toLowerCase();
+                for (int i = 0; i < token.length(); i++) {
+                    if (token.charAt(i) >= 128) throw new IllegalArgumentException("non-ASCII token '" + token + "'");
+                }
+                Integer id = tokenIds.get(token);
+                if (id == null) {
+                    id = tokens.size();
+                    tokens.add(token);
+                    tokenIds.put(token, id);
+                }
+                clauses[c][t] = id << 2 | field;
+            }
+        }
+        return clauses;
+    }
+
+    // Returns the type of the first matching rule, or null if none matches
+    public String classify(String vendor, String hostname) {
+        Key key = new Key(vendor != null ? vendor : "", hostname != null ? hostname : "");
+        String type = memo.get(key);
+        if (type != null) return type;
+
+        long[] vendorTokens = scan(key.vendor);
+        long[] hostTokens = scan(key.hostname);
+        type = evaluate(vendorTokens, hostTokens);
+
+        // Typical networks have tens of distinct devices; just start over if something
+        // feeds us an unbounded stream of hostnames
+        if (memo.size() >= MEMO_LIMIT) memo.clear();
+        if (type != null) memo.put(key, type);
+        return type;
+    }
+
+    public int getRuleCount() {
+        return types.length;
+    }
+
+    private long[] scan(String text) {
+        long[] found = new long[tokenWords];
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int cls = c < 128 ? charClass[c] : 0;
+            state = delta[state * alphabet + cls];
+            for (int token : outputs[state]) {
+                found[token >>> 6] |= 1L << token;
+            }
+        }
+        return found;
+    }
+
+    private String evaluate(long[] vendorTokens, long[] hostTokens) {
+        for (int r = 0; r < types.length; r++) {
+            if (matches(clauses[r], vendorTokens, hostTokens)) return types[r];
+        }
+        return null;
+    }
+
+    private static boolean matches(int[][] rule, long[] vendorTokens, long[] hostTokens) {
+        for (int[] clause : rule) {
+            boolean any = false;
+            for (int term : clause) {
+                int token = term >>> 2;
+                long bit = 1L << token;
+                if (((term & VENDOR) != 0 && (vendorTokens[token >>> 6] & bit) != 0)
+                        || ((term & HOST) != 0 && (hostTokens[token >>> 6] & bit) != 0)) {
+                    any = true;
+                    break;
+                }
+            }
+            if (!any) return false;
+        }
+        return true;
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] result = Arrays.copyOf(values, values.length + 1);
+        result[values.length] = value;
+        return result;
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        if (b.length == 0) return a;
+        if (a.length == 0) return b;
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static final class Key {
+        final String vendor;
+        final String hostname;
+        final int hash;
+
+        Key(String vendor, String hostname) {
+            this.vendor = vendor;
+            this.hostname = hostname;
+            this.hash = 31 * vendor.hashCode() + hostname.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            // Vendor names come from OuiIndex's per-vendor-id cache, so this is usually
+            // a reference comparison
+            return hash == other.hash && vendor.equals(other.vendor) && hostname.equals(other.hostname);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
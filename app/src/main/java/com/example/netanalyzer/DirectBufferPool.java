@@ -0,0 +1,38 @@
+package com.example.netanalyzer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+// Fixed-size direct buffers, allocated lazily up to a cap and recycled. Not thread-safe:
+// owned by a single selector thread.
+public class DirectBufferPool {
+
+    private final int bufferSize;
+    private final int maxBuffers;
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+    private int allocated = 0;
+
+    public DirectBufferPool(int bufferSize, int maxBuffers) {
+        this.bufferSize = bufferSize;
+        this.maxBuffers = maxBuffers;
+    }
+
+    // Returns a cleared buffer, or null when every buffer is in use
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            if (allocated >= maxBuffers) return null;
+            allocated++;
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer != null) free.push(buffer);
+    }
+
+    public int getBufferSize() { return bufferSize; }
+    public int getAllocated() { return allocated; }
+}
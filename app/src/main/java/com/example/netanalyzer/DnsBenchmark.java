@@ -0,0 +1,375 @@
+package com.example.netanalyzer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Benchmarks several DNS resolvers at once from one thread: every resolver gets its own
+// connected DatagramChannel, all registered with one Selector, and up to MAX_IN_FLIGHT
+// queries outstanding. Each resolver answers two kinds of query, measured separately:
+// popular names it has (after a warm-up query) in its cache, and random subdomains of
+// them that no cache can hold, which make it recurse to the authoritative servers.
+public class DnsBenchmark {
+
+    public static final int CACHED = 0;
+    public static final int UNCACHED = 1;
+    private static final int WARMUP = -1;
+
+    public static final int DEFAULT_QUERIES = 100;
+    public static final int DEFAULT_TIMEOUT_MS = 2000;
+    // Per resolver, so a slow one doesn't get buried under a queue of its own making
+    static final int MAX_IN_FLIGHT = 8;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    private static final int SELECT_SLICE_MS = 100;
+
+    public static final String[] CACHED_NAMES = {
+            "google.com", "youtube.com", "facebook.com", "instagram.com", "whatsapp.com",
+            "wikipedia.org", "amazon.com", "apple.com", "microsoft.com", "cloudflare.com"};
+
+    public interface Listener {
+        void onProgress(int done, int total);
+    }
+
+    public static class Resolver {
+        private final String label;
+        private final InetSocketAddress address;
+
+        public Resolver(String label, InetSocketAddress address) {
+            this.label = label;
+            this.address = address;
+        }
+
+        public String getLabel() { return label; }
+        public InetSocketAddress getAddress() { return address; }
+    }
+
+    // One resolver's results, by category (CACHED / UNCACHED)
+    public static class Stats {
+        private final Resolver resolver;
+        private final LatencyHistogram[] latencies = {new LatencyHistogram(), new LatencyHistogram()};
+        private final int[] sent = new int[2];
+        private final int[] answered = new int[2];
+        private final int[] timeouts = new int[2];
+        // Answered, but with SERVFAIL, REFUSED...; not in the latencies
+        private final int[] failures = new int[2];
+        private String error;
+
+        Stats(Resolver resolver) {
+            this.resolver = resolver;
+        }
+
+        public Resolver getResolver() { return resolver; }
+        public LatencyHistogram getLatencies(int category) { return latencies[category]; }
+        public int getSent(int category) { return sent[category]; }
+        public int getAnswered(int category) { return answered[category]; }
+        public int getTimeouts(int category) { return timeouts[category]; }
+        public int getFailures(int category) { return failures[category]; }
+        // Set if the resolver couldn't be queried at all
+        public String getError() { return error; }
+
+        public double getTimeoutPercent(int category) {
+            return sent[category] > 0 ? timeouts[category] * 100.0 / sent[category] : 0;
+        }
+
+        public double getPercentileMillis(int category, double percentile) {
+            return latencies[category].getValueAtPercentile(percentile) / 1e6;
+        }
+    }
+
+    public static class Report {
+        public static final String CSV_HEADER = "time,resolver,address,category,sent,answered,timeouts,"
+                + "failures,p50_ms,p95_ms,p99_ms,timeout_pct";
+
+        private final Date started;
+        private final long elapsedNanos;
+        private final List<Stats> stats;
+
+        Report(Date started, long elapsedNanos, List<Stats> stats) {
+            this.started = started;
+            this.elapsedNanos = elapsedNanos;
+            this.stats = stats;
+        }
+
+        public Date getStarted() { return started; }
+        public long getElapsedNanos() { return elapsedNanos; }
+        public List<Stats> getStats() { return stats; }
+
+        // Two rows per resolver, under CSV_HEADER; runs appended to one file compare over time
+        public String toCsv() {
+            String time = String.format(Locale.US, "%tFT%<tT", started);
+            StringBuilder csv = new StringBuilder();
+            for (Stats resolver : stats) {
+                for (int category = CACHED; category <= UNCACHED; category++) {
+                    boolean measured = resolver.answered[category] - resolver.failures[category] > 0;
+                    csv.append(String.format(Locale.US, "%s,%s,%s,%s,%d,%d,%d,%d,%s,%s,%s,%.1f\n",
+                            time, csvField(resolver.resolver.label),
+                            resolver.resolver.address.getAddress().getHostAddress(),
+                            category == CACHED ? "cached" : "uncached",
+                            resolver.sent[category], resolver.answered[category], resolver.timeouts[category],
+                            resolver.failures[category],
+                            measured ? formatCsvMillis(resolver.getPercentileMillis(category, 50)) : "",
+                            measured ? formatCsvMillis(resolver.getPercentileMillis(category, 95)) : "",
+                            measured ? formatCsvMillis(resolver.getPercentileMillis(category, 99)) : "",
+                            resolver.getTimeoutPercent(category)));
+                }
+            }
+            return csv.toString();
+        }
+
+        private static String formatCsvMillis(double ms) {
+            return String.format(Locale.US, "%.3f", ms);
+        }
+
+        private static String csvField(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0) return value;
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private static class Query {
+        final int category;
+        final String name;
+        long sentAt;
+
+        Query(int category, String name) {
+            this.category = category;
+            this.name = name;
+        }
+    }
+
+    // Per-resolver run state, attached to its channel's SelectionKey
+    private static class Target {
+        final Stats stats;
+        final ArrayDeque<Query> planned = new ArrayDeque<>();
+        final Map<Integer, Query> inFlight = new HashMap<>();
+        DatagramChannel channel;
+        int warmupsLeft;
+
+        Target(Resolver resolver) {
+            stats = new Stats(resolver);
+        }
+    }
+
+    private final List<Resolver> resolvers;
+    private final int queriesPerCategory;
+    private final int timeoutMs;
+    private final Random random = new Random();
+    private volatile boolean cancelled = false;
+
+    public DnsBenchmark(List<Resolver> resolvers, int queriesPerCategory, int timeoutMs) {
+        this.resolvers = resolvers;
+        this.queriesPerCategory = queriesPerCategory;
+        this.timeoutMs = timeoutMs;
+    }
+
+    // May be called from any thread; run() then throws InterruptedException
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // A name below zone that no resolver can have cached
+    static String uncachedName(String zone, Random random) {
+        return "nb" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36) + "." + zone;
+    }
+
+    // Runs the whole benchmark on the calling thread
+    public Report run(Listener listener) throws IOException, InterruptedException {
+        Date started = new Date();
+        long start = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<Target> targets = new ArrayList<>();
+        int total = 0;
+
+        try (Selector selector = Selector.open()) {
+            for (Resolver resolver : resolvers) {
+                Target target = new Target(resolver);
+                targets.add(target);
+                // Primes the resolver's cache; not measured
+                for (String name : CACHED_NAMES) target.planned.add(new Query(WARMUP, name));
+                target.warmupsLeft = CACHED_NAMES.length;
+                List<Query> measured = new ArrayList<>();
+                for (int i = 0; i < queriesPerCategory; i++) {
+                    measured.add(new Query(CACHED, CACHED_NAMES[i % CACHED_NAMES.length]));
+                    measured.add(new Query(UNCACHED, uncachedName(CACHED_NAMES[i % CACHED_NAMES.length], random)));
+                }
+                Collections.shuffle(measured, random);
+                target.planned.addAll(measured);
+                total += measured.size();
+                try {
+                    target.channel = DatagramChannel.open();
+                    target.channel.configureBlocking(false);
+                    target.channel.connect(resolver.address);
+                    target.channel.register(selector, SelectionKey.OP_READ, target);
+                } catch (IOException e) {
+                    fail(target, e);
+                }
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            long progressNanos = TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL_MS);
+            long nextProgress = start;
+            while (true) {
+                if (cancelled || Thread.interrupted()) throw new InterruptedException();
+                long now = System.nanoTime();
+                boolean busy = false;
+                long nextDeadline = Long.MAX_VALUE;
+                for (Target target : targets) {
+                    expire(target, now, timeoutNanos);
+                    send(target);
+                    busy |= !target.planned.isEmpty() || !target.inFlight.isEmpty();
+                    for (Query query : target.inFlight.values()) {
+                        nextDeadline = Math.min(nextDeadline, query.sentAt + timeoutNanos);
+                    }
+                }
+                if (now >= nextProgress) {
+                    listener.onProgress(countDone(targets), total);
+                    nextProgress = now + progressNanos;
+                }
+                if (!busy) break;
+
+                long waitMs = TimeUnit.NANOSECONDS.toMillis(Math.max(0, nextDeadline - System.nanoTime())) + 1;
+                selector.select(Math.min(waitMs, SELECT_SLICE_MS));
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    receive((Target) key.attachment(), buffer);
+                }
+            }
+            listener.onProgress(total, total);
+        } finally {
+            for (Target target : targets) {
+                if (target.channel != null) target.channel.close();
+            }
+        }
+
+        List<Stats> stats = new ArrayList<>();
+        for (Target target : targets) stats.add(target.stats);
+        return new Report(started, System.nanoTime() - start, stats);
+    }
+
+    // Tops the target up to MAX_IN_FLIGHT; measured queries wait for the warm-up
+    private void send(Target target) {
+        while (target.channel != null && target.inFlight.size() < MAX_IN_FLIGHT && !target.planned.isEmpty()) {
+            Query query = target.planned.peek();
+            if (query.category != WARMUP && target.warmupsLeft > 0) return;
+            target.planned.poll();
+            int id;
+            do {
+                id = random.nextInt(0x10000);
+            } while (target.inFlight.containsKey(id));
+            try {
+                byte[] packet = DnsClient.buildQuery(id, query.name, DnsClient.TYPE_A);
+                query.sentAt = System.nanoTime();
+                target.channel.write(ByteBuffer.wrap(packet));
+                target.inFlight.put(id, query);
+                if (query.category != WARMUP) target.stats.sent[query.category]++;
+            } catch (IOException e) {
+                fail(target, e);
+                return;
+            }
+        }
+    }
+
+    private void receive(Target target, ByteBuffer buffer) {
+        while (target.channel != null) {
+            int length;
+            buffer.clear();
+            try {
+                length = target.channel.read(buffer);
+            } catch (IOException e) {
+                // ICMP port unreachable: nothing listens there
+                fail(target, e);
+                return;
+            }
+            long receivedAt = System.nanoTime();
+            if (length <= 0) return;
+            if (length < 2) continue;
+            int id = ((buffer.get(0) & 0xFF) << 8) | (buffer.get(1) & 0xFF);
+            Query query = target.inFlight.get(id);
+            if (query == null) continue;    // Late answer to a timed-out query
+            DnsClient.Response response;
+            try {
+                response = DnsClient.parseResponse(buffer.array(), length, id, query.name, DnsClient.TYPE_A);
+            } catch (IOException e) {
+                response = null;
+            }
+            if (response == null) continue;
+            target.inFlight.remove(id);
+            if (query.category == WARMUP) {
+                target.warmupsLeft--;
+                continue;
+            }
+            Stats stats = target.stats;
+            stats.answered[query.category]++;
+            // NXDOMAIN is the expected answer for the random names
+            int rcode = response.getRcode();
+            if (rcode == DnsClient.RCODE_NOERROR || rcode == DnsClient.RCODE_NXDOMAIN) {
+                stats.latencies[query.category].record(receivedAt - query.sentAt);
+            } else {
+                stats.failures[query.category]++;
+            }
+        }
+    }
+
+    private static void expire(Target target, long now, long timeoutNanos) {
+        Iterator<Query> queries = target.inFlight.values().iterator();
+        while (queries.hasNext()) {
+            Query query = queries.next();
+            if (now - query.sentAt < timeoutNanos) continue;
+            queries.remove();
+            if (query.category == WARMUP) {
+                target.warmupsLeft--;
+            } else {
+                target.stats.timeouts[query.category]++;
+            }
+        }
+    }
+
+    // Gives up on a resolver; its unsent and outstanding queries count as timeouts
+    private static void fail(Target target, IOException e) {
+        target.stats.error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        for (Query query : target.inFlight.values()) {
+            if (query.category != WARMUP) target.stats.timeouts[query.category]++;
+        }
+        for (Query query : target.planned) {
+            if (query.category == WARMUP) continue;
+            target.stats.sent[query.category]++;
+            target.stats.timeouts[query.category]++;
+        }
+        target.inFlight.clear();
+        target.planned.clear();
+        if (target.channel != null) {
+            try {
+                target.channel.close();
+            } catch (IOException ignored) {
+                // Already failing
+            }
+            target.channel = null;
+        }
+    }
+
+    private static int countDone(List<Target> targets) {
+        int done = 0;
+        for (Target target : targets) {
+            for (int category = CACHED; category <= UNCACHED; category++) {
+                done += target.stats.answered[category] + target.stats.timeouts[category];
+            }
+        }
+        return done;
+    }
+}
@@ -0,0 +1,386 @@
+package com.example.netanalyzer;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.LinkProperties;
+import android.net.Network;
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+// In-process resolver cache shared by the DNS tab, PingService and the scanner's reverse
+// lookups. Answers come from the network's DNS server through DnsClient and are kept for
+// their smallest TTL; NXDOMAIN and empty answers are kept for the negative TTL from the
+// SOA (RFC 2308). An entry read in the last REFRESH_FRACTION of its lifetime is fetched
+// again in the background, so names in use don't expire under their callers. When the
+// server can't be reached, lookups fall back to the system resolver, which reports no
+// TTLs, so its answers are kept for SYSTEM_RESOLVER_TTL_SECONDS.
+public class DnsCache {
+    private static final String TAG = "DnsCache";
+
+    public interface Source {
+        DnsClient.Response query(String name, int type) throws IOException;
+    }
+
+    static final long MAX_TTL_SECONDS = TimeUnit.DAYS.toSeconds(1);
+    // RFC 2308 section 5: negative answers kept for at most a few hours
+    static final long MAX_NEGATIVE_TTL_SECONDS = TimeUnit.HOURS.toSeconds(3);
+    // For negative answers without an SOA
+    static final long DEFAULT_NEGATIVE_TTL_SECONDS = 60;
+    static final long SYSTEM_RESOLVER_TTL_SECONDS = 30;
+    static final double REFRESH_FRACTION = 0.1;
+    static final int MAX_ENTRIES = 1024;
+
+    // Refreshes and prefetches; lookups themselves run on the caller's thread
+    private static final ExecutorService backgroundPool = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "DnsCache");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Answers A, AAAA and IPv4 PTR queries from InetAddress; no TTLs, no other types
+    static final Source SYSTEM = (name, type) -> {
+        List<DnsClient.Record> records = new ArrayList<>();
+        try {
+            if (type == DnsClient.TYPE_PTR) {
+                InetAddress address = addressFromReverseName(name);
+                String hostname = address.getHostName();
+                if (!hostname.equals(address.getHostAddress())) {
+                    records.add(new DnsClient.Record(name, type, SYSTEM_RESOLVER_TTL_SECONDS, hostname));
+                }
+            } else if (type == DnsClient.TYPE_A || type == DnsClient.TYPE_AAAA) {
+                for (InetAddress address : InetAddress.getAllByName(name)) {
+                    int found = address instanceof Inet4Address ? DnsClient.TYPE_A : DnsClient.TYPE_AAAA;
+                    if (found != type) continue;
+                    records.add(new DnsClient.Record(name, type, SYSTEM_RESOLVER_TTL_SECONDS,
+                            address.getHostAddress()));
+                }
+            } else {
+                throw new IOException(DnsClient.typeName(type) + " lookups need a DNS server");
+            }
+        } catch (UnknownHostException e) {
+            return new DnsClient.Response(DnsClient.RCODE_NXDOMAIN, false, Collections.emptyList(),
+                    SYSTEM_RESOLVER_TTL_SECONDS);
+        }
+        return new DnsClient.Response(DnsClient.RCODE_NOERROR, false, Collections.unmodifiableList(records),
+                SYSTEM_RESOLVER_TTL_SECONDS);
+    };
+
+    private static volatile DnsCache shared = new DnsCache(SYSTEM, System::nanoTime, backgroundPool);
+    private static InetAddress sharedServer;
+
+    public static class Answer {
+        private final String name;
+        private final int type;
+        private final int rcode;
+        private final List<DnsClient.Record> records;
+        private final boolean fromCache;
+        private final long ttlSeconds;
+        private final long rttNanos;
+
+        Answer(String name, int type, int rcode, List<DnsClient.Record> records, boolean fromCache,
+               long ttlSeconds, long rttNanos) {
+            this.name = name;
+            this.type = type;
+            this.rcode = rcode;
+            this.records = records;
+            this.fromCache = fromCache;
+            this.ttlSeconds = ttlSeconds;
+            this.rttNanos = rttNanos;
+        }
+
+        public String getName() { return name; }
+        public int getType() { return type; }
+        public int getRcode() { return rcode; }
+        // Every answer record, CNAMEs included, with TTLs counted down while cached
+        public List<DnsClient.Record> getRecords() { return records; }
+        public boolean isFromCache() { return fromCache; }
+        // Seconds until the entry expires; 0 if it was not cached
+        public long getTtlSeconds() { return ttlSeconds; }
+        // Time spent fetching the answer; 0 for a cache hit
+        public long getRttNanos() { return rttNanos; }
+
+        public List<DnsClient.Record> getRecords(int type) {
+            List<DnsClient.Record> matching = new ArrayList<>();
+            for (DnsClient.Record record : records) {
+                if (record.getType() == type) matching.add(record);
+            }
+            return matching;
+        }
+
+        // NXDOMAIN, or no records of the queried type
+        public boolean isNegative() {
+            return rcode == DnsClient.RCODE_NXDOMAIN
+                    || (rcode == DnsClient.RCODE_NOERROR && getRecords(type).isEmpty());
+        }
+    }
+
+    private static final class Entry {
+        final int rcode;
+        final List<DnsClient.Record> records;
+        final long storedAt;
+        final long refreshAt;
+        final long expiresAt;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(int rcode, List<DnsClient.Record> records, long storedAt, long ttlNanos) {
+            this.rcode = rcode;
+            this.records = records;
+            this.storedAt = storedAt;
+            this.refreshAt = storedAt + (long) (ttlNanos * (1 - REFRESH_FRACTION));
+            this.expiresAt = storedAt + ttlNanos;
+        }
+    }
+
+    private final Source source;
+    private final LongSupplier clock;
+    private final Executor background;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // clock is in nanoseconds, as System.nanoTime
+    DnsCache(Source source, LongSupplier clock, Executor background) {
+        this.source = source;
+        this.clock = clock;
+        this.background = background;
+    }
+
+    public static DnsCache shared() {
+        return shared;
+    }
+
+    // Points the shared cache at the active network's DNS server. A different server
+    // means a different network, whose answers may differ, so the cache starts empty.
+    public static synchronized void configure(Context context) {
+        List<InetAddress> servers = networkDnsServers(context);
+        InetAddress server = servers.isEmpty() ? null : servers.get(0);
+        if (server == null ? sharedServer == null : server.equals(sharedServer)) return;
+        sharedServer = server;
+        Source source = SYSTEM;
+        if (server != null) {
+            DnsClient client = new DnsClient(server);
+            source = (name, type) -> {
+                try {
+                    DnsClient.Response response = client.query(name, type);
+                    // Hosts-file and mDNS names are unknown to the server but not to the system
+                    if (response.getRcode() == DnsClient.RCODE_NXDOMAIN
+                            && (type == DnsClient.TYPE_A || type == DnsClient.TYPE_AAAA)) {
+                        DnsClient.Response system = SYSTEM.query(name, type);
+                        if (!system.getAnswers().isEmpty()) return system;
+                    }
+                    return response;
+                } catch (IOException e) {
+                    // The caller gave up on this lookup; don't start another
+                    if (Thread.currentThread().isInterrupted()) throw e;
+                    Log.d(TAG, "Falling back to the system resolver for " + name + ": " + e.getMessage());
+                    return SYSTEM.query(name, type);
+                }
+            };
+        }
+        shared = new DnsCache(source, System::nanoTime, backgroundPool);
+    }
+
+    public static List<InetAddress> networkDnsServers(Context context) {
+        try {
+            ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            Network network = cm != null ? cm.getActiveNetwork() : null;
+            LinkProperties linkProperties = network != null ? cm.getLinkProperties(network) : null;
+            if (linkProperties != null) return linkProperties.getDnsServers();
+        } catch (Exception e) {
+            Log.d(TAG, "LinkProperties unavailable: " + e.getMessage());
+        }
+        return new ArrayList<>();
+    }
+
+    // Answer for (name, type), from the cache while it is fresh. Throws if the source
+    // fails; SERVFAIL and other errors are returned but never cached.
+    public Answer lookup(String name, int type) throws IOException {
+        String key = key(name, type);
+        long now = clock.getAsLong();
+        Entry entry = entries.get(key);
+        if (entry != null && now < entry.expiresAt) {
+            if (now >= entry.refreshAt && entry.refreshing.compareAndSet(false, true)) {
+                background.execute(() -> {
+                    try {
+                        fetch(name, type);
+                    } catch (IOException e) {
+                        // Served until it expires; the next read near expiry tries again
+                        entry.refreshing.set(false);
+                    }
+                });
+            }
+            return answer(name, type, entry, now);
+        }
+        return fetch(name, type);
+    }
+
+    private Answer fetch(String name, int type) throws IOException {
+        long start = clock.getAsLong();
+        DnsClient.Response response = source.query(name, type);
+        long now = clock.getAsLong();
+        long ttl = ttlSeconds(response, type);
+        if (ttl > 0) {
+            store(key(name, type), new Entry(response.getRcode(), response.getAnswers(), now,
+                    TimeUnit.SECONDS.toNanos(ttl)), now);
+        } else {
+            entries.remove(key(name, type));
+        }
+        return new Answer(name, type, response.getRcode(), response.getAnswers(), false, ttl, now - start);
+    }
+
+    // How long a response may be cached, or 0 if it must not be
+    static long ttlSeconds(DnsClient.Response response, int type) {
+        int rcode = response.getRcode();
+        if (rcode == DnsClient.RCODE_NOERROR && !response.getAnswers(type).isEmpty()) {
+            // The whole chain, CNAMEs included, is only good as long as its shortest TTL
+            long ttl = MAX_TTL_SECONDS;
+            for (DnsClient.Record record : response.getAnswers()) {
+                ttl = Math.min(ttl, record.getTtlSeconds());
+            }
+            return ttl;
+        }
+        if (rcode == DnsClient.RCODE_NOERROR || rcode == DnsClient.RCODE_NXDOMAIN) {
+            long ttl = response.getNegativeTtlSeconds();
+            return Math.min(ttl >= 0 ? ttl : DEFAULT_NEGATIVE_TTL_SECONDS, MAX_NEGATIVE_TTL_SECONDS);
+        }
+        return 0;
+    }
+
+    private void store(String key, Entry entry, long now) {
+        if (entries.size() >= MAX_ENTRIES && !entries.containsKey(key)) {
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                if (it.next().expiresAt <= now) it.remove();
+            }
+            // All still fresh: make room by dropping an arbitrary one
+            Iterator<String> keys = entries.keySet().iterator();
+            if (entries.size() >= MAX_ENTRIES && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        entries.put(key, entry);
+    }
+
+    private static Answer answer(String name, int type, Entry entry, long now) {
+        long ageSeconds = TimeUnit.NANOSECONDS.toSeconds(now - entry.storedAt);
+        List<DnsClient.Record> records = new ArrayList<>(entry.records.size());
+        for (DnsClient.Record record : entry.records) {
+            records.add(new DnsClient.Record(record.getName(), record.getType(),
+                    Math.max(0, record.getTtlSeconds() - ageSeconds), record.getData()));
+        }
+        long remaining = TimeUnit.NANOSECONDS.toSeconds(entry.expiresAt - now);
+        return new Answer(name, type, entry.rcode, Collections.unmodifiableList(records), true, remaining, 0);
+    }
+
+    // A and AAAA answers for host, in that order; an IP literal is returned as is
+    public List<InetAddress> lookupAddresses(String host) throws UnknownHostException {
+        if (isAddressLiteral(host)) return Collections.singletonList(InetAddress.getByName(host));
+        List<InetAddress> addresses = new ArrayList<>();
+        IOException failure = null;
+        for (int type : new int[] {DnsClient.TYPE_A, DnsClient.TYPE_AAAA}) {
+            try {
+                addAddresses(addresses, lookup(host, type));
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (addresses.isEmpty()) throw unknownHost(host, failure);
+        return addresses;
+    }
+
+    // Address to connect to for host: IPv4 if it has one, as InetAddress.getByName would
+    public InetAddress resolve(String host) throws UnknownHostException {
+        if (isAddressLiteral(host)) return InetAddress.getByName(host);
+        List<InetAddress> addresses = new ArrayList<>();
+        IOException failure = null;
+        for (int type : new int[] {DnsClient.TYPE_A, DnsClient.TYPE_AAAA}) {
+            try {
+                addAddresses(addresses, lookup(host, type));
+                if (!addresses.isEmpty()) return addresses.get(0);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        throw unknownHost(host, failure);
+    }
+
+    // Name from ip's PTR record, or null if it has none
+    public String reverse(String ip) throws IOException {
+        Answer answer = lookup(DnsClient.reverseName(InetAddress.getByName(ip)), DnsClient.TYPE_PTR);
+        List<DnsClient.Record> names = answer.getRecords(DnsClient.TYPE_PTR);
+        return names.isEmpty() ? null : names.get(0).getData();
+    }
+
+    // Warms the cache for hosts in the background; IP literals need no lookup
+    public void prefetch(String... hosts) {
+        for (String host : hosts) {
+            if (isAddressLiteral(host)) continue;
+            background.execute(() -> {
+                try {
+                    resolve(host);
+                } catch (UnknownHostException e) {
+                    // Cached as negative if the server said so; nothing else to do
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    static boolean isAddressLiteral(String text) {
+        return text.contains(":") || Ipv4Subnet.parse(text) != 0;
+    }
+
+    private static void addAddresses(List<InetAddress> addresses, Answer answer) throws UnknownHostException {
+        for (DnsClient.Record record : answer.getRecords(answer.getType())) {
+            // Literals only, so no lookup happens here
+            addresses.add(InetAddress.getByName(record.getData()));
+        }
+    }
+
+    private static UnknownHostException unknownHost(String host, IOException cause) {
+        UnknownHostException e = new UnknownHostException(host);
+        if (cause != null) e.initCause(cause);
+        return e;
+    }
+
+    // 4.3.2.1.in-addr.arpa back to 1.2.3.4; the system resolver takes addresses, not names
+    static InetAddress addressFromReverseName(String name) throws UnknownHostException {
+        String suffix = ".in-addr.arpa";
+        String lower = name.toLowerCase(Locale.US);
+        if (lower.endsWith(".")) lower = lower.substring(0, lower.length() - 1);
+        String[] octets = lower.endsWith(suffix)
+                ? lower.substring(0, lower.length() - suffix.length()).split("\\.") : new String[0];
+        if (octets.length != 4) throw new UnknownHostException("Not an IPv4 reverse name: " + name);
+        String ip = octets[3] + "." + octets[2] + "." + octets[1] + "." + octets[0];
+        if (Ipv4Subnet.parse(ip) == 0) throw new UnknownHostException("Not an IPv4 reverse name: " + name);
+        return InetAddress.getByName(ip);
+    }
+
+    private static String key(String name, int type) {
+        String lower = name.toLowerCase(Locale.US);
+        if (lower.endsWith(".")) lower = lower.substring(0, lower.length() - 1);
+        return lower + "/" + type;
+    }
+}
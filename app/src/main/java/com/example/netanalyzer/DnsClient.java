@@ -0,0 +1,445 @@
+package com.example.netanalyzer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Minimal DNS stub resolver speaking the wire protocol (RFC 1035) to one chosen server,
+// so lookups measure that server rather than the JVM and OS caches behind
+// InetAddress.getByName. Queries go over a non-blocking DatagramChannel and are retried
+// over TCP when the answer comes back truncated. Each exchange is timed with nanoTime
+// from the query's send to its answer's receipt, on the calling (background) thread.
+public class DnsClient {
+
+    public static final int TYPE_A = 1;
+    public static final int TYPE_CNAME = 5;
+    public static final int TYPE_SOA = 6;
+    public static final int TYPE_PTR = 12;
+    public static final int TYPE_TXT = 16;
+    public static final int TYPE_AAAA = 28;
+
+    public static final int RCODE_NOERROR = 0;
+    public static final int RCODE_SERVFAIL = 2;
+    public static final int RCODE_NXDOMAIN = 3;
+
+    public static final int DNS_PORT = 53;
+    public static final int DEFAULT_TIMEOUT_MS = 3000;
+
+    private static final int HEADER_SIZE = 12;
+    private static final int CLASS_IN = 1;
+    private static final int FLAG_RESPONSE = 0x8000;
+    private static final int FLAG_TRUNCATED = 0x0200;
+    private static final int FLAG_RECURSION_DESIRED = 0x0100;
+    // Largest UDP answer accepted; anything bigger arrives truncated and goes to TCP
+    private static final int MAX_UDP_SIZE = 4096;
+    private static final int MAX_NAME_LENGTH = 255;
+    // Compression pointers followed per name before it counts as a loop
+    private static final int MAX_POINTERS = 32;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    public static class Record {
+        private final String name;
+        private final int type;
+        private final long ttlSeconds;
+        private final String data;
+
+        Record(String name, int type, long ttlSeconds, String data) {
+            this.name = name;
+            this.type = type;
+            this.ttlSeconds = ttlSeconds;
+            this.data = data;
+        }
+
+        public String getName() { return name; }
+        public int getType() { return type; }
+        public long getTtlSeconds() { return ttlSeconds; }
+        // Address, target name or text, depending on the type
+        public String getData() { return data; }
+
+        @Override
+        public String toString() {
+            return name + " " + ttlSeconds + " " + typeName(type) + " " + data;
+        }
+    }
+
+    public static class Response {
+        private final int rcode;
+        private final boolean truncated;
+        private final List<Record> answers;
+        private final long negativeTtlSeconds;
+        private long rttNanos;
+        private long totalNanos;
+        private boolean overTcp;
+
+        Response(int rcode, boolean truncated, List<Record> answers, long negativeTtlSeconds) {
+            this.rcode = rcode;
+            this.truncated = truncated;
+            this.answers = answers;
+            this.negativeTtlSeconds = negativeTtlSeconds;
+        }
+
+        public int getRcode() { return rcode; }
+        public String getRcodeName() { return rcodeName(rcode); }
+        public boolean isTruncated() { return truncated; }
+        public List<Record> getAnswers() { return answers; }
+        // Send to receipt of the exchange that produced this answer
+        public long getRttNanos() { return rttNanos; }
+        // Whole query, including a truncated UDP attempt and the TCP handshake
+        public long getTotalNanos() { return totalNanos; }
+        public boolean isOverTcp() { return overTcp; }
+        // How long a no-answer result may be cached, from the authority section's SOA
+        // (RFC 2308 section 5); -1 if the server sent none
+        public long getNegativeTtlSeconds() { return negativeTtlSeconds; }
+
+        // Answer records of one type, in answer order
+        public List<Record> getAnswers(int type) {
+            List<Record> matching = new ArrayList<>();
+            for (Record record : answers) {
+                if (record.type == type) matching.add(record);
+            }
+            return matching;
+        }
+    }
+
+    private final InetSocketAddress server;
+    private final int timeoutMs;
+
+    public DnsClient(InetSocketAddress server, int timeoutMs) {
+        this.server = server;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public DnsClient(InetAddress server) {
+        this(new InetSocketAddress(server, DNS_PORT), DEFAULT_TIMEOUT_MS);
+    }
+
+    public InetSocketAddress getServer() {
+        return server;
+    }
+
+    // Sends one query and returns the server's answer, whatever its rcode. Throws
+    // SocketTimeoutException if no answer arrives within the timeout.
+    public Response query(String name, int type) throws IOException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Response response = queryUdp(name, type, deadline);
+        if (response.truncated) {
+            response = queryTcp(name, type, deadline);
+            response.overTcp = true;
+        }
+        response.totalNanos = System.nanoTime() - start;
+        return response;
+    }
+
+    private Response queryUdp(String name, int type, long deadline) throws IOException {
+        int id = random.nextInt(0x10000);
+        byte[] query = buildQuery(id, name, type);
+        try (DatagramChannel channel = DatagramChannel.open(); Selector selector = Selector.open()) {
+            channel.configureBlocking(false);
+            // Connected, so datagrams from anyone but the server are dropped by the kernel
+            channel.connect(server);
+            channel.register(selector, SelectionKey.OP_READ);
+            ByteBuffer buffer = ByteBuffer.allocate(MAX_UDP_SIZE);
+
+            long sentAt = System.nanoTime();
+            channel.write(ByteBuffer.wrap(query));
+            while (true) {
+                awaitReady(selector, deadline);
+                buffer.clear();
+                int length = channel.read(buffer);
+                long receivedAt = System.nanoTime();
+                if (length <= 0) continue;
+                // Stale answers to an earlier query on a reused port are skipped
+                Response response = parseResponse(buffer.array(), length, id, name, type);
+                if (response == null) continue;
+                response.rttNanos = receivedAt - sentAt;
+                return response;
+            }
+        }
+    }
+
+    private Response queryTcp(String name, int type, long deadline) throws IOException {
+        int id = random.nextInt(0x10000);
+        byte[] query = buildQuery(id, name, type);
+        try (SocketChannel channel = SocketChannel.open(); Selector selector = Selector.open()) {
+            channel.configureBlocking(false);
+            SelectionKey key = channel.register(selector, 0);
+            if (!channel.connect(server)) {
+                key.interestOps(SelectionKey.OP_CONNECT);
+                while (!channel.finishConnect()) {
+                    awaitReady(selector, deadline);
+                }
+            }
+
+            // Two-byte length prefix, then the message (RFC 1035 4.2.2)
+            ByteBuffer out = ByteBuffer.allocate(2 + query.length);
+            out.putShort((short) query.length).put(query).flip();
+            long sentAt = System.nanoTime();
+            key.interestOps(SelectionKey.OP_WRITE);
+            while (out.hasRemaining()) {
+                if (channel.write(out) == 0) awaitReady(selector, deadline);
+            }
+
+            key.interestOps(SelectionKey.OP_READ);
+            ByteBuffer prefix = ByteBuffer.allocate(2);
+            readFully(channel, selector, prefix, deadline);
+            ByteBuffer message = ByteBuffer.allocate(prefix.getShort(0) & 0xFFFF);
+            readFully(channel, selector, message, deadline);
+            long receivedAt = System.nanoTime();
+
+            Response response = parseResponse(message.array(), message.capacity(), id, name, type);
+            if (response == null) throw new IOException("Mismatched DNS answer over TCP");
+            response.rttNanos = receivedAt - sentAt;
+            return response;
+        }
+    }
+
+    private void readFully(SocketChannel channel, Selector selector, ByteBuffer buffer, long deadline)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer);
+            if (read < 0) throw new IOException("DNS server closed the connection");
+            if (read == 0) awaitReady(selector, deadline);
+        }
+    }
+
+    // Waits until a registered operation is ready; throws once the deadline passes
+    private void awaitReady(Selector selector, long deadline) throws IOException {
+        while (true) {
+            // An interrupted thread's select returns at once, so this would spin to the deadline
+            if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("DNS query interrupted");
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new SocketTimeoutException("No answer from " + server.getAddress().getHostAddress()
+                        + " within " + timeoutMs + " ms");
+            }
+            int ready = selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+            selector.selectedKeys().clear();
+            if (ready > 0) return;
+        }
+    }
+
+    // Encodes a recursive query for name (dots separate labels; a trailing dot is optional)
+    static byte[] buildQuery(int id, String name, int type) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + MAX_NAME_LENGTH + 2 + 4);
+        buffer.putShort((short) id)
+                .putShort((short) FLAG_RECURSION_DESIRED)
+                .putShort((short) 1)    // QDCOUNT
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) 0);
+        writeName(buffer, name);
+        buffer.putShort((short) type).putShort((short) CLASS_IN);
+        byte[] query = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(query);
+        return query;
+    }
+
+    static void writeName(ByteBuffer buffer, String name) throws IOException {
+        String trimmed = name.endsWith(".") ? name.substring(0, name.length() - 1) : name;
+        int start = buffer.position();
+        if (!trimmed.isEmpty()) {
+            for (String label : trimmed.split("\\.", -1)) {
+                byte[] bytes = label.getBytes("US-ASCII");
+                if (bytes.length == 0 || bytes.length > 63) throw new UnknownHostException("Invalid name: " + name);
+                if (buffer.position() - start + 1 + bytes.length + 1 > MAX_NAME_LENGTH) {
+                    throw new UnknownHostException("Name too long: " + name);
+                }
+                buffer.put((byte) bytes.length).put(bytes);
+            }
+        }
+        buffer.put((byte) 0);
+    }
+
+    // Decodes an answer to the query (id, name, type); null if it is not a response to
+    // that query. Throws IOException if it is but can't be decoded.
+    static Response parseResponse(byte[] buf, int length, int id, String name, int type) throws IOException {
+        if (length < HEADER_SIZE) return null;
+        ByteBuffer in = ByteBuffer.wrap(buf, 0, length);
+        int responseId = in.getShort() & 0xFFFF;
+        int flags = in.getShort() & 0xFFFF;
+        int questions = in.getShort() & 0xFFFF;
+        int answerCount = in.getShort() & 0xFFFF;
+        int authorityCount = in.getShort() & 0xFFFF;
+        in.getShort();    // ARCOUNT
+        if (responseId != id || (flags & FLAG_RESPONSE) == 0) return null;
+
+        try {
+            if (questions != 1) return null;
+            String questionName = readName(in);
+            int questionType = in.getShort() & 0xFFFF;
+            in.getShort();    // QCLASS
+            String expected = name.endsWith(".") ? name.substring(0, name.length() - 1) : name;
+            if (questionType != type || !questionName.equalsIgnoreCase(expected)) return null;
+
+            boolean truncated = (flags & FLAG_TRUNCATED) != 0;
+            List<Record> answers = new ArrayList<>();
+            // A truncated answer section may stop mid-record; it is replaced over TCP anyway
+            for (int i = 0; i < answerCount && !truncated; i++) {
+                answers.add(readRecord(in));
+            }
+            long negativeTtl = -1;
+            for (int i = 0; i < authorityCount && !truncated; i++) {
+                Record record = readRecord(in);
+                if (record.type == TYPE_SOA && negativeTtl < 0) {
+                    // The SOA's MINIMUM field is the last four bytes of its rdata
+                    long minimum = in.getInt(in.position() - 4) & 0xFFFFFFFFL;
+                    negativeTtl = Math.min(record.ttlSeconds, minimum);
+                }
+            }
+            return new Response(flags & 0xF, truncated, Collections.unmodifiableList(answers), negativeTtl);
+        } catch (RuntimeException e) {
+            // BufferUnderflowException, IllegalArgumentException from a bad offset...
+            throw new IOException("Malformed DNS response", e);
+        }
+    }
+
+    private static Record readRecord(ByteBuffer in) throws IOException {
+        String name = readName(in);
+        int type = in.getShort() & 0xFFFF;
+        in.getShort();    // CLASS
+        long ttl = in.getInt() & 0xFFFFFFFFL;
+        int rdLength = in.getShort() & 0xFFFF;
+        int rdStart = in.position();
+        if (rdLength > in.remaining()) throw new IOException("Malformed DNS response: record past end");
+
+        String data;
+        switch (type) {
+            case TYPE_A:
+            case TYPE_AAAA:
+                if (rdLength != (type == TYPE_A ? 4 : 16)) throw new IOException("Malformed address record");
+                byte[] address = new byte[rdLength];
+                in.get(address);
+                data = InetAddress.getByAddress(address).getHostAddress();
+                break;
+            case TYPE_CNAME:
+            case TYPE_PTR:
+                data = readName(in);
+                break;
+            case TYPE_TXT:
+                StringBuilder text = new StringBuilder();
+                while (in.position() < rdStart + rdLength) {
+                    byte[] chunk = new byte[in.get() & 0xFF];
+                    in.get(chunk);
+                    if (text.length() > 0) text.append(' ');
+                    text.append('"').append(new String(chunk, "UTF-8")).append('"');
+                }
+                data = text.toString();
+                break;
+            case TYPE_SOA:
+                // MNAME RNAME SERIAL REFRESH RETRY EXPIRE MINIMUM
+                StringBuilder soa = new StringBuilder(readName(in)).append(' ').append(readName(in));
+                if (rdStart + rdLength - in.position() != 20) throw new IOException("Malformed SOA record");
+                for (int i = 0; i < 5; i++) {
+                    soa.append(' ').append(in.getInt() & 0xFFFFFFFFL);
+                }
+                data = soa.toString();
+                break;
+            default:
+                data = rdLength + " bytes";
+                break;
+        }
+        in.position(rdStart + rdLength);
+        return new Record(name, type, ttl, data);
+    }
+
+    // Reads a possibly compressed name at the buffer's position and leaves the position
+    // just past it
+    static String readName(ByteBuffer in) throws IOException {
+        StringBuilder name = new StringBuilder();
+        int position = in.position();
+        int resumeAt = -1;
+        int pointers = 0;
+        while (true) {
+            int length = in.get(position) & 0xFF;
+            if ((length & 0xC0) == 0xC0) {
+                if (++pointers > MAX_POINTERS) throw new IOException("Malformed DNS name: pointer loop");
+                if (resumeAt < 0) resumeAt = position + 2;
+                position = ((length & 0x3F) << 8) | (in.get(position + 1) & 0xFF);
+                continue;
+            }
+            if ((length & 0xC0) != 0) throw new IOException("Malformed DNS name: label type");
+            position++;
+            if (length == 0) break;
+            if (name.length() > 0) name.append('.');
+            for (int i = 0; i < length; i++) {
+                name.append((char) (in.get(position + i) & 0xFF));
+            }
+            position += length;
+            if (name.length() > MAX_NAME_LENGTH) throw new IOException("Malformed DNS name: too long");
+        }
+        in.position(resumeAt >= 0 ? resumeAt : position);
+        return name.toString();
+    }
+
+    // Name to query for PTR records of address: 1.2.0.192.in-addr.arpa or nibbles under ip6.arpa
+    public static String reverseName(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        StringBuilder name = new StringBuilder();
+        if (address instanceof Inet4Address) {
+            for (int i = bytes.length - 1; i >= 0; i--) {
+                name.append(bytes[i] & 0xFF).append('.');
+            }
+            return name.append("in-addr.arpa").toString();
+        }
+        for (int i = bytes.length - 1; i >= 0; i--) {
+            name.append(Character.forDigit(bytes[i] & 0xF, 16)).append('.')
+                    .append(Character.forDigit((bytes[i] >> 4) & 0xF, 16)).append('.');
+        }
+        return name.append("ip6.arpa").toString();
+    }
+
+    public static String typeName(int type) {
+        switch (type) {
+            case TYPE_A: return "A";
+            case TYPE_CNAME: return "CNAME";
+            case TYPE_SOA: return "SOA";
+            case TYPE_PTR: return "PTR";
+            case TYPE_TXT: return "TXT";
+            case TYPE_AAAA: return "AAAA";
+            default: return "TYPE" + type;
+        }
+    }
+
+    // Record type by name ("A", "aaaa", ...), or -1
+    public static int parseType(String name) {
+        switch (name.toUpperCase(Locale.US)) {
+            case "A": return TYPE_A;
+            case "CNAME": return TYPE_CNAME;
+            case "SOA": return TYPE_SOA;
+            case "PTR": return TYPE_PTR;
+            case "TXT": return TYPE_TXT;
+            case "AAAA": return TYPE_AAAA;
+            default: return -1;
+        }
+    }
+
+    public static String rcodeName(int rcode) {
+        switch (rcode) {
+            case RCODE_NOERROR: return "NOERROR";
+            case 1: return "FORMERR";
+            case RCODE_SERVFAIL: return "SERVFAIL";
+            case RCODE_NXDOMAIN: return "NXDOMAIN";
+            case 4: return "NOTIMP";
+            case 5: return "REFUSED";
+            default: return "RCODE" + rcode;
+        }
+    }
+}
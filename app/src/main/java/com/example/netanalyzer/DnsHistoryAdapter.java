@@ -31,11 +31,8 @@ public class DnsHistoryAdapter extends RecyclerView.Adapter<DnsHistoryAdapter.Vi
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         DnsTestFragment.DnsResult result = dnsHistory.get(position);
 
-        holder.domainText.setText(result.getDomain());
-
-        // If you have DNS server info, display it. Otherwise show default.
-        // You might want to add getDnsServer() method to DnsResult class
-        holder.dnsServerText.setText("DNS: System Default");
+        holder.domainText.setText(result.getDomain() + " (" + result.getRecordType() + ")");
+        holder.dnsServerText.setText("DNS: " + (result.getDnsServer() != null ? result.getDnsServer() : "System Default"));
 
         // Display time
         if (result.getTimestamp() != null) {
@@ -45,7 +42,7 @@ public class DnsHistoryAdapter extends RecyclerView.Adapter<DnsHistoryAdapter.Vi
         }
 
         if (result.isSuccess()) {
-            holder.resultText.setText(result.getIpAddress() + " (" + result.getResponseTime() + "ms)");
+            holder.resultText.setText(result.getIpAddress() + " (" + result.getFormattedResponseTime() + ")");
             holder.resultText.setTextColor(holder.itemView.getResources()
                     .getColor(android.R.color.holo_green_dark, null));
         } else {
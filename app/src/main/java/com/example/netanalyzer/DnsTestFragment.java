@@ -1,29 +1,68 @@
 package com.example.netanalyzer;
 
+import android.content.Intent;
 import android.os.AsyncTask;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ProgressBar;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
-
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
-
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Lookups against the network's DNS server go through the shared DnsCache, as the rest of
+// the app's do, so a repeat shows the cached answer and its remaining TTLs. A server picked
+// with the buttons is queried directly with DnsClient, so the response time is that
+// server's, not a cache's, and excludes any AsyncTask queueing.
 public class DnsTestFragment extends Fragment {
+    private static final String TAG = "DnsTestFragment";
+
+    private static final String ADDRESSES = "A + AAAA";
+    private static final String[] RECORD_TYPES = {ADDRESSES, "A", "AAAA", "CNAME", "TXT", "PTR"};
+    // Every benchmark run is appended here, so runs can be compared over time
+    private static final String BENCHMARK_FILE = "dns_benchmark.csv";
 
     private EditText domainInput;
     private Button btnResolve;
-    private TextView txtDomain, txtIPAddress, txtResponseTime, txtStatus;
+    private Spinner recordTypeSpinner;
+    private TextView txtDomain, txtDnsServer, txtIPAddress, txtResponseTime, txtStatus;
     private ProgressBar dnsProgressBar;
+    private final List<DnsResult> dnsHistory = new ArrayList<>();
+    private DnsHistoryAdapter historyAdapter;
+    // Selected server; null means the network's own
+    private String selectedServer;
+
+    private EditText extraResolversInput;
+    private Button btnBenchmark, btnShareBenchmark;
+    private ProgressBar benchmarkProgressBar;
+    private TextView benchmarkText;
+    private BenchmarkTask benchmarkTask;
 
     @Nullable
     @Override
@@ -33,17 +72,217 @@ public class DnsTestFragment extends Fragment {
         // Initialize views
         domainInput = view.findViewById(R.id.domainInput);
         btnResolve = view.findViewById(R.id.btnResolve);
+        recordTypeSpinner = view.findViewById(R.id.recordTypeSpinner);
         txtDomain = view.findViewById(R.id.txtDomain);
+        txtDnsServer = view.findViewById(R.id.txtDNSServer);
         txtIPAddress = view.findViewById(R.id.txtIPAddress);
         txtResponseTime = view.findViewById(R.id.txtResponseTime);
         txtStatus = view.findViewById(R.id.txtStatus);
         dnsProgressBar = view.findViewById(R.id.dnsProgressBar);
 
+        ArrayAdapter<String> types = new ArrayAdapter<>(requireContext(),
+                android.R.layout.simple_spinner_item, RECORD_TYPES);
+        types.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        recordTypeSpinner.setAdapter(types);
+
+        view.findViewById(R.id.btnGoogleDNS).setOnClickListener(v -> selectServer("8.8.8.8"));
+        view.findViewById(R.id.btnCloudflareDNS).setOnClickListener(v -> selectServer("1.1.1.1"));
+        view.findViewById(R.id.btnOpenDNS).setOnClickListener(v -> selectServer("208.67.222.222"));
+        DnsCache.configure(requireContext());
+        txtDnsServer.setText(systemServerLabel());
+
+        RecyclerView historyRecyclerView = view.findViewById(R.id.dnsHistoryRecyclerView);
+        historyAdapter = new DnsHistoryAdapter(dnsHistory);
+        historyRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        historyRecyclerView.setAdapter(historyAdapter);
+        view.findViewById(R.id.btnClearHistory).setOnClickListener(v -> {
+            dnsHistory.clear();
+            historyAdapter.notifyDataSetChanged();
+        });
+
         btnResolve.setOnClickListener(v -> resolveDNS());
 
+        extraResolversInput = view.findViewById(R.id.extraResolversInput);
+        btnBenchmark = view.findViewById(R.id.btnBenchmark);
+        btnShareBenchmark = view.findViewById(R.id.btnShareBenchmark);
+        benchmarkProgressBar = view.findViewById(R.id.benchmarkProgressBar);
+        benchmarkText = view.findViewById(R.id.benchmarkText);
+        btnBenchmark.setOnClickListener(v -> startBenchmark());
+        btnShareBenchmark.setOnClickListener(v -> shareBenchmarks());
+        if (benchmarkFile().exists()) btnShareBenchmark.setVisibility(View.VISIBLE);
+
         return view;
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (benchmarkTask != null) {
+            benchmarkTask.benchmark.cancel();
+            benchmarkTask.cancel(true);
+            benchmarkTask = null;
+        }
+    }
+
+    private void selectServer(String server) {
+        selectedServer = server;
+        txtDnsServer.setText(server);
+    }
+
+    private String systemServerLabel() {
+        List<InetAddress> servers = systemServers();
+        return "System (" + (servers.isEmpty() ? "resolver" : servers.get(0).getHostAddress()) + ", cached)";
+    }
+
+    private List<InetAddress> systemServers() {
+        return DnsCache.networkDnsServers(requireContext());
+    }
+
+    // The network's servers, the public ones and any typed in, each address once
+    private List<DnsBenchmark.Resolver> benchmarkResolvers() {
+        Map<String, String> labels = new LinkedHashMap<>();
+        for (InetAddress server : systemServers()) {
+            labels.putIfAbsent(server.getHostAddress(), "Network DNS");
+        }
+        labels.putIfAbsent("8.8.8.8", "Google");
+        labels.putIfAbsent("1.1.1.1", "Cloudflare");
+        labels.putIfAbsent("208.67.222.222", "OpenDNS");
+        for (String extra : extraResolversInput.getText().toString().split(",")) {
+            String address = extra.trim();
+            if (Ipv4Subnet.parse(address) != 0 || address.contains(":")) labels.putIfAbsent(address, "Custom");
+        }
+
+        List<DnsBenchmark.Resolver> resolvers = new ArrayList<>();
+        for (Map.Entry<String, String> entry : labels.entrySet()) {
+            try {
+                // Literals only, so no lookup happens here
+                InetAddress address = InetAddress.getByName(entry.getKey());
+                resolvers.add(new DnsBenchmark.Resolver(entry.getValue(),
+                        new InetSocketAddress(address, DnsClient.DNS_PORT)));
+            } catch (IOException e) {
+                Log.d(TAG, "Skipping resolver " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+        return resolvers;
+    }
+
+    private void startBenchmark() {
+        if (benchmarkTask != null) return;
+        List<DnsBenchmark.Resolver> resolvers = benchmarkResolvers();
+        btnBenchmark.setEnabled(false);
+        benchmarkProgressBar.setVisibility(View.VISIBLE);
+        benchmarkProgressBar.setProgress(0);
+        benchmarkText.setText("Querying " + resolvers.size() + " resolvers...");
+        benchmarkTask = new BenchmarkTask(new DnsBenchmark(resolvers, DnsBenchmark.DEFAULT_QUERIES,
+                DnsBenchmark.DEFAULT_TIMEOUT_MS), benchmarkFile());
+        // Off the serial executor, so single lookups don't queue behind a run
+        benchmarkTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    private File benchmarkFile() {
+        return new File(requireContext().getFilesDir(), BENCHMARK_FILE);
+    }
+
+    private void shareBenchmarks() {
+        try {
+            // java.nio.file needs API 26
+            StringBuilder csv = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(new FileReader(benchmarkFile()))) {
+                String line;
+                while ((line = reader.readLine()) != null) csv.append(line).append('\n');
+            }
+            Intent send = new Intent(Intent.ACTION_SEND);
+            send.setType("text/csv");
+            send.putExtra(Intent.EXTRA_SUBJECT, "DNS benchmark results");
+            send.putExtra(Intent.EXTRA_TEXT, csv.toString());
+            startActivity(Intent.createChooser(send, "Share DNS benchmark"));
+        } catch (IOException e) {
+            Toast.makeText(getContext(), "No results to share: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    // Fastest cached p50 first; resolvers that never answered last
+    static String formatBenchmark(DnsBenchmark.Report report) {
+        List<DnsBenchmark.Stats> rows = new ArrayList<>(report.getStats());
+        rows.sort(Comparator.comparingDouble(stats -> stats.getLatencies(DnsBenchmark.CACHED).getCount() > 0
+                ? stats.getPercentileMillis(DnsBenchmark.CACHED, 50) : Double.MAX_VALUE));
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%-9s %9s %9s %9s %8s\n", "", "p50", "p95", "p99", "timeout"));
+        for (DnsBenchmark.Stats stats : rows) {
+            text.append(stats.getResolver().getLabel()).append(" (")
+                    .append(stats.getResolver().getAddress().getAddress().getHostAddress()).append(")\n");
+            for (int category = DnsBenchmark.CACHED; category <= DnsBenchmark.UNCACHED; category++) {
+                String name = category == DnsBenchmark.CACHED ? "cached" : "uncached";
+                if (stats.getLatencies(category).getCount() == 0) {
+                    text.append(String.format("%-9s %9s %9s %9s %7.1f%%\n", name, "-", "-", "-",
+                            stats.getTimeoutPercent(category)));
+                    continue;
+                }
+                text.append(String.format("%-9s %9s %9s %9s %7.1f%%\n", name,
+                        PingResult.formatMillis(stats.getPercentileMillis(category, 50)),
+                        PingResult.formatMillis(stats.getPercentileMillis(category, 95)),
+                        PingResult.formatMillis(stats.getPercentileMillis(category, 99)),
+                        stats.getTimeoutPercent(category)));
+            }
+            if (stats.getError() != null) text.append("  ").append(stats.getError()).append('\n');
+        }
+        text.append(String.format("%d queries per resolver in %.1f s", 2 * DnsBenchmark.DEFAULT_QUERIES,
+                report.getElapsedNanos() / 1e9));
+        return text.toString();
+    }
+
+    private class BenchmarkTask extends AsyncTask<Void, Integer, DnsBenchmark.Report> {
+
+        final DnsBenchmark benchmark;
+        private final File file;
+        private String error;
+
+        BenchmarkTask(DnsBenchmark benchmark, File file) {
+            this.benchmark = benchmark;
+            this.file = file;
+        }
+
+        @Override
+        protected DnsBenchmark.Report doInBackground(Void... params) {
+            try {
+                DnsBenchmark.Report report = benchmark.run((done, total) -> publishProgress(done, total));
+                boolean header = !file.exists();
+                try (Writer writer = new FileWriter(file, true)) {
+                    if (header) writer.write(DnsBenchmark.Report.CSV_HEADER + "\n");
+                    writer.write(report.toCsv());
+                }
+                return report;
+            } catch (InterruptedException e) {
+                return null;
+            } catch (IOException e) {
+                Log.e(TAG, "Benchmark failed: " + e.getMessage(), e);
+                error = e.getMessage();
+                return null;
+            }
+        }
+
+        @Override
+        protected void onProgressUpdate(Integer... progress) {
+            if (!isAdded()) return;
+            benchmarkProgressBar.setMax(progress[1]);
+            benchmarkProgressBar.setProgress(progress[0]);
+        }
+
+        @Override
+        protected void onPostExecute(DnsBenchmark.Report report) {
+            if (!isAdded()) return;
+            benchmarkTask = null;
+            btnBenchmark.setEnabled(true);
+            benchmarkProgressBar.setVisibility(View.GONE);
+            if (report != null) {
+                benchmarkText.setText(formatBenchmark(report));
+                btnShareBenchmark.setVisibility(View.VISIBLE);
+            } else {
+                benchmarkText.setText("Benchmark failed: " + error);
+            }
+        }
+    }
+
     private void resolveDNS() {
         String domain = domainInput.getText().toString().trim();
 
@@ -52,16 +291,31 @@ public class DnsTestFragment extends Fragment {
             return;
         }
 
-        new DnsResolutionTask().execute(domain);
+        // Picks up a network change since the tab was opened
+        if (selectedServer == null) DnsCache.configure(requireContext());
+        String selected = (String) recordTypeSpinner.getSelectedItem();
+        int[] types = ADDRESSES.equals(selected) ? new int[] {DnsClient.TYPE_A, DnsClient.TYPE_AAAA}
+                : new int[] {DnsClient.parseType(selected)};
+        new DnsResolutionTask(selectedServer, selected, types).execute(domain);
     }
 
     private class DnsResolutionTask extends AsyncTask<String, Void, DnsResult> {
 
-        private long startTime;
+        // null for the network's server, through the cache
+        private final String server;
+        private final String typeLabel;
+        private final int[] types;
+        private final String serverLabel;
+
+        DnsResolutionTask(String server, String typeLabel, int[] types) {
+            this.server = server;
+            this.typeLabel = typeLabel;
+            this.types = types;
+            serverLabel = server != null ? server : systemServerLabel();
+        }
 
         @Override
         protected void onPreExecute() {
-            startTime = System.currentTimeMillis();
             dnsProgressBar.setVisibility(View.VISIBLE);
             txtStatus.setText("Resolving...");
             txtStatus.setTextColor(getResources().getColor(android.R.color.holo_blue_dark));
@@ -71,14 +325,54 @@ public class DnsTestFragment extends Fragment {
         protected DnsResult doInBackground(String... params) {
             String domain = params[0];
             DnsResult result = new DnsResult(domain);
+            result.setDnsServer(serverLabel);
+            result.setRecordType(typeLabel);
 
             try {
-                InetAddress address = InetAddress.getByName(domain);
-                long endTime = System.currentTimeMillis();
-
-                result.setIpAddress(address.getHostAddress());
-                result.setResponseTime(endTime - startTime);
-                result.setSuccess(true);
+                String name = domain;
+                if (types[0] == DnsClient.TYPE_PTR && DnsCache.isAddressLiteral(domain)) {
+                    // Literal, so no lookup happens here
+                    name = DnsClient.reverseName(InetAddress.getByName(domain));
+                }
+                DnsClient client = server != null ? new DnsClient(InetAddress.getByName(server)) : null;
+
+                // A + AAAA is two queries; their times add up, and the first error ends it
+                List<DnsClient.Record> records = new ArrayList<>();
+                int rcode = DnsClient.RCODE_NOERROR;
+                long nanos = 0;
+                boolean overTcp = false;
+                boolean fromCache = client == null;
+                for (int type : types) {
+                    if (client != null) {
+                        DnsClient.Response response = client.query(name, type);
+                        rcode = response.getRcode();
+                        records.addAll(response.getAnswers(type));
+                        nanos += response.getRttNanos();
+                        overTcp |= response.isOverTcp();
+                    } else {
+                        DnsCache.Answer answer = DnsCache.shared().lookup(name, type);
+                        rcode = answer.getRcode();
+                        records.addAll(answer.getRecords(type));
+                        nanos += answer.getRttNanos();
+                        fromCache &= answer.isFromCache();
+                    }
+                    if (rcode != DnsClient.RCODE_NOERROR) break;
+                }
+
+                result.setResponseNanos(nanos);
+                result.setResponseTime(nanos / 1_000_000);
+                result.setOverTcp(overTcp);
+                result.setFromCache(fromCache);
+                if (rcode != DnsClient.RCODE_NOERROR) {
+                    result.setErrorMessage(DnsClient.rcodeName(rcode));
+                    result.setSuccess(false);
+                } else if (records.isEmpty()) {
+                    result.setErrorMessage("No " + typeLabel + " records");
+                    result.setSuccess(false);
+                } else {
+                    result.setRecords(records);
+                    result.setSuccess(true);
+                }
                 result.setTimestamp(new Date());
 
             } catch (Exception e) {
@@ -92,25 +386,34 @@ public class DnsTestFragment extends Fragment {
 
         @Override
         protected void onPostExecute(DnsResult result) {
+            if (!isAdded()) return;
             dnsProgressBar.setVisibility(View.GONE);
 
-            txtDomain.setText(result.getDomain());
+            txtDomain.setText(result.getDomain() + " (" + result.getRecordType() + ")");
+            txtDnsServer.setText(result.getDnsServer());
+
+            if (result.getResponseNanos() > 0 || result.isFromCache()) {
+                txtResponseTime.setText(result.getFormattedResponseTime());
+            } else {
+                txtResponseTime.setText("N/A");
+            }
 
             if (result.isSuccess()) {
-                txtIPAddress.setText(result.getIpAddress());
-                txtResponseTime.setText(result.getResponseTime() + " ms");
+                txtIPAddress.setText(result.getFormattedRecords());
                 txtStatus.setText("Success");
                 txtStatus.setTextColor(getResources().getColor(android.R.color.holo_green_dark));
 
                 Toast.makeText(getContext(),
-                        "Resolved to: " + result.getIpAddress(),
+                        "Resolved to: " + result.getIpAddress().split("\n")[0],
                         Toast.LENGTH_SHORT).show();
             } else {
                 txtIPAddress.setText("Failed");
-                txtResponseTime.setText("N/A");
                 txtStatus.setText("Failed: " + result.getErrorMessage());
                 txtStatus.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
             }
+
+            dnsHistory.add(0, result);
+            historyAdapter.notifyItemInserted(0);
         }
     }
 
@@ -119,6 +422,16 @@ public class DnsTestFragment extends Fragment {
         private String domain;
         private String ipAddress;
         private long responseTime;
+        // Send to receipt of the answer, from DnsClient
+        private long responseNanos;
+        private String dnsServer;
+        private String recordType = "A";
+        // Every answer record of the queried type(s), with its TTL
+        private List<DnsClient.Record> records = new ArrayList<>();
+        // Answer was truncated over UDP and fetched again over TCP
+        private boolean overTcp;
+        // Served by DnsCache without a query
+        private boolean fromCache;
         private boolean success;
         private String errorMessage;
         private Date timestamp;
@@ -138,6 +451,41 @@ public class DnsTestFragment extends Fragment {
         public long getResponseTime() { return responseTime; }
         public void setResponseTime(long responseTime) { this.responseTime = responseTime; }
 
+        public long getResponseNanos() { return responseNanos; }
+        public void setResponseNanos(long responseNanos) { this.responseNanos = responseNanos; }
+
+        public String getDnsServer() { return dnsServer; }
+        public void setDnsServer(String dnsServer) { this.dnsServer = dnsServer; }
+
+        public String getRecordType() { return recordType; }
+        public void setRecordType(String recordType) { this.recordType = recordType; }
+
+        public boolean isOverTcp() { return overTcp; }
+        public void setOverTcp(boolean overTcp) { this.overTcp = overTcp; }
+
+        public boolean isFromCache() { return fromCache; }
+        public void setFromCache(boolean fromCache) { this.fromCache = fromCache; }
+
+        public List<DnsClient.Record> getRecords() { return records; }
+        // Also sets ipAddress to the records' data, one per line
+        public void setRecords(List<DnsClient.Record> records) {
+            this.records = records;
+            List<String> answers = new ArrayList<>();
+            for (DnsClient.Record record : records) answers.add(record.getData());
+            ipAddress = String.join("\n", answers);
+        }
+
+        // One line per record: type, data and TTL
+        public String getFormattedRecords() {
+            StringBuilder text = new StringBuilder();
+            for (DnsClient.Record record : records) {
+                if (text.length() > 0) text.append('\n');
+                text.append(String.format("%-5s %s  TTL %d s", DnsClient.typeName(record.getType()),
+                        record.getData(), record.getTtlSeconds()));
+            }
+            return text.toString();
+        }
+
         public boolean isSuccess() { return success; }
         public void setSuccess(boolean success) { this.success = success; }
 
@@ -147,12 +495,18 @@ public class DnsTestFragment extends Fragment {
         public Date getTimestamp() { return timestamp; }
         public void setTimestamp(Date timestamp) { this.timestamp = timestamp; }
 
+        public String getFormattedResponseTime() {
+            if (fromCache) return "cached";
+            String time = PingResult.formatMillis(responseNanos / 1e6);
+            return overTcp ? time + " (TCP)" : time;
+        }
+
         public String getFormattedResult() {
             if (success) {
-                return domain + " → " + ipAddress + " (" + responseTime + "ms)";
+                return domain + " → " + ipAddress + " (" + getFormattedResponseTime() + ")";
             } else {
                 return domain + " → Failed: " + errorMessage;
             }
         }
     }
-}
\ No newline at end of file
+}
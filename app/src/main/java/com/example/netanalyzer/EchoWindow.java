@@ -0,0 +1,104 @@
+package com.example.netanalyzer;
+
+// Bookkeeping for a pipelined echo run: probes go out on schedule while earlier ones are
+// still outstanding, so replies can arrive out of order, after their timeout, or twice.
+// Probes are numbered from 1; the wire carries the low 16 bits, and a reply is matched to
+// the latest probe with those bits. Each probe ends exactly once, as a reply or a
+// timeout; a reply after the timeout is reported as late. All times are System.nanoTime().
+// Probes are tracked in a ring sized to what one timeout can hold at the send interval
+// (16 slots for 1 s pings with a 2 s timeout), so callers must drain nextExpired()
+// before each send and never send faster than the interval. Late replies are recognized
+// while their probe is still in the ring.
+class EchoWindow {
+    private static final int SEQ_SPACE = 1 << 16;
+    private static final int MIN_SLOTS = 16;
+    private static final byte FREE = 0;
+    private static final byte PENDING = 1;
+    private static final byte ANSWERED = 2;
+    private static final byte TIMED_OUT = 3;
+
+    private final long timeoutNanos;
+    private final int slots;
+    private final long[] sentAt;
+    private final byte[] state;
+    private int nextSeq = 1;
+    // Oldest probe that may still be pending; earlier ones have all ended
+    private int oldestSeq = 1;
+    private int outstanding = 0;
+
+    EchoWindow(long timeoutNanos, long intervalNanos) {
+        this.timeoutNanos = timeoutNanos;
+        slots = slotsFor(timeoutNanos, intervalNanos);
+        sentAt = new long[slots];
+        state = new byte[slots];
+    }
+
+    // ceil(timeout / interval) pending probes plus the one being sent and one of slack,
+    // as a power of two no larger than the 16-bit wire sequence space
+    static int slotsFor(long timeoutNanos, long intervalNanos) {
+        long pending = (timeoutNanos + intervalNanos - 1) / Math.max(1, intervalNanos) + 2;
+        if (pending >= SEQ_SPACE) return SEQ_SPACE;
+        return Math.max(MIN_SLOTS, Integer.highestOneBit((int) pending - 1) << 1);
+    }
+
+    int getSlots() {
+        return slots;
+    }
+
+    // Registers the next probe as sent at now and returns its seq
+    int send(long now) {
+        int seq = nextSeq++;
+        // Everything a full ring behind has ended, unless the caller broke the contract above
+        if (nextSeq - oldestSeq > slots) oldestSeq = nextSeq - slots;
+        int slot = seq & (slots - 1);
+        sentAt[slot] = now;
+        state[slot] = PENDING;
+        outstanding++;
+        return seq;
+    }
+
+    // Matches a reply carrying wireSeq; null for duplicates and replies to unknown probes.
+    // ttl may be IcmpPinger.TTL_UNKNOWN.
+    IcmpPinger.Reply onReply(int wireSeq, long now, int bytes, int ttl) {
+        int newest = nextSeq - 1;
+        if (newest < 1) return null;
+        int seq = newest - ((newest - wireSeq) & (SEQ_SPACE - 1));
+        // Older than the ring: its slot has been reused
+        if (seq < 1 || newest - seq >= slots) return null;
+        int slot = seq & (slots - 1);
+        byte current = state[slot];
+        if (current != PENDING && current != TIMED_OUT) return null;
+        state[slot] = ANSWERED;
+        if (current == PENDING) outstanding--;
+        return new IcmpPinger.Reply(seq, now - sentAt[slot], ttl, bytes,
+                current == TIMED_OUT);
+    }
+
+    // Ends the oldest probe whose timeout has passed by now and returns its seq, or -1.
+    // Probes time out in the order they were sent.
+    int nextExpired(long now) {
+        while (oldestSeq < nextSeq && state[oldestSeq & (slots - 1)] != PENDING) {
+            oldestSeq++;
+        }
+        if (oldestSeq == nextSeq) return -1;
+        int slot = oldestSeq & (slots - 1);
+        if (now - sentAt[slot] < timeoutNanos) return -1;
+        state[slot] = TIMED_OUT;
+        outstanding--;
+        return oldestSeq++;
+    }
+
+    // When the oldest pending probe times out, or Long.MAX_VALUE if none is pending
+    long nextDeadline() {
+        for (int seq = oldestSeq; seq < nextSeq; seq++) {
+            int slot = seq & (slots - 1);
+            if (state[slot] == PENDING) return sentAt[slot] + timeoutNanos;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    // Probes sent but neither answered nor timed out
+    int getOutstanding() {
+        return outstanding;
+    }
+}
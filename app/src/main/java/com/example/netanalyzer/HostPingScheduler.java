@@ -0,0 +1,260 @@
+package com.example.netanalyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Paces echo probes across many hosts for the ping dashboard and keeps per-host
+// statistics. Hosts are probed round-robin with sends spread evenly: no faster than
+// maxProbesPerSecond overall and no host more often than once per minIntervalMs, so 500
+// hosts at 50 probes/s are each probed every 10 s. Every probe takes the next 16-bit
+// sequence number; replies are matched through a table indexed by the low bits of the
+// seq, sized to the probes that can be outstanding within one timeout (128 slots at 50
+// probes/s and 2 s), and since all probes share one timeout the unanswered ones expire
+// oldest-first. Times are nanoseconds.
+// Not thread-safe; the dashboard drives it from a single thread.
+public class HostPingScheduler {
+    private static final int SEQ_SPACE = 1 << 16;
+    private static final int SEQ_MASK = SEQ_SPACE - 1;
+    private static final int MIN_SLOTS = 16;
+    // Smoothing of the per-host RTT, as for TCP's SRTT
+    private static final int SRTT_GAIN = 8;
+    // Probes the recent-loss figure covers
+    static final int RECENT_WINDOW = 32;
+
+    private final Host[] hosts;
+    private final long gapNanos;
+    private final long timeoutNanos;
+
+    // Host index per outstanding sequence number, at seq & slotMask; -1 once answered or
+    // expired
+    private final int[] seqHost;
+    private final long[] seqSentAt;
+    private final int slotMask;
+    // Outstanding probes are the sequence numbers [oldestSeq, nextSeq), modulo 2^16
+    private int oldestSeq = 0;
+    private int nextSeq = 0;
+
+    private int nextHost = 0;
+    private long nextSendAt;
+    // Hosts changed since the last drainChanged(), without duplicates
+    private final int[] changed;
+    private final boolean[] isChanged;
+    private int changedCount = 0;
+
+    // Immutable view of one host, handed to the UI
+    public static class Snapshot {
+        private final int address;
+        private final int sent;
+        private final int received;
+        private final long lastRttNanos;
+        private final long srttNanos;
+        private final int misses;
+        private final int recentLost;
+        private final int recentProbes;
+
+        Snapshot(Host host) {
+            address = host.address;
+            sent = host.sent;
+            received = host.received;
+            lastRttNanos = host.lastRttNanos;
+            srttNanos = host.srttNanos;
+            misses = host.misses;
+            recentProbes = Math.min(host.received + host.lost, RECENT_WINDOW);
+            recentLost = Integer.bitCount(host.lossBits);
+        }
+
+        public int getAddress() { return address; }
+        public int getSent() { return sent; }
+        public int getReceived() { return received; }
+        // -1 until the first reply
+        public long getLastRttNanos() { return lastRttNanos; }
+        public long getSrttNanos() { return srttNanos; }
+        // Probes lost in a row up to now
+        public int getMisses() { return misses; }
+
+        // Loss over the last RECENT_WINDOW probes
+        public double getRecentLossPercent() {
+            return recentProbes > 0 ? recentLost * 100.0 / recentProbes : 0;
+        }
+
+        public boolean sameContents(Snapshot other) {
+            return sent == other.sent && received == other.received
+                    && lastRttNanos == other.lastRttNanos && misses == other.misses;
+        }
+    }
+
+    // Worst first: hosts currently not answering (longest silence first), then by
+    // smoothed RTT, then hosts not yet probed; ties broken by address
+    public static final Comparator<Snapshot> WORST_FIRST = (a, b) -> {
+        if (a.misses != b.misses) return Integer.compare(b.misses, a.misses);
+        if (a.srttNanos != b.srttNanos) return Long.compare(b.srttNanos, a.srttNanos);
+        return Integer.compareUnsigned(a.address, b.address);
+    };
+
+    static class Host {
+        final int address;
+        int sent = 0;
+        int received = 0;
+        int lost = 0;
+        long lastRttNanos = -1;
+        long srttNanos = -1;
+        int misses = 0;
+        // Bit i set if the i-th most recent completed probe was lost
+        int lossBits = 0;
+
+        Host(int address) {
+            this.address = address;
+        }
+    }
+
+    public HostPingScheduler(int[] addresses, int maxProbesPerSecond, long minIntervalMs,
+                             long timeoutMs, long now) {
+        hosts = new Host[addresses.length];
+        for (int i = 0; i < addresses.length; i++) {
+            hosts[i] = new Host(addresses[i]);
+        }
+        long minGap = 1_000_000_000L / Math.max(1, maxProbesPerSecond);
+        long spread = addresses.length > 0 ? minIntervalMs * 1_000_000L / addresses.length : 0;
+        gapNanos = Math.max(minGap, spread);
+        timeoutNanos = timeoutMs * 1_000_000L;
+        int slots = windowSlots(timeoutNanos, gapNanos);
+        seqHost = new int[slots];
+        seqSentAt = new long[slots];
+        slotMask = slots - 1;
+        changed = new int[addresses.length];
+        isChanged = new boolean[addresses.length];
+        Arrays.fill(seqHost, -1);
+        nextSendAt = now;
+    }
+
+    // Probes sent within one timeout, plus slack for a send that lands right at a deadline,
+    // as a power of two between MIN_SLOTS and the 16-bit sequence space
+    static int windowSlots(long timeoutNanos, long gapNanos) {
+        long inFlight = (timeoutNanos + gapNanos - 1) / Math.max(1, gapNanos) + 2;
+        if (inFlight >= SEQ_SPACE) return SEQ_SPACE;
+        return Math.max(MIN_SLOTS, Integer.highestOneBit((int) inFlight - 1) << 1);
+    }
+
+    public int getHostCount() { return hosts.length; }
+    int getWindowSlots() { return slotMask + 1; }
+    public long getGapNanos() { return gapNanos; }
+
+    // How often each host is probed
+    public long getRoundNanos() {
+        return gapNanos * hosts.length;
+    }
+
+    public long nextSendAt() {
+        return hosts.length > 0 ? nextSendAt : Long.MAX_VALUE;
+    }
+
+    // When the oldest outstanding probe times out, or Long.MAX_VALUE with none
+    public long nextDeadline() {
+        skipAnswered();
+        return oldestSeq != nextSeq ? seqSentAt[oldestSeq & slotMask] + timeoutNanos : Long.MAX_VALUE;
+    }
+
+    // Claims the next probe, due at nextSendAt(); returns its sequence number. The host
+    // to send it to is getProbeAddress(seq).
+    public int nextProbe(long now) {
+        int seq = nextSeq;
+        if (((seq - oldestSeq) & SEQ_MASK) == slotMask) {
+            // The table is sized for every probe of one timeout; after a stall, end the
+            // oldest early rather than let the window wrap onto itself
+            expireSeq(oldestSeq);
+            oldestSeq = (oldestSeq + 1) & SEQ_MASK;
+        }
+        int index = nextHost;
+        nextHost = (nextHost + 1) % hosts.length;
+        seqHost[seq & slotMask] = index;
+        seqSentAt[seq & slotMask] = now;
+        hosts[index].sent++;
+        nextSeq = (seq + 1) & SEQ_MASK;
+        // Keep the cadence, but after a stall wait a full gap from this probe rather
+        // than bursting to catch up
+        nextSendAt = Math.max(nextSendAt, now) + gapNanos;
+        return seq;
+    }
+
+    public int getProbeAddress(int seq) {
+        return hosts[seqHost[seq & slotMask]].address;
+    }
+
+    // A send that failed outright counts as lost
+    public void onSendFailed(int seq) {
+        expireSeq(seq);
+    }
+
+    // Records the reply to seq; false for late, duplicate or unknown replies
+    public boolean onReply(int seq, long now) {
+        seq &= SEQ_MASK;
+        // Outside [oldestSeq, nextSeq): long expired, or never sent
+        if (((seq - oldestSeq) & SEQ_MASK) >= ((nextSeq - oldestSeq) & SEQ_MASK)) return false;
+        int slot = seq & slotMask;
+        int index = seqHost[slot];
+        if (index == -1) return false;
+        seqHost[slot] = -1;
+        Host host = hosts[index];
+        long rtt = now - seqSentAt[slot];
+        host.received++;
+        host.lastRttNanos = rtt;
+        host.srttNanos = host.srttNanos < 0 ? rtt : host.srttNanos + (rtt - host.srttNanos) / SRTT_GAIN;
+        host.misses = 0;
+        host.lossBits <<= 1;
+        markChanged(index);
+        return true;
+    }
+
+    // Times out every probe whose deadline has passed
+    public void expire(long now) {
+        while (oldestSeq != nextSeq && seqSentAt[oldestSeq & slotMask] + timeoutNanos <= now) {
+            expireSeq(oldestSeq);
+            oldestSeq = (oldestSeq + 1) & SEQ_MASK;
+        }
+    }
+
+    private void expireSeq(int seq) {
+        int slot = seq & slotMask;
+        int index = seqHost[slot];
+        if (index == -1) return;
+        seqHost[slot] = -1;
+        Host host = hosts[index];
+        host.lost++;
+        host.misses++;
+        host.lossBits = (host.lossBits << 1) | 1;
+        markChanged(index);
+    }
+
+    private void skipAnswered() {
+        while (oldestSeq != nextSeq && seqHost[oldestSeq & slotMask] == -1) {
+            oldestSeq = (oldestSeq + 1) & SEQ_MASK;
+        }
+    }
+
+    private void markChanged(int index) {
+        if (isChanged[index]) return;
+        isChanged[index] = true;
+        changed[changedCount++] = index;
+    }
+
+    // Snapshots of the hosts that changed since the last call
+    public List<Snapshot> drainChanged() {
+        List<Snapshot> snapshots = new ArrayList<>(changedCount);
+        for (int i = 0; i < changedCount; i++) {
+            isChanged[changed[i]] = false;
+            snapshots.add(new Snapshot(hosts[changed[i]]));
+        }
+        changedCount = 0;
+        return snapshots;
+    }
+
+    public List<Snapshot> snapshotAll() {
+        List<Snapshot> snapshots = new ArrayList<>(hosts.length);
+        for (Host host : hosts) {
+            snapshots.add(new Snapshot(host));
+        }
+        return snapshots;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.netanalyzer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Reverse-DNS stage of a scan: bounded parallel lookups, each with its own deadline.
+// Hosts with no name (or no answer in time) go into a per-network negative cache so a
+// rescan of the same network does not wait on them again. Names that do resolve are
+// kept, for their TTL, by the shared DnsCache.
+public class HostnameResolver {
+
+    public interface Listener {
+        void onResolved(String ip, String hostname);
+    }
+
+    private static final int MAX_PARALLEL = 8;
+    private static final long LOOKUP_DEADLINE_MS = 1500;
+    private static final long NEGATIVE_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+
+    // network key -> (ip -> negative entry expiry, wall clock)
+    private static final Map<String, Map<String, Long>> negativeCache = new ConcurrentHashMap<>();
+
+    private final String networkKey;
+
+    public HostnameResolver(String networkKey) {
+        this.networkKey = networkKey;
+    }
+
+    public Stats resolveAll(List<String> ips, Listener listener) {
+        long startNanos = System.nanoTime();
+        Map<String, Long> negatives = negativeCache.computeIfAbsent(networkKey, key -> new ConcurrentHashMap<>());
+
+        // Skip hosts we already know have no name on this network
+        long now = System.currentTimeMillis();
+        List<String> pending = new ArrayList<>();
+        int skipped = 0;
+        for (String ip : ips) {
+            Long expiry = negatives.get(ip);
+            if (expiry != null && expiry > now) {
+                skipped++;
+            } else {
+                // Only the expired entry; a concurrent scan may have just renewed it
+                if (expiry != null) negatives.remove(ip, expiry);
+                pending.add(ip);
+            }
+        }
+
+        // Lookups that miss their deadline are cancelled and interrupted. One stuck in the
+        // system resolver can't be interrupted and keeps its thread until the resolver
+        // gives up, so later lookups wait for a free thread rather than adding threads.
+        // A lookup's deadline runs from when it starts; one still waiting for a thread a
+        // full deadline after it was queued is dropped, but not cached as nameless, since
+        // it was never asked.
+        ExecutorService pool = Executors.newFixedThreadPool(MAX_PARALLEL, r -> {
+            Thread t = new Thread(r, "HostnameResolver");
+            t.setDaemon(true);
+            return t;
+        });
+        BlockingQueue<Lookup> completed = new LinkedBlockingQueue<>();
+        ArrayDeque<Lookup> active = new ArrayDeque<>();
+        long deadlineNanos = TimeUnit.MILLISECONDS.toNanos(LOOKUP_DEADLINE_MS);
+
+        int resolved = 0;
+        int timedOut = 0;
+        int notStarted = 0;
+        int next = 0;
+        try {
+            while (next < pending.size() || !active.isEmpty()) {
+                while (active.size() < MAX_PARALLEL && next < pending.size()) {
+                    Lookup lookup = new Lookup(pending.get(next++), System.nanoTime());
+                    active.add(lookup);
+                    lookup.future = pool.submit(() -> {
+                        lookup.startNanos = System.nanoTime();
+                        lookup.started = true;
+                        lookup.run();
+                        completed.add(lookup);
+                    });
+                }
+
+                // Lookups start at different times, so find the one due first
+                Lookup due = null;
+                for (Lookup lookup : active) {
+                    if (due == null || lookup.expiresAt(deadlineNanos) - due.expiresAt(deadlineNanos) < 0) {
+                        due = lookup;
+                    }
+                }
+                long wait = due.expiresAt(deadlineNanos) - System.nanoTime();
+                Lookup done = wait > 0 ? completed.poll(wait, TimeUnit.NANOSECONDS) : null;
+
+                if (done != null) {
+                    if (!active.remove(done)) continue; // already abandoned
+                    if (done.hostname != null) {
+                        resolved++;
+                        listener.onResolved(done.ip, done.hostname);
+                    } else {
+                        negatives.put(done.ip, System.currentTimeMillis() + NEGATIVE_TTL_MS);
+                    }
+                } else if (due.expiresAt(deadlineNanos) - System.nanoTime() <= 0) {
+                    active.remove(due);
+                    due.future.cancel(true);
+                    if (due.started) {
+                        timedOut++;
+                        negatives.put(due.ip, System.currentTimeMillis() + NEGATIVE_TTL_MS);
+                    } else {
+                        notStarted++;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return new Stats(ips.size(), resolved, skipped, timedOut, notStarted, System.nanoTime() - startNanos);
+    }
+
+    private static class Lookup {
+        final String ip;
+        final long queuedNanos;
+        // Written by the pool thread before started is set
+        long startNanos;
+        volatile boolean started;
+        volatile String hostname;
+        Future<?> future;
+
+        Lookup(String ip, long queuedNanos) {
+            this.ip = ip;
+            this.queuedNanos = queuedNanos;
+        }
+
+        long expiresAt(long deadlineNanos) {
+            return (started ? startNanos : queuedNanos) + deadlineNanos;
+        }
+
+        void run() {
+            try {
+                hostname = DnsCache.shared().reverse(ip);
+            } catch (Exception e) {
+                // No PTR record - treated as a negative answer
+            }
+        }
+    }
+
+    public static class Stats {
+        private final int total;
+        private final int resolved;
+        private final int skipped;
+        private final int timedOut;
+        private final int notStarted;
+        private final long elapsedNanos;
+
+        Stats(int total, int resolved, int skipped, int timedOut, int notStarted, long elapsedNanos) {
+            this.total = total;
+            this.resolved = resolved;
+            this.skipped = skipped;
+            this.timedOut = timedOut;
+            this.notStarted = notStarted;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getTotal() { return total; }
+        public int getResolved() { return resolved; }
+        public int getSkipped() { return skipped; }
+        public int getTimedOut() { return timedOut; }
+        public int getNotStarted() { return notStarted; }
+        public long getElapsedMillis() { return TimeUnit.NANOSECONDS.toMillis(elapsedNanos); }
+
+        @Override
+        public String toString() {
+            return "Hostnames: " + resolved + "/" + total + " in " + getElapsedMillis() + " ms ("
+                    + skipped + " cached negative, " + timedOut + " timed out, "
+                    + notStarted + " never started)";
+        }
+    }
+}
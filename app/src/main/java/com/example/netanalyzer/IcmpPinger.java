@@ -0,0 +1,448 @@
+package com.example.netanalyzer;
+
+import android.os.Build;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructCmsghdr;
+import android.system.StructMsghdr;
+import android.system.StructPollfd;
+import android.util.Log;
+import androidx.annotation.RequiresApi;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// ICMP echo to a single host. Prefers an unprivileged ICMP datagram socket (the kernel
+// fills in the echo identifier and hands back only replies carrying it), and falls back to
+// running the system ping binary and parsing its output where the kernel refuses those
+// sockets. RTTs are nanoseconds; replies are matched to requests by sequence number.
+// Runs are pipelined: each echo goes out on schedule whether or not earlier ones have
+// been answered, so intervals can be far shorter than the RTT or the timeout.
+// The reply TTL (IPv6: hop limit) comes from the ping binary's output, or on a datagram
+// socket from the IP_RECVTTL / IPV6_RECVHOPLIMIT control message, which needs Os.recvmsg
+// (Android 13, API 33). Before that a socket reports TTL_UNKNOWN.
+public abstract class IcmpPinger implements Closeable {
+    private static final String TAG = "IcmpPinger";
+
+    static final int ICMP_ECHO_REQUEST = 8;
+    static final int ICMP_ECHO_REPLY = 0;
+    static final int ICMPV6_ECHO_REQUEST = 128;
+    static final int ICMPV6_ECHO_REPLY = 129;
+    static final int HEADER_SIZE = 8;
+    // Same payload size as the ping binary's default, for comparable RTTs
+    static final int PAYLOAD_SIZE = 56;
+
+    public static final int TTL_UNKNOWN = -1;
+    // Count for run() that keeps pinging until cancelled
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+    // Interval limits of run(); the ping binary enforces its own floor of 200 ms
+    public static final long MIN_INTERVAL_MS = 10;
+    public static final long MAX_INTERVAL_MS = 10_000;
+
+    public static class Reply {
+        private final int seq;
+        private final long rttNanos;
+        private final int ttl;
+        private final int bytes;
+        private final boolean late;
+
+        Reply(int seq, long rttNanos, int ttl, int bytes) {
+            this(seq, rttNanos, ttl, bytes, false);
+        }
+
+        Reply(int seq, long rttNanos, int ttl, int bytes, boolean late) {
+            this.seq = seq;
+            this.rttNanos = rttNanos;
+            this.ttl = ttl;
+            this.bytes = bytes;
+            this.late = late;
+        }
+
+        public int getSeq() { return seq; }
+        public long getRttNanos() { return rttNanos; }
+        public int getTtl() { return ttl; }
+        public int getBytes() { return bytes; }
+        // Arrived after its probe was reported as timed out
+        public boolean isLate() { return late; }
+    }
+
+    public interface Listener {
+        void onReply(Reply reply);
+        void onTimeout(int seq);
+        // A reply to a probe already reported through onTimeout
+        default void onLateReply(Reply reply) {
+        }
+    }
+
+    protected final InetAddress address;
+
+    IcmpPinger(InetAddress address) {
+        this.address = address;
+    }
+
+    // Opens the best echo mechanism available for address
+    public static IcmpPinger open(InetAddress address) {
+        try {
+            return new SocketPinger(address);
+        } catch (ErrnoException e) {
+            Log.d(TAG, "ICMP datagram socket unavailable (" + e.getMessage() + "), using ping binary");
+            return new ProcessPinger(address);
+        }
+    }
+
+    // Human-readable name of the mechanism, for progress messages
+    public abstract String getMethod();
+
+    // Sends count echoes (seq 1..count) intervalMs apart (clamped to MIN_INTERVAL_MS..
+    // MAX_INTERVAL_MS) without waiting for replies, and reports each echo once, through
+    // onReply as its reply arrives or onTimeout once timeoutMs has passed without one.
+    // Replies may come out of sequence order. Returns after the last echo has ended;
+    // throws InterruptedException if the thread is interrupted or cancel() is called.
+    public abstract void run(int count, long intervalMs, long timeoutMs, Listener listener)
+            throws IOException, InterruptedException;
+
+    // May be called from any thread to abort a run() in progress
+    public void cancel() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    // Fills buf with an echo request for seq. The identifier is left 0; the kernel sets
+    // it for datagram sockets. ICMPv6 checksums cover a pseudo-header and are always
+    // computed by the kernel.
+    static int buildEchoRequest(byte[] buf, int seq, boolean v6) {
+        int length = HEADER_SIZE + PAYLOAD_SIZE;
+        buf[0] = (byte) (v6 ? ICMPV6_ECHO_REQUEST : ICMP_ECHO_REQUEST);
+        buf[1] = 0;
+        buf[2] = 0;
+        buf[3] = 0;
+        buf[4] = 0;
+        buf[5] = 0;
+        buf[6] = (byte) (seq >>> 8);
+        buf[7] = (byte) seq;
+        for (int i = HEADER_SIZE; i < length; i++) {
+            buf[i] = (byte) i;
+        }
+        if (!v6) {
+            int checksum = checksum(buf, length);
+            buf[2] = (byte) (checksum >>> 8);
+            buf[3] = (byte) checksum;
+        }
+        return length;
+    }
+
+    // Sequence number of an echo reply as received on a datagram socket (ICMP header
+    // first, no IP header), or -1 if it isn't an echo reply
+    static int parseEchoReply(byte[] buf, int length, boolean v6) {
+        if (length < HEADER_SIZE) return -1;
+        int type = buf[0] & 0xFF;
+        if (type != (v6 ? ICMPV6_ECHO_REPLY : ICMP_ECHO_REPLY)) return -1;
+        return ((buf[6] & 0xFF) << 8) | (buf[7] & 0xFF);
+    }
+
+    // RFC 1071 internet checksum
+    static int checksum(byte[] buf, int length) {
+        int sum = 0;
+        for (int i = 0; i + 1 < length; i += 2) {
+            sum += ((buf[i] & 0xFF) << 8) | (buf[i + 1] & 0xFF);
+        }
+        if ((length & 1) != 0) sum += (buf[length - 1] & 0xFF) << 8;
+        while ((sum >>> 16) != 0) {
+            sum = (sum & 0xFFFF) + (sum >>> 16);
+        }
+        return ~sum & 0xFFFF;
+    }
+
+    private static void checkInterrupted() throws InterruptedException {
+        if (Thread.interrupted()) throw new InterruptedException();
+    }
+
+    static long clampInterval(long intervalMs) {
+        return Math.max(MIN_INTERVAL_MS, Math.min(MAX_INTERVAL_MS, intervalMs));
+    }
+
+    private static class SocketPinger extends IcmpPinger {
+        // Longest single poll(), so an interrupt is noticed promptly
+        private static final int POLL_SLICE_MS = 100;
+        // Linux values missing from OsConstants: <linux/in.h>, <linux/in6.h>
+        private static final int IP_RECVTTL = 12;
+        private static final int IPV6_RECVHOPLIMIT = 51;
+        private static final int IPV6_HOPLIMIT = 52;
+
+        private final boolean v6;
+        private final FileDescriptor fd;
+        private final byte[] request = new byte[HEADER_SIZE + PAYLOAD_SIZE];
+        private final byte[] reply = new byte[1500];
+        private final ByteBuffer replyBuffer = ByteBuffer.wrap(reply);
+        // Whether replies carry their TTL in a control message
+        private final boolean ttlControl;
+        // TTL of the reply last read by receive()
+        private int replyTtl = TTL_UNKNOWN;
+
+        SocketPinger(InetAddress address) throws ErrnoException {
+            super(address);
+            v6 = address instanceof Inet6Address;
+            fd = Os.socket(v6 ? OsConstants.AF_INET6 : OsConstants.AF_INET, OsConstants.SOCK_DGRAM,
+                    v6 ? OsConstants.IPPROTO_ICMPV6 : OsConstants.IPPROTO_ICMP);
+            try {
+                // Reads drain the socket until EAGAIN, and a full send buffer costs one
+                // probe instead of stalling the schedule
+                Os.fcntlInt(fd, OsConstants.F_SETFL, OsConstants.O_NONBLOCK);
+            } catch (ErrnoException e) {
+                closeQuietly(fd);
+                throw e;
+            }
+            ttlControl = Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU && requestTtl();
+        }
+
+        private boolean requestTtl() {
+            try {
+                if (v6) {
+                    Os.setsockoptInt(fd, OsConstants.IPPROTO_IPV6, IPV6_RECVHOPLIMIT, 1);
+                } else {
+                    Os.setsockoptInt(fd, OsConstants.IPPROTO_IP, IP_RECVTTL, 1);
+                }
+                return true;
+            } catch (ErrnoException e) {
+                Log.d(TAG, "Reply TTL unavailable: " + e.getMessage());
+                return false;
+            }
+        }
+
+        @Override
+        public String getMethod() {
+            return "ICMP socket";
+        }
+
+        @Override
+        public void run(int count, long intervalMs, long timeoutMs, Listener listener)
+                throws IOException, InterruptedException {
+            long intervalNanos = TimeUnit.MILLISECONDS.toNanos(clampInterval(intervalMs));
+            EchoWindow window = new EchoWindow(TimeUnit.MILLISECONDS.toNanos(timeoutMs), intervalNanos);
+            StructPollfd[] pollFds = {new StructPollfd()};
+            pollFds[0].fd = fd;
+            pollFds[0].events = (short) OsConstants.POLLIN;
+            int sent = 0;
+            long nextSendAt = System.nanoTime();
+
+            while (true) {
+                checkInterrupted();
+                long now = System.nanoTime();
+                // Expire first: the window only has room for one timeout's worth of probes
+                for (int seq; (seq = window.nextExpired(now)) >= 0; ) {
+                    listener.onTimeout(seq);
+                }
+                if (sent < count && now >= nextSendAt) {
+                    int seq = window.send(now);
+                    sent++;
+                    int length = buildEchoRequest(request, seq, v6);
+                    try {
+                        Os.sendto(fd, request, 0, length, 0, address, 0);
+                    } catch (ErrnoException e) {
+                        // A full send buffer at short intervals just costs this probe
+                        if (e.errno != OsConstants.EAGAIN && e.errno != OsConstants.ENOBUFS) {
+                            throw new IOException("sendto failed: " + e.getMessage(), e);
+                        }
+                    }
+                    // Stay on the original schedule, but after a stall (e.g. a slow
+                    // listener) wait a full interval from this probe rather than catching up
+                    nextSendAt = Math.max(nextSendAt, now) + intervalNanos;
+                }
+                if (sent == count && window.getOutstanding() == 0) return;
+
+                long wakeAt = Math.min(sent < count ? nextSendAt : Long.MAX_VALUE, window.nextDeadline());
+                long waitMs = TimeUnit.NANOSECONDS.toMillis(Math.max(0, wakeAt - System.nanoTime()));
+                try {
+                    pollFds[0].revents = 0;
+                    if (Os.poll(pollFds, (int) Math.min(waitMs, POLL_SLICE_MS)) == 0) continue;
+                    drainReplies(window, listener);
+                } catch (ErrnoException e) {
+                    if (e.errno == OsConstants.EINTR) continue;
+                    throw new IOException("poll failed: " + e.getMessage(), e);
+                }
+            }
+        }
+
+        // Hands every reply that has arrived to the window, and the matched ones on
+        private void drainReplies(EchoWindow window, Listener listener) throws IOException {
+            while (true) {
+                int length;
+                try {
+                    length = receive();
+                } catch (ErrnoException e) {
+                    if (e.errno == OsConstants.EAGAIN || e.errno == OsConstants.EINTR) return;
+                    throw new IOException("recv failed: " + e.getMessage(), e);
+                }
+                int wireSeq = parseEchoReply(reply, length, v6);
+                if (wireSeq < 0) continue;
+                Reply matched = window.onReply(wireSeq, System.nanoTime(), length, replyTtl);
+                if (matched == null) continue;
+                if (matched.isLate()) {
+                    listener.onLateReply(matched);
+                } else {
+                    listener.onReply(matched);
+                }
+            }
+        }
+
+        // Reads one datagram into reply and sets replyTtl; the socket is non-blocking
+        private int receive() throws ErrnoException, IOException {
+            if (ttlControl && Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+                return receiveWithTtl();
+            }
+            replyTtl = TTL_UNKNOWN;
+            return Os.recvfrom(fd, reply, 0, reply.length, 0, null);
+        }
+
+        @RequiresApi(Build.VERSION_CODES.TIRAMISU)
+        private int receiveWithTtl() throws ErrnoException, IOException {
+            replyBuffer.clear();
+            StructMsghdr message = new StructMsghdr(null, new ByteBuffer[]{replyBuffer},
+                    new StructCmsghdr[]{new StructCmsghdr(
+                            v6 ? OsConstants.IPPROTO_IPV6 : OsConstants.IPPROTO_IP,
+                            v6 ? IPV6_HOPLIMIT : OsConstants.IP_TTL, new byte[16])}, 0);
+            int length = Os.recvmsg(fd, message, 0);
+            replyTtl = TTL_UNKNOWN;
+            if (message.msg_control != null) {
+                for (StructCmsghdr control : message.msg_control) {
+                    if (control.cmsg_data.length >= Integer.BYTES && (v6
+                            ? control.cmsg_level == OsConstants.IPPROTO_IPV6 && control.cmsg_type == IPV6_HOPLIMIT
+                            : control.cmsg_level == OsConstants.IPPROTO_IP && control.cmsg_type == OsConstants.IP_TTL)) {
+                        // A native int
+                        replyTtl = ByteBuffer.wrap(control.cmsg_data).order(ByteOrder.nativeOrder()).getInt();
+                    }
+                }
+            }
+            return length;
+        }
+
+        @Override
+        public void close() {
+            try {
+                Os.close(fd);
+            } catch (ErrnoException e) {
+                Log.w(TAG, "Failed to close ICMP socket: " + e.getMessage());
+            }
+        }
+
+        private static void closeQuietly(FileDescriptor fd) {
+            try {
+                Os.close(fd);
+            } catch (ErrnoException e) {
+                // Nothing more to release
+            }
+        }
+    }
+
+    private static class ProcessPinger extends IcmpPinger {
+        // Shortest interval the ping binary accepts without root
+        private static final long MIN_INTERVAL_MS = 200;
+        private static final String DUPLICATE = "(DUP!)";
+
+        private volatile Process process;
+        private volatile boolean cancelled = false;
+
+        ProcessPinger(InetAddress address) {
+            super(address);
+        }
+
+        @Override
+        public String getMethod() {
+            return "ping";
+        }
+
+        @Override
+        public void run(int count, long intervalMs, long timeoutMs, Listener listener)
+                throws IOException, InterruptedException {
+            String binary = address instanceof Inet6Address ? "ping6" : "ping";
+            String interval = String.valueOf(Math.max(MIN_INTERVAL_MS, clampInterval(intervalMs)) / 1000.0);
+            String timeout = String.valueOf(Math.max(1, (timeoutMs + 999) / 1000));
+            List<String> command = new ArrayList<>(Arrays.asList(binary, "-n", "-i", interval,
+                    "-W", timeout, address.getHostAddress()));
+            if (count != UNBOUNDED) command.addAll(1, Arrays.asList("-c", String.valueOf(count)));
+            process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .start();
+            if (cancelled) process.destroy();
+
+            // The binary only prints replies, so a gap in the sequence is a timeout
+            int nextSeq = 1;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    checkInterrupted();
+                    Reply reply = parseReplyLine(line);
+                    if (reply == null) continue;
+                    // The printed sequence number is 16 bits and wraps on long runs
+                    int ahead = (reply.seq - nextSeq) & 0xFFFF;
+                    int seq = nextSeq + ahead;
+                    if (ahead >= 0x8000) {
+                        // Reply to an echo already counted as timed out by a sequence gap
+                        seq -= 0x10000;
+                        if (seq >= 1 && !line.contains(DUPLICATE)) {
+                            listener.onLateReply(new Reply(seq, reply.rttNanos, reply.ttl, reply.bytes, true));
+                        }
+                        continue;
+                    }
+                    if (seq > count) continue;
+                    while (nextSeq < seq) listener.onTimeout(nextSeq++);
+                    listener.onReply(new Reply(seq, reply.rttNanos, reply.ttl, reply.bytes));
+                    nextSeq++;
+                }
+            } catch (IOException e) {
+                if (!cancelled) throw e;
+            } finally {
+                process.destroy();
+            }
+            if (cancelled) throw new InterruptedException();
+            checkInterrupted();
+            if (count == UNBOUNDED) throw new IOException(binary + " exited");
+            while (nextSeq <= count) listener.onTimeout(nextSeq++);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Process running = process;
+            if (running != null) running.destroy();
+        }
+    }
+
+    private static final Pattern SEQ = Pattern.compile("icmp_[sr]eq=(\\d+)");
+    private static final Pattern TTL = Pattern.compile("(?:ttl|hlim)=(\\d+)");
+    private static final Pattern TIME = Pattern.compile("time[=<]([0-9.]+) ?ms");
+    private static final Pattern BYTES = Pattern.compile("^(\\d+) bytes from");
+
+    // Parses a reply line of the ping binary, e.g.
+    // "64 bytes from 192.168.1.1: icmp_seq=3 ttl=64 time=0.412 ms"; null for other lines
+    static Reply parseReplyLine(String line) {
+        Matcher seq = SEQ.matcher(line);
+        Matcher time = TIME.matcher(line);
+        if (!seq.find() || !time.find()) return null;
+        Matcher ttl = TTL.matcher(line);
+        Matcher bytes = BYTES.matcher(line);
+        try {
+            long rttNanos = Math.round(Double.parseDouble(time.group(1)) * 1_000_000);
+            return new Reply(Integer.parseInt(seq.group(1)), rttNanos,
+                    ttl.find() ? Integer.parseInt(ttl.group(1)) : TTL_UNKNOWN,
+                    bytes.find() ? Integer.parseInt(bytes.group(1)) : 0);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.netanalyzer;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+// IPv4 network held as a 32-bit int (network byte order, i.e. 192.168.1.0 == 0xC0A80100).
+// Hosts are addressed by index so a scan can walk a /16 without materialising the range.
+public final class Ipv4Subnet {
+
+    // Anything wider than a /16 is clamped to the /16 around our own address
+    public static final int MIN_SCAN_PREFIX = 16;
+    public static final int DEFAULT_PREFIX = 24;
+
+    private final int network;
+    private final int prefixLength;
+
+    private Ipv4Subnet(int network, int prefixLength) {
+        this.network = network;
+        this.prefixLength = prefixLength;
+    }
+
+    public static Ipv4Subnet of(int address, int prefixLength) {
+        int prefix = prefixLength;
+        if (prefix < MIN_SCAN_PREFIX) prefix = MIN_SCAN_PREFIX;
+        if (prefix > 32) prefix = 32;
+        return new Ipv4Subnet(address & maskFor(prefix), prefix);
+    }
+
+    public int getNetwork() { return network; }
+    public int getPrefixLength() { return prefixLength; }
+    public int getNetmask() { return maskFor(prefixLength); }
+    public int getBroadcast() { return network | ~getNetmask(); }
+
+    // Usable hosts exclude the network and broadcast addresses, except on /31 and /32
+    public int getFirstHost() {
+        return prefixLength >= 31 ? network : network + 1;
+    }
+
+    public int getLastHost() {
+        return prefixLength >= 31 ? getBroadcast() : getBroadcast() - 1;
+    }
+
+    public int getHostCount() {
+        return getLastHost() - getFirstHost() + 1;
+    }
+
+    public int hostAt(int index) {
+        return getFirstHost() + index;
+    }
+
+    // Index of address within the usable host range, or -1 if it is outside it
+    public int indexOf(int address) {
+        if (!contains(address)) return -1;
+        int index = address - getFirstHost();
+        return index >= 0 && index < getHostCount() ? index : -1;
+    }
+
+    public boolean contains(int address) {
+        return (address & getNetmask()) == network;
+    }
+
+    public static int maskFor(int prefixLength) {
+        return prefixLength == 0 ? 0 : -1 << (32 - prefixLength);
+    }
+
+    // WifiManager/DhcpInfo ints are little-endian (first octet in the low byte)
+    public static int fromLittleEndian(int address) {
+        return Integer.reverseBytes(address);
+    }
+
+    public static int fromInetAddress(InetAddress address) {
+        if (!(address instanceof Inet4Address)) return 0;
+        byte[] b = address.getAddress();
+        return ((b[0] & 0xFF) << 24) | ((b[1] & 0xFF) << 16) | ((b[2] & 0xFF) << 8) | (b[3] & 0xFF);
+    }
+
+    public static InetAddress toInetAddress(int address) throws UnknownHostException {
+        byte[] b = {
+                (byte) (address >>> 24), (byte) (address >>> 16),
+                (byte) (address >>> 8), (byte) address
+        };
+        return InetAddress.getByAddress(b);
+    }
+
+    // Parses a dotted quad without splitting; returns 0 for anything malformed
+    public static int parse(CharSequence ip) {
+        if (ip == null) return 0;
+        int result = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) return 0;
+            } else if (c == '.' && digits > 0 && dots < 3) {
+                result = (result << 8) | octet;
+                octet = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return 0;
+            }
+        }
+        if (dots != 3 || digits == 0) return 0;
+        return (result << 8) | octet;
+    }
+
+    public static String format(int address) {
+        return ((address >>> 24) & 0xFF) + "." + ((address >>> 16) & 0xFF) + "."
+                + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Ipv4Subnet)) return false;
+        Ipv4Subnet other = (Ipv4Subnet) o;
+        return network == other.network && prefixLength == other.prefixLength;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * network + prefixLength;
+    }
+
+    @Override
+    public String toString() {
+        return format(network) + "/" + prefixLength;
+    }
+}
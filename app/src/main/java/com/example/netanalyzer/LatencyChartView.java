@@ -0,0 +1,102 @@
+package com.example.netanalyzer;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.view.View;
+
+// Live latency chart of a continuous ping. The samples held in a LatencyRing are reduced
+// to one point per pixel column (the column's worst RTT), so drawing cost depends only on
+// the view's width; columns with a lost probe get a red tick along the bottom.
+public class LatencyChartView extends View {
+    // Smallest full-scale value, so a quiet LAN doesn't magnify microsecond noise
+    private static final float MIN_SCALE_MS = 1f;
+
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint lossPaint = new Paint();
+    private final Paint gridPaint = new Paint();
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Path path = new Path();
+
+    private LatencyRing ring;
+    // Sized to the view's width in onSizeChanged
+    private float[] worstMillis = new float[0];
+    private boolean[] anyLost = new boolean[0];
+
+    public LatencyChartView(Context context) {
+        this(context, null);
+    }
+
+    public LatencyChartView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = context.getResources().getDisplayMetrics().density;
+        linePaint.setColor(Color.parseColor("#2E1A47"));
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeWidth(1.5f * density);
+        lossPaint.setColor(Color.parseColor("#F44336"));
+        lossPaint.setStrokeWidth(1f);
+        gridPaint.setColor(Color.parseColor("#B9A6E8"));
+        gridPaint.setStrokeWidth(1f);
+        labelPaint.setColor(Color.parseColor("#333333"));
+        labelPaint.setTextSize(11 * density);
+    }
+
+    public void setRing(LatencyRing ring) {
+        this.ring = ring;
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        int columns = Math.max(0, w - getPaddingLeft() - getPaddingRight());
+        worstMillis = new float[columns];
+        anyLost = new boolean[columns];
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int left = getPaddingLeft();
+        int top = getPaddingTop();
+        int bottom = getHeight() - getPaddingBottom();
+        float height = bottom - top;
+        canvas.drawLine(left, bottom, left + worstMillis.length, bottom, gridPaint);
+        if (ring == null || ring.size() == 0 || height <= 0) return;
+
+        int used = ring.reduce(worstMillis.length, worstMillis, anyLost);
+        float scale = MIN_SCALE_MS;
+        for (int c = 0; c < used; c++) {
+            if (worstMillis[c] > scale) scale = worstMillis[c];
+        }
+        scale *= 1.1f;
+
+        // Newest sample at the right edge
+        int x0 = left + worstMillis.length - used;
+        float tick = Math.min(height, 6 * getResources().getDisplayMetrics().density);
+        path.rewind();
+        boolean penDown = false;
+        for (int c = 0; c < used; c++) {
+            float x = x0 + c;
+            if (anyLost[c]) canvas.drawLine(x, bottom, x, bottom - tick, lossPaint);
+            if (Float.isNaN(worstMillis[c])) {
+                penDown = false;
+                continue;
+            }
+            float y = bottom - worstMillis[c] / scale * height;
+            if (penDown) {
+                path.lineTo(x, y);
+            } else {
+                path.moveTo(x, y);
+                penDown = true;
+            }
+        }
+        canvas.drawPath(path, linePaint);
+
+        canvas.drawLine(left, top, left + worstMillis.length, top, gridPaint);
+        canvas.drawText(PingResult.formatMillis(scale), left, top + labelPaint.getTextSize(), labelPaint);
+    }
+}
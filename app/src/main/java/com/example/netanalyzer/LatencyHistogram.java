@@ -0,0 +1,133 @@
+package com.example.netanalyzer;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+// Fixed-size latency histogram in the style of HdrHistogram. Values are bucketed at
+// microsecond resolution: exactly below 128 us, and above that into 64 log-linear
+// sub-buckets per power of two, so any recorded value is off by less than 1/64 (~1.6%).
+// Everything is held in one primitive array plus running sums, whatever the number of
+// samples, and histograms from separate runs can be merged. Not thread-safe.
+public class LatencyHistogram implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    // Values are clamped to 2^25 us (~33 s), well beyond any ping timeout
+    private static final int MAX_VALUE_BITS = 25;
+    static final long MAX_VALUE_MICROS = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKET_COUNT =
+            SUB_BUCKETS + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+    // RFC 3550 section 6.4.1 smoothing: J += (|D| - J) / 16
+    private static final int JITTER_GAIN = 16;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount = 0;
+    private long minNanos = Long.MAX_VALUE;
+    private long maxNanos = 0;
+    // Welford's running mean and sum of squared deviations, in nanoseconds
+    private double mean = 0;
+    private double m2 = 0;
+    private double jitterNanos = 0;
+    private long lastNanos = -1;
+
+    public void record(long rttNanos) {
+        if (rttNanos < 0) rttNanos = 0;
+        long micros = Math.min(rttNanos / 1000, MAX_VALUE_MICROS);
+        counts[indexFor(micros)]++;
+        totalCount++;
+        if (rttNanos < minNanos) minNanos = rttNanos;
+        if (rttNanos > maxNanos) maxNanos = rttNanos;
+
+        double delta = rttNanos - mean;
+        mean += delta / totalCount;
+        m2 += delta * (rttNanos - mean);
+
+        // For round trips the variation between consecutive samples stands in for the
+        // RFC's difference in relative transit times
+        if (lastNanos >= 0) {
+            jitterNanos += (Math.abs(rttNanos - lastNanos) - jitterNanos) / JITTER_GAIN;
+        }
+        lastNanos = rttNanos;
+    }
+
+    // Adds other's samples to this histogram. Jitter is a running estimate that can't be
+    // combined exactly, so the merged value is the sample-weighted average of both.
+    public void merge(LatencyHistogram other) {
+        if (other.totalCount == 0) return;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        long combined = totalCount + other.totalCount;
+        // Chan et al.'s pairwise update of mean and M2
+        double delta = other.mean - mean;
+        m2 += other.m2 + delta * delta * totalCount * other.totalCount / combined;
+        mean += delta * other.totalCount / combined;
+        jitterNanos = (jitterNanos * totalCount + other.jitterNanos * other.totalCount) / combined;
+        totalCount = combined;
+        minNanos = Math.min(minNanos, other.minNanos);
+        maxNanos = Math.max(maxNanos, other.maxNanos);
+        lastNanos = other.lastNanos;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        minNanos = Long.MAX_VALUE;
+        maxNanos = 0;
+        mean = 0;
+        m2 = 0;
+        jitterNanos = 0;
+        lastNanos = -1;
+    }
+
+    public long getCount() { return totalCount; }
+    public long getMinNanos() { return totalCount > 0 ? minNanos : 0; }
+    public long getMaxNanos() { return maxNanos; }
+    public double getMeanNanos() { return mean; }
+    public double getJitterNanos() { return jitterNanos; }
+
+    // Population standard deviation
+    public double getStdDevNanos() {
+        return totalCount > 0 ? Math.sqrt(m2 / totalCount) : 0;
+    }
+
+    // Value that percentile percent of the samples are at or below (e.g. 50, 99.9), to
+    // within the bucket resolution
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) return 0;
+        long rank = (long) Math.ceil(Math.min(percentile, 100) / 100 * totalCount);
+        rank = Math.max(1, rank);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long midMicros = lowestValueAt(i) + (widthAt(i) - 1) / 2;
+                long nanos = midMicros * 1000 + 500;
+                return Math.max(minNanos, Math.min(maxNanos, nanos));
+            }
+        }
+        return maxNanos;
+    }
+
+    static int indexFor(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        // Number of bits below the top SUB_BUCKET_BITS - 1 significant ones
+        int shift = (63 - Long.numberOfLeadingZeros(micros)) - (SUB_BUCKET_BITS - 1);
+        int sub = (int) (micros >>> shift);    // in [HALF_SUB_BUCKETS, SUB_BUCKETS)
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (sub - HALF_SUB_BUCKETS);
+    }
+
+    static long lowestValueAt(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        int sub = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return (long) sub << shift;
+    }
+
+    static long widthAt(int index) {
+        if (index < SUB_BUCKETS) return 1;
+        return 1L << ((index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.netanalyzer;
+
+// The most recent ping samples of a continuous run, in a fixed-capacity primitive ring:
+// once full, each new sample overwrites the oldest, so memory stays flat however long
+// the run goes. Keeps rolling aggregates (replies, losses, mean, worst) over the samples
+// it holds, and reduces them to one point per chart column. Not thread-safe.
+public class LatencyRing {
+    // Stored in place of an RTT for a probe that got no reply
+    private static final int LOST = -1;
+
+    private final int[] rttMicros;
+    private int head = 0;      // Next slot to write
+    private int size = 0;
+    private long totalAdded = 0;
+
+    // Aggregates over the samples currently held
+    private long sumMicros = 0;
+    private int replies = 0;
+    private int lost = 0;
+
+    public LatencyRing(int capacity) {
+        rttMicros = new int[capacity];
+    }
+
+    // rttNanos < 0 records a lost probe
+    public void add(long rttNanos) {
+        int micros = rttNanos < 0 ? LOST : (int) Math.min(rttNanos / 1000, Integer.MAX_VALUE);
+        if (size == rttMicros.length) {
+            forget(rttMicros[head]);
+        } else {
+            size++;
+        }
+        rttMicros[head] = micros;
+        head = (head + 1) % rttMicros.length;
+        totalAdded++;
+        if (micros == LOST) {
+            lost++;
+        } else {
+            replies++;
+            sumMicros += micros;
+        }
+    }
+
+    private void forget(int micros) {
+        if (micros == LOST) {
+            lost--;
+        } else {
+            replies--;
+            sumMicros -= micros;
+        }
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        totalAdded = 0;
+        sumMicros = 0;
+        replies = 0;
+        lost = 0;
+    }
+
+    public int size() { return size; }
+    public int capacity() { return rttMicros.length; }
+    public long getTotalAdded() { return totalAdded; }
+    public int getReplies() { return replies; }
+    public int getLost() { return lost; }
+
+    public double getMeanMillis() {
+        return replies > 0 ? sumMicros / 1000.0 / replies : 0;
+    }
+
+    public double getLossPercent() {
+        return size > 0 ? lost * 100.0 / size : 0;
+    }
+
+    // RTT in milliseconds of the i-th held sample, oldest first; NaN if it was lost
+    public float get(int i) {
+        int micros = rttMicros[slot(i)];
+        return micros == LOST ? Float.NaN : micros / 1000f;
+    }
+
+    private int slot(int i) {
+        int start = size == rttMicros.length ? head : 0;
+        return (start + i) % rttMicros.length;
+    }
+
+    // Spreads the held samples over at most columns points, oldest first, and returns how
+    // many were filled: each gets its worst RTT in milliseconds (NaN if every sample in it
+    // was lost) and whether any of its samples was lost. With fewer samples than columns,
+    // each sample gets a column of its own.
+    public int reduce(int columns, float[] worstMillis, boolean[] anyLost) {
+        int used = Math.min(columns, size);
+        for (int c = 0; c < used; c++) {
+            // Column c covers samples [c * size / used, (c + 1) * size / used)
+            int from = (int) ((long) c * size / used);
+            int to = (int) ((long) (c + 1) * size / used);
+            int worst = LOST;
+            boolean hadLoss = false;
+            for (int i = from; i < to; i++) {
+                int micros = rttMicros[slot(i)];
+                if (micros == LOST) {
+                    hadLoss = true;
+                } else if (micros > worst) {
+                    worst = micros;
+                }
+            }
+            worstMillis[c] = worst == LOST ? Float.NaN : worst / 1000f;
+            anyLost[c] = hadLoss;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.netanalyzer;
+
+import java.io.Serializable;
+
+// Immutable 48-bit MAC address held in a long. Parsed once, where it enters the app (the
+// ARP table), and passed around as-is; the text form is only built for display.
+public final class MacAddress implements Serializable, Comparable<MacAddress> {
+    private static final long serialVersionUID = 1L;
+
+    // First-octet flag bits (IEEE 802): I/G and U/L
+    private static final long MULTICAST_BIT = 0x01L << 40;
+    private static final long LOCAL_BIT = 0x02L << 40;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final long value;
+
+    private MacAddress(long value) {
+        this.value = value;
+    }
+
+    public static MacAddress of(long value) {
+        return new MacAddress(value & 0xFFFFFFFFFFFFL);
+    }
+
+    // Returns null for anything that isn't a usable unicast address: malformed text or
+    // the all-zero placeholder the kernel reports for incomplete ARP entries
+    public static MacAddress parse(CharSequence text) {
+        long value = parse(text, 0, text == null ? 0 : text.length());
+        return value <= 0 ? null : new MacAddress(value);
+    }
+
+    // Parses the 12 hex digits of text[start, end) in any of the usual notations
+    // (aa:bb:.., aa-bb-.., aabb.ccdd.eeff). Returns -1 if it isn't a MAC.
+    public static long parse(CharSequence text, int start, int end) {
+        if (text == null) return -1;
+        long value = 0;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            int d = Character.digit(c, 16);
+            if (d >= 0) {
+                if (++digits > 12) return -1;
+                value = (value << 4) | d;
+            } else if (c != ':' && c != '-' && c != '.') {
+                return -1;
+            }
+        }
+        return digits == 12 ? value : -1;
+    }
+
+    public long toLong() {
+        return value;
+    }
+
+    // 24-bit organizationally unique identifier
+    public int getOui() {
+        return (int) (value >>> 24);
+    }
+
+    public boolean isMulticast() {
+        return (value & MULTICAST_BIT) != 0;
+    }
+
+    public boolean isLocallyAdministered() {
+        return (value & LOCAL_BIT) != 0;
+    }
+
+    // Android 10+, iOS 14+ and Windows use locally administered unicast addresses for
+    // per-network MAC randomization; these have no registered vendor
+    public boolean isRandomized() {
+        return isLocallyAdministered() && !isMulticast();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof MacAddress && ((MacAddress) o).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(value);
+    }
+
+    @Override
+    public int compareTo(MacAddress other) {
+        return Long.compare(value, other.value);
+    }
+
+    @Override
+    public String toString() {
+        char[] out = new char[17];
+        for (int i = 0; i < 6; i++) {
+            int octet = (int) (value >>> (40 - 8 * i)) & 0xFF;
+            int p = i * 3;
+            out[p] = HEX[octet >>> 4];
+            out[p + 1] = HEX[octet & 0xF];
+            if (i < 5) out[p + 2] = ':';
+        }
+        return new String(out);
+    }
+}
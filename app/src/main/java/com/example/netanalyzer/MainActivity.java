@@ -4,10 +4,16 @@ import android.Manifest;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.net.ConnectivityManager;
 import android.net.DhcpInfo;
+import android.net.LinkAddress;
+import android.net.LinkProperties;
+import android.net.Network;
 import android.net.wifi.WifiManager;
 import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.View;
 import android.widget.FrameLayout;
@@ -25,21 +31,27 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.button.MaterialButton;
+import com.google.android.material.switchmaterial.SwitchMaterial;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.IOException;
 import java.io.Serializable;
+import java.net.Inet4Address;
 import java.net.InetAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -47,7 +59,8 @@ public class MainActivity extends AppCompatActivity {
     private RecyclerView devicesRecyclerView;
     private DeviceAdapter deviceAdapter;
     private TextView statusTextView, deviceCountTextView;
-    private MaterialButton scanButton;
+    private MaterialButton scanButton, pingAllButton;
+    private SwitchMaterial tcpProbeSwitch, deltaScanSwitch;
     private ProgressBar progressBar;
     private BottomNavigationView bottomNavigationView;
     private FrameLayout fragmentContainer;
@@ -55,10 +68,23 @@ public class MainActivity extends AppCompatActivity {
 
     // Data
     private List<Device> deviceList = new ArrayList<>();
+    // Listed devices by IP (main thread only), so a rescan updates rows in place
+    private final Map<String, Device> devicesByIp = new HashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     // Network
     private WifiManager wifiManager;
     private String gateway;
+    private Ipv4Subnet subnet;
+
+    // Delta rescans (main thread only): seeded by the last full scan
+    private DeltaScanner deltaScanner;
+    private boolean scanRunning = false;
+    private NetworkScannerTask scanTask;
+    private DeltaScanTask deltaTask;
+    // Cycles run here rather than on AsyncTask's shared serial executor, where each one
+    // would queue behind (and hold up) every other task in the app
+    private final ExecutorService deltaExecutor = Executors.newSingleThreadExecutor();
 
     // Permissions
     private static final String[] REQUIRED_PERMISSIONS = {
@@ -69,7 +95,11 @@ public class MainActivity extends AppCompatActivity {
             Manifest.permission.ACCESS_COARSE_LOCATION
     };
     private static final int PERMISSION_REQUEST_CODE = 100;
+    static final int DEVICE_DETAILS_REQUEST = 101;
     private static final String TAG = "NetAnalyzer";
+    private static final long ARP_POLL_MS = 250;
+    private static final int INVENTORY_LOAD_LIMIT = 512;
+    private static final long DELTA_INTERVAL_MS = 5000;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -82,6 +112,30 @@ public class MainActivity extends AppCompatActivity {
         setupWiFiManager();
         checkAndRequestPermissions();
         setupBottomNavigation();
+        loadInventory();
+    }
+
+    // Shows the stored device list straight away; a scan then updates it in place
+    private void loadInventory() {
+        DeviceInventory inventory = DeviceInventory.get(this);
+        new Thread(() -> {
+            List<Device> stored;
+            try {
+                stored = inventory.loadRecent(INVENTORY_LOAD_LIMIT);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to load device inventory: " + e.getMessage());
+                return;
+            }
+            mainHandler.post(() -> {
+                for (Device device : stored) {
+                    // A scan that started first has already listed this address
+                    if (devicesByIp.containsKey(device.ipAddress)) continue;
+                    devicesByIp.put(device.ipAddress, device);
+                    deviceAdapter.addDevice(device);
+                }
+                updateDeviceCount(deviceList.size());
+            });
+        }, "InventoryLoad").start();
     }
 
     private void initializeViews() {
@@ -90,6 +144,9 @@ public class MainActivity extends AppCompatActivity {
         statusTextView = findViewById(R.id.statusTextView);
         deviceCountTextView = findViewById(R.id.deviceCountTextView);
         scanButton = findViewById(R.id.scanButton);
+        pingAllButton = findViewById(R.id.pingAllButton);
+        tcpProbeSwitch = findViewById(R.id.tcpProbeSwitch);
+        deltaScanSwitch = findViewById(R.id.deltaScanSwitch);
         progressBar = findViewById(R.id.progressBar);
         bottomNavigationView = findViewById(R.id.bottom_navigation);
         fragmentContainer = findViewById(R.id.fragment_container);
@@ -104,12 +161,43 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
+        pingAllButton.setOnClickListener(v -> openPingDashboard());
+
+        deltaScanSwitch.setOnCheckedChangeListener((button, checked) -> {
+            if (!checked) {
+                mainHandler.removeCallbacks(deltaTick);
+            } else if (deltaScanner != null) {
+                scheduleDeltaScan(0);
+            } else {
+                updateStatus("Delta rescans start after the next full scan");
+            }
+        });
+
         // Setup device adapter
         deviceAdapter = new DeviceAdapter(this, deviceList);
         devicesRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         devicesRecyclerView.setAdapter(deviceAdapter);
     }
 
+    // Pings every device of the current scan result at once
+    private void openPingDashboard() {
+        List<String> ips = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (Device device : deviceList) {
+            if (!device.isConnected || device.ipAddress == null) continue;
+            ips.add(device.ipAddress);
+            names.add(device.getDisplayName());
+        }
+        if (ips.isEmpty()) {
+            showToast("Scan the network first");
+            return;
+        }
+        Intent intent = new Intent(this, PingDashboardActivity.class);
+        intent.putExtra(PingDashboardActivity.EXTRA_IPS, ips.toArray(new String[0]));
+        intent.putExtra(PingDashboardActivity.EXTRA_NAMES, names.toArray(new String[0]));
+        startActivity(intent);
+    }
+
     private void setupRecyclerView() {
         // Already done in initializeViews()
     }
@@ -233,86 +321,210 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // DeviceDetailsActivity returns the device with its port scan's services and the type
+    // they point to (already saved to the inventory); copy them onto the listed row
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode != DEVICE_DETAILS_REQUEST || resultCode != RESULT_OK || data == null) return;
+        Device scanned = (Device) data.getSerializableExtra("device");
+        if (scanned == null) return;
+        Device device = devicesByIp.get(scanned.ipAddress);
+        // A delta rescan may have given the address to another device in the meantime
+        if (device == null || (device.macAddress != null && scanned.macAddress != null
+                && !device.macAddress.equals(scanned.macAddress))) {
+            return;
+        }
+        device.services = scanned.services;
+        device.deviceType = scanned.deviceType;
+        deviceAdapter.notifyDeviceChanged(device);
+    }
+
     private void startNetworkScan() {
         if (!wifiManager.isWifiEnabled()) {
             showToast("Please enable WiFi first");
             return;
         }
-        new NetworkScannerTask().execute();
+        if (scanRunning) return;
+        mainHandler.removeCallbacks(deltaTick);
+        // The full scan reseeds the delta scanner; a cycle still in flight is discarded
+        if (deltaTask != null) deltaTask.cancel(false);
+        scanTask = new NetworkScannerTask();
+        scanTask.execute();
+    }
+
+    @Override
+    protected void onDestroy() {
+        mainHandler.removeCallbacks(deltaTick);
+        if (scanTask != null) scanTask.cancelScan();
+        if (deltaTask != null) deltaTask.cancel(true);
+        deltaExecutor.shutdownNow();
+        super.onDestroy();
+    }
+
+    private final Runnable deltaTick = () -> {
+        if (scanRunning || deltaScanner == null || !deltaScanSwitch.isChecked() || isDestroyed()) return;
+        deltaTask = new DeltaScanTask(deltaScanner);
+        deltaTask.executeOnExecutor(deltaExecutor);
+    };
+
+    private void scheduleDeltaScan(long delayMs) {
+        mainHandler.removeCallbacks(deltaTick);
+        mainHandler.postDelayed(deltaTick, delayMs);
+    }
+
+    // Guesses the type of a scanned device; the gateway is always the router
+    private String classify(ScanEntry entry) {
+        if (entry.ip.equals(gateway)) return "Router/Gateway";
+        return DeviceClassifier.guessDeviceType(MainActivity.this, entry.vendor, entry.hostname, entry.ip,
+                entry.known != null ? entry.known.services : null);
+    }
+
+    private String displayVendor(ScanEntry entry) {
+        return entry.ip.equals(gateway) ? "Router Device" : entry.vendor;
+    }
+
+    // Merges scanned devices into the inventory in one batch. Returns the records with
+    // their stored history filled in, or null if the write failed.
+    private List<DeviceInventory.Record> recordSightings(List<ScanEntry> entries, long scanTime) {
+        List<DeviceInventory.Record> records = new ArrayList<>(entries.size());
+        for (ScanEntry entry : entries) {
+            String vendor = entry.mac != null ? entry.vendor : null;
+            // Without a MAC this scan, file the sighting under the one the list already has
+            MacAddress mac = entry.mac != null ? entry.mac : entry.known != null ? entry.known.mac : null;
+            records.add(new DeviceInventory.Record(entry.ip, mac, entry.hostname,
+                    vendor, entry.deviceType));
+        }
+        try {
+            DeviceInventory.get(this).merge(records, scanTime);
+            return records;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to save device inventory: " + e.getMessage());
+            return null;
+        }
     }
 
-    private class NetworkScannerTask extends AsyncTask<Void, String, List<Device>> {
+    // Main thread: what the list knows about each listed IP, for a scan's background threads
+    private Map<String, KnownDevice> knownDevices() {
+        Map<String, KnownDevice> known = new HashMap<>();
+        for (Device device : deviceList) {
+            known.put(device.ipAddress, new KnownDevice(device.macAddress, device.services));
+        }
+        return known;
+    }
+
+    // Main thread: copies merged history onto the listed devices
+    private static void applyHistory(List<ScanEntry> entries, List<DeviceInventory.Record> records,
+                                     long scanTime) {
+        for (int i = 0; i < entries.size(); i++) {
+            Device device = entries.get(i).device;
+            if (device == null) continue;
+            device.firstSeen = new Date(records.get(i).getFirstSeen());
+            device.lastSeen = new Date(scanTime);
+            device.timesSeen = records.get(i).getTimesSeen();
+        }
+    }
+
+    private class NetworkScannerTask extends AsyncTask<Void, String, Integer> {
+
+        private ScanMetrics metrics;
+        private boolean useTcpProbe;
+        // Whether the sweep that ran was the TCP one (it falls back to isReachable)
+        private boolean sweptWithTcp;
+        private final ArpTableReader arpReader = new ArpTableReader(ArpTableReader.PROC_NET_ARP);
+        private int neighborsChecked = 0;
+        private DeltaScanner nextDeltaScanner;
+        private Map<String, KnownDevice> knownDevices;
+        // Stops whichever sweep is running
+        private volatile Runnable cancelSweep;
+
+        void cancelScan() {
+            cancel(false);
+            Runnable cancel = cancelSweep;
+            if (cancel != null) cancel.run();
+        }
 
         @Override
         protected void onPreExecute() {
+            scanRunning = true;
             progressBar.setVisibility(View.VISIBLE);
             scanButton.setEnabled(false);
-            deviceList.clear();
-            deviceAdapter.notifyDataSetChanged();
+            useTcpProbe = tcpProbeSwitch.isChecked();
+            knownDevices = knownDevices();
+            // Keep the list; every row stays offline until this scan sees it again
+            for (Device device : deviceList) {
+                device.isConnected = false;
+            }
+            deviceAdapter.notifyAllChanged();
             updateStatus("Starting network scan...");
         }
 
         @Override
-        protected List<Device> doInBackground(Void... voids) {
-            List<Device> discoveredDevices = new ArrayList<>();
+        protected Integer doInBackground(Void... voids) {
+            int deviceCount = 0;
+            metrics = new ScanMetrics();
 
             try {
                 // Get network information
                 DhcpInfo dhcpInfo = wifiManager.getDhcpInfo();
-                gateway = intToIp(dhcpInfo.gateway);
-                String myIp = intToIp(wifiManager.getConnectionInfo().getIpAddress());
+                int gatewayAddress = Ipv4Subnet.fromLittleEndian(dhcpInfo.gateway);
+                int myAddress = Ipv4Subnet.fromLittleEndian(
+                        wifiManager.getConnectionInfo().getIpAddress());
+                gateway = Ipv4Subnet.format(gatewayAddress);
+                String myIp = Ipv4Subnet.format(myAddress);
 
                 publishProgress("My IP: " + myIp);
                 publishProgress("Gateway: " + gateway);
 
-                // Calculate subnet
-                String subnet = getSubnet(myIp);
-                publishProgress("Scanning subnet: " + subnet + "0/24");
-
-                // Scan for active devices
-                List<String> activeIPs = scanSubnet(subnet);
-                publishProgress("Found " + activeIPs.size() + " active IPs");
-
-                // Get MAC addresses from ARP (will fail on non-rooted)
-                Map<String, String> arpTable = readARPTable();
-
-                // Create device objects
-                for (String ip : activeIPs) {
-                    Device device = new Device();
-                    device.ipAddress = ip;
-
-                    // Get MAC from ARP or set as Unknown
-                    String mac = arpTable.get(ip);
-                    if (mac == null || mac.equals("00:00:00:00:00:00")) {
-                        device.macAddress = "Unknown";
-                        device.vendor = "Unknown Vendor";
-                    } else {
-                        device.macAddress = mac;
-                        // Use OUI database for vendor detection
-                        device.vendor = OuiDatabaseHelper.getVendorFromMac(MainActivity.this, mac);
-                    }
-
-                    // Try to get hostname
-                    try {
-                        String hostname = InetAddress.getByName(ip).getHostName();
-                        if (!hostname.equals(ip)) {
-                            device.hostname = hostname;
-                        }
-                    } catch (Exception e) {
-                        // Keep default
-                    }
-
-                    // Guess device type with IP for router detection
-                    device.deviceType = OuiDatabaseHelper.guessDeviceType(device.vendor, device.hostname, ip);
+                // Calculate subnet from the interface's real prefix length
+                subnet = detectSubnet(myAddress);
+                publishProgress("Scanning subnet: " + subnet + " (" + subnet.getHostCount() + " hosts)");
+
+                // Scan for active devices; each one is shown as soon as it answers
+                List<ScanEntry> entries = scanSubnet(subnet, gatewayAddress);
+                if (isCancelled()) return deviceCount;
+                publishProgress("Found " + entries.size() + " active IPs");
+
+                // Pick up MACs the kernel learned after the last poll (unreadable on
+                // non-rooted Android 10+)
+                long arpStart = System.nanoTime();
+                applyNeighbors(entries);
+                metrics.setArpNanos(System.nanoTime() - arpStart);
+                for (ScanEntry entry : entries) {
+                    if (entry.mac == null) postEnrichment(entry);
+                }
 
-                    // Check if this is the gateway/router
-                    if (ip.equals(gateway)) {
-                        device.deviceType = "Router/Gateway";
-                        device.vendor = "Router Device";
-                    }
+                // Reverse DNS runs as its own bounded, deadline-limited stage
+                publishProgress("Resolving hostnames...");
+                Map<String, ScanEntry> byIp = new HashMap<>();
+                List<String> ips = new ArrayList<>();
+                for (ScanEntry entry : entries) {
+                    byIp.put(entry.ip, entry);
+                    ips.add(entry.ip);
+                }
+                DnsCache.configure(MainActivity.this);
+                HostnameResolver resolver = new HostnameResolver(subnet + "@" + gateway);
+                HostnameResolver.Stats hostnameStats = resolver.resolveAll(ips, (ip, hostname) -> {
+                    ScanEntry entry = byIp.get(ip);
+                    entry.hostname = hostname;
+                    postEnrichment(entry);
+                });
+                metrics.setHostnameStats(hostnameStats);
 
-                    discoveredDevices.add(device);
-                    publishProgress("Found: " + ip);
+                publishProgress("Saving device inventory...");
+                long scanTime = System.currentTimeMillis();
+                List<DeviceInventory.Record> records = recordSightings(entries, scanTime);
+                if (records != null) {
+                    mainHandler.post(() -> applyHistory(entries, records, scanTime));
+                }
+                deviceCount = entries.size();
+
+                // Later delta rescans start from what this sweep found
+                nextDeltaScanner = new DeltaScanner(subnet,
+                        sweptWithTcp ? TCP_DELTA_PROBER : REACHABLE_DELTA_PROBER,
+                        new ArpTableReader(ArpTableReader.PROC_NET_ARP));
+                for (ScanEntry entry : entries) {
+                    nextDeltaScanner.addKnownHost(entry.address, entry.mac != null ? entry.mac.toLong() : -1);
                 }
 
             } catch (Exception e) {
@@ -320,7 +532,62 @@ public class MainActivity extends AppCompatActivity {
                 Log.e(TAG, "Scan error: " + e.getMessage());
             }
 
-            return discoveredDevices;
+            metrics.markFinished();
+            Log.d(TAG, "Scan metrics: " + metrics);
+            return deviceCount;
+        }
+
+        // Called from sweep threads: show the device straight away, enrichment follows later
+        private ScanEntry onDeviceFound(int address) {
+            String ip = Ipv4Subnet.format(address);
+            ScanEntry entry = new ScanEntry(address, ip);
+            entry.known = knownDevices.get(ip);
+
+            metrics.markFirstDevice();
+            mainHandler.post(() -> {
+                Device device = devicesByIp.get(ip);
+                if (device != null) {
+                    // Known from the inventory or an earlier scan: bring the row back online
+                    device.isConnected = true;
+                    device.lastSeen = new Date();
+                    entry.device = device;
+                    deviceAdapter.notifyDeviceChanged(device);
+                    return;
+                }
+                device = new Device();
+                device.ipAddress = ip;
+                if (ip.equals(gateway)) {
+                    device.deviceType = "Router/Gateway";
+                }
+                entry.device = device;
+                devicesByIp.put(ip, device);
+                deviceAdapter.addDevice(device);
+                updateDeviceCount(deviceList.size());
+            });
+            return entry;
+        }
+
+        // Copies the background thread's view of a device onto the shared Device on the
+        // main thread, then refreshes just that row. Only what this scan learned is copied,
+        // so a row restored from the inventory keeps its MAC, name and type when the ARP
+        // table can't be read.
+        private void postEnrichment(ScanEntry entry) {
+            MacAddress mac = entry.mac;
+            String hostname = entry.hostname;
+            boolean identified = mac != null || hostname != null || entry.ip.equals(gateway);
+            String type = identified ? classify(entry) : null;
+            String vendorName = displayVendor(entry);
+            entry.deviceType = type;
+            mainHandler.post(() -> {
+                Device device = entry.device;
+                if (mac != null) device.macAddress = mac;
+                if (hostname != null) device.hostname = hostname;
+                if (identified) {
+                    device.vendor = vendorName;
+                    device.deviceType = type;
+                }
+                deviceAdapter.notifyDeviceChanged(device);
+            });
         }
 
         @Override
@@ -329,83 +596,334 @@ public class MainActivity extends AppCompatActivity {
         }
 
         @Override
-        protected void onPostExecute(List<Device> devices) {
+        protected void onPostExecute(Integer found) {
+            scanTask = null;
+            scanRunning = false;
             progressBar.setVisibility(View.GONE);
             scanButton.setEnabled(true);
+            if (nextDeltaScanner != null) {
+                deltaScanner = nextDeltaScanner;
+                if (deltaScanSwitch.isChecked()) scheduleDeltaScan(DELTA_INTERVAL_MS);
+            }
+            updateDeviceCount(deviceList.size());
 
-            deviceList.clear();
-            deviceList.addAll(devices);
-            deviceAdapter.notifyDataSetChanged();
-            updateDeviceCount(devices.size());
-
-            if (devices.isEmpty()) {
-                updateStatus("No devices found");
+            String summary = "\n" + metrics.getSummary();
+            if (found == 0) {
+                updateStatus("No devices found" + summary);
             } else {
-                updateStatus("Scan complete. Found " + devices.size() + " devices");
+                updateStatus("Scan complete. Found " + found + " devices" + summary);
+            }
+        }
+
+        private Ipv4Subnet detectSubnet(int myAddress) {
+            int prefix = -1;
+            try {
+                ConnectivityManager cm = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+                Network network = cm != null ? cm.getActiveNetwork() : null;
+                LinkProperties linkProperties = network != null ? cm.getLinkProperties(network) : null;
+                if (linkProperties != null) {
+                    for (LinkAddress linkAddress : linkProperties.getLinkAddresses()) {
+                        InetAddress address = linkAddress.getAddress();
+                        if (address instanceof Inet4Address
+                                && Ipv4Subnet.fromInetAddress(address) == myAddress) {
+                            prefix = linkAddress.getPrefixLength();
+                            break;
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                Log.d(TAG, "LinkProperties unavailable: " + e.getMessage());
             }
+
+            if (prefix < 0) prefix = prefixFromInterfaces(myAddress);
+            if (prefix < 0) prefix = Ipv4Subnet.DEFAULT_PREFIX;
+            return Ipv4Subnet.of(myAddress, prefix);
         }
 
-        private String getSubnet(String ip) {
-            if (ip == null) return "192.168.1.";
-            String[] parts = ip.split("\\.");
-            if (parts.length >= 3) {
-                return parts[0] + "." + parts[1] + "." + parts[2] + ".";
+        private int prefixFromInterfaces(int myAddress) {
+            try {
+                Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+                while (interfaces != null && interfaces.hasMoreElements()) {
+                    for (InterfaceAddress ia : interfaces.nextElement().getInterfaceAddresses()) {
+                        if (Ipv4Subnet.fromInetAddress(ia.getAddress()) == myAddress) {
+                            return ia.getNetworkPrefixLength();
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                Log.d(TAG, "Interface prefix lookup failed: " + e.getMessage());
             }
-            return "192.168.1.";
+            return -1;
         }
 
-        private List<String> scanSubnet(String subnet) {
-            List<String> activeIPs = new ArrayList<>();
-            ExecutorService executor = Executors.newFixedThreadPool(20);
+        private List<ScanEntry> scanSubnet(Ipv4Subnet subnet, int gatewayAddress) {
+            List<ScanEntry> entries = new ArrayList<>();
+            Set<Integer> seen = new HashSet<>();
+            int progressStep = Math.max(32, subnet.getHostCount() / 100);
+
+            SubnetSweeper.Listener listener = new SubnetSweeper.Listener() {
+                @Override
+                public void onHostAlive(int address, long rttNanos) {
+                    synchronized (entries) {
+                        // A fallback sweep may report hosts the first one already found
+                        if (!seen.add(address)) return;
+                        entries.add(onDeviceFound(address));
+                    }
+                }
+
+                @Override
+                public void onProgress(int completed, int total) {
+                    if (completed % progressStep == 0) {
+                        publishProgress("Scanning... " + completed + "/" + total);
+                    }
+                }
+            };
 
-            for (int i = 1; i < 255; i++) {
-                final String ip = subnet + i;
-                executor.execute(() -> {
+            // Poll the neighbor table while sweeping so MACs show up as the kernel learns them
+            Thread arpPoller = new Thread(() -> {
+                while (applyNeighbors(entries)) {
                     try {
-                        if (InetAddress.getByName(ip).isReachable(300)) {
-                            synchronized (activeIPs) {
-                                activeIPs.add(ip);
-                            }
-                        }
-                    } catch (Exception e) {
-                        // Ignore - host not reachable
+                        Thread.sleep(ARP_POLL_MS);
+                    } catch (InterruptedException e) {
+                        return;
                     }
-                });
+                }
+            }, "ArpPoller");
+            arpPoller.setDaemon(true);
+            arpPoller.start();
+
+            SubnetSweeper.SweepStats stats = null;
+            if (useTcpProbe) {
+                // One selector thread, many TCP connects in flight; SYN-ACK or RST = alive
+                try {
+                    NioConnectProber prober = new NioConnectProber();
+                    cancelSweep = prober::cancel;
+                    // Cancelled before the handle was set
+                    if (isCancelled()) prober.cancel();
+                    stats = prober.sweep(subnet, NioConnectProber.DEFAULT_PORTS, listener);
+                    sweptWithTcp = true;
+                } catch (IOException e) {
+                    Log.w(TAG, "TCP probe sweep failed, falling back to isReachable: " + e.getMessage());
+                }
+            }
+            if (stats == null && !isCancelled()) {
+                SubnetSweeper sweeper = new SubnetSweeper();
+                cancelSweep = sweeper::cancel;
+                if (isCancelled()) sweeper.cancel();
+                stats = sweeper.sweep(subnet, gatewayAddress, listener);
             }
 
-            executor.shutdown();
+            arpPoller.interrupt();
             try {
-                executor.awaitTermination(10, TimeUnit.SECONDS);
+                arpPoller.join();
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
+            if (stats == null) return entries;
 
-            return activeIPs;
+            Log.d(TAG, "Sweep finished: " + stats);
+            metrics.setSweepStats(stats);
+            publishProgress(stats.getSummary());
+            return entries;
         }
 
-        private Map<String, String> readARPTable() {
-            Map<String, String> arpTable = new HashMap<>();
-            try (BufferedReader br = new BufferedReader(new FileReader("/proc/net/arp"))) {
-                String line;
-                br.readLine(); // Skip header
-                while ((line = br.readLine()) != null) {
-                    String[] parts = line.split("\\s+");
-                    if (parts.length >= 4 && !parts[3].equals("00:00:00:00:00:00")) {
-                        arpTable.put(parts[0], parts[3].toUpperCase());
-                    }
-                }
-            } catch (Exception e) {
+        // Fills in the MAC and vendor of every entry the neighbor table now knows. Runs on
+        // the poller during the sweep and once more afterwards, never concurrently.
+        // Returns false once the table turns out to be unreadable.
+        private boolean applyNeighbors(List<ScanEntry> entries) {
+            boolean changed;
+            try {
+                changed = arpReader.poll();
+            } catch (IOException e) {
                 // ARP reading fails on non-rooted devices - that's normal
                 Log.d(TAG, "ARP table read failed (normal for non-rooted): " + e.getMessage());
+                return false;
+            }
+
+            ScanEntry[] snapshot;
+            synchronized (entries) {
+                if (!changed && entries.size() == neighborsChecked) return true;
+                neighborsChecked = entries.size();
+                snapshot = entries.toArray(new ScanEntry[0]);
+            }
+            for (ScanEntry entry : snapshot) {
+                if (entry.mac != null) continue;
+                long mac = arpReader.macFor(entry.address);
+                if (mac < 0) continue;
+                entry.mac = MacAddress.of(mac);
+                // Use OUI database for vendor detection
+                entry.vendor = OuiDatabaseHelper.getVendorFromMac(MainActivity.this, entry.mac);
+                postEnrichment(entry);
+            }
+            return true;
+        }
+    }
+
+    // Delta rescans probe the way the seeding sweep did: a host that only answers TCP
+    // would otherwise be found by the full scan and then "leave" on every delta pass
+    private static final DeltaScanner.Prober REACHABLE_DELTA_PROBER = (addresses, onAlive) ->
+            new SubnetSweeper().sweep(addresses, deltaListener(onAlive));
+
+    private static final DeltaScanner.Prober TCP_DELTA_PROBER = (addresses, onAlive) -> {
+        try {
+            new NioConnectProber().sweep(addresses, NioConnectProber.DEFAULT_PORTS, deltaListener(onAlive));
+        } catch (IOException e) {
+            Log.w(TAG, "TCP delta probe failed, falling back to isReachable: " + e.getMessage());
+            REACHABLE_DELTA_PROBER.probe(addresses, onAlive);
+        }
+    };
+
+    private static SubnetSweeper.Listener deltaListener(IntConsumer onAlive) {
+        return new SubnetSweeper.Listener() {
+            @Override
+            public void onHostAlive(int address, long rttNanos) {
+                onAlive.accept(address);
+            }
+
+            @Override
+            public void onProgress(int completed, int total) {
+            }
+        };
+    }
+
+    // One delta rescan cycle: re-probes known hosts plus a slice of the subnet, enriches
+    // only the hosts that joined or changed, and applies the change set to the list
+    private class DeltaScanTask extends AsyncTask<Void, Void, DeltaScanner.ChangeSet> {
+        private final DeltaScanner scanner;
+        // Joined and changed hosts, with the change each one came from
+        private final List<ScanEntry> updated = new ArrayList<>();
+        private final List<DeltaScanner.Change> sources = new ArrayList<>();
+        private List<DeviceInventory.Record> records;
+        private long scanTime;
+        private Map<String, KnownDevice> knownDevices;
+
+        DeltaScanTask(DeltaScanner scanner) {
+            this.scanner = scanner;
+        }
+
+        @Override
+        protected void onPreExecute() {
+            knownDevices = knownDevices();
+        }
+
+        @Override
+        protected DeltaScanner.ChangeSet doInBackground(Void... voids) {
+            DeltaScanner.ChangeSet changes = scanner.runCycle();
+
+            Map<String, ScanEntry> byIp = new HashMap<>();
+            List<String> ips = new ArrayList<>();
+            List<DeltaScanner.Change> toEnrich = new ArrayList<>(changes.getJoined());
+            toEnrich.addAll(changes.getChanged());
+            for (DeltaScanner.Change change : toEnrich) {
+                String ip = Ipv4Subnet.format(change.getAddress());
+                ScanEntry entry = new ScanEntry(change.getAddress(), ip);
+                entry.known = knownDevices.get(ip);
+                if (change.getMac() >= 0) {
+                    entry.mac = MacAddress.of(change.getMac());
+                    entry.vendor = OuiDatabaseHelper.getVendorFromMac(MainActivity.this, entry.mac);
+                }
+                updated.add(entry);
+                sources.add(change);
+                byIp.put(ip, entry);
+                ips.add(ip);
+            }
+            if (updated.isEmpty()) return changes;
+
+            DnsCache.configure(MainActivity.this);
+            HostnameResolver resolver = new HostnameResolver(scanner.getSubnet() + "@" + gateway);
+            resolver.resolveAll(ips, (ip, hostname) -> byIp.get(ip).hostname = hostname);
+            for (ScanEntry entry : updated) {
+                entry.deviceType = classify(entry);
+            }
+            scanTime = System.currentTimeMillis();
+            records = recordSightings(updated, scanTime);
+            return changes;
+        }
+
+        @Override
+        protected void onPostExecute(DeltaScanner.ChangeSet changes) {
+            for (int i = 0; i < updated.size(); i++) {
+                ScanEntry entry = updated.get(i);
+                DeltaScanner.Change change = sources.get(i);
+                Device device = devicesByIp.get(entry.ip);
+                if (change.isMove()) {
+                    Device moved = devicesByIp.remove(Ipv4Subnet.format(change.getPreviousAddress()));
+                    if (moved != null) {
+                        // Whatever was listed at the new address (a device that left) is
+                        // superseded by the one that moved there
+                        if (device != null && device != moved) deviceAdapter.removeDevice(device);
+                        device = moved;
+                    }
+                }
+                boolean added = device == null;
+                if (added) device = new Device();
+
+                device.ipAddress = entry.ip;
+                device.isConnected = true;
+                device.lastSeen = new Date();
+                // Without a MAC or hostname this cycle, keep what the list already knows
+                if (entry.mac != null) device.macAddress = entry.mac;
+                if (entry.hostname != null) device.hostname = entry.hostname;
+                if (entry.mac != null || entry.hostname != null || added) {
+                    device.vendor = displayVendor(entry);
+                    device.deviceType = entry.deviceType;
+                }
+                entry.device = device;
+                devicesByIp.put(entry.ip, device);
+                if (added) {
+                    deviceAdapter.addDevice(device);
+                } else {
+                    deviceAdapter.notifyDeviceChanged(device);
+                }
+            }
+
+            for (DeltaScanner.Change change : changes.getLeft()) {
+                Device device = devicesByIp.get(Ipv4Subnet.format(change.getAddress()));
+                if (device == null) continue;
+                device.isConnected = false;
+                deviceAdapter.notifyDeviceChanged(device);
             }
-            return arpTable;
+
+            if (records != null) applyHistory(updated, records, scanTime);
+            updateDeviceCount(deviceList.size());
+            updateStatus("Delta rescan: " + changes.getSummary());
+            Log.d(TAG, "Delta rescan: " + changes);
+
+            // A full scan in the meantime replaces the scanner and restarts the cycle itself
+            if (deltaScanner == scanner && deltaScanSwitch.isChecked()) {
+                scheduleDeltaScan(DELTA_INTERVAL_MS);
+            }
+        }
+    }
+
+    // Background thread's working copy of a discovered device
+    private static class ScanEntry {
+        // Listed row; assigned and read on the main thread only
+        Device device;
+        final int address;
+        final String ip;
+        MacAddress mac;
+        // The listed device at this IP when the scan started (from the inventory or an
+        // earlier scan), or null
+        KnownDevice known;
+        String vendor = "Unknown Vendor";
+        String hostname;
+        String deviceType;
+
+        ScanEntry(int address, String ip) {
+            this.address = address;
+            this.ip = ip;
         }
+    }
+
+    // Snapshot of a listed device, safe to read from a scan's background threads
+    private static class KnownDevice {
+        final MacAddress mac;
+        final List<ServiceInfo> services;
 
-        private String intToIp(int addr) {
-            return ((addr & 0xFF) + "." +
-                    ((addr >> 8) & 0xFF) + "." +
-                    ((addr >> 16) & 0xFF) + "." +
-                    ((addr >> 24) & 0xFF));
+        KnownDevice(MacAddress mac, List<ServiceInfo> services) {
+            this.mac = mac;
+            this.services = services;
         }
     }
 
@@ -426,19 +944,29 @@ public class MainActivity extends AppCompatActivity {
         return gateway;
     }
 
+    // Get scanned subnet (CIDR notation) for DeviceDetailsActivity
+    public String getSubnetCidr() {
+        return subnet != null ? subnet.toString() : null;
+    }
+
     // Device model class
     static class Device implements Serializable {
+        private static final long serialVersionUID = 1L;
         String ipAddress;
-        String macAddress = "Unknown";
+        MacAddress macAddress;
         String hostname;
         String vendor = "Unknown Vendor";
         String deviceType = "Unknown";
         Date firstSeen;
         Date lastSeen;
         boolean isConnected = true;
+        // Scans this device has shown up in, per the inventory
+        int timesSeen = 1;
         int signalStrength = 0;
+        // Filled in by the port scan's banner grab
+        List<ServiceInfo> services;
 
-        // Constructor
+        // A newly discovered device; the inventory supplies the real history
         public Device() {
             Date now = new Date();
             this.firstSeen = now;
@@ -455,6 +983,10 @@ public class MainActivity extends AppCompatActivity {
             return "Unknown Device";
         }
 
+        String getMacText() {
+            return macAddress != null ? macAddress.toString() : "Unknown";
+        }
+
         String getFormattedFirstSeen() {
             if (firstSeen == null) return "Just now";
             return formatDate(firstSeen);
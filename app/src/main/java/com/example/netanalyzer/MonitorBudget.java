@@ -0,0 +1,112 @@
+package com.example.netanalyzer;
+
+import java.util.ArrayDeque;
+
+// Accounts what each background monitoring cycle costs (probes sent, estimated time the
+// Wi-Fi radio was kept in its high-power state, CPU time) over a rolling hour, and caps
+// it: once the hour's radio or CPU budget is spent, earliestAllowed() holds the next
+// wake-up back until enough old cycles have aged out of the window. Times are
+// milliseconds on a monotonic clock. Not thread-safe.
+public class MonitorBudget {
+
+    public static final long WINDOW_MS = 60 * 60_000;
+    // After the last packet of a burst the radio lingers before dropping back to
+    // power-save; counted once per cycle
+    public static final long RADIO_TAIL_MS = 200;
+
+    private final long radioBudgetMs;
+    private final long cpuBudgetMs;
+    private final ArrayDeque<Cycle> window = new ArrayDeque<>();
+
+    // Sums over the window
+    private long windowRadioMs = 0;
+    private long windowCpuMs = 0;
+    private int windowProbes = 0;
+
+    // Lifetime totals
+    private int totalCycles = 0;
+    private long totalRadioMs = 0;
+    private long totalCpuMs = 0;
+    private long totalProbes = 0;
+
+    private static class Cycle {
+        final long at;
+        final long radioMs;
+        final long cpuMs;
+        final int probes;
+
+        Cycle(long at, long radioMs, long cpuMs, int probes) {
+            this.at = at;
+            this.radioMs = radioMs;
+            this.cpuMs = cpuMs;
+            this.probes = probes;
+        }
+    }
+
+    public MonitorBudget(long radioBudgetMs, long cpuBudgetMs) {
+        this.radioBudgetMs = radioBudgetMs;
+        this.cpuBudgetMs = cpuBudgetMs;
+    }
+
+    // burstMs: from the first probe sent to the last answer or timeout
+    public void record(long now, int probes, long burstMs, long cpuMs) {
+        long radioMs = probes > 0 ? burstMs + RADIO_TAIL_MS : 0;
+        window.addLast(new Cycle(now, radioMs, cpuMs, probes));
+        windowRadioMs += radioMs;
+        windowCpuMs += cpuMs;
+        windowProbes += probes;
+        totalCycles++;
+        totalRadioMs += radioMs;
+        totalCpuMs += cpuMs;
+        totalProbes += probes;
+        expire(now);
+    }
+
+    // now if the budget allows another cycle, otherwise when it will
+    public long earliestAllowed(long now) {
+        expire(now);
+        long radio = windowRadioMs;
+        long cpu = windowCpuMs;
+        for (Cycle cycle : window) {
+            if (radio < radioBudgetMs && cpu < cpuBudgetMs) break;
+            radio -= cycle.radioMs;
+            cpu -= cycle.cpuMs;
+            if (radio < radioBudgetMs && cpu < cpuBudgetMs) return cycle.at + WINDOW_MS;
+        }
+        return now;
+    }
+
+    public boolean isOverBudget(long now) {
+        return earliestAllowed(now) > now;
+    }
+
+    private void expire(long now) {
+        while (!window.isEmpty() && window.peekFirst().at <= now - WINDOW_MS) {
+            Cycle cycle = window.pollFirst();
+            windowRadioMs -= cycle.radioMs;
+            windowCpuMs -= cycle.cpuMs;
+            windowProbes -= cycle.probes;
+        }
+    }
+
+    public long getWindowRadioMs() { return windowRadioMs; }
+    public long getWindowCpuMs() { return windowCpuMs; }
+    public int getWindowProbes() { return windowProbes; }
+    public int getTotalCycles() { return totalCycles; }
+    public long getTotalRadioMs() { return totalRadioMs; }
+    public long getTotalCpuMs() { return totalCpuMs; }
+    public long getTotalProbes() { return totalProbes; }
+
+    // Last hour's spend against the budget
+    public String getSummary() {
+        return windowProbes + " probes, radio " + windowRadioMs / 1000.0 + "/" + radioBudgetMs / 1000
+                + " s, CPU " + windowCpuMs / 1000.0 + "/" + cpuBudgetMs / 1000 + " s per hour";
+    }
+
+    @Override
+    public String toString() {
+        return "MonitorBudget{cycles=" + totalCycles + ", probes=" + totalProbes
+                + ", radioMs=" + totalRadioMs + ", cpuMs=" + totalCpuMs
+                + ", window=" + getSummary() + "}";
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.netanalyzer;
+
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructPollfd;
+import android.util.Log;
+import java.io.FileDescriptor;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Pings many IPv4 hosts at once from one thread and one unconnected ICMP datagram socket.
+// HostPingScheduler paces the sends and matches replies by sequence number; between
+// sends the thread sleeps in poll() until the next send, reply or timeout. Changed hosts
+// are reported in batches at most every UPDATE_INTERVAL_MS, from the pinger's thread.
+public class MultiHostPinger {
+    private static final String TAG = "MultiHostPinger";
+
+    // Overall probe budget, so a large network doesn't flood the Wi-Fi
+    public static final int MAX_PROBES_PER_SECOND = 50;
+    // No host is probed more often than this
+    public static final long MIN_INTERVAL_MS = 1000;
+    public static final long TIMEOUT_MS = 2000;
+    private static final long UPDATE_INTERVAL_MS = 250;
+    // Longest single poll(), so stop() is noticed promptly
+    private static final int POLL_SLICE_MS = 100;
+
+    public interface Listener {
+        void onStarted(List<HostPingScheduler.Snapshot> hosts, long roundNanos);
+        void onUpdate(List<HostPingScheduler.Snapshot> changed);
+        void onError(String error);
+    }
+
+    private final int[] addresses;
+    private final Listener listener;
+    private volatile boolean stopped = false;
+    private Thread thread;
+
+    public MultiHostPinger(int[] addresses, Listener listener) {
+        this.addresses = addresses;
+        this.listener = listener;
+    }
+
+    public void start() {
+        thread = new Thread(this::run, "MultiHostPinger");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    private void run() {
+        FileDescriptor fd;
+        try {
+            fd = Os.socket(OsConstants.AF_INET, OsConstants.SOCK_DGRAM, OsConstants.IPPROTO_ICMP);
+        } catch (ErrnoException e) {
+            Log.e(TAG, "ICMP socket unavailable: " + e.getMessage());
+            listener.onError("ICMP sockets are not available on this device");
+            return;
+        }
+        try {
+            // Replies are drained until EAGAIN
+            Os.fcntlInt(fd, OsConstants.F_SETFL, OsConstants.O_NONBLOCK);
+        } catch (ErrnoException e) {
+            Log.e(TAG, "Could not make the ICMP socket non-blocking: " + e.getMessage());
+            listener.onError("ICMP sockets are not available on this device");
+            closeQuietly(fd);
+            return;
+        }
+
+        long start = System.nanoTime();
+        HostPingScheduler scheduler = new HostPingScheduler(addresses, MAX_PROBES_PER_SECOND,
+                MIN_INTERVAL_MS, TIMEOUT_MS, start);
+        listener.onStarted(scheduler.snapshotAll(), scheduler.getRoundNanos());
+
+        byte[] request = new byte[IcmpPinger.HEADER_SIZE + IcmpPinger.PAYLOAD_SIZE];
+        byte[] reply = new byte[1500];
+        StructPollfd[] pollFds = {new StructPollfd()};
+        pollFds[0].fd = fd;
+        pollFds[0].events = (short) OsConstants.POLLIN;
+        long updateNanos = TimeUnit.MILLISECONDS.toNanos(UPDATE_INTERVAL_MS);
+        long nextUpdate = start + updateNanos;
+
+        try {
+            while (!stopped) {
+                long now = System.nanoTime();
+                if (now >= scheduler.nextSendAt()) {
+                    int seq = scheduler.nextProbe(now);
+                    int length = IcmpPinger.buildEchoRequest(request, seq, false);
+                    try {
+                        Os.sendto(fd, request, 0, length, 0,
+                                Ipv4Subnet.toInetAddress(scheduler.getProbeAddress(seq)), 0);
+                    } catch (Exception e) {
+                        // Unreachable network, full buffer...: counts as a lost probe
+                        scheduler.onSendFailed(seq);
+                    }
+                }
+                scheduler.expire(now);
+                if (now >= nextUpdate) {
+                    List<HostPingScheduler.Snapshot> changed = scheduler.drainChanged();
+                    if (!changed.isEmpty()) listener.onUpdate(changed);
+                    nextUpdate = now + updateNanos;
+                }
+
+                long wakeAt = Math.min(scheduler.nextSendAt(), Math.min(scheduler.nextDeadline(), nextUpdate));
+                long waitMs = TimeUnit.NANOSECONDS.toMillis(Math.max(0, wakeAt - System.nanoTime()));
+                pollFds[0].revents = 0;
+                if (Os.poll(pollFds, (int) Math.min(waitMs, POLL_SLICE_MS)) == 0) continue;
+
+                // Drain every reply that has arrived
+                while (true) {
+                    int received;
+                    try {
+                        received = Os.recvfrom(fd, reply, 0, reply.length, 0, null);
+                    } catch (ErrnoException e) {
+                        if (e.errno == OsConstants.EAGAIN) break;
+                        throw e;
+                    }
+                    int seq = IcmpPinger.parseEchoReply(reply, received, false);
+                    if (seq >= 0) scheduler.onReply(seq, System.nanoTime());
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Ping loop failed: " + e.getMessage(), e);
+            if (!stopped) listener.onError("Ping failed: " + e.getMessage());
+        } finally {
+            closeQuietly(fd);
+        }
+    }
+
+    private static void closeQuietly(FileDescriptor fd) {
+        try {
+            Os.close(fd);
+        } catch (ErrnoException e) {
+            Log.w(TAG, "Failed to close ICMP socket: " + e.getMessage());
+        }
+    }
+}
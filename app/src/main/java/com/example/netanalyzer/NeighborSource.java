@@ -0,0 +1,10 @@
+package com.example.netanalyzer;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Where ArpTableReader gets the kernel neighbor table text from. Production reads
+// /proc/net/arp; tests substitute fixture files.
+public interface NeighborSource {
+    InputStream open() throws IOException;
+}
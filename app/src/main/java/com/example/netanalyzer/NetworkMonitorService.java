@@ -0,0 +1,271 @@
+package com.example.netanalyzer;
+
+import android.app.AlarmManager;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.PowerManager;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Unattended presence/latency monitoring of the devices picked in DeviceDetailsActivity.
+// One ProbeScheduler on one background thread decides every wake-up, so all devices
+// that are (nearly) due are probed in a single burst. Offline devices back off, intervals
+// stretch on low battery or in power-save mode, and MonitorBudget caps the radio and CPU
+// time spent per hour. Each wake-up is an AlarmManager alarm on the elapsed-realtime
+// clock, allowed while idle, that starts this service in the foreground, so monitoring
+// goes on with the screen off and the app in the background; each burst holds a
+// partial wake lock only while it runs. In Doze, Android spaces such alarms to several
+// minutes apart. Stops itself when nothing is monitored.
+public class NetworkMonitorService extends Service {
+    private static final String TAG = "NetworkMonitor";
+    private static final String CHANNEL_ID = "network_monitor";
+    private static final int NOTIFICATION_ID = 1001;
+    private static final String ACTION_CYCLE = "com.example.netanalyzer.action.MONITOR_CYCLE";
+    // Upper bound on one burst's wake lock, should a sweep hang
+    private static final long BURST_WAKE_LOCK_MS = 60_000;
+
+    // Per-hour caps on the estimated radio-active time and on CPU time
+    private static final long RADIO_BUDGET_MS = 60_000;
+    private static final long CPU_BUDGET_MS = 30_000;
+
+    // Battery at or below this (unplugged) stretches every interval
+    private static final int LOW_BATTERY_PERCENT = 20;
+    private static final int LOW_POWER_STRETCH = 4;
+
+    private final ProbeScheduler scheduler = new ProbeScheduler();
+    private final MonitorBudget budget = new MonitorBudget(RADIO_BUDGET_MS, CPU_BUDGET_MS);
+    // Guarded by running on the monitor thread
+    private final Map<String, DeviceInventory.Monitor> monitors = new HashMap<>();
+
+    private HandlerThread thread;
+    private Handler handler;
+    private NotificationManager notificationManager;
+    private AlarmManager alarmManager;
+    private PendingIntent cycleAlarm;
+    private PowerManager.WakeLock wakeLock;
+    // Latest notification text, re-posted whenever the service is started again
+    private volatile String status = "Starting...";
+
+    // Starts the service, or makes a running one re-read the monitored devices
+    public static void refresh(Context context) {
+        ContextCompat.startForegroundService(context, new Intent(context, NetworkMonitorService.class));
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            notificationManager.createNotificationChannel(new NotificationChannel(CHANNEL_ID,
+                    "Network monitor", NotificationManager.IMPORTANCE_LOW));
+        }
+
+        alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
+        // From the background on O+ only a foreground-service start gets through, so the
+        // process can have gone idle between bursts
+        Intent cycle = new Intent(this, NetworkMonitorService.class).setAction(ACTION_CYCLE);
+        int alarmFlags = PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            cycleAlarm = PendingIntent.getForegroundService(this, 0, cycle, alarmFlags);
+        } else {
+            cycleAlarm = PendingIntent.getService(this, 0, cycle, alarmFlags);
+        }
+        PowerManager power = (PowerManager) getSystemService(Context.POWER_SERVICE);
+        wakeLock = power.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "NetAnalyzer:MonitorBurst");
+        wakeLock.setReferenceCounted(false);
+
+        thread = new HandlerThread("NetworkMonitor", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // Every start (refresh() or the alarm) is a foreground-service start that must be
+        // answered with startForeground, even while already in the foreground
+        startForeground(NOTIFICATION_ID, buildNotification(status));
+        if (intent != null && ACTION_CYCLE.equals(intent.getAction())) {
+            // The alarm only keeps the CPU awake until this call; hold it up to the burst
+            wakeLock.acquire(BURST_WAKE_LOCK_MS);
+            handler.post(runCycle);
+        } else {
+            handler.post(this::reloadMonitors);
+        }
+        return START_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    @Override
+    public void onDestroy() {
+        handler.removeCallbacksAndMessages(null);
+        alarmManager.cancel(cycleAlarm);
+        thread.quitSafely();
+        if (wakeLock.isHeld()) wakeLock.release();
+        Log.d(TAG, "Stopped: " + budget);
+        super.onDestroy();
+    }
+
+    // Monitor thread
+    private void reloadMonitors() {
+        List<DeviceInventory.Monitor> stored;
+        try {
+            stored = DeviceInventory.get(this).loadMonitors();
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to load monitored devices: " + e.getMessage());
+            stopSelf();
+            return;
+        }
+        if (stored.isEmpty()) {
+            stopSelf();
+            return;
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        Set<String> keys = new HashSet<>();
+        for (DeviceInventory.Monitor monitor : stored) {
+            int address = Ipv4Subnet.parse(monitor.getIp());
+            if (address == 0) continue;
+            keys.add(monitor.getKey());
+            monitors.put(monitor.getKey(), monitor);
+            scheduler.put(monitor.getKey(), address, monitor.getIntervalMs(), now);
+        }
+        monitors.keySet().retainAll(keys);
+        scheduler.retainAll(keys);
+        Log.d(TAG, "Monitoring " + scheduler.size() + " devices");
+        scheduleNext();
+    }
+
+    private void scheduleNext() {
+        handler.removeCallbacks(runCycle);
+        alarmManager.cancel(cycleAlarm);
+        long now = SystemClock.elapsedRealtime();
+        long next = scheduler.nextWakeup();
+        if (next == Long.MAX_VALUE) return;
+        long at = Math.max(next, budget.earliestAllowed(now));
+        if (at <= now) {
+            handler.post(runCycle);
+        } else {
+            alarmManager.setAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, at, cycleAlarm);
+        }
+    }
+
+    private final Runnable runCycle = () -> {
+        wakeLock.acquire(BURST_WAKE_LOCK_MS);
+        try {
+            probeDue();
+        } finally {
+            scheduleNext();
+            wakeLock.release();
+        }
+    };
+
+    // Monitor thread, under the burst wake lock
+    private void probeDue() {
+        scheduler.setStretch(isLowPower() ? LOW_POWER_STRETCH : 1);
+        long now = SystemClock.elapsedRealtime();
+        List<ProbeScheduler.Target> due = scheduler.collectDue(now);
+        if (due.isEmpty()) return;
+
+        int[] addresses = new int[due.size()];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = due.get(i).getAddress();
+        }
+        Map<Integer, Long> rtts = new HashMap<>();
+        long cpuStart = Process.getElapsedCpuTime();
+        long burstStart = SystemClock.elapsedRealtime();
+        new SubnetSweeper().sweep(addresses, new SubnetSweeper.Listener() {
+            @Override
+            public void onHostAlive(int address, long rttNanos) {
+                synchronized (rtts) {
+                    rtts.put(address, rttNanos);
+                }
+            }
+
+            @Override
+            public void onProgress(int completed, int total) {
+            }
+        });
+        long finished = SystemClock.elapsedRealtime();
+        budget.record(finished, addresses.length, finished - burstStart,
+                Process.getElapsedCpuTime() - cpuStart);
+
+        long checkedAt = System.currentTimeMillis();
+        List<DeviceInventory.Monitor> results = new ArrayList<>(due.size());
+        for (ProbeScheduler.Target target : due) {
+            Long rtt;
+            synchronized (rtts) {
+                rtt = rtts.get(target.getAddress());
+            }
+            scheduler.onResult(target, rtt != null, finished);
+            DeviceInventory.Monitor monitor = monitors.get(target.getKey());
+            if (monitor == null) continue;
+            monitor.setResult(checkedAt, rtt != null ? TimeUnit.NANOSECONDS.toMicros(rtt) : -1,
+                    target.getMisses());
+            results.add(monitor);
+        }
+        try {
+            DeviceInventory.get(this).recordMonitorResults(results);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to save monitor results: " + e.getMessage());
+        }
+
+        int online = 0;
+        for (DeviceInventory.Monitor monitor : monitors.values()) {
+            if (monitor.getLastChecked() != 0 && monitor.getMisses() == 0) online++;
+        }
+        status = online + "/" + monitors.size() + " online, " + budget.getSummary();
+        Log.d(TAG, "Cycle: probed " + addresses.length + ", " + status);
+        notificationManager.notify(NOTIFICATION_ID, buildNotification(status));
+    }
+
+    private boolean isLowPower() {
+        PowerManager power = (PowerManager) getSystemService(Context.POWER_SERVICE);
+        if (power != null && power.isPowerSaveMode()) return true;
+
+        Intent battery = registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null) return false;
+        boolean plugged = battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+        int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, 100);
+        return !plugged && level >= 0 && level * 100 <= LOW_BATTERY_PERCENT * scale;
+    }
+
+    private Notification buildNotification(String text) {
+        PendingIntent open = PendingIntent.getActivity(this, 0, new Intent(this, MainActivity.class),
+                PendingIntent.FLAG_IMMUTABLE);
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setContentTitle("Monitoring network devices")
+                .setContentText(text)
+                .setSmallIcon(android.R.drawable.stat_notify_sync)
+                .setContentIntent(open)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .build();
+    }
+}
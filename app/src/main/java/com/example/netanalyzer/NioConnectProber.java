@@ -0,0 +1,305 @@
+package com.example.netanalyzer;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.NoRouteToHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+// Non-blocking TCP connect prober. A single thread drives thousands of concurrent
+// connect attempts through one Selector; a completed handshake (OPEN) and a RST
+// (CLOSED) both prove that something is listening at the address.
+public class NioConnectProber {
+
+    // Ports that phones, PCs and IoT gear commonly answer on (62078 = iOS lockdownd,
+    // 8008 = Chromecast / Google Home)
+    public static final int[] DEFAULT_PORTS = {80, 443, 22, 445, 62078, 8008};
+
+    public static final int DEFAULT_TIMEOUT_MS = 700;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+    private static final int MIN_IN_FLIGHT = 64;
+
+    public static final int OPEN = 0;
+    public static final int CLOSED = 1;
+    public static final int TIMEOUT = 2;
+    public static final int UNREACHABLE = 3;
+
+    // Supplies probe targets; fills target.address/port and returns false when exhausted
+    public interface TargetSource {
+        boolean next(Target target);
+    }
+
+    public interface ResultListener {
+        void onResult(int address, int port, int state, long rttNanos);
+    }
+
+    // Flow control hook: lets a caller adapt window, timeout and send rate while running
+    public interface Controller {
+        int window();
+        int timeoutMs();
+        // Nanoseconds until the next probe may be sent; 0 means send now (and uses the slot)
+        long reserveSend(long nowNanos);
+        void onResult(int state, long rttNanos);
+    }
+
+    // Takes ownership of a connected channel instead of having it closed (for follow-up
+    // stages such as banner grabbing). Return false to let the prober close it.
+    public interface ConnectionHandler {
+        boolean onConnected(int address, int port, SocketChannel channel, long rttNanos);
+    }
+
+    public static class Target {
+        public int address;
+        public int port;
+    }
+
+    private int timeoutMs = DEFAULT_TIMEOUT_MS;
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private Controller controller;
+    private ConnectionHandler connectionHandler;
+    private volatile boolean cancelled = false;
+
+    public void setTimeoutMs(int timeoutMs) { this.timeoutMs = timeoutMs; }
+    public void setMaxInFlight(int maxInFlight) { this.maxInFlight = maxInFlight; }
+    public void setController(Controller controller) { this.controller = controller; }
+    public void setConnectionHandler(ConnectionHandler handler) { this.connectionHandler = handler; }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // Runs until every target has a result (or the prober is cancelled). Returns the
+    // number of probes that were sent.
+    public int run(TargetSource source, ResultListener listener) throws IOException {
+        Selector selector = Selector.open();
+        PriorityQueue<Probe> deadlines = new PriorityQueue<>();
+        Target target = new Target();
+        Controller control = controller != null ? controller : new FixedController();
+        boolean pushedBack = false;
+        boolean exhausted = false;
+        int fdWindow = Integer.MAX_VALUE;
+        int inFlight = 0;
+        int sent = 0;
+
+        try {
+            while (!cancelled) {
+                // Top up the in-flight window, as far as the send rate allows
+                long sendDelayNanos = 0;
+                while (!exhausted && inFlight < Math.min(control.window(), fdWindow)) {
+                    sendDelayNanos = control.reserveSend(System.nanoTime());
+                    if (sendDelayNanos > 0) break;
+                    if (!pushedBack && !source.next(target)) {
+                        exhausted = true;
+                        break;
+                    }
+                    pushedBack = false;
+
+                    Probe probe = new Probe(target.address, target.port);
+                    try {
+                        probe.channel = SocketChannel.open();
+                        probe.channel.configureBlocking(false);
+                        probe.startNanos = System.nanoTime();
+                        probe.deadlineNanos = probe.startNanos
+                                + TimeUnit.MILLISECONDS.toNanos(control.timeoutMs());
+                        sent++;
+                        if (probe.channel.connect(new InetSocketAddress(
+                                Ipv4Subnet.toInetAddress(target.address), target.port))) {
+                            finish(probe, OPEN, control, listener);
+                            continue;
+                        }
+                        probe.channel.register(selector, SelectionKey.OP_CONNECT, probe);
+                        deadlines.add(probe);
+                        inFlight++;
+                    } catch (ConnectException | NoRouteToHostException e) {
+                        finish(probe, classify(e), control, listener);
+                    } catch (IOException e) {
+                        // Out of sockets/fds: shrink the window and retry this target later
+                        closeQuietly(probe);
+                        sent--;
+                        pushedBack = true;
+                        fdWindow = Math.max(MIN_IN_FLIGHT, inFlight / 2);
+                        if (inFlight == 0) throw e;
+                        break;
+                    }
+                }
+
+                if (inFlight == 0 && exhausted) break;
+
+                // Completed probes are dropped from the deadline queue lazily
+                Probe next;
+                while ((next = deadlines.peek()) != null && next.done) {
+                    deadlines.poll();
+                }
+                long waitNanos = next != null ? next.deadlineNanos - System.nanoTime() : 1_000_000;
+                if (sendDelayNanos > 0) waitNanos = Math.min(waitNanos, sendDelayNanos);
+                selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Probe probe = (Probe) key.attachment();
+                    int state;
+                    try {
+                        state = probe.channel.finishConnect() ? OPEN : -1;
+                    } catch (IOException e) {
+                        state = classify(e);
+                    }
+                    if (state < 0) continue;
+                    key.cancel();
+                    probe.done = true;
+                    inFlight--;
+                    finish(probe, state, control, listener);
+                }
+
+                // Expire probes that never got a SYN-ACK or RST
+                long now = System.nanoTime();
+                while ((next = deadlines.peek()) != null && (next.done || next.deadlineNanos - now <= 0)) {
+                    deadlines.poll();
+                    if (next.done) continue;
+                    next.done = true;
+                    inFlight--;
+                    SelectionKey key = next.channel.keyFor(selector);
+                    if (key != null) key.cancel();
+                    finish(next, TIMEOUT, control, listener);
+                }
+
+                // Recover the window slowly after fd pressure
+                if (fdWindow != Integer.MAX_VALUE) fdWindow++;
+            }
+        } finally {
+            for (Probe probe : deadlines) {
+                if (!probe.done) closeQuietly(probe);
+            }
+            selector.close();
+        }
+        return sent;
+    }
+
+    // Convenience: liveness sweep of a subnet over a port set. Each port is swept across
+    // the whole range in turn, skipping hosts that already answered on an earlier port.
+    // A host counts as done for progress once it answers or every port has failed.
+    public SubnetSweeper.SweepStats sweep(Ipv4Subnet subnet, int[] ports,
+                                          SubnetSweeper.Listener listener) throws IOException {
+        return sweep(subnet.getHostCount(), subnet::hostAt, subnet::indexOf, ports, listener);
+    }
+
+    // Sweeps just the given addresses, e.g. a delta rescan's known hosts or its slice of
+    // the subnet
+    public SubnetSweeper.SweepStats sweep(int[] addresses, int[] ports,
+                                          SubnetSweeper.Listener listener) throws IOException {
+        Map<Integer, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < addresses.length; i++) indexes.put(addresses[i], i);
+        return sweep(addresses.length, index -> addresses[index],
+                address -> indexes.getOrDefault(address, -1), ports, listener);
+    }
+
+    private SubnetSweeper.SweepStats sweep(int total, IntUnaryOperator hostAt, IntUnaryOperator indexOf,
+                                           int[] ports, SubnetSweeper.Listener listener) throws IOException {
+        long startNanos = System.nanoTime();
+        BitSet alive = new BitSet(total);
+        int[] answered = new int[1];
+        // Ports that failed per host, and hosts done; selector thread only
+        byte[] failedPorts = new byte[total];
+        int[] done = new int[1];
+
+        TargetSource source = new TargetSource() {
+            private int portIndex = 0;
+            private int hostIndex = 0;
+
+            @Override
+            public boolean next(Target target) {
+                while (portIndex < ports.length) {
+                    while (hostIndex < total) {
+                        int index = hostIndex++;
+                        if (alive.get(index)) continue;
+                        target.address = hostAt.applyAsInt(index);
+                        target.port = ports[portIndex];
+                        return true;
+                    }
+                    hostIndex = 0;
+                    portIndex++;
+                }
+                return false;
+            }
+        };
+
+        run(source, (address, port, state, rttNanos) -> {
+            int index = indexOf.applyAsInt(address);
+            // Late results for a host that already answered on another port
+            if (index < 0 || alive.get(index)) return;
+            if (state == OPEN || state == CLOSED) {
+                alive.set(index);
+                answered[0]++;
+                listener.onHostAlive(address, rttNanos);
+            } else if (++failedPorts[index] < ports.length) {
+                return;
+            }
+            listener.onProgress(++done[0], total);
+        });
+
+        return new SubnetSweeper.SweepStats(total, total, answered[0], 0,
+                System.nanoTime() - startNanos, maxInFlight, timeoutMs);
+    }
+
+    private static int classify(IOException e) {
+        // Android reports RST as "ECONNREFUSED (Connection refused)"
+        String message = e.getMessage();
+        if (e instanceof ConnectException && message != null && message.contains("refused")) {
+            return CLOSED;
+        }
+        return UNREACHABLE;
+    }
+
+    private void finish(Probe probe, int state, Controller control, ResultListener listener) {
+        long rtt = System.nanoTime() - probe.startNanos;
+        boolean handedOff = state == OPEN && connectionHandler != null
+                && connectionHandler.onConnected(probe.address, probe.port, probe.channel, rtt);
+        if (!handedOff) closeQuietly(probe);
+        control.onResult(state, rtt);
+        listener.onResult(probe.address, probe.port, state, rtt);
+    }
+
+    private static void closeQuietly(Probe probe) {
+        try {
+            if (probe.channel != null) probe.channel.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    private class FixedController implements Controller {
+        @Override public int window() { return maxInFlight; }
+        @Override public int timeoutMs() { return timeoutMs; }
+        @Override public long reserveSend(long nowNanos) { return 0; }
+        @Override public void onResult(int state, long rttNanos) { }
+    }
+
+    private static class Probe implements Comparable<Probe> {
+        final int address;
+        final int port;
+        SocketChannel channel;
+        long startNanos;
+        long deadlineNanos;
+        boolean done;
+
+        Probe(int address, int port) {
+            this.address = address;
+            this.port = port;
+        }
+
+        @Override
+        public int compareTo(Probe other) {
+            return Long.compare(deadlineNanos, other.deadlineNanos);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.netanalyzer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Vendor lookup over the IEEE MAC address registries. Prefixes live in three sorted
+// primitive arrays, one per block size (MA-L 24 bits, MA-M 28 bits, MA-S 36 bits), and
+// each entry points into a pool of deduplicated vendor names stored as UTF-8 bytes.
+// Lookups are a binary search per block size, longest prefix first, and never allocate
+// except to decode a vendor name the first time it is returned.
+//
+// The index is read in place from a ByteBuffer in the format below, so the copy built at
+// compile time (the compileOuiDatabase task in app/build.gradle.kts) can be memory-mapped
+// straight out of the APK. That task runs this class's Builder from buildSrc, so it must
+// only depend on the JDK. All values are big-endian.
+//
+//   int magic ('OUI1'), int largeCount, int mediumCount, int smallCount, int vendorCount,
+//   int poolLength
+//   int[largeCount] keys, int[largeCount] vendor ids        (24-bit prefixes, sorted)
+//   int[mediumCount] keys, int[mediumCount] vendor ids      (28-bit prefixes, sorted)
+//   long[smallCount] keys, int[smallCount] vendor ids       (36-bit prefixes, sorted)
+//   int[vendorCount + 1] pool offsets, byte[poolLength] pool
+public final class OuiIndex {
+
+    public static final int MA_L = 24;
+    public static final int MA_M = 28;
+    public static final int MA_S = 36;
+
+    static final int MAGIC = 0x4F554931; // "OUI1"
+    private static final int HEADER_BYTES = 6 * 4;
+
+    private final IntBuffer largeKeys;
+    private final IntBuffer largeVendors;
+    private final IntBuffer mediumKeys;
+    private final IntBuffer mediumVendors;
+    private final LongBuffer smallKeys;
+    private final IntBuffer smallVendors;
+
+    // Vendor name i is pool[poolOffsets[i] .. poolOffsets[i + 1])
+    private final IntBuffer poolOffsets;
+    private final ByteBuffer pool;
+    private final int byteSize;
+    private final String[] decoded;
+
+    private OuiIndex(ByteBuffer buffer) {
+        ByteBuffer b = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        int base = b.position();
+        if (b.remaining() < HEADER_BYTES || b.getInt(base) != MAGIC) {
+            throw new IllegalArgumentException("Not an OUI index");
+        }
+        int large = b.getInt(base + 4);
+        int medium = b.getInt(base + 8);
+        int small = b.getInt(base + 12);
+        int vendors = b.getInt(base + 16);
+        int poolLength = b.getInt(base + 20);
+
+        int offset = base + HEADER_BYTES;
+        largeKeys = slice(b, offset, large * 4).asIntBuffer();
+        offset += large * 4;
+        largeVendors = slice(b, offset, large * 4).asIntBuffer();
+        offset += large * 4;
+        mediumKeys = slice(b, offset, medium * 4).asIntBuffer();
+        offset += medium * 4;
+        mediumVendors = slice(b, offset, medium * 4).asIntBuffer();
+        offset += medium * 4;
+        smallKeys = slice(b, offset, small * 8).asLongBuffer();
+        offset += small * 8;
+        smallVendors = slice(b, offset, small * 4).asIntBuffer();
+        offset += small * 4;
+        poolOffsets = slice(b, offset, (vendors + 1) * 4).asIntBuffer();
+        offset += (vendors + 1) * 4;
+        pool = slice(b, offset, poolLength);
+        byteSize = offset + poolLength - base;
+        decoded = new String[vendors];
+    }
+
+    // Wraps an index in the binary format without copying it. The buffer's position
+    // marks the start of the index.
+    public static OuiIndex wrap(ByteBuffer buffer) {
+        return new OuiIndex(buffer);
+    }
+
+    private static ByteBuffer slice(ByteBuffer b, int offset, int length) {
+        if (offset + length > b.limit()) throw new IllegalArgumentException("Truncated OUI index");
+        ByteBuffer d = b.duplicate();
+        d.limit(offset + length).position(offset);
+        return d.slice().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    // mac is the 48-bit address in the low bits (MacAddress.toLong()). Returns null when
+    // no block matches.
+    public String lookup(long mac) {
+        int vendor = vendorId(mac);
+        return vendor < 0 ? null : vendorName(vendor);
+    }
+
+    // Index into the vendor pool, or -1. Stable for the lifetime of the index, so
+    // callers can memoize on it.
+    public int vendorId(long mac) {
+        int i = search(smallKeys, mac >>> (48 - MA_S));
+        if (i >= 0) return smallVendors.get(i);
+        i = search(mediumKeys, (int) (mac >>> (48 - MA_M)));
+        if (i >= 0) return mediumVendors.get(i);
+        i = search(largeKeys, (int) (mac >>> (48 - MA_L)));
+        if (i >= 0) return largeVendors.get(i);
+        return -1;
+    }
+
+    public String vendorName(int vendorId) {
+        String name = decoded[vendorId];
+        if (name == null) {
+            int start = poolOffsets.get(vendorId);
+            byte[] bytes = new byte[poolOffsets.get(vendorId + 1) - start];
+            for (int i = 0; i < bytes.length; i++) bytes[i] = pool.get(start + i);
+            name = new String(bytes, StandardCharsets.UTF_8);
+            decoded[vendorId] = name;
+        }
+        return name;
+    }
+
+    public int size() {
+        return largeKeys.limit() + mediumKeys.limit() + smallKeys.limit();
+    }
+
+    public int vendorCount() {
+        return decoded.length;
+    }
+
+    // Size of the binary index, excluding decoded names
+    public long estimateBytes() {
+        return byteSize;
+    }
+
+    private static int search(IntBuffer keys, int key) {
+        int lo = 0;
+        int hi = keys.limit() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int k = keys.get(mid);
+            if (k < key) lo = mid + 1;
+            else if (k > key) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private static int search(LongBuffer keys, long key) {
+        int lo = 0;
+        int hi = keys.limit() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = keys.get(mid);
+            if (k < key) lo = mid + 1;
+            else if (k > key) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    // Accumulates registry entries; build() sorts them into the primitive arrays. When a
+    // prefix is added more than once, the last add wins.
+    public static final class Builder {
+        private final Map<String, Integer> vendorIds = new HashMap<>();
+        private byte[] pool = new byte[4096];
+        private int poolSize = 0;
+        private int[] offsets = new int[256];
+
+        private final Table large = new Table();
+        private final Table medium = new Table();
+        private final Table small = new Table();
+
+        // prefix holds `bits` significant bits (24, 28 or 36) right-aligned
+        public Builder add(long prefix, int bits, String vendor) {
+            int id = intern(vendor);
+            switch (bits) {
+                case MA_L: large.add(prefix, id); break;
+                case MA_M: medium.add(prefix, id); break;
+                case MA_S: small.add(prefix, id); break;
+                default: throw new IllegalArgumentException("Unsupported block size: " + bits);
+            }
+            return this;
+        }
+
+        // "XXXXXX=Vendor" lines as in src/main/oui/oui_database.txt. The prefix may have 6, 7
+        // or 9 hex digits for MA-L, MA-M and MA-S blocks respectively.
+        public Builder addPropertiesLine(String line) {
+            int eq = line.indexOf('=');
+            if (eq <= 0 || line.startsWith("#")) return this;
+            return addPrefix(line.substring(0, eq).trim(), line.substring(eq + 1).trim());
+        }
+
+        // IEEE registry CSV (oui.csv, mam.csv, oui36.csv):
+        // Registry,Assignment,Organization Name,Organization Address
+        public Builder addIeeeCsv(BufferedReader reader) throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int c1 = line.indexOf(',');
+                if (c1 < 0 || line.startsWith("Registry,")) continue;
+                int c2 = line.indexOf(',', c1 + 1);
+                if (c2 < 0) continue;
+                addPrefix(line.substring(c1 + 1, c2), csvField(line, c2 + 1));
+            }
+            return this;
+        }
+
+        // 6, 7 or 9 hex digits; anything else is skipped
+        public Builder addPrefix(String hex, String vendor) {
+            int bits = hex.length() * 4;
+            if (vendor.isEmpty() || (bits != MA_L && bits != MA_M && bits != MA_S)) return this;
+            long prefix = 0;
+            for (int i = 0; i < hex.length(); i++) {
+                int d = Character.digit(hex.charAt(i), 16);
+                if (d < 0) return this;
+                prefix = (prefix << 4) | d;
+            }
+            return add(prefix, bits, vendor);
+        }
+
+        private static String csvField(String line, int start) {
+            if (start >= line.length()) return "";
+            if (line.charAt(start) != '"') {
+                int end = line.indexOf(',', start);
+                return line.substring(start, end < 0 ? line.length() : end).trim();
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int i = start + 1; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        sb.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                } else {
+                    sb.append(c);
+                }
+            }
+            return sb.toString().trim();
+        }
+
+        private int intern(String vendor) {
+            Integer id = vendorIds.get(vendor);
+            if (id != null) return id;
+            int next = vendorIds.size();
+            byte[] bytes = vendor.getBytes(StandardCharsets.UTF_8);
+            if (poolSize + bytes.length > pool.length) {
+                pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + bytes.length));
+            }
+            System.arraycopy(bytes, 0, pool, poolSize, bytes.length);
+            if (next + 2 > offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            offsets[next] = poolSize;
+            poolSize += bytes.length;
+            offsets[next + 1] = poolSize;
+            vendorIds.put(vendor, next);
+            return next;
+        }
+
+        public OuiIndex build() {
+            return wrap(toByteBuffer());
+        }
+
+        // The binary format described at the top of OuiIndex
+        public ByteBuffer toByteBuffer() {
+            large.sort();
+            medium.sort();
+            small.sort();
+            int vendors = vendorIds.size();
+            int size = HEADER_BYTES + 8 * large.size + 8 * medium.size + 12 * small.size
+                    + 4 * (vendors + 1) + poolSize;
+
+            ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.BIG_ENDIAN);
+            out.putInt(MAGIC).putInt(large.size).putInt(medium.size).putInt(small.size)
+                    .putInt(vendors).putInt(poolSize);
+            for (int i = 0; i < large.size; i++) out.putInt((int) large.key(i));
+            for (int i = 0; i < large.size; i++) out.putInt(large.vendorId(i));
+            for (int i = 0; i < medium.size; i++) out.putInt((int) medium.key(i));
+            for (int i = 0; i < medium.size; i++) out.putInt(medium.vendorId(i));
+            for (int i = 0; i < small.size; i++) out.putLong(small.key(i));
+            for (int i = 0; i < small.size; i++) out.putInt(small.vendorId(i));
+            for (int i = 0; i <= vendors; i++) out.putInt(offsets[i]);
+            out.put(pool, 0, poolSize);
+            out.flip();
+            return out;
+        }
+    }
+
+    // Growable (key, vendor) pairs. Each key is packed with its insertion sequence number
+    // into one long[] so sorting needs no boxing and keeps insertion order among equal
+    // keys; the vendor id for a sequence number is in vendors[]. Keys are at most 36 bits
+    // and a table holds well under 2^27 entries.
+    private static final class Table {
+        private static final long SEQ_MASK = (1L << 27) - 1;
+
+        private long[] entries = new long[64];
+        private int[] vendors = new int[64];
+        private int size = 0;
+
+        void add(long key, int vendorId) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+                vendors = Arrays.copyOf(vendors, size * 2);
+            }
+            vendors[size] = vendorId;
+            entries[size] = (key << 27) | size;
+            size++;
+        }
+
+        // Sorts by key and drops duplicate prefixes, keeping the one added last, so a
+        // local override added after the IEEE registry replaces the registry's name
+        void sort() {
+            Arrays.sort(entries, 0, size);
+            int[] sorted = new int[entries.length];
+            int out = 0;
+            for (int i = 0; i < size; i++) {
+                long key = entries[i] >>> 27;
+                int vendorId = vendors[(int) (entries[i] & SEQ_MASK)];
+                // Equal keys are in insertion order, so a later one overwrites
+                if (out == 0 || (entries[out - 1] >>> 27) != key) out++;
+                entries[out - 1] = (key << 27) | (out - 1);
+                sorted[out - 1] = vendorId;
+            }
+            vendors = sorted;
+            size = out;
+        }
+
+        long key(int i) {
+            return entries[i] >>> 27;
+        }
+
+        int vendorId(int i) {
+            return vendors[(int) (entries[i] & SEQ_MASK)];
+        }
+    }
+}
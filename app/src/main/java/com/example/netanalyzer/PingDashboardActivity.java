@@ -0,0 +1,122 @@
+package com.example.netanalyzer;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.TextView;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Pings every device of the current scan at once and lists them worst latency first.
+// One MultiHostPinger thread does all the probing; the list updates in batches.
+public class PingDashboardActivity extends AppCompatActivity {
+
+    public static final String EXTRA_IPS = "device_ips";
+    public static final String EXTRA_NAMES = "device_names";
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private TextView summaryText;
+    private PingDashboardAdapter adapter;
+    private MultiHostPinger pinger;
+    private int hostCount;
+    private long roundNanos;
+    // Hosts answering / not answering, kept current from the update batches
+    private final Map<Integer, Boolean> answering = new HashMap<>();
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_ping_dashboard);
+
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle("Ping Dashboard");
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+        summaryText = findViewById(R.id.dashboardSummary);
+
+        String[] ips = getIntent().getStringArrayExtra(EXTRA_IPS);
+        String[] names = getIntent().getStringArrayExtra(EXTRA_NAMES);
+        Map<Integer, String> namesByAddress = new HashMap<>();
+        int[] addresses = new int[ips != null ? ips.length : 0];
+        int count = 0;
+        for (int i = 0; i < addresses.length; i++) {
+            int address = Ipv4Subnet.parse(ips[i]);
+            if (address == 0) continue;
+            addresses[count++] = address;
+            if (names != null && i < names.length && names[i] != null) {
+                namesByAddress.put(address, names[i]);
+            }
+        }
+        hostCount = count;
+
+        adapter = new PingDashboardAdapter(namesByAddress);
+        RecyclerView recyclerView = findViewById(R.id.dashboardRecyclerView);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setAdapter(adapter);
+
+        if (hostCount == 0) {
+            summaryText.setText("No devices to ping. Run a network scan first.");
+            return;
+        }
+        summaryText.setText("Starting " + hostCount + " hosts...");
+        pinger = new MultiHostPinger(Arrays.copyOf(addresses, count), new MultiHostPinger.Listener() {
+            @Override
+            public void onStarted(List<HostPingScheduler.Snapshot> hosts, long round) {
+                mainHandler.post(() -> {
+                    roundNanos = round;
+                    adapter.update(hosts);
+                    updateSummary();
+                });
+            }
+
+            @Override
+            public void onUpdate(List<HostPingScheduler.Snapshot> changed) {
+                mainHandler.post(() -> {
+                    for (HostPingScheduler.Snapshot host : changed) {
+                        answering.put(host.getAddress(), host.getMisses() == 0);
+                    }
+                    adapter.update(changed);
+                    updateSummary();
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                mainHandler.post(() -> summaryText.setText(error));
+            }
+        });
+        pinger.start();
+    }
+
+    private void updateSummary() {
+        int up = 0;
+        int down = 0;
+        for (boolean alive : answering.values()) {
+            if (alive) up++; else down++;
+        }
+        summaryText.setText(String.format("%d hosts, each every %.1f s (%d probes/s max)\n"
+                        + "Answering: %d | Not answering: %d",
+                hostCount, roundNanos / 1e9, MultiHostPinger.MAX_PROBES_PER_SECOND, up, down));
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (pinger != null) pinger.stop();
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    @Override
+    public boolean onSupportNavigateUp() {
+        onBackPressed();
+        return true;
+    }
+}
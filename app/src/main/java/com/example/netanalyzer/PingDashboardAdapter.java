@@ -0,0 +1,135 @@
+package com.example.netanalyzer;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.SortedList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Rows of the ping dashboard, kept worst latency first. Rows are immutable snapshots in a
+// SortedList: an update finds the host's current row by binary search and moves just that
+// row to its new place, so a sample never re-sorts the whole list.
+public class PingDashboardAdapter extends RecyclerView.Adapter<PingDashboardAdapter.ViewHolder> {
+
+    private final Map<Integer, String> names;
+    // Each host's row currently in the list, by address
+    private final Map<Integer, HostPingScheduler.Snapshot> current = new HashMap<>();
+    private final SortedList<HostPingScheduler.Snapshot> rows;
+
+    public PingDashboardAdapter(Map<Integer, String> names) {
+        this.names = names;
+        rows = new SortedList<>(HostPingScheduler.Snapshot.class,
+                new SortedList.Callback<HostPingScheduler.Snapshot>() {
+            @Override
+            public int compare(HostPingScheduler.Snapshot a, HostPingScheduler.Snapshot b) {
+                return HostPingScheduler.WORST_FIRST.compare(a, b);
+            }
+
+            @Override
+            public boolean areContentsTheSame(HostPingScheduler.Snapshot a, HostPingScheduler.Snapshot b) {
+                return a.sameContents(b);
+            }
+
+            @Override
+            public boolean areItemsTheSame(HostPingScheduler.Snapshot a, HostPingScheduler.Snapshot b) {
+                return a.getAddress() == b.getAddress();
+            }
+
+            @Override
+            public void onInserted(int position, int count) {
+                notifyItemRangeInserted(position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                notifyItemRangeRemoved(position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                notifyItemMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count) {
+                notifyItemRangeChanged(position, count);
+            }
+        });
+    }
+
+    // Main thread
+    public void update(List<HostPingScheduler.Snapshot> snapshots) {
+        rows.beginBatchedUpdates();
+        for (HostPingScheduler.Snapshot snapshot : snapshots) {
+            HostPingScheduler.Snapshot previous = current.put(snapshot.getAddress(), snapshot);
+            int index = previous != null ? rows.indexOf(previous) : SortedList.INVALID_POSITION;
+            if (index == SortedList.INVALID_POSITION) {
+                rows.add(snapshot);
+            } else {
+                rows.updateItemAt(index, snapshot);
+            }
+        }
+        rows.endBatchedUpdates();
+    }
+
+    public void clear() {
+        current.clear();
+        rows.clear();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_ping_dashboard, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        HostPingScheduler.Snapshot host = rows.get(position);
+        String ip = Ipv4Subnet.format(host.getAddress());
+        String name = names.get(host.getAddress());
+        holder.hostName.setText(name != null ? name : ip);
+
+        String stats = ip + " | Loss: " + String.format("%.0f%%", host.getRecentLossPercent())
+                + " | " + host.getReceived() + "/" + host.getSent();
+        holder.hostStats.setText(stats);
+
+        int color;
+        if (host.getMisses() == 0 && host.getLastRttNanos() < 0) {
+            // Not probed or not answered yet
+            holder.hostRtt.setText("--");
+            color = android.R.color.darker_gray;
+        } else if (host.getMisses() > 0) {
+            holder.hostRtt.setText(host.getMisses() == 1 ? "timeout" : host.getMisses() + " missed");
+            color = android.R.color.holo_red_dark;
+        } else {
+            holder.hostRtt.setText(PingResult.formatMillis(host.getLastRttNanos() / 1e6));
+            color = host.getRecentLossPercent() > 0 ? android.R.color.holo_orange_dark
+                    : android.R.color.holo_green_dark;
+        }
+        holder.hostRtt.setTextColor(holder.itemView.getResources().getColor(color, null));
+    }
+
+    @Override
+    public int getItemCount() {
+        return rows.size();
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView hostName, hostStats, hostRtt;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            hostName = itemView.findViewById(R.id.hostName);
+            hostStats = itemView.findViewById(R.id.hostStats);
+            hostRtt = itemView.findViewById(R.id.hostRtt);
+        }
+    }
+}
@@ -4,14 +4,20 @@ import java.io.Serializable;
 import java.util.Date;
 
 public class PingResult implements Serializable {
+    private static final long serialVersionUID = 1L;
     private String target;
     private String ipAddress;
     private int sent;
     private int received;
     private int lost;
-    private long minTime;
-    private long avgTime;
-    private long maxTime;
+    // Replies that arrived after their probe timed out; included in lost
+    private int late;
+    // Every round-trip time of the run, in constant space
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    // TTL of the last reply, or IcmpPinger.TTL_UNKNOWN
+    private int ttl = IcmpPinger.TTL_UNKNOWN;
+    // How the echoes were sent (ICMP socket or ping binary)
+    private String method;
     private Date timestamp;
     private boolean success;
     private String errorMessage;
@@ -41,14 +47,42 @@ public class PingResult implements Serializable {
     public int getLost() { return lost; }
     public void setLost(int lost) { this.lost = lost; }
 
-    public long getMinTime() { return minTime; }
-    public void setMinTime(long minTime) { this.minTime = minTime; }
+    public int getLate() { return late; }
+    public void setLate(int late) { this.late = late; }
+
+    // Round-trip times in fractional milliseconds, so sub-millisecond LAN latencies
+    // don't collapse to 0 or 1
+    public double getMinTime() { return histogram.getMinNanos() / 1e6; }
+    public double getAvgTime() { return histogram.getMeanNanos() / 1e6; }
+    public double getMaxTime() { return histogram.getMaxNanos() / 1e6; }
+    public double getStdDevTime() { return histogram.getStdDevNanos() / 1e6; }
+    public double getJitterTime() { return histogram.getJitterNanos() / 1e6; }
+    public double getPercentileTime(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    public LatencyHistogram getHistogram() { return histogram; }
+
+    public void recordRtt(long rttNanos) {
+        histogram.record(rttNanos);
+    }
+
+    // Folds another run against the same host into this one
+    public void merge(PingResult other) {
+        sent += other.sent;
+        received += other.received;
+        lost += other.lost;
+        late += other.late;
+        histogram.merge(other.histogram);
+        if (other.ttl != IcmpPinger.TTL_UNKNOWN) ttl = other.ttl;
+        success = received > 0;
+    }
 
-    public long getAvgTime() { return avgTime; }
-    public void setAvgTime(long avgTime) { this.avgTime = avgTime; }
+    public int getTtl() { return ttl; }
+    public void setTtl(int ttl) { this.ttl = ttl; }
 
-    public long getMaxTime() { return maxTime; }
-    public void setMaxTime(long maxTime) { this.maxTime = maxTime; }
+    public String getMethod() { return method; }
+    public void setMethod(String method) { this.method = method; }
 
     public Date getTimestamp() { return timestamp; }
     public void setTimestamp(Date timestamp) { this.timestamp = timestamp; }
@@ -73,12 +107,29 @@ public class PingResult implements Serializable {
         if (!success) {
             return errorMessage != null ? errorMessage : "Ping failed";
         }
-        return String.format("Avg: %dms | Min: %dms | Max: %dms | Loss: %s",
-                avgTime, minTime, maxTime, getFormattedPacketLoss());
+        String result = String.format("Avg: %s | Min: %s | Max: %s | Loss: %s",
+                formatMillis(getAvgTime()), formatMillis(getMinTime()), formatMillis(getMaxTime()),
+                getFormattedPacketLoss());
+        return late > 0 ? result + " (" + late + " late)" : result;
+    }
+
+    public String getFormattedPercentiles() {
+        return String.format("P50: %s | P90: %s | P99: %s | P99.9: %s\nStd dev: %s | Jitter: %s",
+                formatMillis(getPercentileTime(50)), formatMillis(getPercentileTime(90)),
+                formatMillis(getPercentileTime(99)), formatMillis(getPercentileTime(99.9)),
+                formatMillis(getStdDevTime()), formatMillis(getJitterTime()));
     }
 
     public String getShortResult() {
         if (!success) return "Failed";
-        return avgTime + "ms";
+        return formatMillis(getAvgTime());
+    }
+
+    // Three significant digits down to microseconds: "0.412ms", "12.3ms", "148ms"
+    public static String formatMillis(double ms) {
+        if (ms < 1) return String.format("%.3fms", ms);
+        if (ms < 10) return String.format("%.2fms", ms);
+        if (ms < 100) return String.format("%.1fms", ms);
+        return String.format("%.0fms", ms);
     }
 }
\ No newline at end of file
@@ -1,141 +1,291 @@
 package com.example.netanalyzer;
 
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.net.InetAddress;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import com.example.netanalyzer.PingResult;
-import com.example.netanalyzer.PingService;
-import com.example.netanalyzer.PingHistoryAdapter;
+
+// Runs ping sessions on a small pool of its own, so a long run neither queues behind nor
+// blocks other sessions or the app's AsyncTasks. Every callback is delivered on the main
+// thread; a cancelled session delivers none.
 public class PingService {
 
     private static final String TAG = "PingService";
 
+    // Sessions that run at once; further ones wait in a bounded queue
+    private static final int MAX_SESSIONS = 4;
+    private static final int MAX_QUEUED = 16;
+    private static final long IDLE_KEEP_ALIVE_SECONDS = 30;
+
+    // Default interval; sessions accept IcmpPinger.MIN_INTERVAL_MS..MAX_INTERVAL_MS
+    public static final long PING_INTERVAL_MS = 500;
+    private static final long PING_TIMEOUT_MS = 2000;
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
     public interface PingCallback {
         void onPingComplete(PingResult result);
         void onPingProgress(String message);
         void onPingError(String error);
     }
 
-    public static void pingHost(String host, int count, PingCallback callback) {
-        new PingTask(host, count, callback).execute();
+    // Callbacks of a continuous session, one per probe
+    public interface SampleCallback {
+        void onStarted(String ip, String method);
+        // rttNanos < 0 for a probe that timed out
+        void onSample(int seq, long rttNanos);
+        void onError(String error);
+    }
+
+    public interface TracerouteCallback {
+        void onTracerouteStarted(String ip, int maxHops);
+        void onTracerouteComplete(Traceroute.Result result);
+        void onTracerouteError(String error);
     }
 
-    private static class PingTask extends AsyncTask<Void, String, PingResult> {
+    // Handle to a running (or queued) ping session
+    public static class Session {
         private final String host;
-        private final int count;
-        private final PingCallback callback;
+        private volatile boolean cancelled = false;
+        private volatile boolean done = false;
+        private Future<?> future;
+        // Stops whatever the session's thread is blocked on
+        private Runnable canceller;
 
-        PingTask(String host, int count, PingCallback callback) {
+        Session(String host) {
             this.host = host;
-            this.count = count;
-            this.callback = callback;
         }
 
-        @Override
-        protected void onPreExecute() {
-            callback.onPingProgress("Resolving host...");
+        // Stops the session; no further callbacks are delivered, even ones already posted
+        public void cancel() {
+            cancelled = true;
+            Future<?> running;
+            Runnable active;
+            synchronized (this) {
+                running = future;
+                active = canceller;
+            }
+            if (running != null) running.cancel(true);
+            // A ping binary blocked in a read doesn't notice the interrupt
+            if (active != null) active.run();
+        }
+
+        public boolean isCancelled() { return cancelled; }
+        public boolean isDone() { return done || cancelled; }
+        public String getHost() { return host; }
+
+        synchronized void setFuture(Future<?> future) {
+            this.future = future;
+        }
+
+        void attach(Runnable canceller) {
+            synchronized (this) {
+                this.canceller = canceller;
+            }
+            if (cancelled) canceller.run();
+        }
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_SESSIONS, MAX_SESSIONS,
+                IDLE_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_QUEUED), r -> {
+                    Thread t = new Thread(r, "PingService");
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    public static Session pingHost(String host, int count, PingCallback callback) {
+        return pingHost(host, count, PING_INTERVAL_MS, callback);
+    }
+
+    // Sends count echoes intervalMs apart without waiting for earlier replies
+    public static Session pingHost(String host, int count, long intervalMs, PingCallback callback) {
+        Session session = new Session(host);
+        long interval = IcmpPinger.clampInterval(intervalMs);
+        deliver(session, () -> callback.onPingProgress("Resolving host..."));
+        if (!submit(session, () -> runSession(session, count, interval, callback))) {
+            deliver(session, () -> callback.onPingError("Too many ping tests running"));
+        }
+        return session;
+    }
+
+    // Pings host every intervalMs until the session is cancelled
+    public static Session pingContinuous(String host, long intervalMs, SampleCallback callback) {
+        Session session = new Session(host);
+        long interval = IcmpPinger.clampInterval(intervalMs);
+        if (!submit(session, () -> runContinuous(session, interval, callback))) {
+            deliver(session, () -> callback.onError("Too many ping tests running"));
+        }
+        return session;
+    }
+
+    // Probes all hops to host at once; see Traceroute
+    public static Session traceroute(String host, TracerouteCallback callback) {
+        Session session = new Session(host);
+        if (!submit(session, () -> runTraceroute(session, callback))) {
+            deliver(session, () -> callback.onTracerouteError("Too many ping tests running"));
+        }
+        return session;
+    }
+
+    private static boolean submit(Session session, Runnable task) {
+        try {
+            session.setFuture(executor.submit(task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            session.done = true;
+            return false;
         }
+    }
+
+    // Posts a callback to the main thread unless the session is cancelled by the time it runs
+    private static void deliver(Session session, Runnable callback) {
+        mainHandler.post(() -> {
+            if (!session.cancelled) callback.run();
+        });
+    }
+
+    private static void runSession(Session session, int count, long intervalMs, PingCallback callback) {
+        String host = session.host;
+        PingResult result = new PingResult(host);
+        IcmpPinger pinger = null;
+
+        try {
+            // Resolve hostname to IP
+            deliver(session, () -> callback.onPingProgress("Resolving " + host + "..."));
+            InetAddress address = DnsCache.shared().resolve(host);
+            String ip = address.getHostAddress();
+            result.setIpAddress(ip);
+
+            pinger = IcmpPinger.open(address);
+            session.attach(pinger::cancel);
+            result.setMethod(pinger.getMethod());
+            deliver(session, () -> callback.onPingProgress(
+                    "Pinging " + ip + " (" + host + ") via " + result.getMethod() + "..."));
 
-        @Override
-        protected PingResult doInBackground(Void... voids) {
-            PingResult result = new PingResult(host);
-            List<Long> times = new ArrayList<>();
-
-            try {
-                // Resolve hostname to IP
-                publishProgress("Resolving " + host + "...");
-                InetAddress address = InetAddress.getByName(host);
-                String ip = address.getHostAddress();
-                result.setIpAddress(ip);
-                publishProgress("Pinging " + ip + " (" + host + ")...");
-
-                // Perform ping tests
-                result.setSent(count);
-                int received = 0;
-
-                for (int i = 1; i <= count; i++) {
-                    try {
-                        long startTime = System.currentTimeMillis();
-                        boolean reachable = address.isReachable(2000); // 2 second timeout
-                        long endTime = System.currentTimeMillis();
-
-                        if (reachable) {
-                            long timeTaken = endTime - startTime;
-                            times.add(timeTaken);
-                            received++;
-                            publishProgress("Reply from " + ip + ": time=" + timeTaken + "ms");
-                        } else {
-                            publishProgress("Request timed out");
-                        }
-
-                        // Small delay between pings
-                        Thread.sleep(500);
-
-                    } catch (Exception e) {
-                        publishProgress("Ping error: " + e.getMessage());
-                    }
+            // Perform ping tests
+            result.setSent(count);
+            pinger.run(count, intervalMs, PING_TIMEOUT_MS, new IcmpPinger.Listener() {
+                @Override
+                public void onReply(IcmpPinger.Reply reply) {
+                    result.recordRtt(reply.getRttNanos());
+                    if (reply.getTtl() != IcmpPinger.TTL_UNKNOWN) result.setTtl(reply.getTtl());
+                    String ttl = reply.getTtl() != IcmpPinger.TTL_UNKNOWN ? " ttl=" + reply.getTtl() : "";
+                    String message = "Reply from " + ip + ": icmp_seq=" + reply.getSeq() + ttl
+                            + " time=" + PingResult.formatMillis(reply.getRttNanos() / 1e6);
+                    deliver(session, () -> callback.onPingProgress(message));
                 }
 
-                // Calculate statistics
-                result.setReceived(received);
-                result.setLost(count - received);
-
-                if (received > 0) {
-                    // Calculate min, max, avg
-                    long min = Long.MAX_VALUE;
-                    long max = Long.MIN_VALUE;
-                    long total = 0;
-
-                    for (Long time : times) {
-                        if (time < min) min = time;
-                        if (time > max) max = time;
-                        total += time;
-                    }
-
-                    result.setMinTime(min);
-                    result.setMaxTime(max);
-                    result.setAvgTime(total / received);
-                    result.setSuccess(true);
-
-                } else {
-                    result.setErrorMessage("No response from host");
-                    result.setSuccess(false);
+                @Override
+                public void onTimeout(int seq) {
+                    deliver(session, () -> callback.onPingProgress("Request timed out: icmp_seq=" + seq));
                 }
 
-            } catch (Exception e) {
-                Log.e(TAG, "Ping error: " + e.getMessage(), e);
+                @Override
+                public void onLateReply(IcmpPinger.Reply reply) {
+                    // Still counted as lost, but worth seeing: the path is slow, not lossy
+                    result.setLate(result.getLate() + 1);
+                    String message = "Late reply from " + ip + ": icmp_seq=" + reply.getSeq()
+                            + " time=" + PingResult.formatMillis(reply.getRttNanos() / 1e6);
+                    deliver(session, () -> callback.onPingProgress(message));
+                }
+            });
+
+            // Calculate statistics
+            int received = (int) result.getHistogram().getCount();
+            result.setReceived(received);
+            result.setLost(count - received);
+
+            if (received > 0) {
+                result.setSuccess(true);
+            } else {
+                result.setErrorMessage("No response from host");
                 result.setSuccess(false);
-                result.setErrorMessage("Error: " + e.getMessage());
             }
 
-            return result;
+        } catch (InterruptedException e) {
+            // Cancelled
+            return;
+        } catch (Exception e) {
+            Log.e(TAG, "Ping error: " + e.getMessage(), e);
+            result.setSuccess(false);
+            result.setErrorMessage("Error: " + e.getMessage());
+        } finally {
+            if (pinger != null) pinger.close();
+            session.done = true;
         }
 
-        @Override
-        protected void onProgressUpdate(String... values) {
-            callback.onPingProgress(values[0]);
+        deliver(session, () -> callback.onPingComplete(result));
+    }
+
+    private static void runContinuous(Session session, long intervalMs, SampleCallback callback) {
+        IcmpPinger pinger = null;
+        try {
+            InetAddress address = DnsCache.shared().resolve(session.host);
+            pinger = IcmpPinger.open(address);
+            session.attach(pinger::cancel);
+            String ip = address.getHostAddress();
+            String method = pinger.getMethod();
+            deliver(session, () -> callback.onStarted(ip, method));
+
+            pinger.run(IcmpPinger.UNBOUNDED, intervalMs, PING_TIMEOUT_MS, new IcmpPinger.Listener() {
+                @Override
+                public void onReply(IcmpPinger.Reply reply) {
+                    deliver(session, () -> callback.onSample(reply.getSeq(), reply.getRttNanos()));
+                }
+
+                @Override
+                public void onTimeout(int seq) {
+                    deliver(session, () -> callback.onSample(seq, -1));
+                }
+            });
+        } catch (InterruptedException e) {
+            // Cancelled
+        } catch (Exception e) {
+            Log.e(TAG, "Continuous ping error: " + e.getMessage(), e);
+            deliver(session, () -> callback.onError(e.getMessage()));
+        } finally {
+            if (pinger != null) pinger.close();
+            session.done = true;
         }
+    }
+
+    private static void runTraceroute(Session session, TracerouteCallback callback) {
+        try {
+            InetAddress address = DnsCache.shared().resolve(session.host);
+            Traceroute traceroute = new Traceroute(address, Traceroute.MAX_HOPS);
+            session.attach(traceroute::cancel);
+            String ip = address.getHostAddress();
+            deliver(session, () -> callback.onTracerouteStarted(ip, Traceroute.MAX_HOPS));
 
-        @Override
-        protected void onPostExecute(PingResult result) {
-            callback.onPingComplete(result);
+            Traceroute.Result result = traceroute.run();
+            deliver(session, () -> callback.onTracerouteComplete(result));
+        } catch (InterruptedException e) {
+            // Cancelled
+        } catch (Exception e) {
+            Log.e(TAG, "Traceroute error: " + e.getMessage(), e);
+            deliver(session, () -> callback.onTracerouteError(e.getMessage()));
+        } finally {
+            session.done = true;
         }
     }
 
     // Quick ping (single test) for device details
-    public static void quickPing(String host, PingCallback callback) {
-        pingHost(host, 4, callback); // 4 pings for quick test
+    public static Session quickPing(String host, PingCallback callback) {
+        return pingHost(host, 4, callback); // 4 pings for quick test
     }
 
     // Multi-ping for detailed analysis
-    public static void detailedPing(String host, PingCallback callback) {
-        pingHost(host, 10, callback); // 10 pings for detailed analysis
+    public static Session detailedPing(String host, PingCallback callback) {
+        return pingHost(host, 10, callback); // 10 pings for detailed analysis
     }
-}
\ No newline at end of file
+}
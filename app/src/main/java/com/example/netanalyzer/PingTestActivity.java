@@ -18,13 +18,31 @@ import android.util.Log;
 
 public class PingTestActivity extends AppCompatActivity {
 
-    private EditText hostInput;
+    private EditText hostInput, intervalInput;
     private Button pingButton, quickTestButton;
     private TextView resultText, progressText;
     private ProgressBar progressBar;
     private RecyclerView historyRecyclerView;
     private PingHistoryAdapter historyAdapter;
     private List<PingResult> pingHistory = new ArrayList<>();
+    private PingService.Session pingSession;
+
+    // Continuous mode: one probe a second; the chart holds the last hour, while the
+    // session's PingResult keeps whole-run statistics in its fixed-size histogram
+    private static final long CONTINUOUS_INTERVAL_MS = 1000;
+    private static final int CHART_CAPACITY = 3600;
+    private Button continuousButton;
+    private View continuousCard;
+    private TextView continuousTitle, continuousStats;
+    private LatencyChartView latencyChart;
+    private final LatencyRing continuousRing = new LatencyRing(CHART_CAPACITY);
+    private PingService.Session continuousSession;
+    private PingResult continuousResult;
+
+    private Button tracerouteButton;
+    private View tracerouteCard;
+    private TextView tracerouteTitle, tracerouteText;
+    private PingService.Session tracerouteSession;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -55,11 +73,22 @@ public class PingTestActivity extends AppCompatActivity {
 
     private void initializeViews() {
         hostInput = findViewById(R.id.hostInput);
+        intervalInput = findViewById(R.id.intervalInput);
         pingButton = findViewById(R.id.pingButton);
         quickTestButton = findViewById(R.id.quickTestButton);
         resultText = findViewById(R.id.resultText);
         progressText = findViewById(R.id.progressText);
         progressBar = findViewById(R.id.progressBar);
+        continuousButton = findViewById(R.id.continuousButton);
+        continuousCard = findViewById(R.id.continuousCard);
+        continuousTitle = findViewById(R.id.continuousTitle);
+        continuousStats = findViewById(R.id.continuousStats);
+        latencyChart = findViewById(R.id.latencyChart);
+        latencyChart.setRing(continuousRing);
+        tracerouteButton = findViewById(R.id.tracerouteButton);
+        tracerouteCard = findViewById(R.id.tracerouteCard);
+        tracerouteTitle = findViewById(R.id.tracerouteTitle);
+        tracerouteText = findViewById(R.id.tracerouteText);
 
         // Pre-populate with common test targets
         setupQuickTestButtons();
@@ -81,12 +110,37 @@ public class PingTestActivity extends AppCompatActivity {
             }
             startPingTest(host, 4); // 4 pings for quick test
         });
+
+        continuousButton.setOnClickListener(v -> {
+            if (continuousSession != null) {
+                stopContinuousPing();
+                return;
+            }
+            String host = hostInput.getText().toString().trim();
+            if (host.isEmpty()) {
+                Toast.makeText(this, "Enter a host or IP address", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            startContinuousPing(host);
+        });
+
+        tracerouteButton.setOnClickListener(v -> {
+            String host = hostInput.getText().toString().trim();
+            if (host.isEmpty()) {
+                Toast.makeText(this, "Enter a host or IP address", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            startTraceroute(host);
+        });
     }
 
     private void setupQuickTestButtons() {
         // Popular websites for testing
         String[] testServers = {"Google", "YouTube", "Facebook", "Instagram", "WhatsApp", "Router"};
         String[] testHosts = {"google.com", "youtube.com", "facebook.com", "instagram.com", "whatsapp.com", "192.168.1.1"};
+        // Resolved while the user is still choosing, so a quick test starts pinging at once
+        DnsCache.configure(this);
+        DnsCache.shared().prefetch(testHosts);
 
         for (int i = 0; i < testServers.length; i++) {
             int buttonId = getResources().getIdentifier("testButton" + (i + 1), "id", getPackageName());
@@ -123,53 +177,208 @@ public class PingTestActivity extends AppCompatActivity {
         pingButton.setEnabled(false);
         quickTestButton.setEnabled(false);
 
-        PingService.pingHost(host, count, new PingService.PingCallback() {
+        // Only the latest test drives the progress and result views
+        if (pingSession != null) pingSession.cancel();
+        pingSession = PingService.pingHost(host, count, readIntervalMs(PingService.PING_INTERVAL_MS),
+                new PingService.PingCallback() {
             @Override
             public void onPingProgress(String message) {
-                runOnUiThread(() -> progressText.setText(message));
+                progressText.setText(message);
             }
 
             @Override
             public void onPingComplete(PingResult result) {
-                runOnUiThread(() -> {
-                    progressBar.setVisibility(View.GONE);
-                    progressText.setVisibility(View.GONE);
-                    pingButton.setEnabled(true);
-                    quickTestButton.setEnabled(true);
-
-                    if (result.isSuccess()) {
-                        resultText.setText(result.getFormattedResult());
-                        resultText.setTextColor(getResources().getColor(android.R.color.holo_green_dark, getTheme()));
-
-                        // Add to history
-                        pingHistory.add(0, result); // Add to beginning
-                        historyAdapter.notifyDataSetChanged();
-
-                        // Show success message
-                        Toast.makeText(PingTestActivity.this,
-                                "Ping successful! Avg: " + result.getAvgTime() + "ms",
-                                Toast.LENGTH_SHORT).show();
-                    } else {
-                        resultText.setText("Ping failed: " + result.getErrorMessage());
-                        resultText.setTextColor(getResources().getColor(android.R.color.holo_red_dark, getTheme()));
-                    }
-                });
+                progressBar.setVisibility(View.GONE);
+                progressText.setVisibility(View.GONE);
+                pingButton.setEnabled(true);
+                quickTestButton.setEnabled(true);
+
+                if (result.isSuccess()) {
+                    resultText.setText(result.getFormattedResult() + "\n" + result.getFormattedPercentiles());
+                    resultText.setTextColor(getResources().getColor(android.R.color.holo_green_dark, getTheme()));
+
+                    // Add to history
+                    pingHistory.add(0, result); // Add to beginning
+                    historyAdapter.notifyDataSetChanged();
+
+                    // Show success message
+                    Toast.makeText(PingTestActivity.this,
+                            "Ping successful! Avg: " + PingResult.formatMillis(result.getAvgTime()),
+                            Toast.LENGTH_SHORT).show();
+                } else {
+                    resultText.setText("Ping failed: " + result.getErrorMessage());
+                    resultText.setTextColor(getResources().getColor(android.R.color.holo_red_dark, getTheme()));
+                }
             }
 
             @Override
             public void onPingError(String error) {
-                runOnUiThread(() -> {
-                    progressBar.setVisibility(View.GONE);
-                    progressText.setVisibility(View.GONE);
-                    pingButton.setEnabled(true);
-                    quickTestButton.setEnabled(true);
-                    resultText.setText("Error: " + error);
-                    resultText.setTextColor(getResources().getColor(android.R.color.holo_red_dark, getTheme()));
-                });
+                progressBar.setVisibility(View.GONE);
+                progressText.setVisibility(View.GONE);
+                pingButton.setEnabled(true);
+                quickTestButton.setEnabled(true);
+                resultText.setText("Error: " + error);
+                resultText.setTextColor(getResources().getColor(android.R.color.holo_red_dark, getTheme()));
+            }
+        });
+    }
+
+    // Interval from the input field, clamped to what the pinger accepts; defaultMs if blank
+    private long readIntervalMs(long defaultMs) {
+        String text = intervalInput.getText().toString().trim();
+        if (text.isEmpty()) return defaultMs;
+        long intervalMs;
+        try {
+            intervalMs = Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            intervalMs = defaultMs;
+        }
+        long clamped = Math.max(IcmpPinger.MIN_INTERVAL_MS, Math.min(IcmpPinger.MAX_INTERVAL_MS, intervalMs));
+        if (clamped != intervalMs) intervalInput.setText(String.valueOf(clamped));
+        return clamped;
+    }
+
+    private void startContinuousPing(String host) {
+        continuousRing.clear();
+        continuousResult = new PingResult(host);
+        continuousCard.setVisibility(View.VISIBLE);
+        continuousTitle.setText("Live Latency: " + host);
+        continuousStats.setText("Resolving " + host + "...");
+        continuousButton.setText("Stop Continuous Ping");
+        latencyChart.invalidate();
+
+        continuousSession = PingService.pingContinuous(host, readIntervalMs(CONTINUOUS_INTERVAL_MS),
+                new PingService.SampleCallback() {
+            @Override
+            public void onStarted(String ip, String method) {
+                continuousResult.setIpAddress(ip);
+                continuousResult.setMethod(method);
+                continuousTitle.setText("Live Latency: " + host + " (" + ip + ")");
+            }
+
+            @Override
+            public void onSample(int seq, long rttNanos) {
+                continuousRing.add(rttNanos);
+                continuousResult.setSent(continuousResult.getSent() + 1);
+                if (rttNanos >= 0) {
+                    continuousResult.recordRtt(rttNanos);
+                    continuousResult.setReceived(continuousResult.getReceived() + 1);
+                    continuousResult.setSuccess(true);
+                } else {
+                    continuousResult.setLost(continuousResult.getLost() + 1);
+                }
+                updateContinuousStats(seq, rttNanos);
+                latencyChart.invalidate();
+            }
+
+            @Override
+            public void onError(String error) {
+                continuousStats.setText("Error: " + error);
+                stopContinuousPing();
+            }
+        });
+    }
+
+    private void updateContinuousStats(int seq, long rttNanos) {
+        String last = rttNanos >= 0 ? PingResult.formatMillis(rttNanos / 1e6) : "timeout";
+        String stats = String.format("Last: %s (seq %d) | Sent: %d | Loss: %s\n"
+                        + "Chart, last %d: avg %s | loss %.1f%%",
+                last, seq, continuousResult.getSent(), continuousResult.getFormattedPacketLoss(),
+                continuousRing.size(), PingResult.formatMillis(continuousRing.getMeanMillis()),
+                continuousRing.getLossPercent());
+        if (continuousResult.getReceived() > 0) {
+            stats += "\n" + continuousResult.getFormattedPercentiles();
+        }
+        continuousStats.setText(stats);
+    }
+
+    // Stops the continuous run and files its whole-run summary in the history
+    private void stopContinuousPing() {
+        if (continuousSession != null) {
+            continuousSession.cancel();
+            continuousSession = null;
+        }
+        continuousButton.setText("Continuous Ping");
+        if (continuousResult != null && continuousResult.getSent() > 0) {
+            if (!continuousResult.isSuccess()) continuousResult.setErrorMessage("No response from host");
+            pingHistory.add(0, continuousResult);
+            historyAdapter.notifyItemInserted(0);
+        }
+        continuousResult = null;
+    }
+
+    private void startTraceroute(String host) {
+        if (tracerouteSession != null) {
+            tracerouteSession.cancel();
+        }
+        tracerouteCard.setVisibility(View.VISIBLE);
+        tracerouteTitle.setText("Traceroute: " + host);
+        tracerouteText.setText("Resolving " + host + "...");
+        tracerouteButton.setEnabled(false);
+
+        tracerouteSession = PingService.traceroute(host, new PingService.TracerouteCallback() {
+            @Override
+            public void onTracerouteStarted(String ip, int maxHops) {
+                tracerouteTitle.setText("Traceroute: " + host + " (" + ip + ")");
+                tracerouteText.setText("Probing up to " + maxHops + " hops at once...");
+            }
+
+            @Override
+            public void onTracerouteComplete(Traceroute.Result result) {
+                tracerouteSession = null;
+                tracerouteButton.setEnabled(true);
+                tracerouteText.setText(formatTraceroute(result));
+            }
+
+            @Override
+            public void onTracerouteError(String error) {
+                tracerouteSession = null;
+                tracerouteButton.setEnabled(true);
+                tracerouteText.setText("Error: " + error);
             }
         });
     }
 
+    private static String formatTraceroute(Traceroute.Result result) {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%-3s %-16s %5s %9s %9s %9s\n", "#", "Address", "Loss", "p50", "p90", "max"));
+        boolean estimated = false;
+        for (Traceroute.Hop hop : result.getHops()) {
+            text.append(String.format("%-3d ", hop.getTtl()));
+            if (hop.getReceived() == 0) {
+                text.append(String.format("%-16s %4.0f%%\n", "*", hop.getLossPercent()));
+                continue;
+            }
+            String prefix = hop.isEstimated() && !hop.isDestination() ? "~" : "";
+            estimated |= !prefix.isEmpty();
+            text.append(String.format("%-16s %4.0f%% %9s %9s %9s", hop.getAddress(), hop.getLossPercent(),
+                    prefix + PingResult.formatMillis(hop.getPercentileMillis(50)),
+                    prefix + PingResult.formatMillis(hop.getPercentileMillis(90)),
+                    prefix + PingResult.formatMillis(hop.getRtts().getMaxNanos() / 1e6)));
+            if (hop.isUnreachable()) text.append(" !unreachable");
+            text.append('\n');
+        }
+        text.append(result.isReached() ? "Destination reached in " + result.getHops().size() + " hops"
+                : "Destination not reached");
+        text.append(String.format(" (%.1f s, %s)", result.getElapsedNanos() / 1e9, result.getMethod()));
+        if (estimated) text.append("\n~ estimated from ping output timing");
+        return text.toString();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (pingSession != null) {
+            pingSession.cancel();
+        }
+        if (continuousSession != null) {
+            continuousSession.cancel();
+        }
+        if (tracerouteSession != null) {
+            tracerouteSession.cancel();
+        }
+    }
+
     @Override
     public boolean onSupportNavigateUp() {
         onBackPressed();
@@ -0,0 +1,127 @@
+package com.example.netanalyzer;
+
+// Port lists for the port scanner, ordered by how often a service is found on them so
+// that the interesting results arrive first.
+public final class PortProfiles {
+
+    public enum Profile {
+        TOP_100("Top 100 ports"),
+        TOP_1000("Top 1000 ports"),
+        FULL("All ports (1-65535)");
+
+        private final String label;
+
+        Profile(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() { return label; }
+    }
+
+    // nmap-services TCP frequency order
+    private static final int[] TOP_100 = {
+            80, 23, 443, 21, 22, 25, 3389, 110, 445, 139, 143, 53, 135, 3306, 8080, 1723, 111,
+            995, 993, 5900, 1025, 587, 8888, 199, 1720, 465, 548, 113, 81, 6001, 10000, 514,
+            5060, 179, 1026, 2000, 8443, 8000, 32768, 554, 26, 1433, 49152, 2001, 515, 8008,
+            49154, 1027, 5666, 646, 5000, 5631, 631, 49153, 8081, 2049, 88, 79, 5800, 106,
+            2121, 1110, 49155, 6000, 513, 990, 5357, 427, 49156, 543, 544, 5101, 144, 7, 389,
+            8009, 3128, 444, 9999, 5009, 7070, 5190, 3000, 5432, 1900, 3986, 13, 1029, 9, 5051,
+            6646, 49157, 1028, 873, 1755, 2717, 4899, 9100, 119, 37
+    };
+
+    // Services common on home/office LANs (media servers, IoT, cameras, admin UIs) that
+    // follow the top 100; the rest of the top 1000 is filled in port order
+    private static final int[] LAN_SERVICES = {
+            62078, 1883, 8883, 9000, 8200, 32400, 8096, 8123, 1400, 7000, 7100, 5555, 8060,
+            10001, 37777, 34567, 8554, 1935, 6379, 27017, 9200, 11211, 5672, 8086, 3001, 5001,
+            2222, 2375, 2376, 6443, 10250, 9090, 9091, 8181, 4000, 4443, 8880, 7547, 49000,
+            5985, 5986, 1194, 8291, 8728, 8090, 8088, 8082, 8083, 8084, 8085, 9443, 10443,
+            3283, 8001, 8002, 8010, 6667, 6668, 4070, 55443, 52869, 20005, 2869, 3689, 7676,
+            9080, 9001, 9002, 5050, 5222, 5269, 1521, 3690, 4369, 5984, 7474, 8161, 8500,
+            9092, 2181, 50000, 8020, 902, 912, 3260, 4848, 7001, 7002, 9418, 10080, 18080,
+            25565, 27015, 3074, 3478, 5228, 5938, 6881, 8333, 9050, 51413, 1080
+    };
+
+    private static final int TOP_1000_SIZE = 1000;
+
+    private static int[] top1000;
+    private static int[] full;
+
+    private PortProfiles() {
+    }
+
+    // The FULL list is shared to avoid a 256 KB copy per scan; callers must not modify it
+    public static synchronized int[] ports(Profile profile) {
+        switch (profile) {
+            case TOP_100:
+                return TOP_100.clone();
+            case TOP_1000:
+                if (top1000 == null) top1000 = build(TOP_1000_SIZE);
+                return top1000.clone();
+            case FULL:
+            default:
+                if (full == null) full = build(65535);
+                return full;
+        }
+    }
+
+    // Short service label for display; null when the port has no well-known service
+    public static String serviceName(int port) {
+        switch (port) {
+            case 21: return "ftp";
+            case 22: return "ssh";
+            case 23: return "telnet";
+            case 25: return "smtp";
+            case 53: return "dns";
+            case 80: return "http";
+            case 110: return "pop3";
+            case 139: return "netbios";
+            case 143: return "imap";
+            case 443: return "https";
+            case 445: return "smb";
+            case 515: return "printer";
+            case 548: return "afp";
+            case 554: return "rtsp";
+            case 631: return "ipp";
+            case 1883: return "mqtt";
+            case 1900: return "upnp";
+            case 3306: return "mysql";
+            case 3389: return "rdp";
+            case 5000: return "upnp";
+            case 5353: return "mdns";
+            case 5432: return "postgres";
+            case 5900: return "vnc";
+            case 8008: return "cast";
+            case 8009: return "cast";
+            case 8080: return "http-alt";
+            case 8443: return "https-alt";
+            case 9100: return "jetdirect";
+            case 32400: return "plex";
+            case 62078: return "iphone-sync";
+            default: return null;
+        }
+    }
+
+    private static int[] build(int size) {
+        int[] ports = new int[size];
+        boolean[] used = new boolean[65536];
+        int n = 0;
+        for (int port : TOP_100) {
+            used[port] = true;
+            ports[n++] = port;
+        }
+        for (int port : LAN_SERVICES) {
+            if (n == size) break;
+            if (used[port]) continue;
+            used[port] = true;
+            ports[n++] = port;
+        }
+        // Remaining slots in port order, so well-known ports come first
+        for (int port = 1; port <= 65535 && n < size; port++) {
+            if (used[port]) continue;
+            used[port] = true;
+            ports[n++] = port;
+        }
+        return ports;
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.netanalyzer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// TCP connect port scanner for a single host, built on NioConnectProber. The send rate,
+// in-flight window and timeout adapt to the RTTs and timeouts the host produces.
+public class PortScanner {
+
+    public interface Listener {
+        void onPortOpen(int port, long rttNanos);
+        void onProgress(int scanned, int total);
+    }
+
+    private final int address;
+    private final NioConnectProber prober = new NioConnectProber();
+    private volatile boolean cancelled = false;
+
+    public PortScanner(int address) {
+        this.address = address;
+    }
+
+    // Open ports' connected channels go to this handler (e.g. ServiceFingerprinter)
+    public void setConnectionHandler(NioConnectProber.ConnectionHandler handler) {
+        prober.setConnectionHandler(handler);
+    }
+
+    public void cancel() {
+        cancelled = true;
+        prober.cancel();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public Result scan(PortProfiles.Profile profile, Listener listener) throws IOException {
+        return scan(PortProfiles.ports(profile), listener);
+    }
+
+    public Result scan(int[] ports, Listener listener) throws IOException {
+        long startNanos = System.nanoTime();
+        AdaptiveController controller = new AdaptiveController();
+        prober.setController(controller);
+
+        int[][] openPorts = {new int[16]};
+        int[] counts = new int[4];
+        int[] scanned = new int[1];
+        int progressStep = Math.max(1, ports.length / 100);
+
+        NioConnectProber.TargetSource source = new NioConnectProber.TargetSource() {
+            private int next = 0;
+
+            @Override
+            public boolean next(NioConnectProber.Target target) {
+                if (next >= ports.length) return false;
+                target.address = address;
+                target.port = ports[next++];
+                return true;
+            }
+        };
+
+        prober.run(source, (addr, port, state, rttNanos) -> {
+            counts[state]++;
+            if (state == NioConnectProber.OPEN) {
+                int n = counts[NioConnectProber.OPEN];
+                if (n > openPorts[0].length) {
+                    // Rare: most hosts have only a handful of open ports
+                    openPorts[0] = Arrays.copyOf(openPorts[0], openPorts[0].length * 2);
+                }
+                openPorts[0][n - 1] = port;
+                listener.onPortOpen(port, rttNanos);
+            }
+            if (++scanned[0] % progressStep == 0 || scanned[0] == ports.length) {
+                listener.onProgress(scanned[0], ports.length);
+            }
+        });
+
+        int openCount = counts[NioConnectProber.OPEN];
+        int[] result = Arrays.copyOf(openPorts[0], openCount);
+        Arrays.sort(result);
+        return new Result(Ipv4Subnet.format(address), result, scanned[0],
+                counts[NioConnectProber.CLOSED],
+                counts[NioConnectProber.TIMEOUT] + counts[NioConnectProber.UNREACHABLE],
+                System.nanoTime() - startNanos, controller.rate, cancelled);
+    }
+
+    // Rate-based flow control in the spirit of nmap's timing engine: the rate grows while
+    // the host answers as it did at the start, and halves when the share of timed-out probes
+    // rises above the share seen in the first epoch, or the epoch's RTTs climb well above the
+    // fastest seen (the host or the Wi-Fi link is queueing or dropping probes). Ports a
+    // firewall drops time out from the start, so they set the baseline rather than slow
+    // the scan.
+    static class AdaptiveController implements NioConnectProber.Controller {
+        static final double MIN_RATE = 200;
+        static final double INITIAL_RATE = 1000;
+        static final double MAX_RATE = 20000;
+        static final int MIN_WINDOW = 16;
+        static final int MAX_WINDOW = 4096;
+        static final int MIN_TIMEOUT_MS = 100;
+        static final int INITIAL_TIMEOUT_MS = 1000;
+        static final int MAX_TIMEOUT_MS = 1500;
+        static final int EPOCH = 256;
+        // Timeout share above the baseline that counts as loss
+        static final double LOSS_TOLERANCE = 0.05;
+        // Mean epoch RTT over the fastest RTT seen that counts as queueing
+        static final double RTT_INFLATION = 2.0;
+        // Added to the inflation bound so jitter on sub-millisecond links isn't queueing
+        static final long RTT_SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+        private static final long MAX_BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+        double rate = INITIAL_RATE;
+        int timeoutMs = INITIAL_TIMEOUT_MS;
+        private long nextSendNanos = 0;
+        private long srttNanos = -1;
+        private long rttVarNanos = 0;
+        private int epochResults = 0;
+        private int epochTimeouts = 0;
+        private int epochRttSamples = 0;
+        private long epochRttSumNanos = 0;
+        private long minRttNanos = Long.MAX_VALUE;
+        // -1 until the first epoch ends
+        private double baselineTimeoutRatio = -1;
+
+        @Override
+        public int window() {
+            // Enough probes in flight to sustain the rate across one timeout, with headroom
+            int window = (int) (rate * timeoutMs / 1000.0 * 1.5);
+            return Math.max(MIN_WINDOW, Math.min(MAX_WINDOW, window));
+        }
+
+        @Override
+        public int timeoutMs() {
+            return timeoutMs;
+        }
+
+        @Override
+        public long reserveSend(long nowNanos) {
+            if (nextSendNanos - nowNanos > 0) {
+                return nextSendNanos - nowNanos;
+            }
+            // Allow a short burst to catch up after a select() wakeup
+            long base = Math.max(nextSendNanos, nowNanos - MAX_BURST_NANOS);
+            nextSendNanos = base + (long) (1_000_000_000L / rate);
+            return 0;
+        }
+
+        @Override
+        public void onResult(int state, long rttNanos) {
+            if (state == NioConnectProber.OPEN || state == NioConnectProber.CLOSED) {
+                onRttSample(rttNanos);
+            } else if (state == NioConnectProber.TIMEOUT) {
+                epochTimeouts++;
+            }
+
+            if (++epochResults < EPOCH) return;
+
+            double ratio = (double) epochTimeouts / epochResults;
+            if (baselineTimeoutRatio < 0) baselineTimeoutRatio = ratio;
+            boolean inflated = epochRttSamples > 0
+                    && epochRttSumNanos / epochRttSamples > minRttNanos * RTT_INFLATION + RTT_SLACK_NANOS;
+            if (ratio <= baselineTimeoutRatio + LOSS_TOLERANCE && !inflated) {
+                rate = Math.min(MAX_RATE, rate * 1.5);
+                baselineTimeoutRatio = Math.min(baselineTimeoutRatio, ratio);
+            } else {
+                rate = Math.max(MIN_RATE, rate / 2);
+            }
+            epochResults = 0;
+            epochTimeouts = 0;
+            epochRttSamples = 0;
+            epochRttSumNanos = 0;
+        }
+
+        private void onRttSample(long rttNanos) {
+            epochRttSamples++;
+            epochRttSumNanos += rttNanos;
+            minRttNanos = Math.min(minRttNanos, rttNanos);
+            if (srttNanos < 0) {
+                srttNanos = rttNanos;
+                rttVarNanos = rttNanos / 2;
+            } else {
+                rttVarNanos = (3 * rttVarNanos + Math.abs(srttNanos - rttNanos)) / 4;
+                srttNanos = (7 * srttNanos + rttNanos) / 8;
+            }
+            long rto = TimeUnit.NANOSECONDS.toMillis(srttNanos + 4 * rttVarNanos);
+            timeoutMs = (int) Math.max(MIN_TIMEOUT_MS, Math.min(MAX_TIMEOUT_MS, rto));
+        }
+    }
+
+    public static class Result {
+        private final String host;
+        private final int[] openPorts;
+        private final int scanned;
+        private final int closed;
+        private final int filtered;
+        private final long elapsedNanos;
+        private final double finalRate;
+        private final boolean cancelled;
+
+        Result(String host, int[] openPorts, int scanned, int closed, int filtered,
+               long elapsedNanos, double finalRate, boolean cancelled) {
+            this.host = host;
+            this.openPorts = openPorts;
+            this.scanned = scanned;
+            this.closed = closed;
+            this.filtered = filtered;
+            this.elapsedNanos = elapsedNanos;
+            this.finalRate = finalRate;
+            this.cancelled = cancelled;
+        }
+
+        public String getHost() { return host; }
+        public int[] getOpenPorts() { return openPorts; }
+        public int getScanned() { return scanned; }
+        public int getClosed() { return closed; }
+        public int getFiltered() { return filtered; }
+        public long getElapsedMillis() { return TimeUnit.NANOSECONDS.toMillis(elapsedNanos); }
+        public double getFinalRate() { return finalRate; }
+        public boolean isCancelled() { return cancelled; }
+
+        public String getSummary() {
+            return String.format("%d open, %d closed, %d filtered | %d ports in %.1fs",
+                    openPorts.length, closed, filtered, scanned, elapsedNanos / 1_000_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.netanalyzer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Decides when the background monitor wakes up and what it probes then. Every monitored
+// device has its own interval, and a device that stops answering backs off
+// exponentially. When the earliest device falls due, every device that would fall due
+// within a quarter of its own interval rides along on the same wake-up, so devices on
+// similar intervals settle into one shared radio wake-up instead of one each.
+// Times are milliseconds on a monotonic clock. Not thread-safe.
+public class ProbeScheduler {
+
+    public static final long MIN_INTERVAL_MS = 10_000;
+    // Longest a failing device is left unprobed (unless its own interval is longer)
+    public static final long MAX_BACKOFF_MS = 30 * 60_000;
+    // A device may be probed up to interval / COALESCE_DIVISOR early to share a wake-up
+    private static final int COALESCE_DIVISOR = 4;
+    // Caps the backoff shift so it cannot overflow
+    private static final int MAX_BACKOFF_STEPS = 16;
+
+    private final Map<String, Target> targets = new LinkedHashMap<>();
+    // Interval multiplier while the battery is low or in power-save mode
+    private int stretch = 1;
+
+    public static class Target {
+        private final String key;
+        private int address;
+        private long intervalMs;
+        private long dueAt;
+        private int misses = 0;
+
+        Target(String key) {
+            this.key = key;
+        }
+
+        public String getKey() { return key; }
+        public int getAddress() { return address; }
+        public long getIntervalMs() { return intervalMs; }
+        public long getDueAt() { return dueAt; }
+        public int getMisses() { return misses; }
+    }
+
+    // Adds a device (due straight away) or updates its address and interval
+    public void put(String key, int address, long intervalMs, long now) {
+        Target target = targets.get(key);
+        if (target == null) {
+            target = new Target(key);
+            target.dueAt = now;
+            targets.put(key, target);
+        }
+        target.address = address;
+        target.intervalMs = Math.max(MIN_INTERVAL_MS, intervalMs);
+        target.dueAt = Math.min(target.dueAt, now + delayFor(target));
+    }
+
+    public void remove(String key) {
+        targets.remove(key);
+    }
+
+    // Drops every device whose key isn't in keys
+    public void retainAll(Set<String> keys) {
+        targets.keySet().retainAll(keys);
+    }
+
+    public boolean contains(String key) {
+        return targets.containsKey(key);
+    }
+
+    public int size() {
+        return targets.size();
+    }
+
+    public void setStretch(int stretch) {
+        this.stretch = Math.max(1, stretch);
+    }
+
+    public int getStretch() {
+        return stretch;
+    }
+
+    // When the next device falls due, or Long.MAX_VALUE with nothing to monitor
+    public long nextWakeup() {
+        long next = Long.MAX_VALUE;
+        for (Target target : targets.values()) {
+            next = Math.min(next, target.dueAt);
+        }
+        return next;
+    }
+
+    // Everything to probe on a wake-up at now: the due devices plus those close enough
+    // to due to join them
+    public List<Target> collectDue(long now) {
+        List<Target> due = new ArrayList<>();
+        for (Target target : targets.values()) {
+            long early = delayFor(target) / COALESCE_DIVISOR;
+            if (target.dueAt <= now + early) due.add(target);
+        }
+        return due;
+    }
+
+    // Reschedules a probed device: a full interval after an answer, doubling with every
+    // miss in a row
+    public void onResult(Target target, boolean alive, long now) {
+        if (alive) {
+            target.misses = 0;
+        } else {
+            target.misses++;
+        }
+        target.dueAt = now + delayFor(target);
+    }
+
+    long delayFor(Target target) {
+        long interval = target.intervalMs * stretch;
+        if (target.misses == 0) return interval;
+        long backoff = interval << Math.min(target.misses, MAX_BACKOFF_STEPS);
+        return Math.max(interval, Math.min(backoff, MAX_BACKOFF_MS));
+    }
+}
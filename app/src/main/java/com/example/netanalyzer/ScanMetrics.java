@@ -0,0 +1,66 @@
+package com.example.netanalyzer;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-stage timings of one network scan, so each stage's cost can be seen separately
+public class ScanMetrics {
+
+    private final long startNanos = System.nanoTime();
+    private volatile long firstDeviceNanos = -1;
+    private long totalNanos = -1;
+
+    private SubnetSweeper.SweepStats sweepStats;
+    private long arpNanos = -1;
+    private HostnameResolver.Stats hostnameStats;
+
+    public void markFirstDevice() {
+        if (firstDeviceNanos < 0) {
+            firstDeviceNanos = System.nanoTime() - startNanos;
+        }
+    }
+
+    public void markFinished() {
+        totalNanos = System.nanoTime() - startNanos;
+    }
+
+    public void setSweepStats(SubnetSweeper.SweepStats sweepStats) { this.sweepStats = sweepStats; }
+    public SubnetSweeper.SweepStats getSweepStats() { return sweepStats; }
+
+    public void setArpNanos(long arpNanos) { this.arpNanos = arpNanos; }
+
+    public void setHostnameStats(HostnameResolver.Stats hostnameStats) { this.hostnameStats = hostnameStats; }
+    public HostnameResolver.Stats getHostnameStats() { return hostnameStats; }
+
+    public long getFirstDeviceMillis() { return toMillis(firstDeviceNanos); }
+    public long getTotalMillis() { return toMillis(totalNanos); }
+    public long getArpMillis() { return toMillis(arpNanos); }
+
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        if (sweepStats != null) {
+            sb.append(sweepStats.getSummary());
+        }
+        if (firstDeviceNanos >= 0) {
+            sb.append(", first device after ").append(getFirstDeviceMillis()).append(" ms");
+        }
+        if (arpNanos >= 0) {
+            sb.append("\nARP: ").append(getArpMillis()).append(" ms");
+        }
+        if (hostnameStats != null) {
+            sb.append(arpNanos >= 0 ? " | " : "\n").append(hostnameStats);
+        }
+        if (totalNanos >= 0) {
+            sb.append("\nTotal: ").append(getTotalMillis()).append(" ms");
+        }
+        return sb.toString();
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return getSummary().replace('\n', ' ');
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.netanalyzer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+// Banner-grab stage that runs behind the port scanner. It takes over the channels the
+// scanner has already connected, sends a protocol-appropriate probe (or waits for the
+// server's greeting), reads the reply into a pooled direct buffer capped at BANNER_CAP
+// bytes, and matches it against ServiceSignatures. One selector thread serves every
+// grab in flight.
+public class ServiceFingerprinter implements NioConnectProber.ConnectionHandler {
+
+    // Called on the fingerprinter thread, or on the prober thread for TLS ports
+    public interface Listener {
+        void onServiceIdentified(ServiceInfo info);
+    }
+
+    private static final int BANNER_CAP = 2048;
+    private static final int MAX_BUFFERS = 256;
+    private static final long PASSIVE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1200);
+    private static final long GRAB_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(3000);
+    // Binary greetings carry no line ending: finish shortly after the first bytes arrive
+    private static final long QUIET_NANOS = TimeUnit.MILLISECONDS.toNanos(150);
+
+    private final Listener listener;
+    private final Selector selector;
+    private final DirectBufferPool bufferPool = new DirectBufferPool(BANNER_CAP, MAX_BUFFERS);
+    private final ConcurrentLinkedQueue<Grab> incoming = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<Grab> waiting = new ArrayDeque<>();
+    private final ArrayDeque<Grab> active = new ArrayDeque<>();
+    private Thread thread;
+    private volatile boolean finishing = false;
+    private volatile boolean cancelled = false;
+
+    public ServiceFingerprinter(Listener listener) throws IOException {
+        this.listener = listener;
+        this.selector = Selector.open();
+    }
+
+    public void start() {
+        thread = new Thread(this::loop, "ServiceFingerprinter");
+        thread.start();
+    }
+
+    // Called on the prober thread for every open port
+    @Override
+    public boolean onConnected(int address, int port, SocketChannel channel, long rttNanos) {
+        if (ServiceSignatures.isTlsPort(port)) {
+            // Nothing readable without a TLS handshake; identify by port and let it close
+            listener.onServiceIdentified(ServiceSignatures.match(port, null));
+            return false;
+        }
+        incoming.add(new Grab(Ipv4Subnet.format(address), port, channel));
+        selector.wakeup();
+        return true;
+    }
+
+    // No more channels will be handed over; the thread exits once in-flight grabs finish
+    public void finish() {
+        finishing = true;
+        selector.wakeup();
+    }
+
+    public void cancel() {
+        cancelled = true;
+        selector.wakeup();
+    }
+
+    public void join() throws InterruptedException {
+        if (thread != null) thread.join();
+    }
+
+    private void loop() {
+        try {
+            while (!cancelled) {
+                Grab grab;
+                while ((grab = incoming.poll()) != null) {
+                    waiting.add(grab);
+                }
+                // Admit waiting grabs as buffers become free
+                while (!waiting.isEmpty()) {
+                    ByteBuffer buffer = bufferPool.acquire();
+                    if (buffer == null) break;
+                    begin(waiting.poll(), buffer);
+                }
+
+                if (finishing && active.isEmpty() && waiting.isEmpty() && incoming.isEmpty()) break;
+
+                selector.select(nextWakeMillis());
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Grab g = (Grab) key.attachment();
+                    try {
+                        if (key.isValid() && key.isWritable()) onWritable(g, key);
+                        if (key.isValid() && key.isReadable()) onReadable(g);
+                    } catch (IOException e) {
+                        g.eof = true;
+                    }
+                    if (g.isComplete()) complete(g);
+                }
+
+                checkTimers();
+            }
+        } catch (IOException e) {
+            // Selector failure: fall through and release everything
+        } finally {
+            for (Grab g : active) close(g);
+            for (Grab g : waiting) close(g);
+            Grab g;
+            while ((g = incoming.poll()) != null) close(g);
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    private void begin(Grab g, ByteBuffer buffer) {
+        g.buffer = buffer;
+        g.startNanos = System.nanoTime();
+        active.add(g);
+        try {
+            byte[] probe = ServiceSignatures.probeFor(g.port, g.host);
+            g.key = g.channel.register(selector, SelectionKey.OP_READ, g);
+            if (probe != null) send(g, probe);
+        } catch (IOException e) {
+            g.eof = true;
+            complete(g);
+        }
+    }
+
+    private void send(Grab g, byte[] probe) {
+        g.probe = ByteBuffer.wrap(probe);
+        g.probeSent = true;
+        g.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    private void onWritable(Grab g, SelectionKey key) throws IOException {
+        g.channel.write(g.probe);
+        if (!g.probe.hasRemaining()) {
+            g.probe = null;
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void onReadable(Grab g) throws IOException {
+        int n = g.channel.read(g.buffer);
+        if (n < 0) {
+            g.eof = true;
+        } else if (n > 0 && g.firstDataNanos == 0) {
+            g.firstDataNanos = System.nanoTime();
+        }
+    }
+
+    private void checkTimers() {
+        long now = System.nanoTime();
+        int count = active.size();
+        for (int i = 0; i < count; i++) {
+            Grab g = active.poll();
+            if (g.done) continue;
+            active.add(g);
+
+            boolean silent = g.buffer.position() == 0;
+            if (silent && !g.probeSent && now - g.startNanos > PASSIVE_WAIT_NANOS) {
+                byte[] fallback = ServiceSignatures.fallbackProbe(g.port, g.host);
+                if (fallback != null) send(g, fallback);
+            }
+            if (now - g.startNanos > GRAB_TIMEOUT_NANOS
+                    || (!silent && now - g.firstDataNanos > QUIET_NANOS)) {
+                complete(g);
+            }
+        }
+    }
+
+    private long nextWakeMillis() {
+        // Timers only need coarse resolution; wake often while grabs are running
+        return active.isEmpty() ? 0 : 50;
+    }
+
+    private void complete(Grab g) {
+        if (g.done) return;
+        g.done = true;
+        active.remove(g);
+
+        String banner = null;
+        if (g.buffer != null && g.buffer.position() > 0) {
+            g.buffer.flip();
+            byte[] bytes = new byte[g.buffer.remaining()];
+            g.buffer.get(bytes);
+            banner = new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+        close(g);
+        listener.onServiceIdentified(ServiceSignatures.match(g.port, banner));
+    }
+
+    private void close(Grab g) {
+        if (g.key != null) g.key.cancel();
+        try {
+            g.channel.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+        bufferPool.release(g.buffer);
+        g.buffer = null;
+    }
+
+    private static class Grab {
+        final String host;
+        final int port;
+        final SocketChannel channel;
+        SelectionKey key;
+        ByteBuffer buffer;
+        ByteBuffer probe;
+        boolean probeSent;
+        long startNanos;
+        long firstDataNanos;
+        boolean eof;
+        boolean done;
+
+        Grab(String host, int port, SocketChannel channel) {
+            this.host = host;
+            this.port = port;
+            this.channel = channel;
+        }
+
+        boolean isComplete() {
+            if (done) return false;
+            if (eof || !buffer.hasRemaining()) return true;
+            // A full line (greeting) or a full header block (HTTP/RTSP) is enough
+            int end = buffer.position();
+            if (!probeSent) {
+                for (int i = 0; i < end; i++) {
+                    if (buffer.get(i) == '\n') return true;
+                }
+                return false;
+            }
+            for (int i = 3; i < end; i++) {
+                if (buffer.get(i) == '\n' && buffer.get(i - 2) == '\n') return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.netanalyzer;
+
+import java.io.Serializable;
+
+// What is running on one open port, as identified by ServiceFingerprinter
+public class ServiceInfo implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final int port;
+    private final String service;
+    private final String product;
+    private final String deviceHint;
+    private final String banner;
+
+    public ServiceInfo(int port, String service, String product, String deviceHint, String banner) {
+        this.port = port;
+        this.service = service;
+        this.product = product;
+        this.deviceHint = deviceHint;
+        this.banner = banner;
+    }
+
+    public int getPort() { return port; }
+    public String getService() { return service; }
+    public String getProduct() { return product; }
+    public String getDeviceHint() { return deviceHint; }
+    public String getBanner() { return banner; }
+
+    public String getDisplayText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(port);
+        if (service != null) sb.append(" (").append(service).append(')');
+        if (product != null && !product.isEmpty()) sb.append(" - ").append(product);
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getDisplayText();
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.netanalyzer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Probe selection and the compiled banner signature table used by ServiceFingerprinter.
+// Signatures are grouped by protocol family (picked from the first bytes of the reply),
+// so a banner is only run against the handful of patterns that can apply to it.
+public final class ServiceSignatures {
+
+    private static final int SSH = 0;
+    private static final int HTTP = 1;
+    private static final int RTSP = 2;
+    private static final int GREETING_220 = 3;
+    private static final int VNC = 4;
+    private static final int OTHER = 5;
+    private static final int FAMILIES = 6;
+
+    // family, regex, service, product template ($n = capture group), device hint
+    private static final Object[][] RAW = {
+            {SSH, "^SSH-[\\d.]+-OpenSSH_([\\w.]+)", "ssh", "OpenSSH $1", null},
+            {SSH, "^SSH-[\\d.]+-dropbear_?([\\w.]*)", "ssh", "Dropbear $1", "Embedded/IoT"},
+            {SSH, "^SSH-[\\d.]+-ROSSSH", "ssh", "MikroTik RouterOS", "Router/Gateway"},
+            {SSH, "^SSH-[\\d.]+-Cisco-([\\w.]+)", "ssh", "Cisco SSH $1", "Router/Gateway"},
+            {SSH, "^SSH-[\\d.]+-(\\S+)", "ssh", "$1", null},
+
+            {HTTP, "^Server:[ \\t]*((?:Hikvision-Webs|App-webs|DNVRS-Webs|uc-httpd|Dahua)[^\\r\\n]*)", "http", "$1", "Camera"},
+            {HTTP, "^Server:[ \\t]*(RomPager[^\\r\\n]*)", "http", "$1", "Router/Gateway"},
+            {HTTP, "^Server:[ \\t]*((?:CUPS|HP HTTP Server|EPSON_Linux|Brother|Canon)[^\\r\\n]*)", "http", "$1", "Printer"},
+            {HTTP, "^Server:[ \\t]*([^\\r\\n]*(?:Synology|QNAP)[^\\r\\n]*)", "http", "$1", "NAS"},
+            {HTTP, "^X-Plex-Protocol:", "http", "Plex Media Server", "Media Server"},
+            {HTTP, "^Server:[ \\t]*((?:mini_httpd|GoAhead-Webs|Boa|thttpd|micro_httpd|lighttpd)[^\\r\\n]*)", "http", "$1", "Embedded/IoT"},
+            {HTTP, "^Server:[ \\t]*(Microsoft-IIS[^\\r\\n]*)", "http", "$1", "Computer/Laptop"},
+            {HTTP, "^Server:[ \\t]*([^\\r\\n]+)", "http", "$1", null},
+            {HTTP, "^HTTP/1\\.[01]", "http", null, null},
+
+            {RTSP, "^Server:[ \\t]*([^\\r\\n]+)", "rtsp", "$1", "Camera"},
+            {RTSP, "^RTSP/1\\.0", "rtsp", null, "Camera"},
+
+            {GREETING_220, "^220[ -][^\\r\\n]*?(FileZilla|vsFTPd [\\d.]+|ProFTPD [\\d.]+|Pure-FTPd)", "ftp", "$1", null},
+            {GREETING_220, "^220[ -](\\S+) ESMTP", "smtp", "$1", null},
+            {GREETING_220, "^220[ -][^\\r\\n]*FTP", "ftp", null, null},
+
+            {VNC, "^RFB (\\d{3}\\.\\d{3})", "vnc", "RFB $1", null},
+
+            {OTHER, "^\\+OK", "pop3", null, null},
+            {OTHER, "^\\* OK", "imap", null, null},
+            {OTHER, "(?s)^.\\x00\\x00\\x00\\x0a([\\d.]+[\\w.-]*)", "mysql", "MySQL $1", null},
+            {OTHER, "^\\xff[\\xfb-\\xfe]", "telnet", null, "Embedded/IoT"},
+    };
+
+    private static final Signature[][] TABLE = compile();
+
+    // Ports where the server talks first: just wait for the greeting
+    private static final int[] PASSIVE_PORTS = {21, 22, 23, 25, 110, 143, 587, 3306, 5900};
+    private static final int[] HTTP_PORTS = {80, 81, 631, 5000, 7000, 8000, 8008, 8060, 8080,
+            8081, 8088, 8123, 8888, 9000, 32400};
+    private static final int[] RTSP_PORTS = {554, 8554};
+    // Encrypted from the first byte; identified by port only
+    private static final int[] TLS_PORTS = {443, 465, 993, 995, 8443};
+
+    private ServiceSignatures() {
+    }
+
+    public static boolean isTlsPort(int port) {
+        return contains(TLS_PORTS, port);
+    }
+
+    // Bytes to send straight after connecting, or null to wait for a greeting first
+    public static byte[] probeFor(int port, String host) {
+        if (contains(PASSIVE_PORTS, port)) return null;
+        if (contains(RTSP_PORTS, port)) {
+            return ("OPTIONS rtsp://" + host + ":" + port + "/ RTSP/1.0\r\nCSeq: 1\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1);
+        }
+        if (contains(HTTP_PORTS, port)) return httpProbe(host);
+        return null;
+    }
+
+    // Sent to unknown ports that stayed silent: many IoT admin UIs sit on odd ports
+    public static byte[] fallbackProbe(int port, String host) {
+        return contains(PASSIVE_PORTS, port) ? null : httpProbe(host);
+    }
+
+    private static byte[] httpProbe(String host) {
+        return ("HEAD / HTTP/1.0\r\nHost: " + host + "\r\nUser-Agent: NetAnalyzer\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    // banner is the raw reply decoded as ISO-8859-1 (one char per byte)
+    public static ServiceInfo match(int port, String banner) {
+        if (banner != null && !banner.isEmpty()) {
+            for (Signature signature : TABLE[familyOf(banner)]) {
+                Matcher m = signature.pattern.matcher(banner);
+                if (m.find()) {
+                    return new ServiceInfo(port, signature.service, expand(signature.product, m),
+                            signature.deviceHint, firstLine(banner));
+                }
+            }
+        }
+        String service = isTlsPort(port) ? "tls" : PortProfiles.serviceName(port);
+        return new ServiceInfo(port, service, null, null, firstLine(banner));
+    }
+
+    private static int familyOf(String banner) {
+        if (banner.startsWith("SSH-")) return SSH;
+        if (banner.startsWith("HTTP/")) return HTTP;
+        if (banner.startsWith("RTSP/")) return RTSP;
+        if (banner.startsWith("220")) return GREETING_220;
+        if (banner.startsWith("RFB ")) return VNC;
+        return OTHER;
+    }
+
+    private static Signature[][] compile() {
+        int[] counts = new int[FAMILIES];
+        for (Object[] row : RAW) counts[(Integer) row[0]]++;
+
+        Signature[][] table = new Signature[FAMILIES][];
+        for (int f = 0; f < FAMILIES; f++) table[f] = new Signature[counts[f]];
+
+        int[] fill = new int[FAMILIES];
+        for (Object[] row : RAW) {
+            int family = (Integer) row[0];
+            table[family][fill[family]++] = new Signature(
+                    Pattern.compile((String) row[1], Pattern.MULTILINE | Pattern.CASE_INSENSITIVE),
+                    (String) row[2], (String) row[3], (String) row[4]);
+        }
+        return table;
+    }
+
+    private static String expand(String template, Matcher m) {
+        if (template == null) return null;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if (c == '$' && i + 1 < template.length() && Character.isDigit(template.charAt(i + 1))) {
+                int group = template.charAt(++i) - '0';
+                if (group <= m.groupCount() && m.group(group) != null) sb.append(m.group(group));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString().trim();
+    }
+
+    private static String firstLine(String banner) {
+        if (banner == null) return null;
+        int end = 0;
+        while (end < banner.length() && end < 120) {
+            char c = banner.charAt(end);
+            if (c == '\r' || c == '\n') break;
+            end++;
+        }
+        return banner.substring(0, end);
+    }
+
+    private static boolean contains(int[] ports, int port) {
+        for (int p : ports) {
+            if (p == port) return true;
+        }
+        return false;
+    }
+
+    private static class Signature {
+        final Pattern pattern;
+        final String service;
+        final String product;
+        final String deviceHint;
+
+        Signature(Pattern pattern, String service, String product, String deviceHint) {
+            this.pattern = pattern;
+            this.service = service;
+            this.product = product;
+            this.deviceHint = deviceHint;
+        }
+    }
+}
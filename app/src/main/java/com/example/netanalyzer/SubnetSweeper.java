@@ -0,0 +1,331 @@
+package com.example.netanalyzer;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+// Liveness sweep over a subnet that tunes its own concurrency and per-host timeout
+// from the RTTs it observes. There is no global deadline: the sweep only returns once
+// every address has a definite alive/down answer (or the sweep is cancelled).
+public class SubnetSweeper {
+
+    public interface Listener {
+        void onHostAlive(int address, long rttNanos);
+        void onProgress(int completed, int total);
+    }
+
+    // Answers whether one address is up within the timeout; throws on local errors
+    interface Probe {
+        boolean isReachable(int address, int timeoutMs) throws IOException;
+    }
+
+    static final Probe IS_REACHABLE = (address, timeoutMs) ->
+            Ipv4Subnet.toInetAddress(address).isReachable(timeoutMs);
+
+    // Concurrency window (in-flight probes)
+    static final int MIN_CONCURRENCY = 8;
+    static final int INITIAL_CONCURRENCY = 32;
+    static final int MAX_CONCURRENCY = 128;
+
+    // Per-host timeout bounds
+    private static final int MIN_TIMEOUT_MS = 150;
+    private static final int DEFAULT_TIMEOUT_MS = 500;
+    private static final int MAX_TIMEOUT_MS = 1500;
+
+    // A host that does not answer gets one more probe with a doubled timeout
+    private static final int MAX_ATTEMPTS = 2;
+    private static final int CALIBRATION_PROBES = 3;
+
+    private final Probe prober;
+    private final Object lock = new Object();
+    private final ArrayDeque<Integer> retryQueue = new ArrayDeque<>();
+
+    // Guarded by lock
+    private int limit = INITIAL_CONCURRENCY;
+    private int inFlight = 0;
+    private int completed = 0;
+    private int aliveCount = 0;
+    private int retries = 0;
+    private int decreaseCooldown = 0;
+
+    // RTT estimator (RFC 6298 style), guarded by lock
+    private long srttNanos = -1;
+    private long rttVarNanos = 0;
+    private long minRttNanos = Long.MAX_VALUE;
+
+    private volatile int timeoutMs = DEFAULT_TIMEOUT_MS;
+    private volatile boolean cancelled = false;
+    private ThreadPoolExecutor executor;
+
+    public SubnetSweeper() {
+        this(IS_REACHABLE);
+    }
+
+    SubnetSweeper(Probe prober) {
+        this.prober = prober;
+    }
+
+    // Hosts are walked by index, so only the in-flight and retry addresses are held at once
+    public SweepStats sweep(Ipv4Subnet subnet, int calibrationAddress, Listener listener) {
+        return sweep(subnet.getHostCount(), subnet::hostAt, subnet::indexOf, calibrationAddress, listener);
+    }
+
+    // Sweeps just the given addresses (no calibration probe), e.g. a delta rescan's
+    // known hosts or its slice of the subnet
+    public SweepStats sweep(int[] addresses, Listener listener) {
+        return sweep(addresses.length, index -> addresses[index], address -> -1, 0, listener);
+    }
+
+    private SweepStats sweep(int total, IntUnaryOperator hostAt, IntUnaryOperator indexOf,
+                             int calibrationAddress, Listener listener) {
+        long startNanos = System.nanoTime();
+        BitSet alive = new BitSet(total);
+
+        // Seed the RTT estimator from a host we know should answer (normally the gateway)
+        if (calibrationAddress != 0) {
+            long rtt = calibrate(calibrationAddress);
+            int calibrationIndex = indexOf.applyAsInt(calibrationAddress);
+            if (rtt >= 0 && calibrationIndex >= 0) {
+                alive.set(calibrationIndex);
+                synchronized (lock) {
+                    aliveCount++;
+                }
+                listener.onHostAlive(calibrationAddress, rtt);
+            }
+        }
+
+        // A probe frees its window slot before its thread is back in the pool, so a new
+        // probe can be dispatched while every thread is still busy. The queue holds those
+        // until a thread frees up; at most one window's worth can ever wait in it.
+        executor = new ThreadPoolExecutor(MAX_CONCURRENCY, MAX_CONCURRENCY, 5, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_CONCURRENCY));
+        executor.allowCoreThreadTimeOut(true);
+
+        int next = 0;
+        try {
+            while (true) {
+                int host;
+                int attempt;
+                int skipped = -1;
+                synchronized (lock) {
+                    while (!cancelled && (inFlight >= limit
+                            || (retryQueue.isEmpty() && next >= total && inFlight > 0))) {
+                        lock.wait();
+                    }
+                    if (cancelled) break;
+
+                    if (!retryQueue.isEmpty()) {
+                        host = retryQueue.poll();
+                        attempt = MAX_ATTEMPTS;
+                    } else if (next < total) {
+                        host = next++;
+                        attempt = 1;
+                    } else {
+                        // Nothing queued and nothing in flight: every host has an answer
+                        break;
+                    }
+
+                    if (alive.get(host)) {
+                        // Already confirmed during calibration
+                        skipped = ++completed;
+                    } else {
+                        inFlight++;
+                    }
+                }
+                if (skipped >= 0) {
+                    listener.onProgress(skipped, total);
+                    continue;
+                }
+
+                final int probeHost = host;
+                final int probeAttempt = attempt;
+                executor.execute(() -> probe(hostAt.applyAsInt(probeHost), probeHost, probeAttempt,
+                        total, alive, listener));
+            }
+            if (!cancelled) {
+                // Every probe has its answer, but the last ones may still be reporting it
+                executor.shutdown();
+                executor.awaitTermination(MAX_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        synchronized (lock) {
+            return new SweepStats(total, completed, aliveCount, retries, elapsedNanos,
+                    limit, timeoutMs);
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    private void probe(int address, int host, int attempt, int total, BitSet alive,
+                       Listener listener) {
+        int timeout = attempt == 1 ? timeoutMs : Math.min(MAX_TIMEOUT_MS, timeoutMs * 2);
+        boolean reachable = false;
+        boolean failed = false;
+        long rtt = -1;
+
+        try {
+            long start = System.nanoTime();
+            reachable = prober.isReachable(address, timeout);
+            rtt = System.nanoTime() - start;
+        } catch (Exception e) {
+            // Socket exhaustion and similar local errors are not an answer from the host
+            failed = true;
+        }
+
+        if (reachable) {
+            listener.onHostAlive(address, rtt);
+        }
+
+        int done;
+        synchronized (lock) {
+            inFlight--;
+            if (reachable) {
+                alive.set(host);
+                aliveCount++;
+                onRttSample(rtt);
+                completed++;
+            } else if (failed) {
+                // Back off and give the host its retry straight away
+                decreaseLimit();
+                if (attempt == 1) {
+                    retryQueue.addFirst(host);
+                    retries++;
+                } else {
+                    completed++;
+                }
+            } else if (attempt < MAX_ATTEMPTS) {
+                retryQueue.add(host);
+                retries++;
+            } else {
+                completed++;
+            }
+            if (!failed) increaseLimit();
+            done = completed;
+            lock.notifyAll();
+        }
+        listener.onProgress(done, total);
+    }
+
+    private long calibrate(int address) {
+        long best = -1;
+        for (int i = 0; i < CALIBRATION_PROBES && !cancelled; i++) {
+            try {
+                long start = System.nanoTime();
+                if (prober.isReachable(address, MAX_TIMEOUT_MS)) {
+                    long rtt = System.nanoTime() - start;
+                    synchronized (lock) {
+                        onRttSample(rtt);
+                    }
+                    if (best < 0 || rtt < best) best = rtt;
+                }
+            } catch (Exception e) {
+                // Gateway may not answer probes; fall back to the default timeout
+            }
+        }
+        return best;
+    }
+
+    // Caller holds lock
+    private void onRttSample(long rttNanos) {
+        if (srttNanos < 0) {
+            srttNanos = rttNanos;
+            rttVarNanos = rttNanos / 2;
+        } else {
+            long err = Math.abs(srttNanos - rttNanos);
+            rttVarNanos = (3 * rttVarNanos + err) / 4;
+            srttNanos = (7 * srttNanos + rttNanos) / 8;
+        }
+
+        // RTT inflation on a live host means we are congesting the link: back off
+        if (minRttNanos != Long.MAX_VALUE
+                && rttNanos > 3 * minRttNanos + TimeUnit.MILLISECONDS.toNanos(20)) {
+            decreaseLimit();
+        }
+        if (rttNanos < minRttNanos) minRttNanos = rttNanos;
+
+        long rto = TimeUnit.NANOSECONDS.toMillis(srttNanos + 4 * rttVarNanos);
+        timeoutMs = (int) Math.max(MIN_TIMEOUT_MS, Math.min(MAX_TIMEOUT_MS, rto));
+    }
+
+    // Caller holds lock
+    private void increaseLimit() {
+        if (decreaseCooldown > 0) {
+            decreaseCooldown--;
+        } else if (limit < MAX_CONCURRENCY) {
+            limit++;
+        }
+    }
+
+    // Caller holds lock
+    private void decreaseLimit() {
+        if (decreaseCooldown > 0) {
+            // Failures drain the window too, or a run of them would never shrink it again
+            decreaseCooldown--;
+            return;
+        }
+        limit = Math.max(MIN_CONCURRENCY, limit * 3 / 4);
+        // Let the current window drain before reacting again
+        decreaseCooldown = limit;
+    }
+
+    public static class SweepStats {
+        private final int total;
+        private final int completed;
+        private final int alive;
+        private final int retries;
+        private final long elapsedNanos;
+        private final int finalConcurrency;
+        private final int finalTimeoutMs;
+
+        SweepStats(int total, int completed, int alive, int retries, long elapsedNanos,
+                   int finalConcurrency, int finalTimeoutMs) {
+            this.total = total;
+            this.completed = completed;
+            this.alive = alive;
+            this.retries = retries;
+            this.elapsedNanos = elapsedNanos;
+            this.finalConcurrency = finalConcurrency;
+            this.finalTimeoutMs = finalTimeoutMs;
+        }
+
+        public int getTotal() { return total; }
+        public int getCompleted() { return completed; }
+        public int getAlive() { return alive; }
+        public int getRetries() { return retries; }
+        public long getElapsedMillis() { return TimeUnit.NANOSECONDS.toMillis(elapsedNanos); }
+        public int getFinalConcurrency() { return finalConcurrency; }
+        public int getFinalTimeoutMs() { return finalTimeoutMs; }
+
+        public double getHostsPerSecond() {
+            if (elapsedNanos <= 0) return 0;
+            return completed / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        public String getSummary() {
+            return String.format("Swept %d hosts in %.1fs (%.0f hosts/s)",
+                    completed, elapsedNanos / 1_000_000_000.0, getHostsPerSecond());
+        }
+
+        @Override
+        public String toString() {
+            return getSummary() + ", alive=" + alive + ", retries=" + retries
+                    + ", concurrency=" + finalConcurrency + ", timeout=" + finalTimeoutMs + "ms";
+        }
+    }
+}
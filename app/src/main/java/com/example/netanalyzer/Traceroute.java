@@ -0,0 +1,441 @@
+package com.example.netanalyzer;
+
+import android.os.Build;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructCmsghdr;
+import android.system.StructMsghdr;
+import android.system.StructPollfd;
+import android.util.Log;
+import androidx.annotation.RequiresApi;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Traceroute that probes every hop at once instead of hop by hop: each round sends one
+// TTL-limited echo per hop, rounds go out ROUND_INTERVAL_MS apart, and the trace ends one
+// timeout after the last round, so a 15-hop path costs about one max RTT rather than 15
+// sequential timeouts. Each hop reports loss and RTT percentiles.
+//
+// From Android 13 (API 33) on IPv4 everything runs on one ICMP datagram socket: IP_TTL is
+// set before each send and the routers' Time Exceeded errors are read back from the
+// socket's error queue (IP_RECVERR) with Os.recvmsg, which carries the offending router's
+// address and our original echo header, so the sequence number identifies the hop. Older
+// releases lack Os.recvmsg, and IPv6 or kernels that refuse ICMP sockets fall back to one
+// "ping -t <ttl>" process per hop, all run at once. The binary doesn't time Time Exceeded
+// replies, so there a hop's RTT is estimated from when its line arrives.
+public class Traceroute {
+    private static final String TAG = "Traceroute";
+
+    public static final int MAX_HOPS = 30;
+    public static final int PROBES_PER_HOP = 3;
+    // Routers rate-limit Time Exceeded messages (Linux: about one per second with a
+    // burst of 6 per peer), so rounds are spaced rather than sent back to back
+    static final long ROUND_INTERVAL_MS = 200;
+    static final long TIMEOUT_MS = 2000;
+
+    // Probe seq = round * HOP_SLOTS + ttl
+    private static final int HOP_SLOTS = 64;
+    private static final int POLL_SLICE_MS = 100;
+
+    // Linux values missing from OsConstants: <linux/in.h>, <linux/socket.h>,
+    // <linux/errqueue.h>, <linux/icmp.h>
+    private static final int IP_RECVERR = 11;
+    private static final int MSG_ERRQUEUE = 0x2000;
+    private static final int SO_EE_ORIGIN_ICMP = 2;
+    private static final int AF_INET_LINUX = 2;
+    static final int ICMP_DEST_UNREACH = 3;
+    static final int ICMP_TIME_EXCEEDED = 11;
+    // sizeof(struct sock_extended_err); the offender's sockaddr follows it
+    private static final int EXTENDED_ERR_SIZE = 16;
+
+    public static class Hop {
+        private final int ttl;
+        private volatile String address;
+        private final LatencyHistogram rtts = new LatencyHistogram();
+        private int sent = 0;
+        private int received = 0;
+        private boolean destination = false;
+        private boolean unreachable = false;
+        private boolean estimated = false;
+
+        Hop(int ttl) {
+            this.ttl = ttl;
+        }
+
+        void record(String from, long rttNanos) {
+            address = from;
+            rtts.record(rttNanos);
+            received++;
+        }
+
+        public int getTtl() { return ttl; }
+        // null if the hop never answered
+        public String getAddress() { return address; }
+        public int getSent() { return sent; }
+        public int getReceived() { return received; }
+        public boolean isDestination() { return destination; }
+        // Answered Destination Unreachable
+        public boolean isUnreachable() { return unreachable; }
+        // RTTs estimated from the ping binary's output timing
+        public boolean isEstimated() { return estimated; }
+        public LatencyHistogram getRtts() { return rtts; }
+
+        public double getLossPercent() {
+            return sent > 0 ? (sent - received) * 100.0 / sent : 0;
+        }
+
+        public double getPercentileMillis(double percentile) {
+            return rtts.getValueAtPercentile(percentile) / 1e6;
+        }
+    }
+
+    public static class Result {
+        private final String target;
+        private final String method;
+        private final List<Hop> hops;
+        private final boolean reached;
+        private final long elapsedNanos;
+
+        Result(String target, String method, List<Hop> hops, boolean reached, long elapsedNanos) {
+            this.target = target;
+            this.method = method;
+            this.hops = hops;
+            this.reached = reached;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String getTarget() { return target; }
+        public String getMethod() { return method; }
+        public List<Hop> getHops() { return hops; }
+        public boolean isReached() { return reached; }
+        public long getElapsedNanos() { return elapsedNanos; }
+    }
+
+    private final InetAddress address;
+    private final int maxHops;
+    private final List<Process> processes = new ArrayList<>();
+    private volatile boolean cancelled = false;
+
+    public Traceroute(InetAddress address, int maxHops) {
+        this.address = address;
+        this.maxHops = Math.min(maxHops, HOP_SLOTS - 1);
+    }
+
+    // Runs the trace; throws InterruptedException once cancelled
+    public Result run() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Hop[] hops = new Hop[maxHops + 1];
+        for (int ttl = 1; ttl <= maxHops; ttl++) {
+            hops[ttl] = new Hop(ttl);
+        }
+
+        String method = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU && address instanceof Inet4Address) {
+            FileDescriptor fd = null;
+            try {
+                fd = Os.socket(OsConstants.AF_INET, OsConstants.SOCK_DGRAM, OsConstants.IPPROTO_ICMP);
+                // Both queues are drained until EAGAIN
+                Os.fcntlInt(fd, OsConstants.F_SETFL, OsConstants.O_NONBLOCK);
+                Os.setsockoptInt(fd, OsConstants.IPPROTO_IP, IP_RECVERR, 1);
+                traceOnSocket(fd, hops);
+                method = "ICMP socket";
+            } catch (ErrnoException e) {
+                Log.d(TAG, "ICMP socket trace unavailable (" + e.getMessage() + "), using ping binary");
+                for (int ttl = 1; ttl <= maxHops; ttl++) {
+                    hops[ttl] = new Hop(ttl);
+                }
+            } finally {
+                if (fd != null) closeQuietly(fd);
+            }
+        }
+        if (method == null) {
+            traceWithProcesses(hops);
+            method = "ping -t";
+        }
+        return summarize(address.getHostAddress(), method, hops, System.nanoTime() - start);
+    }
+
+    // May be called from any thread
+    public void cancel() {
+        cancelled = true;
+        synchronized (processes) {
+            for (Process process : processes) process.destroy();
+        }
+    }
+
+    private void checkCancelled() throws InterruptedException {
+        if (cancelled || Thread.interrupted()) throw new InterruptedException();
+    }
+
+    @RequiresApi(Build.VERSION_CODES.TIRAMISU)
+    private void traceOnSocket(FileDescriptor fd, Hop[] hops)
+            throws ErrnoException, IOException, InterruptedException {
+        byte[] request = new byte[IcmpPinger.HEADER_SIZE + IcmpPinger.PAYLOAD_SIZE];
+        byte[] reply = new byte[1500];
+        ByteBuffer errorPayload = ByteBuffer.allocate(576);
+        long[] sentAt = new long[PROBES_PER_HOP * HOP_SLOTS];
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(ROUND_INTERVAL_MS);
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        String target = address.getHostAddress();
+
+        StructPollfd[] pollFds = {new StructPollfd()};
+        pollFds[0].fd = fd;
+        pollFds[0].events = (short) OsConstants.POLLIN;    // POLLERR is always reported
+
+        int round = 0;
+        int pathLength = maxHops;    // Shrinks to the destination's hop once it answers
+        long nextRoundAt = System.nanoTime();
+        long deadline = Long.MAX_VALUE;
+        while (true) {
+            checkCancelled();
+            long now = System.nanoTime();
+            if (round < PROBES_PER_HOP && now >= nextRoundAt) {
+                for (int ttl = 1; ttl <= pathLength; ttl++) {
+                    int seq = round * HOP_SLOTS + ttl;
+                    int length = IcmpPinger.buildEchoRequest(request, seq, false);
+                    hops[ttl].sent++;
+                    try {
+                        Os.setsockoptInt(fd, OsConstants.IPPROTO_IP, OsConstants.IP_TTL, ttl);
+                        sentAt[seq] = System.nanoTime();
+                        Os.sendto(fd, request, 0, length, 0, address, 0);
+                    } catch (ErrnoException e) {
+                        // Counts as lost
+                        sentAt[seq] = 0;
+                    }
+                }
+                round++;
+                nextRoundAt += intervalNanos;
+                if (round == PROBES_PER_HOP) deadline = now + timeoutNanos;
+            }
+            if (now >= deadline || (round == PROBES_PER_HOP && allAnswered(hops, pathLength))) break;
+
+            long wakeAt = round < PROBES_PER_HOP ? nextRoundAt : deadline;
+            long waitMs = TimeUnit.NANOSECONDS.toMillis(Math.max(0, wakeAt - now)) + 1;
+            pollFds[0].revents = 0;
+            if (Os.poll(pollFds, (int) Math.min(waitMs, POLL_SLICE_MS)) == 0) continue;
+
+            // Echo replies: the destination itself
+            if ((pollFds[0].revents & OsConstants.POLLIN) != 0) {
+                while (true) {
+                    int length;
+                    try {
+                        length = Os.recvfrom(fd, reply, 0, reply.length, 0, null);
+                    } catch (ErrnoException e) {
+                        if (e.errno == OsConstants.EAGAIN) break;
+                        throw e;
+                    }
+                    long receivedAt = System.nanoTime();
+                    int seq = IcmpPinger.parseEchoReply(reply, length, false);
+                    if (seq < 0 || seq >= sentAt.length || sentAt[seq] == 0) continue;
+                    int ttl = seq % HOP_SLOTS;
+                    hops[ttl].record(target, receivedAt - sentAt[seq]);
+                    hops[ttl].destination = true;
+                    sentAt[seq] = 0;
+                    pathLength = Math.min(pathLength, ttl);
+                }
+            }
+
+            // Time Exceeded / Unreachable from the routers on the way
+            if ((pollFds[0].revents & OsConstants.POLLERR) != 0) {
+                while (true) {
+                    errorPayload.clear();
+                    StructMsghdr message = new StructMsghdr(null, new ByteBuffer[]{errorPayload},
+                            new StructCmsghdr[]{new StructCmsghdr(OsConstants.IPPROTO_IP, IP_RECVERR,
+                                    new byte[64])}, 0);
+                    int length;
+                    try {
+                        length = Os.recvmsg(fd, message, MSG_ERRQUEUE);
+                    } catch (ErrnoException e) {
+                        if (e.errno == OsConstants.EAGAIN) break;
+                        throw e;
+                    }
+                    long receivedAt = System.nanoTime();
+                    // The queued packet is our own echo request
+                    int seq = length >= IcmpPinger.HEADER_SIZE
+                            ? ((errorPayload.array()[6] & 0xFF) << 8) | (errorPayload.array()[7] & 0xFF) : -1;
+                    if (seq < 0 || seq >= sentAt.length || sentAt[seq] == 0) continue;
+                    ExtendedError error = null;
+                    if (message.msg_control != null) {
+                        for (StructCmsghdr control : message.msg_control) {
+                            if (control.cmsg_level == OsConstants.IPPROTO_IP && control.cmsg_type == IP_RECVERR) {
+                                error = ExtendedError.parse(control.cmsg_data);
+                            }
+                        }
+                    }
+                    if (error == null) continue;
+                    int ttl = seq % HOP_SLOTS;
+                    hops[ttl].record(error.offender, receivedAt - sentAt[seq]);
+                    sentAt[seq] = 0;
+                    if (error.type == ICMP_DEST_UNREACH) {
+                        hops[ttl].unreachable = true;
+                        pathLength = Math.min(pathLength, ttl);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean allAnswered(Hop[] hops, int pathLength) {
+        for (int ttl = 1; ttl <= pathLength; ttl++) {
+            if (hops[ttl].received < hops[ttl].sent) return false;
+        }
+        return true;
+    }
+
+    // struct sock_extended_err followed by the offender's sockaddr_in, as delivered in an
+    // IP_RECVERR control message
+    static class ExtendedError {
+        final int type;
+        final int code;
+        final String offender;
+
+        ExtendedError(int type, int code, String offender) {
+            this.type = type;
+            this.code = code;
+            this.offender = offender;
+        }
+
+        // null unless it is an ICMP error with an IPv4 offender
+        static ExtendedError parse(byte[] data) {
+            if (data == null || data.length < EXTENDED_ERR_SIZE + 8) return null;
+            if ((data[4] & 0xFF) != SO_EE_ORIGIN_ICMP) return null;
+            int family = (data[EXTENDED_ERR_SIZE] & 0xFF) | ((data[EXTENDED_ERR_SIZE + 1] & 0xFF) << 8);
+            if (family != AF_INET_LINUX) return null;
+            int offset = EXTENDED_ERR_SIZE + 4;    // sin_family, sin_port
+            int offender = ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                    | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+            return new ExtendedError(data[5] & 0xFF, data[6] & 0xFF, Ipv4Subnet.format(offender));
+        }
+    }
+
+    private void traceWithProcesses(Hop[] hops) throws IOException, InterruptedException {
+        String binary = address instanceof Inet6Address ? "ping6" : "ping";
+        String interval = String.valueOf(ROUND_INTERVAL_MS / 1000.0);
+        String timeout = String.valueOf(Math.max(1, TIMEOUT_MS / 1000));
+        Thread[] readers = new Thread[maxHops + 1];
+        IOException[] failure = new IOException[1];
+
+        for (int ttl = 1; ttl <= maxHops; ttl++) {
+            checkCancelled();
+            Hop hop = hops[ttl];
+            hop.sent = PROBES_PER_HOP;
+            hop.estimated = true;
+            long startedAt = System.nanoTime();
+            Process process = new ProcessBuilder(binary, "-n", "-c", String.valueOf(PROBES_PER_HOP),
+                    "-i", interval, "-W", timeout, "-t", String.valueOf(ttl), address.getHostAddress())
+                    .redirectErrorStream(true)
+                    .start();
+            synchronized (processes) {
+                processes.add(process);
+            }
+            if (cancelled) process.destroy();
+            readers[ttl] = new Thread(() -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        recordProcessLine(hop, line, startedAt, System.nanoTime());
+                    }
+                } catch (IOException e) {
+                    synchronized (failure) {
+                        if (!cancelled) failure[0] = e;
+                    }
+                } finally {
+                    process.destroy();
+                }
+            }, "Traceroute-" + ttl);
+            readers[ttl].start();
+        }
+        for (int ttl = 1; ttl <= maxHops; ttl++) {
+            readers[ttl].join();
+        }
+        checkCancelled();
+        synchronized (failure) {
+            if (failure[0] != null) throw failure[0];
+        }
+    }
+
+    // Reader thread of hop.ttl; the hop is touched by no other thread until joined
+    static void recordProcessLine(Hop hop, String line, long startedAt, long now) {
+        IcmpPinger.Reply reply = IcmpPinger.parseReplyLine(line);
+        if (reply != null) {
+            Matcher from = REPLY_FROM.matcher(line);
+            hop.record(from.find() ? from.group(1) : null, reply.getRttNanos());
+            hop.destination = true;
+            return;
+        }
+        HopLine hopLine = parseHopLine(line);
+        if (hopLine == null) return;
+        // Probe seq left at startedAt + (seq - 1) * interval, give or take process startup
+        long sentAt = startedAt + (hopLine.seq - 1) * TimeUnit.MILLISECONDS.toNanos(ROUND_INTERVAL_MS);
+        hop.record(hopLine.address, Math.max(0, now - sentAt));
+        if (hopLine.unreachable) hop.unreachable = true;
+    }
+
+    private static final Pattern REPLY_FROM = Pattern.compile("bytes from ([0-9a-fA-F.:%\\w]+?):? ");
+    private static final Pattern HOP_LINE = Pattern.compile(
+            "^From ([0-9a-fA-F.:%\\w]+?)(?: \\([^)]*\\))?:? icmp_seq=(\\d+) (Time to live exceeded|.*[Uu]nreachable)");
+
+    static class HopLine {
+        final String address;
+        final int seq;
+        final boolean unreachable;
+
+        HopLine(String address, int seq, boolean unreachable) {
+            this.address = address;
+            this.seq = seq;
+            this.unreachable = unreachable;
+        }
+    }
+
+    // Parses "From 10.0.0.1 icmp_seq=1 Time to live exceeded" (or Destination ... Unreachable)
+    static HopLine parseHopLine(String line) {
+        Matcher matcher = HOP_LINE.matcher(line);
+        if (!matcher.find()) return null;
+        try {
+            return new HopLine(matcher.group(1), Integer.parseInt(matcher.group(2)),
+                    !matcher.group(3).startsWith("Time"));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Cuts the hop list at the destination (or at an unreachable report); without either,
+    // keeps one silent hop past the last one that answered
+    static Result summarize(String target, String method, Hop[] hops, long elapsedNanos) {
+        int maxTtl = hops.length - 1;
+        int end = 0;
+        boolean reached = false;
+        for (int ttl = 1; ttl <= maxTtl; ttl++) {
+            if (hops[ttl].destination || hops[ttl].unreachable) {
+                end = ttl;
+                reached = hops[ttl].destination;
+                break;
+            }
+            if (hops[ttl].received > 0) end = ttl;
+        }
+        if (!reached && end < maxTtl && !(end > 0 && hops[end].unreachable)) end++;
+        return new Result(target, method, new ArrayList<>(Arrays.asList(hops).subList(1, end + 1)),
+                reached, elapsedNanos);
+    }
+
+    private static void closeQuietly(FileDescriptor fd) {
+        try {
+            Os.close(fd);
+        } catch (ErrnoException e) {
+            Log.w(TAG, "Failed to close ICMP socket: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.netanalyzer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Parses /proc/net/arp fixtures from src/test/resources/arp.
+ */
+public class ArpTableReaderTest {
+
+    private static NeighborSource fixture(String name) {
+        return () -> ArpTableReaderTest.class.getResourceAsStream("/arp/" + name);
+    }
+
+    private static int ip(String text) {
+        return Ipv4Subnet.parse(text);
+    }
+
+    @Test
+    public void readsCompleteEntriesOnly() throws Exception {
+        ArpTableReader reader = new ArpTableReader(fixture("proc_net_arp.txt"));
+
+        assertTrue(reader.poll());
+        assertEquals(4, reader.size());
+        assertEquals(0xA491B10C2E01L, reader.macFor(ip("192.168.1.1")));
+        assertEquals(0xB827EB123456L, reader.macFor(ip("192.168.1.23")));
+        assertEquals(0xDAA119000001L, reader.macFor(ip("192.168.1.77")));
+        assertEquals(0x001C10AABBCCL, reader.macFor(ip("10.0.0.5")));
+        // Incomplete (flags 0x0) and absent entries
+        assertEquals(-1, reader.macFor(ip("192.168.1.40")));
+        assertEquals(-1, reader.macFor(ip("192.168.1.99")));
+    }
+
+    @Test
+    public void headerOnlyTableIsEmpty() throws Exception {
+        ArpTableReader reader = new ArpTableReader(fixture("empty.txt"));
+
+        assertTrue(reader.poll());
+        assertEquals(0, reader.size());
+    }
+
+    @Test
+    public void unchangedContentIsSkipped() throws Exception {
+        byte[] original = readFixture("proc_net_arp.txt");
+        byte[][] current = {original};
+        ArpTableReader reader = new ArpTableReader(() -> new ByteArrayInputStream(current[0]));
+
+        assertTrue(reader.poll());
+        assertFalse(reader.poll());
+
+        // The kernel resolves the pending entry
+        String updated = new String(original, StandardCharsets.US_ASCII).replace(
+                "0x0         00:00:00:00:00:00", "0x2         3c:07:54:01:02:03");
+        current[0] = updated.getBytes(StandardCharsets.US_ASCII);
+        assertTrue(reader.poll());
+        assertEquals(5, reader.size());
+        assertEquals(0x3C0754010203L, reader.macFor(ip("192.168.1.40")));
+    }
+
+    @Test
+    public void growsForLargeTables() throws Exception {
+        StringBuilder table = new StringBuilder("IP address       HW type     Flags       HW address            Mask     Device\n");
+        for (int i = 1; i <= 1000; i++) {
+            table.append(String.format("10.1.%d.%d   0x1   0x2   02:00:00:00:%02x:%02x   *   wlan0\n",
+                    i >> 8, i & 0xFF, i >> 8, i & 0xFF));
+        }
+        byte[] bytes = table.toString().getBytes(StandardCharsets.US_ASCII);
+        ArpTableReader reader = new ArpTableReader(() -> new ByteArrayInputStream(bytes));
+
+        assertTrue(reader.poll());
+        assertEquals(1000, reader.size());
+        assertEquals(0x0200000003E8L, reader.macFor(ip("10.1.3.232")));
+    }
+
+    private static byte[] readFixture(String name) throws Exception {
+        try (InputStream in = fixture(name).open()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[1024];
+            int n;
+            while ((n = in.read(chunk)) > 0) out.write(chunk, 0, n);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.netanalyzer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives delta rescans against a simulated /24 and neighbor table.
+ */
+public class DeltaScannerTest {
+
+    private final Ipv4Subnet subnet = Ipv4Subnet.of(ip("192.168.1.10"), 24);
+    private final Set<Integer> online = new HashSet<>();
+    private final Map<Integer, Long> macs = new HashMap<>();
+    private final List<int[]> probes = new ArrayList<>();
+
+    private final DeltaScanner.Prober prober = (addresses, onAlive) -> {
+        probes.add(addresses);
+        for (int address : addresses) {
+            if (online.contains(address)) onAlive.accept(address);
+        }
+    };
+
+    private final ArpTableReader neighbors = new ArpTableReader(() -> {
+        StringBuilder table = new StringBuilder("IP address       HW type     Flags       HW address            Mask     Device\n");
+        for (Map.Entry<Integer, Long> entry : macs.entrySet()) {
+            String mac = String.format("%012x", entry.getValue()).replaceAll("(..)(?!$)", "$1:");
+            table.append(Ipv4Subnet.format(entry.getKey())).append("  0x1  0x2  ").append(mac).append("  *  wlan0\n");
+        }
+        return new ByteArrayInputStream(table.toString().getBytes(StandardCharsets.US_ASCII));
+    });
+
+    private static int ip(String text) {
+        return Ipv4Subnet.parse(text);
+    }
+
+    private void bringUp(String address, long mac) {
+        online.add(ip(address));
+        macs.put(ip(address), mac);
+    }
+
+    private void takeDown(String address) {
+        online.remove(ip(address));
+        macs.remove(ip(address));
+    }
+
+    @Test
+    public void confirmsKnownHostsThenProbesARotatingSlice() {
+        DeltaScanner scanner = new DeltaScanner(subnet, prober, neighbors, 32);
+        bringUp("192.168.1.1", 0xA491B10C2E01L);
+        scanner.addKnownHost(ip("192.168.1.1"), 0xA491B10C2E01L);
+
+        DeltaScanner.ChangeSet first = scanner.runCycle();
+        assertTrue(first.isEmpty());
+        assertEquals(33, first.getProbed());
+        assertArrayEquals(new int[]{ip("192.168.1.1")}, probes.get(0));
+        // The slice skips the known host
+        assertEquals(ip("192.168.1.2"), probes.get(1)[0]);
+        assertEquals(ip("192.168.1.33"), probes.get(1)[31]);
+
+        scanner.runCycle();
+        assertEquals(ip("192.168.1.34"), probes.get(3)[0]);
+
+        // The eighth slice finishes the subnet and wraps around, again skipping the known host
+        for (int i = 0; i < 6; i++) scanner.runCycle();
+        int[] wrapped = probes.get(probes.size() - 1);
+        assertEquals(ip("192.168.1.226"), wrapped[0]);
+        assertEquals(ip("192.168.1.254"), wrapped[28]);
+        assertEquals(ip("192.168.1.2"), wrapped[29]);
+        assertEquals(ip("192.168.1.4"), wrapped[31]);
+    }
+
+    @Test
+    public void reportsJoinedHostsWhenTheirSliceComesUp() {
+        DeltaScanner scanner = new DeltaScanner(subnet, prober, neighbors, 64);
+        bringUp("192.168.1.70", 0xB827EB123456L);
+
+        assertTrue(scanner.runCycle().isEmpty());
+        DeltaScanner.ChangeSet changes = scanner.runCycle();
+
+        assertEquals(1, changes.getJoined().size());
+        DeltaScanner.Change joined = changes.getJoined().get(0);
+        assertEquals(ip("192.168.1.70"), joined.getAddress());
+        assertEquals(0xB827EB123456L, joined.getMac());
+        assertEquals(1, scanner.getKnownCount());
+
+        // From now on it is only confirmed, never reported again
+        for (int i = 0; i < 8; i++) assertTrue(scanner.runCycle().isEmpty());
+    }
+
+    @Test
+    public void hostLeavesOnlyAfterRepeatedMisses() {
+        DeltaScanner scanner = new DeltaScanner(subnet, prober, neighbors, 16);
+        bringUp("192.168.1.23", 0xB827EB123456L);
+        scanner.addKnownHost(ip("192.168.1.23"), 0xB827EB123456L);
+        takeDown("192.168.1.23");
+
+        assertTrue(scanner.runCycle().isEmpty());
+        DeltaScanner.ChangeSet changes = scanner.runCycle();
+
+        assertEquals(1, changes.getLeft().size());
+        assertEquals(ip("192.168.1.23"), changes.getLeft().get(0).getAddress());
+        assertEquals(0, scanner.getKnownCount());
+    }
+
+    @Test
+    public void reportsANewMacAtAKnownAddress() {
+        DeltaScanner scanner = new DeltaScanner(subnet, prober, neighbors, 16);
+        bringUp("192.168.1.40", 0x3C0754010203L);
+        scanner.addKnownHost(ip("192.168.1.40"), 0xB827EB123456L);
+
+        DeltaScanner.ChangeSet changes = scanner.runCycle();
+
+        assertEquals(1, changes.getChanged().size());
+        DeltaScanner.Change change = changes.getChanged().get(0);
+        assertFalse(change.isMove());
+        assertEquals(0x3C0754010203L, change.getMac());
+        assertEquals(0xB827EB123456L, change.getPreviousMac());
+        assertTrue(changes.getJoined().isEmpty());
+    }
+
+    @Test
+    public void aKnownMacAtANewAddressIsAMoveNotJoinAndLeave() {
+        DeltaScanner scanner = new DeltaScanner(subnet, prober, neighbors, 254);
+        scanner.addKnownHost(ip("192.168.1.23"), 0xB827EB123456L);
+        bringUp("192.168.1.99", 0xB827EB123456L);
+
+        DeltaScanner.ChangeSet changes = scanner.runCycle();
+
+        assertTrue(changes.getJoined().isEmpty());
+        assertTrue(changes.getLeft().isEmpty());
+        assertEquals(1, changes.getChanged().size());
+        DeltaScanner.Change move = changes.getChanged().get(0);
+        assertTrue(move.isMove());
+        assertEquals(ip("192.168.1.99"), move.getAddress());
+        assertEquals(ip("192.168.1.23"), move.getPreviousAddress());
+        assertEquals(1, scanner.getKnownCount());
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.netanalyzer;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the bundled classification rules (unit tests run from the module directory).
+ */
+public class DeviceRulesTest {
+
+    private static DeviceRules rules;
+
+    @BeforeClass
+    public static void compileBundledRules() throws Exception {
+        byte[] text = Files.readAllBytes(Paths.get("src/main/assets/device_rules.txt"));
+        rules = DeviceRules.compile(new String(text, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void vendorGroupsPickTheFirstMatchingRule() {
+        assertEquals("iPhone", rules.classify("Apple, Inc.", "Johns-iPhone"));
+        assertEquals("MacBook", rules.classify("Apple, Inc.", "MacBook-Pro.local"));
+        assertEquals("Apple Device", rules.classify("Apple, Inc.", null));
+        assertEquals("Samsung Smart TV", rules.classify("Samsung Electronics Co.,Ltd", "Samsung-TV"));
+        assertEquals("Motorola Phone", rules.classify("Motorola Mobility LLC", "moto-edge-30"));
+        assertEquals("Lenovo ThinkPad", rules.classify("LCFC(HeFei) Electronics Lenovo", "ThinkPad-X1"));
+    }
+
+    @Test
+    public void groupsCanMatchOnEitherField() {
+        assertEquals("Redmi Phone", rules.classify("Unknown Vendor", "Redmi-Note-12"));
+        assertEquals("Xiaomi Smart TV", rules.classify("Xiaomi Communications Co Ltd", "mi-tv-stick"));
+        assertEquals("Poco Phone", rules.classify("Unknown Vendor", "POCO-F5"));
+    }
+
+    @Test
+    public void fallsBackToHostnameThenDefault() {
+        assertEquals("Router/Gateway", rules.classify("TP-LINK TECHNOLOGIES CO.,LTD.", "archer"));
+        assertEquals("Printer", rules.classify("Unknown Vendor", "HP-Printer-Office"));
+        assertEquals("Smart TV/Streaming", rules.classify(null, "Chromecast-Ultra"));
+        assertEquals("Network Device", rules.classify("Espressif Inc.", "esp-32"));
+    }
+
+    @Test
+    public void memoizedAnswersMatchFreshOnes() {
+        String first = rules.classify("Google, Inc.", "Pixel-7");
+        assertEquals("Google Pixel Phone", first);
+        assertSame(first, rules.classify("Google, Inc.", "Pixel-7"));
+    }
+
+    @Test
+    public void customRulesReplaceTheTable() {
+        DeviceRules custom = DeviceRules.compile("[v:acme]\nAcme Sensor = h:sensor & h:temp\nAcme Gadget =\n");
+
+        assertEquals("Acme Sensor", custom.classify("ACME Corp", "temp-sensor-3"));
+        assertEquals("Acme Gadget", custom.classify("ACME Corp", "sensor-3"));
+        assertNull(custom.classify("Other", "temp-sensor-3"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedTerms() {
+        DeviceRules.compile("Broken = vendor:acme\n");
+    }
+}
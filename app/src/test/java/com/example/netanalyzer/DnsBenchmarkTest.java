@@ -0,0 +1,97 @@
+package com.example.netanalyzer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Multi-resolver benchmark against stand-in servers on loopback.
+ */
+public class DnsBenchmarkTest {
+
+    private LoopbackDnsServer fast;
+    private LoopbackDnsServer dead;
+
+    @Before
+    public void setUp() throws IOException {
+        fast = new LoopbackDnsServer();
+        dead = new LoopbackDnsServer();
+        dead.silentAll = true;
+        for (String name : DnsBenchmark.CACHED_NAMES) fast.addAddress(name, 300, "192.0.2.1");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        fast.close();
+        dead.close();
+    }
+
+    @Test
+    public void measuresCachedAndUncachedQueriesPerResolver() throws Exception {
+        DnsBenchmark benchmark = new DnsBenchmark(Arrays.asList(
+                new DnsBenchmark.Resolver("fast", fast.getAddress()),
+                new DnsBenchmark.Resolver("dead", dead.getAddress())), 20, 300);
+        int[] lastProgress = new int[2];
+        DnsBenchmark.Report report = benchmark.run((done, total) -> {
+            lastProgress[0] = done;
+            lastProgress[1] = total;
+        });
+
+        DnsBenchmark.Stats answering = report.getStats().get(0);
+        for (int category = DnsBenchmark.CACHED; category <= DnsBenchmark.UNCACHED; category++) {
+            assertEquals(20, answering.getSent(category));
+            assertEquals(20, answering.getAnswered(category));
+            assertEquals(0, answering.getTimeouts(category));
+            assertEquals(20, answering.getLatencies(category).getCount());
+            assertTrue(answering.getPercentileMillis(category, 99) > 0);
+        }
+
+        DnsBenchmark.Stats silent = report.getStats().get(1);
+        assertEquals(20, silent.getSent(DnsBenchmark.UNCACHED));
+        assertEquals(100, silent.getTimeoutPercent(DnsBenchmark.CACHED), 0.01);
+        assertEquals(100, silent.getTimeoutPercent(DnsBenchmark.UNCACHED), 0.01);
+        assertEquals(80, lastProgress[1]);
+        assertEquals(80, lastProgress[0]);
+    }
+
+    @Test
+    public void warmUpQueriesAreNotCounted() throws Exception {
+        DnsBenchmark benchmark = new DnsBenchmark(Arrays.asList(
+                new DnsBenchmark.Resolver("fast", fast.getAddress())), 5, 300);
+        benchmark.run((done, total) -> { });
+        // One warm-up per cached name on top of the measured queries
+        assertEquals(DnsBenchmark.CACHED_NAMES.length + 10, fast.udpQueries.get());
+    }
+
+    @Test
+    public void uncachedNamesAreUniqueSubdomains() {
+        Random random = new Random(1);
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            String name = DnsBenchmark.uncachedName("example.com", random);
+            assertTrue(name.endsWith(".example.com"));
+            assertTrue(name.indexOf('.') <= 63);
+            names.add(name);
+        }
+        assertEquals(1000, names.size());
+    }
+
+    @Test
+    public void csvHasTwoRowsPerResolver() throws Exception {
+        DnsBenchmark benchmark = new DnsBenchmark(Arrays.asList(
+                new DnsBenchmark.Resolver("Pi-hole, kitchen", fast.getAddress())), 3, 300);
+        String[] rows = benchmark.run((done, total) -> { }).toCsv().split("\n");
+        assertEquals(2, rows.length);
+        assertTrue(rows[0].contains(",\"Pi-hole, kitchen\",127.0.0.1,cached,3,3,0,0,"));
+        assertTrue(rows[1].contains(",uncached,3,3,0,0,"));
+        assertEquals(DnsBenchmark.Report.CSV_HEADER.split(",").length, rows[0].split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)").length);
+    }
+}
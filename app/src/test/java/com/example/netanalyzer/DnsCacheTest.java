@@ -0,0 +1,160 @@
+package com.example.netanalyzer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * TTL-aware resolver cache over a scripted source, a manual clock and a queued executor.
+ */
+public class DnsCacheTest {
+
+    private final Map<String, DnsClient.Response> zone = new HashMap<>();
+    private final List<String> queries = new ArrayList<>();
+    private final List<Runnable> background = new ArrayList<>();
+    private long now = TimeUnit.HOURS.toNanos(1);
+    private DnsCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new DnsCache((name, type) -> {
+            queries.add(name + "/" + DnsClient.typeName(type));
+            DnsClient.Response response = zone.get(name + "/" + type);
+            if (response == null) throw new IOException("No answer scripted for " + name);
+            return response;
+        }, () -> now, background::add);
+    }
+
+    private void answer(String name, int type, DnsClient.Record... records) {
+        zone.put(name + "/" + type, new DnsClient.Response(DnsClient.RCODE_NOERROR, false,
+                Arrays.asList(records), -1));
+    }
+
+    private static DnsClient.Record record(String name, int type, long ttl, String data) {
+        return new DnsClient.Record(name, type, ttl, data);
+    }
+
+    private void advanceSeconds(long seconds) {
+        now += TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    private void runBackground() {
+        List<Runnable> tasks = new ArrayList<>(background);
+        background.clear();
+        for (Runnable task : tasks) task.run();
+    }
+
+    @Test
+    public void answersAreServedUntilTheShortestTtlExpires() throws IOException {
+        answer("www.example.test", DnsClient.TYPE_A,
+                record("www.example.test", DnsClient.TYPE_CNAME, 60, "edge.example.test"),
+                record("edge.example.test", DnsClient.TYPE_A, 300, "192.0.2.1"),
+                record("edge.example.test", DnsClient.TYPE_A, 300, "192.0.2.2"));
+
+        DnsCache.Answer first = cache.lookup("www.example.test", DnsClient.TYPE_A);
+        assertFalse(first.isFromCache());
+        assertEquals(2, first.getRecords(DnsClient.TYPE_A).size());
+
+        advanceSeconds(20);
+        DnsCache.Answer cached = cache.lookup("WWW.example.test.", DnsClient.TYPE_A);
+        assertTrue(cached.isFromCache());
+        assertEquals(40, cached.getTtlSeconds());
+        // Record TTLs count down while cached
+        assertEquals(280, cached.getRecords(DnsClient.TYPE_A).get(0).getTtlSeconds());
+        assertEquals(1, queries.size());
+
+        // The CNAME's 60 s bounds the whole answer
+        advanceSeconds(41);
+        assertFalse(cache.lookup("www.example.test", DnsClient.TYPE_A).isFromCache());
+        assertEquals(2, queries.size());
+    }
+
+    @Test
+    public void negativeAnswersAreCachedForTheirNegativeTtl() throws IOException {
+        zone.put("missing.example.test/" + DnsClient.TYPE_A, new DnsClient.Response(
+                DnsClient.RCODE_NXDOMAIN, false, Collections.emptyList(), 120));
+        zone.put("broken.example.test/" + DnsClient.TYPE_A, new DnsClient.Response(
+                DnsClient.RCODE_SERVFAIL, false, Collections.emptyList(), -1));
+
+        assertTrue(cache.lookup("missing.example.test", DnsClient.TYPE_A).isNegative());
+        advanceSeconds(119);
+        DnsCache.Answer cached = cache.lookup("missing.example.test", DnsClient.TYPE_A);
+        assertTrue(cached.isFromCache());
+        assertTrue(cached.isNegative());
+        advanceSeconds(2);
+        assertFalse(cache.lookup("missing.example.test", DnsClient.TYPE_A).isFromCache());
+
+        // SERVFAIL says nothing about the name, so it is asked again every time
+        cache.lookup("broken.example.test", DnsClient.TYPE_A);
+        assertFalse(cache.lookup("broken.example.test", DnsClient.TYPE_A).isFromCache());
+        assertEquals(4, queries.size());
+
+        // NODATA without an SOA falls back to the default negative TTL
+        answer("v4only.example.test", DnsClient.TYPE_AAAA);
+        cache.lookup("v4only.example.test", DnsClient.TYPE_AAAA);
+        advanceSeconds(DnsCache.DEFAULT_NEGATIVE_TTL_SECONDS - 1);
+        assertTrue(cache.lookup("v4only.example.test", DnsClient.TYPE_AAAA).isFromCache());
+    }
+
+    @Test
+    public void entriesReadNearExpiryAreRefreshedInTheBackground() throws IOException {
+        answer("hot.example.test", DnsClient.TYPE_A, record("hot.example.test", DnsClient.TYPE_A, 100, "192.0.2.5"));
+        cache.lookup("hot.example.test", DnsClient.TYPE_A);
+
+        advanceSeconds(50);
+        cache.lookup("hot.example.test", DnsClient.TYPE_A);
+        assertTrue(background.isEmpty());
+
+        // Last 10% of the lifetime: served from cache, refreshed once behind the caller
+        advanceSeconds(45);
+        assertTrue(cache.lookup("hot.example.test", DnsClient.TYPE_A).isFromCache());
+        assertTrue(cache.lookup("hot.example.test", DnsClient.TYPE_A).isFromCache());
+        assertEquals(1, background.size());
+        runBackground();
+        assertEquals(2, queries.size());
+
+        // Past the original expiry, the refreshed entry is still fresh
+        advanceSeconds(50);
+        DnsCache.Answer answer = cache.lookup("hot.example.test", DnsClient.TYPE_A);
+        assertTrue(answer.isFromCache());
+        assertEquals(50, answer.getTtlSeconds());
+        assertEquals(2, queries.size());
+    }
+
+    @Test
+    public void prefetchWarmsHostsAndSkipsLiterals() throws IOException {
+        answer("quick.example.test", DnsClient.TYPE_A, record("quick.example.test", DnsClient.TYPE_A, 300, "192.0.2.7"));
+
+        cache.prefetch("quick.example.test", "192.168.1.1");
+        assertEquals(1, background.size());
+        runBackground();
+        assertEquals(Collections.singletonList("quick.example.test/A"), queries);
+
+        assertEquals(InetAddress.getByName("192.0.2.7"), cache.resolve("quick.example.test"));
+        assertEquals(InetAddress.getByName("192.168.1.1"), cache.resolve("192.168.1.1"));
+        assertEquals(1, queries.size());
+    }
+
+    @Test
+    public void reverseNamesMapBackToAddresses() throws IOException {
+        assertEquals(InetAddress.getByName("192.168.1.20"),
+                DnsCache.addressFromReverseName("20.1.168.192.in-addr.arpa."));
+        try {
+            DnsCache.addressFromReverseName("1.168.192.in-addr.arpa");
+            fail("Expected a rejected name");
+        } catch (IOException expected) {
+            // Three octets
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.netanalyzer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Wire-protocol DNS client against a stand-in server on loopback.
+ */
+public class DnsClientTest {
+
+    private LoopbackDnsServer server;
+    private DnsClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new LoopbackDnsServer();
+        client = new DnsClient(server.getAddress(), 1000);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void resolvesAddressRecordsWithTtls() throws IOException {
+        server.addAddress("host.example.test", 300, "192.0.2.10");
+        server.addAddress("host.example.test", 60, "192.0.2.11");
+        server.addAddress("host.example.test", 120, "2001:db8::1");
+
+        DnsClient.Response a = client.query("host.example.test", DnsClient.TYPE_A);
+        assertEquals(DnsClient.RCODE_NOERROR, a.getRcode());
+        assertEquals(2, a.getAnswers().size());
+        assertEquals("192.0.2.10", a.getAnswers().get(0).getData());
+        assertEquals(300, a.getAnswers().get(0).getTtlSeconds());
+        assertEquals(60, a.getAnswers().get(1).getTtlSeconds());
+        assertTrue(a.getRttNanos() > 0);
+        assertTrue(a.getTotalNanos() >= a.getRttNanos());
+        assertFalse(a.isOverTcp());
+
+        DnsClient.Response aaaa = client.query("HOST.example.test.", DnsClient.TYPE_AAAA);
+        assertEquals(1, aaaa.getAnswers().size());
+        assertEquals(InetAddress.getByName("2001:db8::1").getHostAddress(), aaaa.getAnswers().get(0).getData());
+    }
+
+    @Test
+    public void followsCnameAndReadsTextAndPointerRecords() throws IOException {
+        server.add("www.example.test", DnsClient.TYPE_A, "www.example.test", DnsClient.TYPE_CNAME, 30,
+                LoopbackDnsServer.encodeName("edge.example.test"));
+        server.add("www.example.test", DnsClient.TYPE_A, "edge.example.test", DnsClient.TYPE_A, 30,
+                InetAddress.getByName("192.0.2.20").getAddress());
+        server.add("example.test", DnsClient.TYPE_TXT, "example.test", DnsClient.TYPE_TXT, 30,
+                LoopbackDnsServer.encodeText("v=spf1 -all"));
+        String reverse = DnsClient.reverseName(InetAddress.getByName("192.0.2.20"));
+        assertEquals("20.2.0.192.in-addr.arpa", reverse);
+        server.add(reverse, DnsClient.TYPE_PTR, reverse, DnsClient.TYPE_PTR, 30,
+                LoopbackDnsServer.encodeName("edge.example.test"));
+
+        DnsClient.Response www = client.query("www.example.test", DnsClient.TYPE_A);
+        assertEquals("edge.example.test", www.getAnswers(DnsClient.TYPE_CNAME).get(0).getData());
+        List<DnsClient.Record> addresses = www.getAnswers(DnsClient.TYPE_A);
+        assertEquals("edge.example.test", addresses.get(0).getName());
+        assertEquals("192.0.2.20", addresses.get(0).getData());
+
+        assertEquals("\"v=spf1 -all\"", client.query("example.test", DnsClient.TYPE_TXT).getAnswers().get(0).getData());
+        assertEquals("edge.example.test", client.query(reverse, DnsClient.TYPE_PTR).getAnswers().get(0).getData());
+    }
+
+    @Test
+    public void truncatedAnswerIsRetriedOverTcp() throws IOException {
+        server.addAddress("big.example.test", 30, "192.0.2.30");
+        server.truncateOverUdp("big.example.test");
+
+        DnsClient.Response response = client.query("big.example.test", DnsClient.TYPE_A);
+        assertTrue(response.isOverTcp());
+        assertEquals("192.0.2.30", response.getAnswers().get(0).getData());
+        assertEquals(1, server.udpQueries.get());
+        assertEquals(1, server.tcpQueries.get());
+    }
+
+    @Test
+    public void reportsNxdomain() throws IOException {
+        DnsClient.Response response = client.query("missing.example.test", DnsClient.TYPE_A);
+        assertEquals(DnsClient.RCODE_NXDOMAIN, response.getRcode());
+        assertEquals("NXDOMAIN", response.getRcodeName());
+        assertTrue(response.getAnswers().isEmpty());
+    }
+
+    @Test
+    public void skipsAnswersWithTheWrongId() throws IOException {
+        server.addAddress("host.example.test", 30, "192.0.2.10");
+        server.sendStaleFirst = true;
+        assertEquals("192.0.2.10", client.query("host.example.test", DnsClient.TYPE_A).getAnswers().get(0).getData());
+    }
+
+    @Test
+    public void timesOutWhenTheServerStaysSilent() throws IOException {
+        server.ignore("slow.example.test");
+        DnsClient impatient = new DnsClient(server.getAddress(), 200);
+        long start = System.nanoTime();
+        try {
+            impatient.query("slow.example.test", DnsClient.TYPE_A);
+            fail("Expected a timeout");
+        } catch (SocketTimeoutException expected) {
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(elapsedMs >= 190 && elapsedMs < 1000);
+        }
+    }
+
+    @Test
+    public void compressionLoopIsRejected() throws IOException {
+        ByteBuffer looped = ByteBuffer.wrap(new byte[]{(byte) 0xC0, 0x00});
+        try {
+            DnsClient.readName(looped);
+            fail("Expected a malformed name");
+        } catch (IOException expected) {
+            // Pointer to itself
+        }
+        assertNull(DnsClient.parseResponse(new byte[12], 12, 1, "example.test", DnsClient.TYPE_A));
+    }
+
+    @Test
+    public void negativeTtlComesFromAuthoritySoa() throws IOException {
+        byte[] question = DnsClient.buildQuery(7, "missing.example.test", DnsClient.TYPE_A);
+        ByteBuffer soa = ByteBuffer.allocate(512);
+        soa.put(LoopbackDnsServer.encodeName("ns.example.test"))
+                .put(LoopbackDnsServer.encodeName("admin.example.test"))
+                .putInt(1).putInt(3600).putInt(600).putInt(86400).putInt(300);
+        ByteBuffer message = ByteBuffer.allocate(1024);
+        message.put(question)
+                .put(LoopbackDnsServer.encodeName("example.test"))
+                .putShort((short) DnsClient.TYPE_SOA).putShort((short) 1).putInt(900)
+                .putShort((short) soa.position()).put(soa.array(), 0, soa.position());
+        // Response, NXDOMAIN, no answers, one authority record
+        message.putShort(2, (short) 0x8183).putShort(8, (short) 1);
+
+        DnsClient.Response response = DnsClient.parseResponse(message.array(), message.position(), 7,
+                "missing.example.test", DnsClient.TYPE_A);
+        assertEquals(DnsClient.RCODE_NXDOMAIN, response.getRcode());
+        assertTrue(response.getAnswers().isEmpty());
+        // Smaller of the SOA's own TTL and its MINIMUM field
+        assertEquals(300, response.getNegativeTtlSeconds());
+    }
+
+    @Test
+    public void reverseNameOfIpv6UsesNibbles() throws IOException {
+        assertEquals("1.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.8.b.d.0.1.0.0.2.ip6.arpa",
+                DnsClient.reverseName(InetAddress.getByName("2001:db8::1")));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.netanalyzer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reply matching of pipelined echo runs: out of order, late, duplicate and wrapped replies.
+ */
+public class EchoWindowTest {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    public void outOfOrderRepliesMatchTheirOwnProbe() {
+        EchoWindow window = new EchoWindow(2000 * MS, 10 * MS);
+        window.send(0);
+        window.send(10 * MS);
+        window.send(20 * MS);
+
+        IcmpPinger.Reply third = window.onReply(3, 25 * MS, 64, IcmpPinger.TTL_UNKNOWN);
+        IcmpPinger.Reply first = window.onReply(1, 30 * MS, 64, IcmpPinger.TTL_UNKNOWN);
+        assertEquals(3, third.getSeq());
+        assertEquals(5 * MS, third.getRttNanos());
+        assertEquals(1, first.getSeq());
+        assertEquals(30 * MS, first.getRttNanos());
+        assertFalse(first.isLate());
+        assertEquals(1, window.getOutstanding());
+        assertEquals(2010 * MS, window.nextDeadline());
+    }
+
+    @Test
+    public void duplicatesAndUnknownSeqsAreIgnored() {
+        EchoWindow window = new EchoWindow(2000 * MS, 10 * MS);
+        assertNull(window.onReply(1, 0, 64, IcmpPinger.TTL_UNKNOWN));
+        window.send(0);
+        assertNotNull(window.onReply(1, MS, 64, IcmpPinger.TTL_UNKNOWN));
+        assertNull(window.onReply(1, 2 * MS, 64, IcmpPinger.TTL_UNKNOWN));
+        assertNull(window.onReply(7, 2 * MS, 64, IcmpPinger.TTL_UNKNOWN));
+    }
+
+    @Test
+    public void probesTimeOutInOrderAndLateRepliesAreFlagged() {
+        EchoWindow window = new EchoWindow(100 * MS, 10 * MS);
+        window.send(0);
+        window.send(10 * MS);
+        window.onReply(2, 15 * MS, 64, IcmpPinger.TTL_UNKNOWN);
+
+        assertEquals(-1, window.nextExpired(99 * MS));
+        assertEquals(1, window.nextExpired(100 * MS));
+        assertEquals(-1, window.nextExpired(200 * MS));
+        assertEquals(0, window.getOutstanding());
+        assertEquals(Long.MAX_VALUE, window.nextDeadline());
+
+        IcmpPinger.Reply late = window.onReply(1, 250 * MS, 64, IcmpPinger.TTL_UNKNOWN);
+        assertTrue(late.isLate());
+        assertEquals(250 * MS, late.getRttNanos());
+        assertNull(window.onReply(1, 260 * MS, 64, IcmpPinger.TTL_UNKNOWN));
+    }
+
+    @Test
+    public void wireSequenceWrapsAt16Bits() {
+        EchoWindow window = new EchoWindow(2000 * MS, MS);
+        for (int i = 0; i < 70_000; i++) {
+            int seq = window.send(i * MS);
+            // Keep one reply a few probes behind, as on a fast link with queueing
+            if (i >= 3) assertEquals(seq - 3, window.onReply((seq - 3) & 0xFFFF, i * MS, 64, IcmpPinger.TTL_UNKNOWN).getSeq());
+        }
+        assertEquals(3, window.getOutstanding());
+    }
+
+    @Test
+    public void ringHoldsOneTimeoutOfProbes() {
+        assertEquals(16, EchoWindow.slotsFor(2000 * MS, 1000 * MS));
+        assertEquals(256, EchoWindow.slotsFor(2000 * MS, 10 * MS));
+        assertEquals(1 << 16, EchoWindow.slotsFor(10_000 * MS, 1));
+
+        EchoWindow window = new EchoWindow(2000 * MS, 1000 * MS);
+        assertEquals(16, window.getSlots());
+        // Every probe answered but the first, which times out
+        for (int i = 0; i < 40; i++) {
+            long now = i * 1000 * MS;
+            while (window.nextExpired(now) >= 0) {
+                // Only probe 1
+            }
+            int seq = window.send(now);
+            if (seq > 1) assertNotNull(window.onReply(seq, now + MS, 64, IcmpPinger.TTL_UNKNOWN));
+        }
+        // Probe 1's slot now belongs to probe 33; a reply carrying seq 1 is too old to match
+        assertNull(window.onReply(1, 40_000 * MS, 64, IcmpPinger.TTL_UNKNOWN));
+        assertEquals(0, window.getOutstanding());
+    }
+}
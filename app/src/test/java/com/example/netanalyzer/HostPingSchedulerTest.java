@@ -0,0 +1,143 @@
+package com.example.netanalyzer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pacing, reply matching and worst-first ordering of the multi-host ping dashboard.
+ */
+public class HostPingSchedulerTest {
+
+    private static final long MS = 1_000_000;
+
+    private static int[] hosts(int count) {
+        int[] addresses = new int[count];
+        for (int i = 0; i < count; i++) addresses[i] = 0x0A000001 + i;
+        return addresses;
+    }
+
+    @Test
+    public void largeHostSetsArePacedByTheProbeBudget() {
+        HostPingScheduler scheduler = new HostPingScheduler(hosts(500), 50, 1000, 2000, 0);
+
+        assertEquals(20 * MS, scheduler.getGapNanos());
+        assertEquals(10_000 * MS, scheduler.getRoundNanos());
+    }
+
+    @Test
+    public void smallHostSetsAreSpreadOverTheMinimumInterval() {
+        HostPingScheduler scheduler = new HostPingScheduler(hosts(4), 50, 1000, 2000, 0);
+
+        assertEquals(250 * MS, scheduler.getGapNanos());
+        int first = scheduler.nextProbe(0);
+        assertEquals(250 * MS, scheduler.nextSendAt());
+        for (int i = 0; i < 3; i++) scheduler.nextProbe(scheduler.nextSendAt());
+        // Back to the first host one interval later
+        int again = scheduler.nextProbe(scheduler.nextSendAt());
+        assertEquals(scheduler.getProbeAddress(first), scheduler.getProbeAddress(again));
+    }
+
+    @Test
+    public void aStallDoesNotCauseABurst() {
+        HostPingScheduler scheduler = new HostPingScheduler(hosts(4), 50, 1000, 2000, 0);
+        scheduler.nextProbe(0);
+        scheduler.nextProbe(250 * MS);
+
+        // The loop was held up for several gaps: the late probe goes out now, the next
+        // one a full gap later
+        scheduler.nextProbe(1300 * MS);
+        assertEquals(1550 * MS, scheduler.nextSendAt());
+        scheduler.nextProbe(scheduler.nextSendAt());
+        assertEquals(1800 * MS, scheduler.nextSendAt());
+    }
+
+    @Test
+    public void repliesAreMatchedBySeqAndDuplicatesIgnored() {
+        HostPingScheduler scheduler = new HostPingScheduler(hosts(2), 50, 1000, 2000, 0);
+        int a = scheduler.nextProbe(0);
+        int b = scheduler.nextProbe(500 * MS);
+
+        assertTrue(scheduler.onReply(b, 503 * MS));
+        assertFalse(scheduler.onReply(b, 504 * MS));
+        assertTrue(scheduler.onReply(a, 510 * MS));
+
+        List<HostPingScheduler.Snapshot> changed = scheduler.drainChanged();
+        assertEquals(2, changed.size());
+        assertEquals(3 * MS, changed.get(0).getLastRttNanos());
+        assertEquals(510 * MS, changed.get(1).getLastRttNanos());
+        assertTrue(scheduler.drainChanged().isEmpty());
+    }
+
+    @Test
+    public void unansweredProbesExpireAfterTheTimeout() {
+        HostPingScheduler scheduler = new HostPingScheduler(hosts(2), 50, 1000, 2000, 0);
+        int a = scheduler.nextProbe(0);
+        int b = scheduler.nextProbe(500 * MS);
+        scheduler.onReply(b, 501 * MS);
+        scheduler.drainChanged();
+
+        assertEquals(2000 * MS, scheduler.nextDeadline());
+        scheduler.expire(1999 * MS);
+        assertTrue(scheduler.drainChanged().isEmpty());
+        scheduler.expire(2000 * MS);
+        List<HostPingScheduler.Snapshot> changed = scheduler.drainChanged();
+        assertEquals(1, changed.get(0).getMisses());
+        assertEquals(100, changed.get(0).getRecentLossPercent(), 0.01);
+        assertEquals(Long.MAX_VALUE, scheduler.nextDeadline());
+        // A reply after the timeout is late
+        assertFalse(scheduler.onReply(a, 2100 * MS));
+    }
+
+    @Test
+    public void worstFirstPutsSilentHostsThenSlowestOnTop() {
+        HostPingScheduler scheduler = new HostPingScheduler(hosts(3), 50, 1000, 2000, 0);
+        int fast = scheduler.nextProbe(0);
+        int slow = scheduler.nextProbe(1 * MS);
+        scheduler.nextProbe(2 * MS);
+        scheduler.onReply(fast, 2 * MS);
+        scheduler.onReply(slow, 41 * MS);
+        scheduler.expire(3000 * MS);
+
+        List<HostPingScheduler.Snapshot> rows = new ArrayList<>(scheduler.snapshotAll());
+        rows.sort(HostPingScheduler.WORST_FIRST);
+        assertEquals(0x0A000003, rows.get(0).getAddress());    // Not answering
+        assertEquals(0x0A000002, rows.get(1).getAddress());    // 40 ms
+        assertEquals(0x0A000001, rows.get(2).getAddress());    // 2 ms
+    }
+
+    @Test
+    public void replyTableCoversOneTimeoutOfProbes() {
+        assertEquals(128, new HostPingScheduler(hosts(500), 50, 1000, 2000, 0).getWindowSlots());
+        HostPingScheduler scheduler = new HostPingScheduler(hosts(4), 50, 1000, 2000, 0);
+        assertEquals(16, scheduler.getWindowSlots());
+
+        int stale = scheduler.nextProbe(0);
+        int seq = stale;
+        for (int i = 0; i < 16; i++) {
+            long now = scheduler.nextSendAt();
+            scheduler.expire(now);
+            seq = scheduler.nextProbe(now);
+        }
+        // Same table slot as the expired probe, but only the live one matches
+        assertEquals(stale + 16, seq);
+        assertFalse(scheduler.onReply(stale, scheduler.nextSendAt()));
+        assertTrue(scheduler.onReply(seq, scheduler.nextSendAt()));
+    }
+
+    @Test
+    public void sequenceNumbersWrapAt16Bits() {
+        HostPingScheduler scheduler = new HostPingScheduler(hosts(1), 1_000_000, 0, 2000, 0);
+        int seq = 0;
+        for (int i = 0; i < 70_000; i++) {
+            long now = i * MS;
+            seq = scheduler.nextProbe(now);
+            assertTrue(scheduler.onReply(seq, now + MS / 2));
+        }
+        assertEquals((70_000 - 1) & 0xFFFF, seq);
+        assertEquals(70_000, scheduler.snapshotAll().get(0).getReceived());
+    }
+}
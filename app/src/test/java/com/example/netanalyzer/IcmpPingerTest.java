@@ -0,0 +1,69 @@
+package com.example.netanalyzer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Echo packet encoding and ping-binary output parsing of the ICMP pinger.
+ */
+public class IcmpPingerTest {
+
+    @Test
+    public void echoRequestCarriesSeqAndValidChecksum() {
+        byte[] buf = new byte[IcmpPinger.HEADER_SIZE + IcmpPinger.PAYLOAD_SIZE];
+        int length = IcmpPinger.buildEchoRequest(buf, 0x1234, false);
+
+        assertEquals(64, length);
+        assertEquals(IcmpPinger.ICMP_ECHO_REQUEST, buf[0]);
+        assertEquals(0x12, buf[6]);
+        assertEquals(0x34, buf[7]);
+        // Summing a packet that includes its own checksum gives zero
+        assertEquals(0, IcmpPinger.checksum(buf, length));
+    }
+
+    @Test
+    public void echoReplySeqIsMatched() {
+        byte[] buf = new byte[64];
+        IcmpPinger.buildEchoRequest(buf, 70_000, true);
+        // The request itself is not a reply
+        assertEquals(-1, IcmpPinger.parseEchoReply(buf, 64, true));
+
+        buf[0] = (byte) IcmpPinger.ICMPV6_ECHO_REPLY;
+        // Sequence numbers wrap at 16 bits
+        assertEquals(70_000 & 0xFFFF, IcmpPinger.parseEchoReply(buf, 64, true));
+        assertEquals(-1, IcmpPinger.parseEchoReply(buf, 64, false));
+        assertEquals(-1, IcmpPinger.parseEchoReply(buf, 4, true));
+    }
+
+    @Test
+    public void parsesSubMillisecondReplyLine() {
+        IcmpPinger.Reply reply = IcmpPinger.parseReplyLine(
+                "64 bytes from 192.168.1.1: icmp_seq=3 ttl=64 time=0.412 ms");
+
+        assertNotNull(reply);
+        assertEquals(3, reply.getSeq());
+        assertEquals(64, reply.getTtl());
+        assertEquals(412_000, reply.getRttNanos());
+        assertEquals(64, reply.getBytes());
+    }
+
+    @Test
+    public void parsesOlderAndIpv6Formats() {
+        IcmpPinger.Reply old = IcmpPinger.parseReplyLine(
+                "64 bytes from 10.0.0.1: icmp_req=12 ttl=255 time=23.5 ms");
+        assertEquals(12, old.getSeq());
+        assertEquals(23_500_000, old.getRttNanos());
+
+        IcmpPinger.Reply v6 = IcmpPinger.parseReplyLine(
+                "64 bytes from fe80::1%wlan0: icmp_seq=1 hlim=64 time=1.07 ms");
+        assertEquals(64, v6.getTtl());
+    }
+
+    @Test
+    public void ignoresNonReplyLines() {
+        assertNull(IcmpPinger.parseReplyLine("PING 192.168.1.1 (192.168.1.1) 56(84) bytes of data."));
+        assertNull(IcmpPinger.parseReplyLine("4 packets transmitted, 4 received, 0% packet loss, time 3004ms"));
+        assertNull(IcmpPinger.parseReplyLine("rtt min/avg/max/mdev = 0.402/0.431/0.478/0.029 ms"));
+    }
+}
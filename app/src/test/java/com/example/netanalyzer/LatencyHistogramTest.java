@@ -0,0 +1,99 @@
+package com.example.netanalyzer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Bucketing, percentiles, dispersion and merging of the ping latency histogram.
+ */
+public class LatencyHistogramTest {
+
+    private static final long US = 1000;
+    private static final long MS = 1_000_000;
+
+    @Test
+    public void bucketsCoverTheRangeWithoutGaps() {
+        for (int i = 0; i < LatencyHistogram.indexFor(LatencyHistogram.MAX_VALUE_MICROS); i++) {
+            assertEquals(LatencyHistogram.lowestValueAt(i) + LatencyHistogram.widthAt(i),
+                    LatencyHistogram.lowestValueAt(i + 1));
+        }
+        assertEquals(200, LatencyHistogram.indexFor(LatencyHistogram.lowestValueAt(200)));
+        assertEquals(127, LatencyHistogram.indexFor(127));
+    }
+
+    @Test
+    public void percentilesStayWithinBucketResolution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 10 * US);    // 10 us .. 10 ms
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(5 * MS, histogram.getValueAtPercentile(50), 5 * MS / 64);
+        assertEquals(9 * MS, histogram.getValueAtPercentile(90), 9 * MS / 64);
+        assertEquals(9.9 * MS, histogram.getValueAtPercentile(99), 9.9 * MS / 64);
+        assertEquals(10 * MS, histogram.getValueAtPercentile(100));
+        assertEquals(10 * US, histogram.getMinNanos());
+        assertEquals(5.005 * MS, histogram.getMeanNanos(), 1);
+    }
+
+    @Test
+    public void subMillisecondValuesAreKept() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(412 * US);
+        histogram.record(398 * US);
+
+        assertEquals(405 * US, histogram.getMeanNanos(), 1);
+        assertEquals(7 * US, histogram.getStdDevNanos(), 1);
+        assertTrue(histogram.getValueAtPercentile(50) < MS);
+    }
+
+    @Test
+    public void jitterFollowsRfc3550() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10 * MS);
+        histogram.record(26 * MS);    // |D| = 16 ms: J = 0 + (16 - 0) / 16 = 1 ms
+        assertEquals(MS, histogram.getJitterNanos(), 1);
+        histogram.record(26 * MS);    // |D| = 0: J = 1 + (0 - 1) / 16
+        assertEquals(MS * 15 / 16.0, histogram.getJitterNanos(), 1);
+    }
+
+    @Test
+    public void mergeMatchesRecordingEverything() {
+        LatencyHistogram all = new LatencyHistogram();
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 0; i < 500; i++) {
+            long a = (1 + i % 7) * MS;
+            long b = (20 + i % 13) * MS;
+            first.record(a);
+            second.record(b);
+            all.record(a);
+            all.record(b);
+        }
+        first.merge(second);
+
+        assertEquals(all.getCount(), first.getCount());
+        assertEquals(all.getMeanNanos(), first.getMeanNanos(), 1);
+        assertEquals(all.getStdDevNanos(), first.getStdDevNanos(), 1);
+        assertEquals(all.getMinNanos(), first.getMinNanos());
+        assertEquals(all.getMaxNanos(), first.getMaxNanos());
+        for (double p : new double[]{50, 90, 99, 99.9}) {
+            assertEquals(all.getValueAtPercentile(p), first.getValueAtPercentile(p));
+        }
+    }
+
+    @Test
+    public void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(10 * 60_000 * MS);
+
+        assertEquals(0, histogram.getMinNanos());
+        assertEquals(2, histogram.getCount());
+        assertEquals(10 * 60_000 * MS, histogram.getMaxNanos());
+        // The top bucket ends at ~33 s
+        assertTrue(histogram.getValueAtPercentile(100) < 34_000 * MS);
+    }
+}
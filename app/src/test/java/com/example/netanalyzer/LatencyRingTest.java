@@ -0,0 +1,73 @@
+package com.example.netanalyzer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Bounded sample storage, rolling aggregates and per-column reduction of continuous ping.
+ */
+public class LatencyRingTest {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    public void overwritesOldestOnceFull() {
+        LatencyRing ring = new LatencyRing(4);
+        for (int i = 1; i <= 6; i++) ring.add(i * MS);
+
+        assertEquals(4, ring.size());
+        assertEquals(6, ring.getTotalAdded());
+        assertEquals(3f, ring.get(0), 0.001f);
+        assertEquals(6f, ring.get(3), 0.001f);
+    }
+
+    @Test
+    public void aggregatesTrackTheHeldSamples() {
+        LatencyRing ring = new LatencyRing(4);
+        ring.add(-1);
+        ring.add(2 * MS);
+        ring.add(4 * MS);
+        assertEquals(1, ring.getLost());
+        assertEquals(3, ring.getMeanMillis(), 0.001);
+        assertEquals(100 / 3.0, ring.getLossPercent(), 0.001);
+
+        // Pushing the loss out of the window drops it from the aggregates
+        ring.add(6 * MS);
+        ring.add(8 * MS);
+        assertEquals(0, ring.getLost());
+        assertEquals(5, ring.getMeanMillis(), 0.001);
+
+        ring.add(-1);
+        assertTrue(Float.isNaN(ring.get(3)));
+    }
+
+    @Test
+    public void reducesToWorstSamplePerColumn() {
+        LatencyRing ring = new LatencyRing(100);
+        for (int i = 0; i < 10; i++) ring.add(i * MS);
+        ring.add(-1);
+        ring.add(-1);
+
+        float[] worst = new float[6];
+        boolean[] lost = new boolean[6];
+        assertEquals(6, ring.reduce(6, worst, lost));
+        assertEquals(1f, worst[0], 0.001f);    // Samples 0, 1
+        assertEquals(9f, worst[4], 0.001f);    // Samples 8, 9
+        assertFalse(lost[4]);
+        assertTrue(Float.isNaN(worst[5]));     // Both lost
+        assertTrue(lost[5]);
+    }
+
+    @Test
+    public void fewerSamplesThanColumnsGetOneEach() {
+        LatencyRing ring = new LatencyRing(100);
+        ring.add(3 * MS);
+        ring.add(412_000);
+
+        float[] worst = new float[320];
+        boolean[] lost = new boolean[320];
+        assertEquals(2, ring.reduce(320, worst, lost));
+        assertEquals(0.412f, worst[1], 0.0001f);
+    }
+}
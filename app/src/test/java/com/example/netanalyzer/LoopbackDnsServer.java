@@ -0,0 +1,196 @@
+package com.example.netanalyzer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in DNS server on loopback, answering over UDP and TCP on the same port from a
+ * small in-memory zone. Unknown names get NXDOMAIN.
+ */
+class LoopbackDnsServer implements Closeable {
+
+    private final Map<String, List<byte[]>> zone = new HashMap<>();
+    private final Set<String> truncated = new HashSet<>();
+    private final Set<String> silent = new HashSet<>();
+    private final DatagramChannel udp;
+    private final ServerSocketChannel tcp;
+    final AtomicInteger udpQueries = new AtomicInteger();
+    final AtomicInteger tcpQueries = new AtomicInteger();
+    // Sends an answer with the wrong id before every real UDP answer
+    volatile boolean sendStaleFirst = false;
+    // Answers nothing at all
+    volatile boolean silentAll = false;
+
+    LoopbackDnsServer() throws IOException {
+        ServerSocketChannel tcpChannel = null;
+        DatagramChannel udpChannel = null;
+        for (int attempt = 0; udpChannel == null; attempt++) {
+            tcpChannel = ServerSocketChannel.open();
+            tcpChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            int port = tcpChannel.socket().getLocalPort();
+            try {
+                udpChannel = DatagramChannel.open();
+                udpChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            } catch (IOException e) {
+                tcpChannel.close();
+                udpChannel = null;
+                if (attempt == 5) throw e;
+            }
+        }
+        tcp = tcpChannel;
+        udp = udpChannel;
+        start("udp", this::serveUdp);
+        start("tcp", this::serveTcp);
+    }
+
+    InetSocketAddress getAddress() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), tcp.socket().getLocalPort());
+    }
+
+    // Answer to (qname, qtype) gains a record owned by owner
+    synchronized void add(String qname, int qtype, String owner, int type, long ttl, byte[] rdata)
+            throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(300 + rdata.length);
+        DnsClient.writeName(record, owner);
+        record.putShort((short) type).putShort((short) 1).putInt((int) ttl)
+                .putShort((short) rdata.length).put(rdata);
+        byte[] bytes = new byte[record.position()];
+        record.flip();
+        record.get(bytes);
+        zone.computeIfAbsent(key(qname, qtype), k -> new ArrayList<>()).add(bytes);
+    }
+
+    void addAddress(String name, long ttl, String address) throws IOException {
+        byte[] bytes = InetAddress.getByName(address).getAddress();
+        int type = bytes.length == 4 ? DnsClient.TYPE_A : DnsClient.TYPE_AAAA;
+        add(name, type, name, type, ttl, bytes);
+    }
+
+    // Answers over UDP with TC set and no records
+    synchronized void truncateOverUdp(String name) {
+        truncated.add(name.toLowerCase(Locale.US));
+    }
+
+    synchronized void ignore(String name) {
+        silent.add(name.toLowerCase(Locale.US));
+    }
+
+    static byte[] encodeName(String name) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(300);
+        DnsClient.writeName(buffer, name);
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    static byte[] encodeText(String text) {
+        byte[] bytes = text.getBytes();
+        byte[] rdata = new byte[bytes.length + 1];
+        rdata[0] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, rdata, 1, bytes.length);
+        return rdata;
+    }
+
+    private static String key(String name, int type) {
+        return name.toLowerCase(Locale.US) + "/" + type;
+    }
+
+    // Answer to query, or null to stay silent
+    private synchronized byte[] answer(byte[] query, int length, boolean overUdp) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(query, 0, length);
+        in.position(12);
+        String name = DnsClient.readName(in).toLowerCase(Locale.US);
+        int type = in.getShort() & 0xFFFF;
+        in.getShort();
+        int questionEnd = in.position();
+        if (silentAll || silent.contains(name)) return null;
+
+        List<byte[]> records = zone.get(key(name, type));
+        boolean truncate = overUdp && truncated.contains(name);
+        boolean known = records != null || zone.keySet().stream().anyMatch(k -> k.startsWith(name + "/"));
+        if (truncate || records == null) records = new ArrayList<>();
+
+        ByteBuffer out = ByteBuffer.allocate(65535);
+        int flags = 0x8180 | (truncate ? 0x0200 : 0) | (known || truncate ? 0 : DnsClient.RCODE_NXDOMAIN);
+        out.put(query, 0, 2).putShort((short) flags).putShort((short) 1)
+                .putShort((short) records.size()).putShort((short) 0).putShort((short) 0);
+        out.put(query, 12, questionEnd - 12);
+        for (byte[] record : records) out.put(record);
+        byte[] response = new byte[out.position()];
+        out.flip();
+        out.get(response);
+        return response;
+    }
+
+    private void serveUdp() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+        while (true) {
+            buffer.clear();
+            SocketAddress client = udp.receive(buffer);
+            udpQueries.incrementAndGet();
+            byte[] response = answer(buffer.array(), buffer.position(), true);
+            if (response == null) continue;
+            if (sendStaleFirst) {
+                byte[] stale = response.clone();
+                stale[1]++;
+                udp.send(ByteBuffer.wrap(stale), client);
+            }
+            udp.send(ByteBuffer.wrap(response), client);
+        }
+    }
+
+    private void serveTcp() throws IOException {
+        while (true) {
+            try (SocketChannel client = tcp.accept()) {
+                ByteBuffer prefix = ByteBuffer.allocate(2);
+                while (prefix.hasRemaining()) if (client.read(prefix) < 0) throw new IOException("eof");
+                ByteBuffer query = ByteBuffer.allocate(prefix.getShort(0) & 0xFFFF);
+                while (query.hasRemaining()) if (client.read(query) < 0) throw new IOException("eof");
+                tcpQueries.incrementAndGet();
+                byte[] response = answer(query.array(), query.capacity(), false);
+                if (response == null) continue;
+                ByteBuffer out = ByteBuffer.allocate(2 + response.length);
+                out.putShort((short) response.length).put(response).flip();
+                while (out.hasRemaining()) client.write(out);
+            }
+        }
+    }
+
+    private interface Loop {
+        void run() throws IOException;
+    }
+
+    private static void start(String name, Loop loop) {
+        Thread thread = new Thread(() -> {
+            try {
+                loop.run();
+            } catch (IOException e) {
+                // Closed
+            }
+        }, "LoopbackDnsServer-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        udp.close();
+        tcp.close();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.netanalyzer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Parsing, formatting and flag bits of the long-backed MAC address type.
+ */
+public class MacAddressTest {
+
+    @Test
+    public void parsesCommonNotations() {
+        assertEquals(0xB827EB123456L, MacAddress.parse("B8:27:EB:12:34:56").toLong());
+        assertEquals(0xB827EB123456L, MacAddress.parse("b8-27-eb-12-34-56").toLong());
+        assertEquals(0xB827EB123456L, MacAddress.parse("b827.eb12.3456").toLong());
+        assertEquals("B8:27:EB:12:34:56", MacAddress.parse("b8:27:eb:12:34:56").toString());
+    }
+
+    @Test
+    public void rejectsMalformedAndPlaceholderAddresses() {
+        assertNull(MacAddress.parse("Unknown"));
+        assertNull(MacAddress.parse("B8:27:EB:12:34"));
+        assertNull(MacAddress.parse("B8:27:EB:12:34:56:78"));
+        assertNull(MacAddress.parse("00:00:00:00:00:00"));
+        assertNull(MacAddress.parse(null));
+    }
+
+    @Test
+    public void parsesAFieldInPlace() {
+        String line = "192.168.1.20     0x1  0x2  b8:27:eb:12:34:56  *  wlan0";
+        int start = line.indexOf("b8");
+        assertEquals(0xB827EB123456L, MacAddress.parse(line, start, start + 17));
+    }
+
+    @Test
+    public void extractsOuiAndFlagBits() {
+        MacAddress vendor = MacAddress.parse("B8:27:EB:12:34:56");
+        assertEquals(0xB827EB, vendor.getOui());
+        assertFalse(vendor.isLocallyAdministered());
+        assertFalse(vendor.isRandomized());
+
+        MacAddress randomized = MacAddress.parse("DA:A1:19:00:00:01");
+        assertTrue(randomized.isLocallyAdministered());
+        assertTrue(randomized.isRandomized());
+
+        MacAddress multicast = MacAddress.parse("01:00:5E:00:00:FB");
+        assertTrue(multicast.isMulticast());
+        assertFalse(multicast.isRandomized());
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.netanalyzer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Rolling-hour cost accounting and capping of the background monitor.
+ */
+public class MonitorBudgetTest {
+
+    @Test
+    public void accountsRadioTailPerCycle() {
+        MonitorBudget budget = new MonitorBudget(60_000, 30_000);
+        budget.record(0, 10, 300, 40);
+        budget.record(1000, 0, 0, 5);
+
+        assertEquals(300 + MonitorBudget.RADIO_TAIL_MS, budget.getWindowRadioMs());
+        assertEquals(45, budget.getWindowCpuMs());
+        assertEquals(10, budget.getWindowProbes());
+        assertEquals(2, budget.getTotalCycles());
+    }
+
+    @Test
+    public void underBudgetRunsNow() {
+        MonitorBudget budget = new MonitorBudget(10_000, 10_000);
+        budget.record(0, 5, 800, 100);
+
+        assertEquals(5000, budget.earliestAllowed(5000));
+        assertFalse(budget.isOverBudget(5000));
+    }
+
+    @Test
+    public void overBudgetWaitsForOldCyclesToAgeOut() {
+        MonitorBudget budget = new MonitorBudget(2000, 60_000);
+        budget.record(0, 5, 800, 10);        // 1000 ms radio
+        budget.record(60_000, 5, 800, 10);   // 2000 ms total: at the cap
+        long now = 120_000;
+
+        assertTrue(budget.isOverBudget(now));
+        // Dropping the first cycle gets back under the cap
+        assertEquals(MonitorBudget.WINDOW_MS, budget.earliestAllowed(now));
+        assertFalse(budget.isOverBudget(MonitorBudget.WINDOW_MS));
+        assertEquals(1000, budget.getWindowRadioMs());
+    }
+
+    @Test
+    public void cpuBudgetAlsoCaps() {
+        MonitorBudget budget = new MonitorBudget(60_000, 100);
+        budget.record(0, 1, 10, 150);
+
+        assertEquals(MonitorBudget.WINDOW_MS, budget.earliestAllowed(1));
+        assertEquals(150, budget.getTotalCpuMs());
+    }
+}
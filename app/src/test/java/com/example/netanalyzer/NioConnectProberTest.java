@@ -0,0 +1,59 @@
+package com.example.netanalyzer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Subnet sweep over loopback, where every address answers.
+ */
+public class NioConnectProberTest {
+
+    private static class Recorder implements SubnetSweeper.Listener {
+        final List<Integer> alive = new ArrayList<>();
+        final List<Integer> progress = new ArrayList<>();
+
+        @Override
+        public void onHostAlive(int address, long rttNanos) {
+            alive.add(address);
+        }
+
+        @Override
+        public void onProgress(int completed, int total) {
+            progress.add(completed);
+        }
+    }
+
+    @Test
+    public void progressCountsHostsThatAnswered() throws Exception {
+        // Linux answers for all of 127/8, with a RST where nothing listens
+        Ipv4Subnet subnet = Ipv4Subnet.of(Ipv4Subnet.parse("127.0.0.0"), 29);
+        Recorder recorder = new Recorder();
+
+        new NioConnectProber().sweep(subnet, new int[] {1, 2}, recorder);
+
+        assertEquals(subnet.getHostCount(), recorder.alive.size());
+        assertEquals(subnet.getHostCount(), recorder.progress.size());
+        assertEquals(subnet.getHostCount(), (int) recorder.progress.get(recorder.progress.size() - 1));
+    }
+
+    @Test
+    public void addressListSweepProbesOnlyThoseAddresses() throws Exception {
+        int[] addresses = {Ipv4Subnet.parse("127.0.0.9"), Ipv4Subnet.parse("127.0.1.1"),
+                Ipv4Subnet.parse("127.3.2.1")};
+        Recorder recorder = new Recorder();
+
+        new NioConnectProber().sweep(addresses, new int[] {1, 2}, recorder);
+
+        Collections.sort(recorder.alive);
+        int[] sorted = addresses.clone();
+        Arrays.sort(sorted);
+        assertEquals(Arrays.asList(sorted[0], sorted[1], sorted[2]), recorder.alive);
+        assertEquals(addresses.length, (int) recorder.progress.get(recorder.progress.size() - 1));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.netanalyzer;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Longest-prefix lookups across MA-L, MA-M and MA-S blocks.
+ */
+public class OuiIndexTest {
+
+    private static final String CSV =
+            "Registry,Assignment,Organization Name,Organization Address\n"
+            + "MA-L,70B3D5,IEEE Registration Authority,445 Hoes Lane Piscataway NJ US 08554\n"
+            + "MA-L,B827EB,Raspberry Pi Foundation,Mount Pleasant House Cambridge GB CB3 0RN\n"
+            + "MA-M,70B3D5A,\"Example Sensors, Inc.\",Somewhere\n"
+            + "MA-S,70B3D5A12,Tiny Block Ltd,Elsewhere\n";
+
+    private static OuiIndex index() throws Exception {
+        return new OuiIndex.Builder()
+                .addIeeeCsv(new BufferedReader(new StringReader(CSV)))
+                .addPropertiesLine("001C10=Apple")
+                .addPropertiesLine("A4D1D1=Apple")
+                .build();
+    }
+
+    @Test
+    public void longestPrefixWins() throws Exception {
+        OuiIndex index = index();
+
+        assertEquals("Tiny Block Ltd", index.lookup(mac("70:B3:D5:A1:23:45")));
+        assertEquals("Example Sensors, Inc.", index.lookup(mac("70:B3:D5:AF:00:01")));
+        assertEquals("IEEE Registration Authority", index.lookup(mac("70:B3:D5:01:00:01")));
+        assertEquals("Raspberry Pi Foundation", index.lookup(mac("b8-27-eb-12-34-56")));
+        assertNull(index.lookup(mac("00:00:5E:00:00:01")));
+    }
+
+    @Test
+    public void vendorNamesAreDeduplicated() throws Exception {
+        OuiIndex index = index();
+
+        assertEquals(6, index.size());
+        assertEquals(5, index.vendorCount());
+        assertSame(index.lookup(mac("00:1C:10:00:00:01")),
+                index.lookup(mac("A4:D1:D1:00:00:01")));
+    }
+
+    @Test
+    public void laterEntriesOverrideTheRegistry() throws Exception {
+        OuiIndex index = new OuiIndex.Builder()
+                .addIeeeCsv(new BufferedReader(new StringReader(CSV)))
+                .addPropertiesLine("B827EB=Raspberry Pi")
+                .addPropertiesLine("70B3D5A=Example Sensors")
+                .build();
+
+        assertEquals("Raspberry Pi", index.lookup(mac("B8:27:EB:12:34:56")));
+        assertEquals("Example Sensors", index.lookup(mac("70:B3:D5:AF:00:01")));
+        assertEquals("Tiny Block Ltd", index.lookup(mac("70:B3:D5:A1:23:45")));
+        assertEquals(4, index.size());
+        // Sorting again (build() after toByteBuffer()) keeps the same answer
+        OuiIndex.Builder builder = new OuiIndex.Builder()
+                .addPrefix("001D0F", "Microsoft")
+                .addPrefix("001D0F", "TP-Link");
+        builder.toByteBuffer();
+        assertEquals("TP-Link", builder.build().lookup(mac("00:1D:0F:00:00:01")));
+    }
+
+    @Test
+    public void readsTheBinaryFormatInPlace() throws Exception {
+        ByteBuffer compiled = new OuiIndex.Builder()
+                .addIeeeCsv(new BufferedReader(new StringReader(CSV)))
+                .toByteBuffer();
+
+        // As if mapped from a file: direct, and not starting at offset 0
+        ByteBuffer mapped = ByteBuffer.allocateDirect(compiled.remaining() + 16);
+        mapped.position(16);
+        mapped.put(compiled);
+        mapped.position(16);
+
+        OuiIndex index = OuiIndex.wrap(mapped);
+        assertEquals(4, index.size());
+        assertEquals("Example Sensors, Inc.", index.lookup(mac("70:B3:D5:AF:00:01")));
+        assertEquals("Raspberry Pi Foundation", index.lookup(mac("B8:27:EB:00:00:01")));
+    }
+
+    private static long mac(String text) {
+        return MacAddress.parse(text).toLong();
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.netanalyzer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the NIO port scanner against local listeners on 127.0.0.1.
+ */
+public class PortScannerTest {
+
+    private static final int LOOPBACK = Ipv4Subnet.parse("127.0.0.1");
+
+    private final List<ServerSocket> listeners = new ArrayList<>();
+
+    @Before
+    public void openListeners() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            listeners.add(new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1")));
+        }
+    }
+
+    @After
+    public void closeListeners() throws Exception {
+        for (ServerSocket listener : listeners) {
+            listener.close();
+        }
+    }
+
+    @Test
+    public void findsExactlyTheListeningPorts() throws Exception {
+        int[] closed = closedPorts(5);
+        int[] ports = new int[listeners.size() + closed.length];
+        for (int i = 0; i < listeners.size(); i++) {
+            ports[i] = listeners.get(i).getLocalPort();
+        }
+        System.arraycopy(closed, 0, ports, listeners.size(), closed.length);
+
+        List<Integer> streamed = new ArrayList<>();
+        PortScanner.Result result = new PortScanner(LOOPBACK).scan(ports, new PortScanner.Listener() {
+            @Override
+            public void onPortOpen(int port, long rttNanos) {
+                streamed.add(port);
+            }
+
+            @Override
+            public void onProgress(int scanned, int total) {
+            }
+        });
+
+        int[] expected = new int[listeners.size()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = listeners.get(i).getLocalPort();
+        }
+        Arrays.sort(expected);
+
+        assertArrayEquals(expected, result.getOpenPorts());
+        assertEquals(expected.length, streamed.size());
+        assertEquals(closed.length, result.getClosed());
+        assertEquals(ports.length, result.getScanned());
+    }
+
+    @Test
+    public void allFilteredHostKeepsItsRate() {
+        PortScanner.AdaptiveController controller = new PortScanner.AdaptiveController();
+        for (int i = 0; i < 10 * PortScanner.AdaptiveController.EPOCH; i++) {
+            controller.onResult(NioConnectProber.TIMEOUT, 0);
+            assertTrue(controller.rate >= PortScanner.AdaptiveController.INITIAL_RATE);
+        }
+        assertEquals(PortScanner.AdaptiveController.MAX_RATE, controller.rate, 0);
+
+        // With no RTT samples the timeout stays put, so the window alone bounds the rate:
+        // a full sweep of a firewalled host still takes well under a minute
+        double probesPerSecond = controller.window() * 1000.0 / controller.timeoutMs();
+        assertTrue(65535 / probesPerSecond < 20);
+    }
+
+    @Test
+    public void mostlyFilteredHostBacksOffWhenMoreProbesTimeOut() {
+        PortScanner.AdaptiveController controller = new PortScanner.AdaptiveController();
+        long rtt = TimeUnit.MILLISECONDS.toNanos(2);
+        for (int i = 0; i < 3 * PortScanner.AdaptiveController.EPOCH; i++) {
+            controller.onResult(i % 10 == 0 ? NioConnectProber.CLOSED : NioConnectProber.TIMEOUT, rtt);
+        }
+        double ramped = controller.rate;
+        assertTrue(ramped > PortScanner.AdaptiveController.INITIAL_RATE);
+
+        // The closed ports start timing out too
+        for (int i = 0; i < PortScanner.AdaptiveController.EPOCH; i++) {
+            controller.onResult(NioConnectProber.TIMEOUT, 0);
+        }
+        assertEquals(ramped / 2, controller.rate, 1e-9);
+    }
+
+    @Test
+    public void risingRttsBackOffWithoutLoss() {
+        PortScanner.AdaptiveController controller = new PortScanner.AdaptiveController();
+        for (int i = 0; i < 2 * PortScanner.AdaptiveController.EPOCH; i++) {
+            controller.onResult(NioConnectProber.CLOSED, TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        double ramped = controller.rate;
+
+        for (int i = 0; i < PortScanner.AdaptiveController.EPOCH; i++) {
+            controller.onResult(NioConnectProber.CLOSED, TimeUnit.MILLISECONDS.toNanos(40));
+        }
+        assertEquals(ramped / 2, controller.rate, 1e-9);
+    }
+
+    @Test
+    public void cleanHostRampsUpUntilProbesTimeOut() {
+        PortScanner.AdaptiveController controller = new PortScanner.AdaptiveController();
+        long rtt = TimeUnit.MILLISECONDS.toNanos(2);
+        for (int i = 0; i < 3 * PortScanner.AdaptiveController.EPOCH; i++) {
+            controller.onResult(NioConnectProber.CLOSED, rtt);
+        }
+        double ramped = controller.rate;
+        assertTrue(ramped > PortScanner.AdaptiveController.INITIAL_RATE);
+
+        // One epoch with a fifth of the probes lost
+        for (int i = 0; i < PortScanner.AdaptiveController.EPOCH; i++) {
+            controller.onResult(i % 5 == 0 ? NioConnectProber.TIMEOUT : NioConnectProber.CLOSED, rtt);
+        }
+        assertEquals(ramped / 2, controller.rate, 1e-9);
+    }
+
+    @Test
+    public void profilesAreOrderedAndDistinct() {
+        int[] top100 = PortProfiles.ports(PortProfiles.Profile.TOP_100);
+        int[] top1000 = PortProfiles.ports(PortProfiles.Profile.TOP_1000);
+        int[] full = PortProfiles.ports(PortProfiles.Profile.FULL);
+
+        assertEquals(100, top100.length);
+        assertEquals(1000, top1000.length);
+        assertEquals(65535, full.length);
+        assertEquals(80, full[0]);
+        assertArrayEquals(top100, Arrays.copyOf(top1000, 100));
+        assertArrayEquals(top1000, Arrays.copyOf(full, 1000));
+
+        boolean[] seen = new boolean[65536];
+        for (int port : full) {
+            assertFalse("duplicate port " + port, seen[port]);
+            seen[port] = true;
+        }
+    }
+
+    private static int[] closedPorts(int count) throws Exception {
+        // Bind and release ephemeral ports so nothing is listening on them
+        int[] ports = new int[count];
+        for (int i = 0; i < count; i++) {
+            try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"))) {
+                ports[i] = socket.getLocalPort();
+            }
+        }
+        return ports;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.netanalyzer;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Wake-up coalescing and backoff of the background monitor's scheduler.
+ */
+public class ProbeSchedulerTest {
+
+    private static final long MINUTE = 60_000;
+
+    @Test
+    public void newTargetsAreDueImmediately() {
+        ProbeScheduler scheduler = new ProbeScheduler();
+        scheduler.put("a", 1, MINUTE, 1000);
+        scheduler.put("b", 2, 5 * MINUTE, 1000);
+
+        assertEquals(1000, scheduler.nextWakeup());
+        assertEquals(2, scheduler.collectDue(1000).size());
+    }
+
+    @Test
+    public void nearlyDueTargetsShareAWakeUp() {
+        ProbeScheduler scheduler = new ProbeScheduler();
+        scheduler.put("a", 1, MINUTE, 0);
+        scheduler.put("b", 2, MINUTE, 0);
+        List<ProbeScheduler.Target> due = scheduler.collectDue(0);
+        scheduler.onResult(due.get(0), true, 0);
+        // b was probed 10 s later, so it falls due 10 s after a
+        scheduler.onResult(due.get(1), true, 10_000);
+
+        assertEquals(MINUTE, scheduler.nextWakeup());
+        // Within a quarter interval of its due time, b joins a's wake-up
+        assertEquals(2, scheduler.collectDue(MINUTE).size());
+    }
+
+    @Test
+    public void farOffTargetsWaitForTheirOwnWakeUp() {
+        ProbeScheduler scheduler = new ProbeScheduler();
+        scheduler.put("fast", 1, MINUTE, 0);
+        scheduler.put("slow", 2, 15 * MINUTE, 0);
+        for (ProbeScheduler.Target target : scheduler.collectDue(0)) {
+            scheduler.onResult(target, true, 0);
+        }
+
+        List<ProbeScheduler.Target> due = scheduler.collectDue(MINUTE);
+        assertEquals(1, due.size());
+        assertEquals("fast", due.get(0).getKey());
+    }
+
+    @Test
+    public void offlineTargetsBackOffExponentially() {
+        ProbeScheduler scheduler = new ProbeScheduler();
+        scheduler.put("gone", 1, MINUTE, 0);
+        ProbeScheduler.Target target = scheduler.collectDue(0).get(0);
+
+        scheduler.onResult(target, false, 0);
+        assertEquals(2 * MINUTE, target.getDueAt());
+        scheduler.onResult(target, false, 0);
+        assertEquals(4 * MINUTE, target.getDueAt());
+        for (int i = 0; i < 20; i++) scheduler.onResult(target, false, 0);
+        assertEquals(ProbeScheduler.MAX_BACKOFF_MS, target.getDueAt());
+
+        // One answer restores the normal interval
+        scheduler.onResult(target, true, 0);
+        assertEquals(MINUTE, target.getDueAt());
+    }
+
+    @Test
+    public void stretchLengthensEveryInterval() {
+        ProbeScheduler scheduler = new ProbeScheduler();
+        scheduler.setStretch(4);
+        scheduler.put("a", 1, MINUTE, 0);
+        ProbeScheduler.Target target = scheduler.collectDue(0).get(0);
+        scheduler.onResult(target, true, 0);
+
+        assertEquals(4 * MINUTE, scheduler.nextWakeup());
+    }
+
+    @Test
+    public void intervalsHaveAFloor() {
+        ProbeScheduler scheduler = new ProbeScheduler();
+        scheduler.put("a", 1, 1, 0);
+
+        assertEquals(ProbeScheduler.MIN_INTERVAL_MS, scheduler.collectDue(0).get(0).getIntervalMs());
+    }
+}
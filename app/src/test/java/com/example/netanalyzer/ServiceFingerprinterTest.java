@@ -0,0 +1,119 @@
+package com.example.netanalyzer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Banner grabs against stand-in servers on loopback: one that greets first and one that
+ * only answers an HTTP request.
+ */
+public class ServiceFingerprinterTest {
+
+    private static final int LOOPBACK = Ipv4Subnet.parse("127.0.0.1");
+
+    private final List<ServerSocket> servers = new ArrayList<>();
+    private final BlockingQueue<ServiceInfo> identified = new LinkedBlockingQueue<>();
+
+    @After
+    public void closeServers() throws IOException {
+        for (ServerSocket server : servers) server.close();
+    }
+
+    // Accepts one connection; writes greeting straight away, or reply once a request's
+    // header block has been read
+    private int serve(String greeting, String reply) throws IOException {
+        ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        servers.add(server);
+        Thread thread = new Thread(() -> {
+            try (Socket socket = server.accept()) {
+                OutputStream out = socket.getOutputStream();
+                if (greeting != null) {
+                    out.write(greeting.getBytes(StandardCharsets.ISO_8859_1));
+                    out.flush();
+                }
+                if (reply != null) {
+                    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                            StandardCharsets.ISO_8859_1));
+                    String line;
+                    while ((line = in.readLine()) != null && !line.isEmpty()) {
+                        // Request headers
+                    }
+                    out.write(reply.getBytes(StandardCharsets.ISO_8859_1));
+                    out.flush();
+                }
+                // Hold the connection open until the client is done
+                socket.getInputStream().read();
+            } catch (IOException e) {
+                // Server closed by the test
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return server.getLocalPort();
+    }
+
+    private void handOver(ServiceFingerprinter fingerprinter, int port) throws IOException {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", port));
+        channel.configureBlocking(false);
+        assertTrue(fingerprinter.onConnected(LOOPBACK, port, channel, 0));
+    }
+
+    @Test
+    public void greetingIsReadWithoutSendingAProbe() throws Exception {
+        int port = serve("SSH-2.0-OpenSSH_9.6p1 Ubuntu-3ubuntu13\r\n", null);
+        ServiceFingerprinter fingerprinter = new ServiceFingerprinter(identified::add);
+        fingerprinter.start();
+
+        handOver(fingerprinter, port);
+        ServiceInfo info = identified.poll(5, TimeUnit.SECONDS);
+        fingerprinter.finish();
+        fingerprinter.join();
+
+        assertNotNull(info);
+        assertEquals(port, info.getPort());
+        assertEquals("ssh", info.getService());
+        assertEquals("OpenSSH 9.6p1", info.getProduct());
+    }
+
+    @Test
+    public void silentPortGetsTheHttpFallbackProbe() throws Exception {
+        int port = serve(null, "HTTP/1.0 200 OK\r\nServer: GoAhead-Webs\r\nContent-Type: text/html\r\n\r\n");
+        ServiceFingerprinter fingerprinter = new ServiceFingerprinter(identified::add);
+        fingerprinter.start();
+
+        handOver(fingerprinter, port);
+        ServiceInfo info = identified.poll(5, TimeUnit.SECONDS);
+        fingerprinter.finish();
+        fingerprinter.join();
+
+        assertNotNull(info);
+        assertEquals("http", info.getService());
+        assertEquals("GoAhead-Webs", info.getProduct());
+        assertEquals("Embedded/IoT", info.getDeviceHint());
+    }
+
+    @Test
+    public void tlsPortsAreNamedWithoutAGrab() throws Exception {
+        ServiceFingerprinter fingerprinter = new ServiceFingerprinter(identified::add);
+        assertFalse(fingerprinter.onConnected(LOOPBACK, 443, null, 0));
+        assertEquals("tls", identified.poll().getService());
+    }
+}
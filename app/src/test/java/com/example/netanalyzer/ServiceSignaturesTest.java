@@ -0,0 +1,85 @@
+package com.example.netanalyzer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Signature table over banners captured from real servers and devices.
+ */
+public class ServiceSignaturesTest {
+
+    // port, banner, service, product, device hint
+    private static final Object[][] BANNERS = {
+            {22, "SSH-2.0-OpenSSH_8.9p1 Ubuntu-3ubuntu0.6\r\n", "ssh", "OpenSSH 8.9p1", null},
+            {22, "SSH-2.0-dropbear_2020.81\r\n", "ssh", "Dropbear 2020.81", "Embedded/IoT"},
+            {22, "SSH-2.0-ROSSSH\r\n", "ssh", "MikroTik RouterOS", "Router/Gateway"},
+            {22, "SSH-2.0-Cisco-1.25\r\n", "ssh", "Cisco SSH 1.25", "Router/Gateway"},
+            {22, "SSH-2.0-libssh_0.9.6\r\n", "ssh", "libssh_0.9.6", null},
+
+            {80, "HTTP/1.1 200 OK\r\nDate: Mon, 12 Feb 2024 10:00:00 GMT\r\nServer: Apache/2.4.41 (Ubuntu)\r\n"
+                    + "Content-Type: text/html\r\n\r\n", "http", "Apache/2.4.41 (Ubuntu)", null},
+            {80, "HTTP/1.1 200 OK\r\nServer: Hikvision-Webs\r\nContent-Length: 0\r\n\r\n",
+                    "http", "Hikvision-Webs", "Camera"},
+            {80, "HTTP/1.1 401 Unauthorized\r\nServer: RomPager/4.07 UPnP/1.0\r\n\r\n",
+                    "http", "RomPager/4.07 UPnP/1.0", "Router/Gateway"},
+            {631, "HTTP/1.1 200 OK\r\nServer: CUPS/2.4 IPP/2.1\r\n\r\n", "http", "CUPS/2.4 IPP/2.1", "Printer"},
+            {8080, "HTTP/1.0 200 OK\r\nServer: lighttpd/1.4.59\r\n\r\n", "http", "lighttpd/1.4.59", "Embedded/IoT"},
+            {32400, "HTTP/1.1 401 Unauthorized\r\nX-Plex-Protocol: 1.0\r\n\r\n", "http", "Plex Media Server", "Media Server"},
+            {80, "HTTP/1.1 302 Found\r\nLocation: /login.html\r\n\r\n", "http", null, null},
+
+            {21, "220 (vsFTPd 3.0.3)\r\n", "ftp", "vsFTPd 3.0.3", null},
+            {21, "220 ProFTPD 1.3.5e Server (Debian) [::ffff:192.168.1.5]\r\n", "ftp", "ProFTPD 1.3.5", null},
+            {21, "220-FileZilla Server 0.9.60 beta\r\n", "ftp", "FileZilla", null},
+            {21, "220 Microsoft FTP Service\r\n", "ftp", null, null},
+
+            {25, "220 mail.example.com ESMTP Postfix (Ubuntu)\r\n", "smtp", "mail.example.com", null},
+            {587, "220 mx.example.org ESMTP Exim 4.94.2 Mon, 12 Feb 2024 10:00:00 +0000\r\n",
+                    "smtp", "mx.example.org", null},
+
+            {554, "RTSP/1.0 200 OK\r\nCSeq: 1\r\nServer: Dahua Rtsp Server\r\nPublic: OPTIONS, DESCRIBE\r\n\r\n",
+                    "rtsp", "Dahua Rtsp Server", "Camera"},
+            {554, "RTSP/1.0 200 OK\r\nCSeq: 1\r\nPublic: OPTIONS, DESCRIBE, SETUP, PLAY\r\n\r\n",
+                    "rtsp", null, "Camera"},
+
+            {5900, "RFB 003.008\n", "vnc", "RFB 003.008", null},
+    };
+
+    @Test
+    public void realBannersMatchTheirSignature() {
+        for (Object[] row : BANNERS) {
+            int port = (Integer) row[0];
+            String banner = (String) row[1];
+            ServiceInfo info = ServiceSignatures.match(port, banner);
+            String line = banner.split("\r?\n")[0];
+            assertEquals(line, row[2], info.getService());
+            assertEquals(line, row[3], info.getProduct());
+            assertEquals(line, row[4], info.getDeviceHint());
+            assertEquals(line, info.getBanner());
+        }
+    }
+
+    @Test
+    public void unmatchedBannersFallBackToThePortName() {
+        ServiceInfo silent = ServiceSignatures.match(22, null);
+        assertEquals(PortProfiles.serviceName(22), silent.getService());
+        assertNull(silent.getProduct());
+
+        ServiceInfo tls = ServiceSignatures.match(443, null);
+        assertEquals("tls", tls.getService());
+
+        ServiceInfo unknown = ServiceSignatures.match(23, "Welcome\r\n");
+        assertEquals(PortProfiles.serviceName(23), unknown.getService());
+        assertEquals("Welcome", unknown.getBanner());
+    }
+
+    @Test
+    public void probesFollowThePort() {
+        assertNull(ServiceSignatures.probeFor(22, "192.168.1.5"));
+        assertTrue(new String(ServiceSignatures.probeFor(80, "192.168.1.5")).startsWith("HEAD / HTTP/1.0\r\n"));
+        assertTrue(new String(ServiceSignatures.probeFor(554, "192.168.1.5"))
+                .startsWith("OPTIONS rtsp://192.168.1.5:554/ RTSP/1.0\r\n"));
+        assertNull(ServiceSignatures.fallbackProbe(21, "192.168.1.5"));
+        assertNotNull(ServiceSignatures.fallbackProbe(49152, "192.168.1.5"));
+    }
+}
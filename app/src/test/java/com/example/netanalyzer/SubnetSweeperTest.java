@@ -0,0 +1,181 @@
+package com.example.netanalyzer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sweeps against a stand-in for isReachable, so which hosts answer, how fast, and how
+ * many probes overlap are under the test's control.
+ */
+public class SubnetSweeperTest {
+
+    private static class Recorder implements SubnetSweeper.Listener {
+        final List<Integer> alive = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger lastProgress = new AtomicInteger();
+
+        @Override
+        public void onHostAlive(int address, long rttNanos) {
+            alive.add(address);
+        }
+
+        @Override
+        public void onProgress(int completed, int total) {
+            lastProgress.accumulateAndGet(completed, Math::max);
+        }
+    }
+
+    // Answers for even last octets; counts probes per address and the most in flight
+    private static class FakeHosts implements SubnetSweeper.Probe {
+        final Map<Integer, Integer> probes = new HashMap<>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final long delayMs;
+
+        FakeHosts(long delayMs) {
+            this.delayMs = delayMs;
+        }
+
+        @Override
+        public boolean isReachable(int address, int timeoutMs) throws IOException {
+            synchronized (probes) {
+                probes.merge(address, 1, Integer::sum);
+            }
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                if (delayMs > 0) Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                throw new IOException("interrupted");
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return (address & 1) == 0;
+        }
+
+        int probesOf(int address) {
+            synchronized (probes) {
+                return probes.getOrDefault(address, 0);
+            }
+        }
+    }
+
+    @Test
+    public void everyHostIsProbedAndSilentOnesGetOneRetry() {
+        Ipv4Subnet subnet = Ipv4Subnet.of(Ipv4Subnet.parse("10.0.0.0"), 28);
+        int gateway = Ipv4Subnet.parse("10.0.0.2");
+        FakeHosts hosts = new FakeHosts(0);
+        Recorder recorder = new Recorder();
+
+        SubnetSweeper.SweepStats stats = new SubnetSweeper(hosts).sweep(subnet, gateway, recorder);
+
+        assertEquals(14, stats.getTotal());
+        assertEquals(14, stats.getCompleted());
+        assertEquals(14, recorder.lastProgress.get());
+        assertEquals(7, stats.getAlive());
+        assertEquals(7, recorder.alive.size());
+        assertEquals(7, stats.getRetries());
+        for (int i = 0; i < subnet.getHostCount(); i++) {
+            int address = subnet.hostAt(i);
+            if (address == gateway) {
+                // Calibration only: the sweep itself doesn't probe it again
+                assertEquals(3, hosts.probesOf(address));
+            } else {
+                assertEquals((address & 1) == 0 ? 1 : 2, hosts.probesOf(address));
+            }
+        }
+        assertFalse(hosts.probes.containsKey(subnet.getNetwork()));
+        assertFalse(hosts.probes.containsKey(subnet.getBroadcast()));
+    }
+
+    @Test
+    public void addressListSweepProbesOnlyThoseAddresses() {
+        int[] addresses = {Ipv4Subnet.parse("10.0.0.4"), Ipv4Subnet.parse("10.0.3.9"),
+                Ipv4Subnet.parse("10.1.0.8")};
+        FakeHosts hosts = new FakeHosts(0);
+        Recorder recorder = new Recorder();
+
+        SubnetSweeper.SweepStats stats = new SubnetSweeper(hosts).sweep(addresses, recorder);
+
+        assertEquals(3, stats.getCompleted());
+        assertEquals(3, hosts.probes.size());
+        assertEquals(2, recorder.alive.size());
+        assertTrue(recorder.alive.contains(addresses[0]));
+        assertTrue(recorder.alive.contains(addresses[2]));
+    }
+
+    @Test
+    public void cancelStopsTheSweepEarly() {
+        Ipv4Subnet subnet = Ipv4Subnet.of(Ipv4Subnet.parse("10.0.0.0"), 20);
+        FakeHosts hosts = new FakeHosts(1);
+        SubnetSweeper sweeper = new SubnetSweeper(hosts);
+        AtomicInteger aliveAtCancel = new AtomicInteger(-1);
+        Recorder recorder = new Recorder() {
+            @Override
+            public void onHostAlive(int address, long rttNanos) {
+                super.onHostAlive(address, rttNanos);
+                if (alive.size() == 50) {
+                    aliveAtCancel.set(50);
+                    sweeper.cancel();
+                }
+            }
+        };
+
+        SubnetSweeper.SweepStats stats = sweeper.sweep(subnet, 0, recorder);
+
+        assertEquals(50, aliveAtCancel.get());
+        assertTrue(stats.getCompleted() < subnet.getHostCount());
+        // Only probes already dispatched when it was cancelled can still have run
+        int probed;
+        synchronized (hosts.probes) {
+            probed = hosts.probes.size();
+        }
+        assertTrue(probed < 2 * 50 + 2 * SubnetSweeper.MAX_CONCURRENCY);
+    }
+
+    @Test
+    public void concurrencyGrowsOnFastAnswersButStaysBounded() {
+        Ipv4Subnet subnet = Ipv4Subnet.of(Ipv4Subnet.parse("10.0.0.0"), 22);
+        FakeHosts hosts = new FakeHosts(2);
+
+        SubnetSweeper.SweepStats stats = new SubnetSweeper(hosts).sweep(subnet, 0, new Recorder());
+
+        assertEquals(subnet.getHostCount(), stats.getCompleted());
+        assertTrue(stats.getFinalConcurrency() > SubnetSweeper.INITIAL_CONCURRENCY);
+        assertTrue(stats.getFinalConcurrency() <= SubnetSweeper.MAX_CONCURRENCY);
+        assertTrue(hosts.maxInFlight.get() <= SubnetSweeper.MAX_CONCURRENCY);
+    }
+
+    @Test
+    public void localErrorsShrinkTheWindow() {
+        Ipv4Subnet subnet = Ipv4Subnet.of(Ipv4Subnet.parse("10.0.0.0"), 24);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        SubnetSweeper.Probe exhausted = (address, timeoutMs) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                // Fall through to the error
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            throw new IOException("EMFILE (Too many open files)");
+        };
+
+        SubnetSweeper.SweepStats stats = new SubnetSweeper(exhausted).sweep(subnet, 0, new Recorder());
+
+        // Every host still gets its answer (down), just with a smaller window
+        assertEquals(subnet.getHostCount(), stats.getCompleted());
+        assertEquals(0, stats.getAlive());
+        assertEquals(SubnetSweeper.MIN_CONCURRENCY, stats.getFinalConcurrency());
+        assertTrue(maxInFlight.get() <= SubnetSweeper.INITIAL_CONCURRENCY);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.netanalyzer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Parsing of hop replies and trimming of the traceroute's hop list.
+ */
+public class TracerouteTest {
+
+    private static final long MS = 1_000_000;
+
+    private static Traceroute.Hop[] hops(int maxHops) {
+        Traceroute.Hop[] hops = new Traceroute.Hop[maxHops + 1];
+        for (int ttl = 1; ttl <= maxHops; ttl++) hops[ttl] = new Traceroute.Hop(ttl);
+        return hops;
+    }
+
+    @Test
+    public void parsesTimeExceededAndUnreachableLines() {
+        Traceroute.HopLine hop = Traceroute.parseHopLine("From 192.168.1.1 icmp_seq=2 Time to live exceeded");
+        assertEquals("192.168.1.1", hop.address);
+        assertEquals(2, hop.seq);
+        assertFalse(hop.unreachable);
+
+        hop = Traceroute.parseHopLine("From 10.0.0.1: icmp_seq=1 Destination Host Unreachable");
+        assertEquals("10.0.0.1", hop.address);
+        assertTrue(hop.unreachable);
+
+        hop = Traceroute.parseHopLine("From gw.example (10.0.0.1) icmp_seq=3 Time to live exceeded");
+        assertEquals("gw.example", hop.address);
+        assertEquals(3, hop.seq);
+
+        assertNull(Traceroute.parseHopLine("64 bytes from 8.8.8.8: icmp_seq=1 ttl=117 time=12.3 ms"));
+        assertNull(Traceroute.parseHopLine("PING 8.8.8.8 (8.8.8.8) 56(84) bytes of data."));
+    }
+
+    @Test
+    public void parsesExtendedErrorWithOffender() {
+        byte[] data = new byte[32];
+        data[4] = 2;                        // SO_EE_ORIGIN_ICMP
+        data[5] = (byte) Traceroute.ICMP_TIME_EXCEEDED;
+        data[16] = 2;                       // AF_INET, little endian
+        data[20] = 10; data[21] = 0; data[22] = 0; data[23] = (byte) 254;
+
+        Traceroute.ExtendedError error = Traceroute.ExtendedError.parse(data);
+        assertEquals(Traceroute.ICMP_TIME_EXCEEDED, error.type);
+        assertEquals("10.0.0.254", error.offender);
+
+        data[4] = 1;                        // SO_EE_ORIGIN_LOCAL
+        assertNull(Traceroute.ExtendedError.parse(data));
+        assertNull(Traceroute.ExtendedError.parse(new byte[8]));
+    }
+
+    @Test
+    public void destinationReplyEndsTheTraceAndKeepsItsRtt() {
+        Traceroute.Hop[] hops = hops(5);
+        Traceroute.recordProcessLine(hops[1], "From 192.168.1.1 icmp_seq=1 Time to live exceeded", 0, 3 * MS);
+        Traceroute.recordProcessLine(hops[3], "64 bytes from 8.8.8.8: icmp_seq=1 ttl=117 time=12.5 ms", 0, 0);
+        // Echo from a later TTL too: the path is only 3 hops long
+        Traceroute.recordProcessLine(hops[4], "64 bytes from 8.8.8.8: icmp_seq=1 ttl=117 time=12.7 ms", 0, 0);
+
+        Traceroute.Result result = Traceroute.summarize("8.8.8.8", "ping -t", hops, 0);
+        assertTrue(result.isReached());
+        assertEquals(3, result.getHops().size());
+        assertEquals("192.168.1.1", result.getHops().get(0).getAddress());
+        assertEquals(3.0, result.getHops().get(0).getPercentileMillis(50), 0.1);
+        assertNull(result.getHops().get(1).getAddress());
+        assertEquals("8.8.8.8", result.getHops().get(2).getAddress());
+        assertEquals(12.5, result.getHops().get(2).getPercentileMillis(50), 0.1);
+    }
+
+    @Test
+    public void hopRttIsEstimatedFromTheProbeSchedule() {
+        Traceroute.Hop hop = new Traceroute.Hop(2);
+        long second = Traceroute.ROUND_INTERVAL_MS * MS;
+        Traceroute.recordProcessLine(hop, "From 10.0.0.1 icmp_seq=2 Time to live exceeded", 0, second + 7 * MS);
+        assertEquals(7.0, hop.getPercentileMillis(50), 0.1);
+    }
+
+    @Test
+    public void unfinishedTraceKeepsOneSilentHopPastTheLastAnswer() {
+        Traceroute.Hop[] hops = hops(30);
+        Traceroute.recordProcessLine(hops[1], "From 192.168.1.1 icmp_seq=1 Time to live exceeded", 0, MS);
+        Traceroute.recordProcessLine(hops[2], "From 10.0.0.1 icmp_seq=1 Time to live exceeded", 0, MS);
+
+        Traceroute.Result result = Traceroute.summarize("203.0.113.9", "ping -t", hops, 0);
+        assertFalse(result.isReached());
+        assertEquals(3, result.getHops().size());
+        assertEquals(0, result.getHops().get(2).getReceived());
+    }
+
+    @Test
+    public void unreachableHopEndsTheTrace() {
+        Traceroute.Hop[] hops = hops(10);
+        Traceroute.recordProcessLine(hops[2], "From 10.0.0.1 icmp_seq=1 Destination Net Unreachable", 0, MS);
+
+        Traceroute.Result result = Traceroute.summarize("203.0.113.9", "ping -t", hops, 0);
+        assertFalse(result.isReached());
+        assertEquals(2, result.getHops().size());
+        assertTrue(result.getHops().get(1).isUnreachable());
+    }
+}
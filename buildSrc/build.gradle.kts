@@ -0,0 +1,19 @@
+plugins {
+    `java-library`
+}
+
+// Compiles OuiIndex from the app's sources so app/build.gradle.kts can build oui.bin with
+// the same parser and writer the app reads it with. OuiIndex must stay plain Java for this.
+sourceSets {
+    main {
+        java {
+            setSrcDirs(listOf("../app/src/main/java"))
+            include("com/example/netanalyzer/OuiIndex.java")
+        }
+    }
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}